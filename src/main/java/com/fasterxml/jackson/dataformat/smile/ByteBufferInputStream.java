@@ -0,0 +1,64 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Simple {@link InputStream} implementation that reads contents of a
+ * {@link ByteBuffer} (from its position up to its limit), using bulk
+ * access to avoid per-byte overhead; used for parsing content of buffers
+ * that do not expose backing array, such as direct and read-only buffers.
+ *
+ * @since 2.8
+ */
+public class ByteBufferInputStream extends InputStream
+{
+    protected final ByteBuffer _buffer;
+
+    /**
+     * @param buffer Buffer to read contents of: note that its position is
+     *   advanced as contents are read (caller may pass a duplicate to avoid this)
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        _buffer = buffer;
+    }
+
+    @Override
+    public int available() {
+        return _buffer.remaining();
+    }
+
+    @Override
+    public int read() {
+        return _buffer.hasRemaining() ? (_buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len <= 0) {
+            return 0;
+        }
+        final int avail = _buffer.remaining();
+        if (avail == 0) {
+            return -1;
+        }
+        if (len > avail) {
+            len = avail;
+        }
+        _buffer.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n)
+    {
+        if (n <= 0L) {
+            return 0L;
+        }
+        int count = (int) Math.min(n, (long) _buffer.remaining());
+        _buffer.position(_buffer.position() + count);
+        return count;
+    }
+}
@@ -0,0 +1,98 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+/**
+ * Base class for output targets that {@link SmileGenerator} hands its full output
+ * buffers to (without copying), instead of writing them to an {@link OutputStream}
+ * synchronously; generator continues encoding into the buffer returned.
+ *<p>
+ * Instances are only to be used by a single generator.
+ *
+ * @since 2.8
+ */
+public abstract class SmileBufferedOutput
+{
+    /**
+     * Accessor for the underlying {@link OutputStream}, if any. Note that it must not
+     * be written to directly while writes may be pending.
+     */
+    public abstract OutputStream getOutputStream();
+
+    /**
+     * Method for allocating the initial buffer to encode content in.
+     */
+    public abstract byte[] allocBuffer();
+
+    /**
+     * Method for handing over contents of given buffer; buffer must not
+     * be accessed by caller after the call.
+     *
+     * @return Buffer (of same length as the one given) for caller to continue
+     *   encoding content in
+     */
+    public abstract byte[] write(byte[] buffer, int len) throws IOException;
+
+    /**
+     * Method called when generator is flushed, after it has handed over its
+     * output buffer.
+     *
+     * @param flushTarget Whether underlying target (if any) is to be flushed
+     */
+    public abstract void flush(boolean flushTarget) throws IOException;
+
+    /**
+     * Method called when no more content is to be written.
+     *
+     * @param closeTarget Whether underlying target (if any) is to be closed
+     *    (if not, it is flushed)
+     */
+    public abstract void close(boolean closeTarget) throws IOException;
+
+    /**
+     * Method generator calls, after handing over a full buffer while writing a long
+     * value (long String or binary value) in chunks, to see whether it should suspend
+     * writing the value (see {@link #suspend}) instead of continuing.
+     * Default implementation returns false, meaning values are always written completely.
+     */
+    public boolean isFull() {
+        return false;
+    }
+
+    /**
+     * Method generator calls when it suspends writing of a value, because
+     * {@link #isFull} returned true: given value is to be resumed once there is room
+     * for more output.
+     * Default implementation fails, since {@link #isFull} never returns true.
+     */
+    public void suspend(Resumable value) {
+        throw new IllegalStateException("Output of type "+getClass().getName()+" does not support suspended writes");
+    }
+
+    /**
+     * Interface for values whose writing has been suspended by generator
+     */
+    public interface Resumable
+    {
+        /**
+         * Method for continuing to write the value: writes until the value has
+         * been completely written, or output is full again (in which case
+         * value is suspended again).
+         */
+        public void resume() throws IOException;
+    }
+
+    /**
+     * Buffer handed over, with length of its content
+     */
+    protected final static class Chunk
+    {
+        public final byte[] buffer;
+        public final int length;
+
+        public Chunk(byte[] buffer, int length) {
+            this.buffer = buffer;
+            this.length = length;
+        }
+    }
+}
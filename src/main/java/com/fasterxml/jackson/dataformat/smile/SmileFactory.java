@@ -2,11 +2,18 @@ package com.fasterxml.jackson.dataformat.smile;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.core.format.InputAccessor;
 import com.fasterxml.jackson.core.format.MatchStrength;
 import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.dataformat.smile.async.NonBlockingInputFeeder;
+import com.fasterxml.jackson.dataformat.smile.async.NonBlockingParserImpl;
 
 /**
  * Factory used for constructing {@link SmileParser} and {@link SmileGenerator}
@@ -327,6 +334,177 @@ public class SmileFactory extends JsonFactory
         return _createParser(data, offset, len, ctxt);
     }
 
+    /**
+     * Method for constructing a parser for reading contents of given {@link ByteBuffer},
+     * from its current position up to its limit. Position of the buffer is not modified.
+     *<p>
+     * For heap buffers with accessible backing array, contents are decoded directly from
+     * that array, without copying; for other buffers (direct, read-only) contents are
+     * copied in bulk into the input buffer of the parser as needed.
+     *
+     * @since 2.8
+     */
+    @SuppressWarnings("resource")
+    public SmileParser createParser(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        IOContext ctxt = _createContext(buffer, true);
+        return _createParser(_decorate(new ByteBufferInputStream(buffer.duplicate()), ctxt), ctxt);
+    }
+
+    /**
+     * Method for constructing a parser positioned at specified node of a document,
+     * using given offset index that was built from the same content (see
+     * {@link SmileOffsetIndex#build}). Content is read starting at offset of the
+     * node, with shared-name and shared-value state restored from index, and
+     * parser reports end-of-input once the node value has been read.
+     *
+     * @param data Buffer that contains the whole document; offsets in index
+     *    are relative to the start of this buffer
+     *
+     * @since 2.8
+     */
+    public SmileParser createParser(byte[] data, SmileOffsetIndex index, int node) throws IOException {
+        IOContext ctxt = _createContext(data, true);
+        return index._constructParser(ctxt, _parserFeatures, _smileParserFeatures, _objectCodec,
+                _byteSymbolCanonicalizer.makeChild(_factoryFeatures), data, node);
+    }
+
+    /**
+     * Method for constructing a parser that reads content from given
+     * {@link InputStream} using read-ahead: while parser decodes content of one buffer,
+     * the next one is filled by a task run on given {@link Executor}, and buffers are
+     * swapped without copying. This can improve throughput for large sequential
+     * reads from slow streams (such as compressed or remote content), by overlapping
+     * I/O and decoding; for fast streams and small documents, regular
+     * {@link #createParser(InputStream)} is usually more efficient.
+     *<p>
+     * Each parser uses a single thread of the executor at any given time.
+     *
+     * @since 2.8
+     */
+    @SuppressWarnings("resource")
+    public SmileParser createParser(InputStream in, Executor readAheadExecutor) throws IOException {
+        IOContext ctxt = _createContext(in, false);
+        SmileReadAheadInput readAhead = new SmileReadAheadInput(_decorate(in, ctxt), readAheadExecutor);
+        return new SmileParserBootstrapper(ctxt, readAhead).constructParser(
+                _factoryFeatures, _parserFeatures, _smileParserFeatures,
+                _objectCodec, _byteSymbolCanonicalizer);
+    }
+
+    /**
+     * Method for constructing a parser for reading content that consists of
+     * given sequence of fragments (such as network buffers for a single message),
+     * without concatenating them first. Fragments are parsed in place, and only
+     * tokens that straddle fragment boundaries are copied.
+     *
+     * @since 2.8
+     */
+    public SmileParser createParser(byte[][] fragments) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[fragments.length];
+        for (int i = 0; i < fragments.length; ++i) {
+            buffers[i] = ByteBuffer.wrap(fragments[i]);
+        }
+        return createParser(buffers);
+    }
+
+    /**
+     * Method for constructing a parser for reading content that consists of
+     * given sequence of fragments, each from its position up to its limit.
+     * Fragments with accessible backing array are parsed in place (with only
+     * tokens that straddle fragment boundaries being copied); contents of
+     * others (direct, read-only) are copied in bulk into the input buffer of the parser.
+     * Positions of given buffers are not modified.
+     *
+     * @since 2.8
+     */
+    @SuppressWarnings("resource")
+    public SmileParser createParser(ByteBuffer[] fragments) throws IOException {
+        IOContext ctxt = _createContext(fragments, true);
+        if (_inputDecorator != null) { // need to expose as a stream to decorate
+            List<InputStream> streams = new ArrayList<InputStream>(fragments.length);
+            for (ByteBuffer fragment : fragments) {
+                streams.add(new ByteBufferInputStream(fragment.duplicate()));
+            }
+            InputStream in = new SequenceInputStream(Collections.enumeration(streams));
+            return _createParser(_decorate(in, ctxt), ctxt);
+        }
+        return new SmileParserBootstrapper(ctxt, fragments).constructParser(
+                _factoryFeatures, _parserFeatures, _smileParserFeatures,
+                _objectCodec, _byteSymbolCanonicalizer);
+    }
+
+    /**
+     * Method for constructing a parser for reading contents of given memory-mapped
+     * file, starting at given byte offset; offset should point to the start of
+     * a document (or, if there is no header, to the start of a value when
+     * no shared names or values are used). Locations reported by parser are
+     * relative to this offset.
+     *<p>
+     * Note that closing the parser does not close the file.
+     *
+     * @since 2.8
+     */
+    @SuppressWarnings("resource")
+    public SmileParser createParser(SmileMappedFile file, long offset) throws IOException {
+        IOContext ctxt = _createContext(file, false);
+        return _createParser(_decorate(file.openStream(offset), ctxt), ctxt);
+    }
+
+    /**
+     * Method for constructing a parser positioned at specified node of a document
+     * contained in given memory-mapped file, using given offset index that was
+     * built from the same content; see
+     * {@link #createParser(byte[], SmileOffsetIndex, int)} for details.
+     *
+     * @since 2.8
+     */
+    public SmileParser createParser(SmileMappedFile file, SmileOffsetIndex index, int node) throws IOException {
+        IOContext ctxt = _createContext(file, false);
+        return index._constructParser(ctxt, _parserFeatures, _smileParserFeatures, _objectCodec,
+                _byteSymbolCanonicalizer.makeChild(_factoryFeatures), file, node);
+    }
+
+    /**
+     * Method for constructing a non-blocking parser, to which content is fed
+     * by caller using {@link NonBlockingInputFeeder} methods, instead of parser
+     * reading it. Parser returns {@link JsonToken#NOT_AVAILABLE} when it needs
+     * more input to decode the next token.
+     *
+     * @since 2.8
+     */
+    public NonBlockingParserImpl createNonBlockingParser() throws IOException {
+        IOContext ctxt = _createContext(null, false);
+        return new NonBlockingParserImpl(ctxt, _parserFeatures, _smileParserFeatures, _objectCodec,
+                _byteSymbolCanonicalizer.makeChild(_factoryFeatures));
+    }
+
+    /**
+     * Method for constructing a {@link com.fasterxml.jackson.core.SerializableString}
+     * that contains pre-encoded Smile representation of given field name, so that
+     * {@link SmileGenerator#writeFieldName(com.fasterxml.jackson.core.SerializableString)}
+     * only needs to copy it (or write a back-reference). Can also be used with
+     * other generators, like any {@link com.fasterxml.jackson.core.io.SerializedString}.
+     *
+     * @since 2.8
+     */
+    public SmileSerializedString createFieldName(String name) {
+        return new SmileSerializedString(name);
+    }
+
+    /**
+     * Method for constructing a decoder that decodes in-memory Smile documents
+     * by calling given {@link SmileVisitor} for each element, without constructing
+     * tokens or <code>String</code>s (see {@link SmilePushDecoder} for details).
+     * Decoder may be reused for any number of documents.
+     *
+     * @since 2.8
+     */
+    public SmilePushDecoder createPushDecoder() {
+        return new SmilePushDecoder(_smileParserFeatures);
+    }
+
     /*
     /**********************************************************
     /* Overridden generator factory methods: mostly
@@ -362,6 +540,61 @@ public class SmileFactory extends JsonFactory
         return _createGenerator(_decorate(out, ctxt), ctxt);
     }
 
+    /**
+     * Method for constructing a generator that writes Smile-encoded output to given
+     * {@link OutputStream} asynchronously: whenever output buffer is full, it is
+     * handed to a task run on given {@link Executor} for writing, and encoding
+     * continues into another buffer. Generator blocks if it gets ahead of writes
+     * (by more than one full buffer). Write failures are reported by subsequent
+     * calls, at latest by {@link JsonGenerator#flush} and {@link JsonGenerator#close}
+     * (which also wait for pending writes to complete).
+     *<p>
+     * This can improve throughput when writing large documents to slow streams;
+     * for small documents and fast streams, regular {@link #createGenerator(OutputStream)}
+     * is usually more efficient.
+     *
+     * @since 2.8
+     */
+    public SmileGenerator createWriteBehindGenerator(OutputStream out, Executor writeBehindExecutor) throws IOException {
+        return createWriteBehindGenerator(out, writeBehindExecutor, SmileWriteBehindOutput.DEFAULT_QUEUE_DEPTH);
+    }
+
+    /**
+     * Method for constructing a generator that writes Smile-encoded output to given
+     * {@link OutputStream} asynchronously, using given {@link Executor}; similar to
+     * {@link #createWriteBehindGenerator(OutputStream, Executor)} but allowing up to
+     * <code>queueDepth</code> full buffers to be pending before generator blocks.
+     *
+     * @since 2.8
+     */
+    public SmileGenerator createWriteBehindGenerator(OutputStream out, Executor writeBehindExecutor,
+            int queueDepth) throws IOException
+    {
+        IOContext ctxt = _createContext(out, false);
+        SmileWriteBehindOutput writeBehind = new SmileWriteBehindOutput(_decorate(out, ctxt),
+                writeBehindExecutor, SmileWriteBehindOutput.DEFAULT_BUFFER_SIZE, queueDepth);
+        return _initGenerator(new SmileGenerator(ctxt, _generatorFeatures, _smileGeneratorFeatures,
+                _objectCodec, writeBehind));
+    }
+
+    /**
+     * Method for constructing a non-blocking generator: instead of writing to an
+     * {@link OutputStream}, encoded content is retained by given
+     * {@link SmileNonBlockingOutput}, from which caller drains it into
+     * {@link java.nio.ByteBuffer}s (see {@link SmileNonBlockingOutput#drainTo})
+     * whenever convenient, without blocking. Calls to generator itself never block;
+     * instead, once output is full, writing of long values is suspended until
+     * output has been drained (see {@link SmileNonBlockingOutput}).
+     *
+     * @since 2.8
+     */
+    public SmileGenerator createNonBlockingGenerator(SmileNonBlockingOutput out) throws IOException
+    {
+        IOContext ctxt = _createContext(out, false);
+        return _initGenerator(new SmileGenerator(ctxt, _generatorFeatures, _smileGeneratorFeatures,
+                _objectCodec, out));
+    }
+
     /*
     /******************************************************
     /* Overridden internal factory methods
@@ -446,6 +679,18 @@ public class SmileFactory extends JsonFactory
     }
     
     protected SmileGenerator _createGenerator(OutputStream out, IOContext ctxt) throws IOException
+    {
+        return _initGenerator(new SmileGenerator(ctxt, _generatorFeatures, _smileGeneratorFeatures,
+                _objectCodec, out));
+    }
+
+    /**
+     * Helper method for writing header (if enabled), or verifying that settings
+     * allow omitting it, for a newly constructed generator.
+     *
+     * @since 2.8
+     */
+    protected SmileGenerator _initGenerator(SmileGenerator gen) throws IOException
     {
         int feats = _smileGeneratorFeatures;
         /* One sanity check: MUST write header if shared string values setting is enabled,
@@ -453,7 +698,6 @@ public class SmileFactory extends JsonFactory
          * But should we force writing, or throw exception, if settings are in conflict?
          * For now, let's error out...
          */
-        SmileGenerator gen = new SmileGenerator(ctxt, _generatorFeatures, feats, _objectCodec, out);
         if ((feats & SmileGenerator.Feature.WRITE_HEADER.getMask()) != 0) {
             gen.writeHeader();
         } else {
@@ -0,0 +1,100 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.util.Arrays;
+
+/**
+ * Immutable lookup structure that maps a fixed set of field names into
+ * small int ids (index of name in the array given at construction), to be used with
+ * {@link SmileParser#nextFieldNameId(SmileFieldNameMatcher)}.
+ * Instances are thread-safe and should be reused across parsers.
+ *
+ * @since 2.8
+ */
+public final class SmileFieldNameMatcher
+{
+    /**
+     * Id returned for field names not included in the name set
+     */
+    public final static int MATCH_UNKNOWN_NAME = -1;
+
+    /**
+     * Id returned when the next token was {@link com.fasterxml.jackson.core.JsonToken#END_OBJECT}
+     */
+    public final static int MATCH_END_OBJECT = -2;
+
+    /**
+     * Id returned when the next token was neither a field name nor
+     * {@link com.fasterxml.jackson.core.JsonToken#END_OBJECT}
+     */
+    public final static int MATCH_ODD_TOKEN = -3;
+
+    private final String[] _names;
+
+    /**
+     * Hash area of names, using open addressing with linear probing
+     */
+    private final String[] _hashNames;
+
+    private final int[] _hashIds;
+
+    private final int _hashMask;
+
+    public SmileFieldNameMatcher(String... names)
+    {
+        _names = Arrays.copyOf(names, names.length);
+        int size = 8;
+        // keep fill rate at or below 50%
+        while (size < (names.length << 1)) {
+            size += size;
+        }
+        _hashMask = size-1;
+        _hashNames = new String[size];
+        _hashIds = new int[size];
+        for (int i = 0; i < names.length; ++i) {
+            final String name = names[i];
+            int ix = name.hashCode() & _hashMask;
+            while (_hashNames[ix] != null) {
+                if (_hashNames[ix].equals(name)) {
+                    throw new IllegalArgumentException("Duplicate field name '"+name+"'");
+                }
+                ix = (ix+1) & _hashMask;
+            }
+            _hashNames[ix] = name;
+            _hashIds[ix] = i;
+        }
+    }
+
+    /**
+     * @return Number of names in the name set
+     */
+    public int size() {
+        return _names.length;
+    }
+
+    /**
+     * @return Name with given id
+     */
+    public String nameFor(int id) {
+        return _names[id];
+    }
+
+    /**
+     * Method for finding id of given name.
+     *
+     * @return Id of the name, if included in the name set; {@link #MATCH_UNKNOWN_NAME} if not
+     */
+    public int matchName(String name)
+    {
+        int ix = name.hashCode() & _hashMask;
+        while (true) {
+            final String n = _hashNames[ix];
+            if (n == null) {
+                return MATCH_UNKNOWN_NAME;
+            }
+            if ((n == name) || n.equals(name)) {
+                return _hashIds[ix];
+            }
+            ix = (ix+1) & _hashMask;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.util.HashMap;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import static com.fasterxml.jackson.dataformat.smile.SmileConstants.*;
+
+/**
+ * Registry of field names pre-encoded for writing with
+ * {@link SmileGenerator#writeFieldName(SmileFieldNames.Handle)}: each name is
+ * registered once (typically when constructing a serializer for a fixed schema)
+ * and the resulting {@link Handle} is then used for writing it. Writing a handle
+ * emits either pre-encoded bytes of the name, or a back-reference, without having
+ * to re-encode the name or to look it up from the shared-name table
+ * (except for the first time within a document, to produce same output as
+ * writing the name as <code>String</code>).
+ *<p>
+ * Registries are thread-safe, and handles may be used with any number of generators,
+ * concurrently. Generators are optimized for using handles from a single registry;
+ * handles from different registries may be mixed, but with lower efficiency.
+ *
+ * @since 2.8
+ */
+public final class SmileFieldNames
+{
+    private final HashMap<String,Handle> _handles = new HashMap<String,Handle>();
+
+    /**
+     * Method for registering given field name (unless already registered),
+     * and returning handle for writing it.
+     */
+    public synchronized Handle register(String name)
+    {
+        Handle h = _handles.get(name);
+        if (h == null) {
+            name = name.intern(); // to make name comparisons cheap
+            h = new Handle(this, _handles.size(), name, encode(name));
+            _handles.put(name, h);
+        }
+        return h;
+    }
+
+    /**
+     * Number of names registered so far
+     */
+    public synchronized int size() {
+        return _handles.size();
+    }
+
+    /**
+     * Helper method for encoding given name as a complete Smile key token: type
+     * byte, UTF-8 encoded name, and end marker (for long names).
+     */
+    static byte[] encode(String name)
+    {
+        final int charLen = name.length();
+        if (charLen == 0) {
+            return new byte[] { TOKEN_KEY_EMPTY_STRING };
+        }
+        final byte[] bytes = new SerializedString(name).asUnquotedUTF8();
+        final int byteLen = bytes.length;
+        byte[] result;
+        if ((byteLen == charLen) ? (byteLen <= MAX_SHORT_NAME_ASCII_BYTES)
+                : (byteLen <= MAX_SHORT_NAME_UNICODE_BYTES)) {
+            result = new byte[byteLen + 1];
+            // note: shortest Unicode name has 2 bytes, so offsets differ
+            result[0] = (byteLen == charLen) ? (byte) ((TOKEN_PREFIX_KEY_ASCII - 1) + byteLen)
+                    : (byte) ((TOKEN_PREFIX_KEY_UNICODE - 2) + byteLen);
+        } else {
+            result = new byte[byteLen + 2];
+            result[0] = TOKEN_KEY_LONG_STRING;
+            result[byteLen + 1] = BYTE_MARKER_END_OF_STRING;
+        }
+        System.arraycopy(bytes, 0, result, 1, byteLen);
+        return result;
+    }
+
+    /**
+     * Handle to a registered field name, used with
+     * {@link SmileGenerator#writeFieldName(SmileFieldNames.Handle)}
+     */
+    public final static class Handle
+    {
+        final SmileFieldNames _owner;
+
+        /**
+         * Index of the handle within its registry
+         */
+        final int _id;
+
+        final String _name;
+
+        /**
+         * Name encoded as complete Smile key token
+         */
+        final byte[] _encoded;
+
+        Handle(SmileFieldNames owner, int id, String name, byte[] encoded) {
+            _owner = owner;
+            _id = id;
+            _name = name;
+            _encoded = encoded;
+        }
+
+        public String getName() {
+            return _name;
+        }
+
+        @Override
+        public String toString() {
+            return _name;
+        }
+    }
+}
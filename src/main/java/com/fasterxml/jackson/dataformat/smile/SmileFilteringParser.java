@@ -0,0 +1,336 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+
+/**
+ * Parser that only exposes values at specified paths (given as {@link JsonPointer}s
+ * or as sequences of field names) of the underlying {@link SmileParser}.
+ * Unlike with general-purpose {@link com.fasterxml.jackson.core.filter.FilteringParserDelegate},
+ * non-matching content is not tokenized: field names are matched against encoded names
+ * directly in the input buffer, and values that can not contain matches are skipped
+ * at byte level (see {@link SmileParser#skipChildren}).
+ *<p>
+ * Resulting token stream consists of matching values (scalars, or Objects and Arrays
+ * with all their contents), one after another, without enclosing structure or property
+ * names; {@link #getMatchIndex} indicates which path current value matched, and for
+ * values of Object properties {@link #getCurrentName} returns name of the property.
+ *
+ * @since 2.8
+ */
+public class SmileFilteringParser extends JsonParserDelegate
+{
+    private final static String[] NO_STRINGS = new String[0];
+
+    private final static byte[][] NO_BYTES = new byte[0][];
+
+    private final static int[] NO_INTS = new int[0];
+
+    private final static PathNode[] NO_NODES = new PathNode[0];
+
+    /*
+    /**********************************************************
+    /* Configuration
+    /**********************************************************
+     */
+
+    protected final SmileParser _smileParser;
+
+    /**
+     * Root of the tree of paths to match
+     */
+    protected final PathNode _root;
+
+    /*
+    /**********************************************************
+    /* State
+    /**********************************************************
+     */
+
+    /**
+     * Path nodes of Objects and Arrays that are being scanned for
+     * matches, outermost first
+     */
+    protected PathNode[] _pathStack = new PathNode[8];
+
+    /**
+     * Index of the next element, for Arrays being scanned
+     */
+    protected int[] _indexStack = new int[8];
+
+    protected int _pathDepth;
+
+    /**
+     * Nesting level of contents of the current matching value; 0 when
+     * not within an Object or Array that matched.
+     */
+    protected int _matchDepth;
+
+    protected int _matchIndex = -1;
+
+    /*
+    /**********************************************************
+    /* Life-cycle
+    /**********************************************************
+     */
+
+    /**
+     * @param p Parser to read content from
+     * @param paths Paths of values to match; index of path in this array is
+     *   reported by {@link #getMatchIndex} for matching values
+     */
+    public SmileFilteringParser(SmileParser p, JsonPointer... paths)
+    {
+        super(p);
+        _smileParser = p;
+        _root = new PathNode();
+        for (int i = 0; i < paths.length; ++i) {
+            _addPath(_root, paths[i], i);
+        }
+    }
+
+    /**
+     * @param p Parser to read content from
+     * @param fieldPaths Paths of values to match, as sequences of field names;
+     *   index of path in this array is reported by {@link #getMatchIndex} for matching values
+     */
+    public SmileFilteringParser(SmileParser p, String[]... fieldPaths)
+    {
+        super(p);
+        _smileParser = p;
+        _root = new PathNode();
+        for (int i = 0; i < fieldPaths.length; ++i) {
+            PathNode n = _root;
+            for (String name : fieldPaths[i]) {
+                n = n.addNameChild(name);
+            }
+            n.setMatch(i);
+        }
+    }
+
+    private static void _addPath(PathNode n, JsonPointer ptr, int matchIndex)
+    {
+        if (ptr.matches()) {
+            n.setMatch(matchIndex);
+            return;
+        }
+        // note: segments like "1" may refer to either property name or Array index
+        int index = ptr.getMatchingIndex();
+        if (index >= 0) {
+            _addPath(n.addIndexChild(index), ptr.tail(), matchIndex);
+        }
+        _addPath(n.addNameChild(ptr.getMatchingProperty()), ptr.tail(), matchIndex);
+    }
+
+    /*
+    /**********************************************************
+    /* Public API
+    /**********************************************************
+     */
+
+    /**
+     * @return Index of the path that the current value (or value that
+     *   contains the current token) matched; -1 if no match has been found
+     */
+    public int getMatchIndex() {
+        return _matchIndex;
+    }
+
+    @Override
+    public JsonToken nextToken() throws IOException
+    {
+        final SmileParser p = _smileParser;
+        // Within matching Object/Array, return all tokens as is
+        if (_matchDepth > 0) {
+            JsonToken t = p.nextToken();
+            if (t != null) {
+                if (t.isStructStart()) {
+                    ++_matchDepth;
+                } else if (t.isStructEnd()) {
+                    --_matchDepth;
+                }
+            }
+            return t;
+        }
+        while (true) {
+            JsonToken t;
+            PathNode node;
+            if (_pathDepth == 0) { // root-level value(s)
+                t = p.nextToken();
+                if (t == null) {
+                    return null;
+                }
+                node = _root;
+            } else {
+                final int ix = _pathDepth-1;
+                final PathNode parent = _pathStack[ix];
+                if (p.getParsingContext().inObject()) {
+                    int match = p._nextMatchingFieldName(parent._names, parent._nameBytes);
+                    if (match < 0) {
+                        if (p.getCurrentToken() == JsonToken.END_OBJECT) {
+                            --_pathDepth;
+                        } else if (p.nextToken().isStructStart()) { // non-matching property
+                            p.skipChildren();
+                        }
+                        continue;
+                    }
+                    node = parent._nameChildren[match];
+                    t = p.nextToken();
+                } else {
+                    t = p.nextToken();
+                    if (t == JsonToken.END_ARRAY) {
+                        --_pathDepth;
+                        continue;
+                    }
+                    node = parent.findIndexChild(_indexStack[ix]++);
+                    if (node == null) {
+                        if (t.isStructStart()) {
+                            p.skipChildren();
+                        }
+                        continue;
+                    }
+                }
+            }
+            if (node._matchIndex >= 0) {
+                _matchIndex = node._matchIndex;
+                if (t.isStructStart()) {
+                    _matchDepth = 1;
+                }
+                return t;
+            }
+            // Partial match: descend if possible, otherwise skip
+            if (t == JsonToken.START_OBJECT) {
+                if (node._names.length > 0) {
+                    _push(node);
+                } else {
+                    p.skipChildren();
+                }
+            } else if (t == JsonToken.START_ARRAY) {
+                if (node._indexes.length > 0) {
+                    _push(node);
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+    }
+
+    @Override
+    public JsonToken nextValue() throws IOException
+    {
+        JsonToken t = nextToken();
+        if (t == JsonToken.FIELD_NAME) {
+            t = nextToken();
+        }
+        return t;
+    }
+
+    @Override
+    public JsonParser skipChildren() throws IOException
+    {
+        // only Objects and Arrays within matching values are ever exposed
+        if (_matchDepth > 0) {
+            JsonToken t = _smileParser.getCurrentToken();
+            if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                _smileParser.skipChildren();
+                --_matchDepth;
+            }
+        }
+        return this;
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    private final void _push(PathNode node)
+    {
+        if (_pathDepth >= _pathStack.length) {
+            int newSize = _pathDepth + (_pathDepth >> 1);
+            _pathStack = Arrays.copyOf(_pathStack, newSize);
+            _indexStack = Arrays.copyOf(_indexStack, newSize);
+        }
+        _pathStack[_pathDepth] = node;
+        _indexStack[_pathDepth] = 0;
+        ++_pathDepth;
+    }
+
+    /**
+     * Node of the path tree: contains child nodes for matching property names
+     * (along with their encoded forms) and Array indexes.
+     */
+    protected final static class PathNode
+    {
+        String[] _names = NO_STRINGS;
+
+        byte[][] _nameBytes = NO_BYTES;
+
+        PathNode[] _nameChildren = NO_NODES;
+
+        int[] _indexes = NO_INTS;
+
+        PathNode[] _indexChildren = NO_NODES;
+
+        /**
+         * Index of the path that ends at this node, if any; -1 if none
+         */
+        int _matchIndex = -1;
+
+        PathNode addNameChild(String name)
+        {
+            for (int i = 0; i < _names.length; ++i) {
+                if (_names[i].equals(name)) {
+                    return _nameChildren[i];
+                }
+            }
+            int len = _names.length;
+            _names = Arrays.copyOf(_names, len+1);
+            _nameBytes = Arrays.copyOf(_nameBytes, len+1);
+            _nameChildren = Arrays.copyOf(_nameChildren, len+1);
+            _names[len] = name;
+            try {
+                _nameBytes[len] = name.getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) { // never occurs
+                throw new IllegalStateException(e);
+            }
+            return (_nameChildren[len] = new PathNode());
+        }
+
+        PathNode addIndexChild(int index)
+        {
+            PathNode n = findIndexChild(index);
+            if (n == null) {
+                int len = _indexes.length;
+                _indexes = Arrays.copyOf(_indexes, len+1);
+                _indexChildren = Arrays.copyOf(_indexChildren, len+1);
+                _indexes[len] = index;
+                n = _indexChildren[len] = new PathNode();
+            }
+            return n;
+        }
+
+        PathNode findIndexChild(int index)
+        {
+            for (int i = 0, end = _indexes.length; i < end; ++i) {
+                if (_indexes[i] == index) {
+                    return _indexChildren[i];
+                }
+            }
+            return null;
+        }
+
+        void setMatch(int matchIndex)
+        {
+            // if multiple paths are equal, first one is reported
+            if (_matchIndex < 0) {
+                _matchIndex = matchIndex;
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.io.*;
 import java.lang.ref.SoftReference;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 
 import com.fasterxml.jackson.core.*;
@@ -131,6 +133,66 @@ public class SmileGenerator
             this.next = next;
         }
     }
+
+    /**
+     * Helper class used for keeping track of shared names and String values
+     * of raw Smile content written using {@link SmileGenerator#writeRawSmileValue},
+     * to resolve back-references within content. Counts are -1 if content
+     * does not share names (or values).
+     *
+     * @since 2.8
+     */
+    protected final static class RawSymbols
+    {
+        public String[] names;
+        public int nameCount;
+        public String[] values;
+        public int valueCount;
+
+        public RawSymbols(boolean sharedNames, boolean sharedValues)
+        {
+            if (sharedNames) {
+                names = new String[16];
+            } else {
+                nameCount = -1;
+            }
+            if (sharedValues) {
+                values = new String[16];
+            } else {
+                valueCount = -1;
+            }
+        }
+
+        public String addName(String name)
+        {
+            if (names != null) {
+                if (nameCount == names.length) {
+                    if (nameCount == MAX_SHARED_NAMES) { // full; start from scratch, like parser
+                        nameCount = 0;
+                    } else {
+                        names = Arrays.copyOf(names, Math.min(nameCount << 2, MAX_SHARED_NAMES));
+                    }
+                }
+                names[nameCount++] = name;
+            }
+            return name;
+        }
+
+        public String addValue(String value)
+        {
+            if (values != null) {
+                if (valueCount == values.length) {
+                    if (valueCount == MAX_SHARED_STRING_VALUES) {
+                        valueCount = 0;
+                    } else {
+                        values = Arrays.copyOf(values, Math.min(valueCount << 2, MAX_SHARED_STRING_VALUES));
+                    }
+                }
+                values[valueCount++] = value;
+            }
+            return value;
+        }
+    }
     
     /**
      * To simplify certain operations, we require output buffer length
@@ -157,6 +219,8 @@ public class SmileGenerator
     protected final static long MIN_INT_AS_LONG = (long) Integer.MIN_VALUE;
     protected final static long MAX_INT_AS_LONG = (long) Integer.MAX_VALUE;
 
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
     /*
     /**********************************************************
     /* Configuration
@@ -241,12 +305,47 @@ public class SmileGenerator
      */
     protected int _seenStringValueCount;
 
+    /**
+     * Registry of pre-encoded field names that {@link #_nameHandleRefs} refers to,
+     * if any written so far.
+     *
+     * @since 2.8
+     */
+    protected SmileFieldNames _nameHandleOwner;
+
+    /**
+     * Indexes of names (plus one; 0 for names not known to be in table) in
+     * {@link #_seenNames}, for handles of names from {@link #_nameHandleOwner},
+     * indexed by handle id.
+     *
+     * @since 2.8
+     */
+    protected int[] _nameHandleRefs;
+
     /**
      * Flag that indicates whether the output buffer is recycable (and
      * needs to be returned to recycler once we are done) or not.
      */
     protected boolean _bufferRecyclable;
 
+    /**
+     * Target that full output buffers are handed to (such as write-behind or
+     * non-blocking output), if generator was constructed with one; null for
+     * regular synchronous writes to {@link #_out}.
+     *
+     * @since 2.8
+     */
+    protected SmileBufferedOutput _bufferedOutput;
+
+    /**
+     * Value whose writing has been suspended because {@link #_bufferedOutput}
+     * was full, if any; no other content may be written until it has been
+     * resumed (by output) and completely written.
+     *
+     * @since 2.8
+     */
+    protected ChunkedValue _suspendedValue;
+
     /*
     /**********************************************************
     /* Thread-local recycling
@@ -306,6 +405,20 @@ public class SmileGenerator
         }
 }
 
+    /**
+     * Constructor for generator that hands full output buffers to given
+     * target (like {@link SmileWriteBehindOutput}), instead of writing them synchronously.
+     *
+     * @since 2.8
+     */
+    public SmileGenerator(IOContext ctxt, int jsonFeatures, int smileFeatures,
+            ObjectCodec codec, SmileBufferedOutput out)
+    {
+        this(ctxt, jsonFeatures, smileFeatures, codec, out.getOutputStream(),
+                out.allocBuffer(), 0, false);
+        _bufferedOutput = out;
+    }
+
     public SmileGenerator(IOContext ctxt, int jsonFeatures, int smileFeatures,
             ObjectCodec codec, OutputStream out, byte[] outputBuffer, int offset, boolean bufferRecyclable)
     {
@@ -463,6 +576,7 @@ public class SmileGenerator
     @Override
     public final void writeFieldName(String name)  throws IOException
     {
+        _verifyNotSuspended("write a field name");
         if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
             _reportError("Can not write a field name, expecting a value");
         }
@@ -473,6 +587,7 @@ public class SmileGenerator
     public final void writeFieldName(SerializableString name)
         throws IOException
     {
+        _verifyNotSuspended("write a field name");
         // Object is a value, need to verify it's allowed
         if (_writeContext.writeFieldName(name.getValue()) == JsonWriteContext.STATUS_EXPECT_VALUE) {
             _reportError("Can not write a field name, expecting a value");
@@ -484,6 +599,7 @@ public class SmileGenerator
     public final void writeStringField(String fieldName, String value)
         throws IOException
     {
+        _verifyNotSuspended("write a field name");
         if (_writeContext.writeFieldName(fieldName) == JsonWriteContext.STATUS_EXPECT_VALUE) {
             _reportError("Can not write a field name, expecting a value");
         }
@@ -550,6 +666,67 @@ public class SmileGenerator
     {
         _writeBytes(data, offset, len);
     }
+
+    /**
+     * Method for writing a field name registered with {@link SmileFieldNames}:
+     * output is identical to that of {@link #writeFieldName(String)}, but no
+     * encoding is needed, and back-references are resolved without lookups
+     * (except for the first time name is written within document).
+     *
+     * @since 2.8
+     */
+    public final void writeFieldName(SmileFieldNames.Handle name) throws IOException
+    {
+        _verifyNotSuspended("write a field name");
+        if (_writeContext.writeFieldName(name._name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        _writeFieldName(name);
+    }
+
+    /**
+     * Method for appending a complete, already Smile-encoded value (Object, Array
+     * or scalar) as the next value, without decoding and re-encoding it. Content may
+     * start with Smile header (whose settings then determine how back-references
+     * within content are resolved) and end with end-of-content marker; otherwise
+     * defaults (shared names, no shared String values) are assumed.
+     *<p>
+     * Since back-references of the fragment refer to its own shared-name and
+     * shared-value tables, field names and short String values are re-encoded
+     * against tables of this generator (if enabled); all other tokens (numbers,
+     * binary data, long Strings, structural markers) are copied as is.
+     * Raw binary data is converted to 7-bit encoding if this generator has
+     * {@link Feature#ENCODE_BINARY_AS_7BIT} enabled.
+     *
+     * @since 2.8
+     */
+    public void writeRawSmileValue(byte[] data, int offset, int len) throws IOException
+    {
+        _verifyValueWrite("write raw Smile value");
+        final int end = offset + len;
+        int ptr = offset;
+        // Defaults, unless header says otherwise: shared names, but not values
+        boolean sharedNames = true;
+        boolean sharedValues = false;
+        if ((len >= 4) && (data[ptr] == HEADER_BYTE_1) && (data[ptr+1] == HEADER_BYTE_2)
+                && (data[ptr+2] == HEADER_BYTE_3)) {
+            int ch = data[ptr+3];
+            if (((ch >> 4) & 0x0F) != HEADER_VERSION_0) {
+                _reportError("Invalid raw Smile content: unrecognized header version bits (0x"
+                        +Integer.toHexString((ch >> 4) & 0x0F)+")");
+            }
+            sharedNames = (ch & HEADER_BIT_HAS_SHARED_NAMES) != 0;
+            sharedValues = (ch & HEADER_BIT_HAS_SHARED_STRING_VALUES) != 0;
+            ptr += 4;
+        }
+        ptr = _spliceRawValue(data, ptr, end, new RawSymbols(sharedNames, sharedValues));
+        if ((ptr < end) && (data[ptr] == BYTE_MARKER_END_OF_CONTENT)) {
+            ++ptr;
+        }
+        if (ptr < end) {
+            _reportError("Invalid raw Smile content: "+(end-ptr)+" trailing bytes after value");
+        }
+    }
     
     /*
     /**********************************************************
@@ -576,6 +753,7 @@ public class SmileGenerator
     @Override
     public final void writeEndArray() throws IOException
     {
+        _verifyNotSuspended("end an array");
         if (!_writeContext.inArray()) {
             _reportError("Current context not an ARRAY but "+_writeContext.getTypeDesc());
         }
@@ -606,6 +784,7 @@ public class SmileGenerator
     @Override
     public final void writeEndObject() throws IOException
     {
+        _verifyNotSuspended("end an object");
         if (!_writeContext.inObject()) {
             _reportError("Current context not an object but "+_writeContext.getTypeDesc());
         }
@@ -695,6 +874,10 @@ public class SmileGenerator
     
     protected final void _writeFieldName(SerializableString name) throws IOException
     {
+        if (name instanceof SmileSerializedString) { // pre-encoded, can just copy
+            _writeSmileFieldName((SmileSerializedString) name);
+            return;
+        }
         final int charLen = name.charLength();
         if (charLen == 0) {
             _writeByte(TOKEN_KEY_EMPTY_STRING);
@@ -732,6 +915,21 @@ public class SmileGenerator
         }
     }
 
+    private final void _writeSmileFieldName(SmileSerializedString name) throws IOException
+    {
+        final byte[] encoded = name._smileEncoded;
+        // Empty name is never shared
+        if (_seenNameCount >= 0 && encoded.length > 1) {
+            int ix = _findSeenName(name.getValue(), name._nameHash);
+            if (ix >= 0) {
+                _writeSharedNameReference(ix);
+                return;
+            }
+            _addSeenName(name.getValue());
+        }
+        _writeBytes(encoded, 0, encoded.length);
+    }
+
     private final void _writeLongAsciiFieldName(byte[] bytes)
         throws IOException
     {
@@ -756,7 +954,7 @@ public class SmileGenerator
                 if (_outputTail > 0) {
                     _flushBuffer();
                 }
-                _out.write(bytes, 0, byteLen);
+                _writeBytesDirect(bytes, 0, byteLen);
             }
         }
         _outputBuffer[_outputTail++] = BYTE_MARKER_END_OF_STRING;
@@ -803,7 +1001,7 @@ public class SmileGenerator
                 if (_outputTail > 0) {
                     _flushBuffer();
                 }
-                _out.write(bytes, 0, byteLen);
+                _writeBytesDirect(bytes, 0, byteLen);
             }
         }
         _outputBuffer[_outputTail++] = BYTE_MARKER_END_OF_STRING;
@@ -813,6 +1011,43 @@ public class SmileGenerator
         }
     }
 
+    private final void _writeFieldName(SmileFieldNames.Handle name) throws IOException
+    {
+        final byte[] encoded = name._encoded;
+        // Empty name is never shared; no need to track
+        if (_seenNameCount < 0 || encoded.length == 1) {
+            _writeBytes(encoded, 0, encoded.length);
+            return;
+        }
+        int[] refs = _nameHandleRefs;
+        final int id = name._id;
+        if (name._owner != _nameHandleOwner) { // first use, or different registry
+            _nameHandleOwner = name._owner;
+            refs = _nameHandleRefs = new int[Math.max(id+1, name._owner.size())];
+        } else if (id >= refs.length) { // registered after handles were last written
+            refs = _nameHandleRefs = Arrays.copyOf(refs, Math.max(id+1, refs.length * 2));
+        }
+        int ix = refs[id] - 1;
+        if (ix < 0) {
+            // to produce same output as with String names (which may have been written)
+            ix = _findSeenName(name._name);
+            if (ix >= 0) {
+                refs[id] = ix+1;
+            }
+        }
+        if (ix >= 0) {
+            _writeSharedNameReference(ix);
+            return;
+        }
+        _writeBytes(encoded, 0, encoded.length);
+        _addSeenName(name._name);
+        // note: table may have been reset (clearing refs), and not all indexes are used
+        ix = _seenNameCount-1;
+        if (_validBackRef(ix)) {
+            _nameHandleRefs[id] = ix+1;
+        }
+    }
+
     private final void _writeSharedNameReference(int ix)
         throws IOException
     {
@@ -842,6 +1077,15 @@ public class SmileGenerator
             return;
         }
         _verifyValueWrite("write String value");
+        _writeString(text);
+    }
+
+    /**
+     * Helper method for writing a String value, once write context has been
+     * verified: either as a literal or as a back-reference.
+     */
+    private final void _writeString(String text) throws IOException
+    {
         int len = text.length();
         if (len == 0) {
             _writeByte(TOKEN_LITERAL_EMPTY_STRING);
@@ -915,6 +1159,10 @@ public class SmileGenerator
         if (maxLen > _outputBuffer.length) { // nope
             // can't rewrite type buffer, so can't speculate it might be all-ASCII
             _writeByte(SmileConstants.TOKEN_MISC_LONG_TEXT_UNICODE);
+            if (_bufferedOutput != null) { // may need to suspend, so write in chunks
+                _writeChunked(new ChunkedText(_ioContext.allocConcatBuffer(), text));
+                return;
+            }
             _mediumUTF8Encode(text, 0, len);
             _writeByte(BYTE_MARKER_END_OF_STRING);
             return;
@@ -986,12 +1234,137 @@ public class SmileGenerator
                 _outputBuffer[_outputTail++] = BYTE_MARKER_END_OF_STRING;
             } else {
                 _writeByte(SmileConstants.TOKEN_MISC_LONG_TEXT_UNICODE);
+                if (_bufferedOutput != null) { // may need to suspend, so write in chunks
+                    _writeChunked(new ChunkedText(_ioContext.allocConcatBuffer(),
+                            CharBuffer.wrap(text, offset, len)));
+                    return;
+                }
                 _mediumUTF8Encode(text, offset, offset+len);
                 _writeByte(BYTE_MARKER_END_OF_STRING);
             }
         }
     }
 
+    /**
+     * Method for writing a String value read from given {@link Reader}. Contents
+     * are encoded in chunks, using a bounded intermediate buffer, so that the whole
+     * value need not be held in memory. Values that fit in the intermediate buffer
+     * are written same as with {@link #writeString(char[], int, int)}; longer ones
+     * as long Unicode Strings (regardless of whether contents are all ASCII),
+     * followed by the end marker.
+     *<p>
+     * Contents are always read and written completely before returning, even with
+     * {@link SmileNonBlockingOutput} that is full: generator does not retain the reader.
+     *
+     * @param len Number of characters to write; or -1 to read until end of input
+     *
+     * @since 2.8
+     */
+    @Override
+    public void writeString(Reader reader, int len) throws IOException
+    {
+        if (reader == null) {
+            _reportError("null reader");
+        }
+        _verifyNotSuspended("write String value");
+        char[] buf = _ioContext.allocConcatBuffer();
+        boolean chunked = false;
+        try {
+            int left = (len < 0) ? Integer.MAX_VALUE : len;
+            int max = Math.min(buf.length, left);
+            int count = _readChars(reader, buf, 0, max);
+            boolean eof = (count < max);
+            left -= count;
+            if (eof || (left == 0)) { // all of it fits in buffer
+                if (len >= 0 && left > 0) {
+                    _reportError("Too few characters available: missing "+left+" characters (out of "+len+")");
+                }
+                writeString(buf, 0, count);
+                return;
+            }
+            _verifyValueWrite("write String value");
+            _writeByte(TOKEN_MISC_LONG_TEXT_UNICODE);
+            // buffer is released by chunked value once done with it
+            chunked = true;
+            _writeChunked(new ChunkedText(buf, count, reader, len, left, eof));
+        } finally {
+            if (!chunked) {
+                _ioContext.releaseConcatBuffer(buf);
+            }
+        }
+    }
+
+    /**
+     * Method for writing a String value from given {@link CharSequence}, without
+     * first constructing a {@link String} out of it: contents of long values are
+     * copied and encoded in chunks, similar to {@link #writeString(Reader, int)}.
+     *
+     * @since 2.8
+     */
+    public void writeString(CharSequence text) throws IOException
+    {
+        if (text == null) {
+            writeNull();
+            return;
+        }
+        if (text instanceof String) {
+            writeString((String) text);
+            return;
+        }
+        _verifyNotSuspended("write String value");
+        final int len = text.length();
+        char[] buf = _ioContext.allocConcatBuffer();
+        boolean chunked = false;
+        try {
+            if (len <= buf.length) {
+                _getChars(text, 0, len, buf, 0);
+                writeString(buf, 0, len);
+                return;
+            }
+            _verifyValueWrite("write String value");
+            _writeByte(TOKEN_MISC_LONG_TEXT_UNICODE);
+            // buffer is released by chunked value once done with it
+            chunked = true;
+            _writeChunked(new ChunkedText(buf, text));
+        } finally {
+            if (!chunked) {
+                _ioContext.releaseConcatBuffer(buf);
+            }
+        }
+    }
+
+    private final static int _readChars(Reader r, char[] buf, int offset, int max) throws IOException
+    {
+        int total = 0;
+        while (total < max) {
+            int count = r.read(buf, offset+total, max-total);
+            if (count < 0) {
+                break;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    private final static void _getChars(CharSequence src, int srcStart, int srcEnd, char[] dst, int dstStart)
+    {
+        if (src instanceof String) {
+            ((String) src).getChars(srcStart, srcEnd, dst, dstStart);
+        } else if (src instanceof StringBuilder) {
+            ((StringBuilder) src).getChars(srcStart, srcEnd, dst, dstStart);
+        } else if (src instanceof StringBuffer) {
+            ((StringBuffer) src).getChars(srcStart, srcEnd, dst, dstStart);
+        } else if (src instanceof CharBuffer) {
+            CharBuffer cb = ((CharBuffer) src).duplicate();
+            cb.position(cb.position() + srcStart);
+            cb.get(dst, dstStart, srcEnd - srcStart);
+        } else {
+            for (int i = srcStart; i < srcEnd; ++i) {
+                dst[dstStart++] = src.charAt(i);
+            }
+        }
+    }
+
     @Override
     public final void writeString(SerializableString sstr)
         throws IOException
@@ -1159,7 +1532,9 @@ public class SmileGenerator
             return;
         }
         _verifyValueWrite("write Binary value");
-        if (isEnabled(Feature.ENCODE_BINARY_AS_7BIT)) {
+        if ((_bufferedOutput != null) && (len > _outputEnd)) { // may need to suspend
+            _writeChunkedBinary(new ChunkedBinary(data, offset, len));
+        } else if (isEnabled(Feature.ENCODE_BINARY_AS_7BIT)) {
             _writeByte(TOKEN_MISC_BINARY_7BIT);
             _write7BitBinaryWithLength(data, offset, len);
         } else {
@@ -1178,6 +1553,7 @@ public class SmileGenerator
         if (dataLength < 0) {
             throw new UnsupportedOperationException("Must pass actual length for Smile encoded data");
         }
+        // note: never suspended (stream is not retained), so all of content is written
         _verifyValueWrite("write Binary value");
         int missing;
         if (isEnabled(Feature.ENCODE_BINARY_AS_7BIT)) {
@@ -1502,12 +1878,20 @@ public class SmileGenerator
     protected final void _verifyValueWrite(String typeMsg)
         throws IOException
     {
+        _verifyNotSuspended(typeMsg);
         int status = _writeContext.writeValue();
         if (status == JsonWriteContext.STATUS_EXPECT_NAME) {
             _reportError("Can not "+typeMsg+", expecting field name");
         }
     }
     
+    private final void _verifyNotSuspended(String typeMsg) throws IOException
+    {
+        if (_suspendedValue != null) {
+            _reportError("Can not "+typeMsg+": previous value only partially written (output full, must be drained first)");
+        }
+    }
+
     /*
     /**********************************************************
     /* Low-level output handling
@@ -1518,7 +1902,9 @@ public class SmileGenerator
     public final void flush() throws IOException
     {
         _flushBuffer();
-        if (isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
+        if (_bufferedOutput != null) {
+            _bufferedOutput.flush(isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM));
+        } else if (isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
             _out.flush();
         }
     }
@@ -1526,6 +1912,16 @@ public class SmileGenerator
     @Override
     public void close() throws IOException
     {
+        // If writing of a value was suspended, need to complete it first
+        ChunkedValue suspended = _suspendedValue;
+        if (suspended != null) {
+            _suspendedValue = null;
+            try {
+                while (!suspended.writeChunk()) { }
+            } finally {
+                suspended.release();
+            }
+        }
         // First: let's see that we still have buffers...
         if (_outputBuffer != null
             && isEnabled(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)) {
@@ -1552,6 +1948,20 @@ public class SmileGenerator
         if (!wasClosed && isEnabled(Feature.WRITE_END_MARKER)) {
             _writeByte(BYTE_MARKER_END_OF_CONTENT);
         }
+        if (_bufferedOutput != null) {
+            // must wait for pending writes (and close target) even if a write failed
+            try {
+                _flushBuffer();
+            } finally {
+                try {
+                    _bufferedOutput.close(_ioContext.isResourceManaged()
+                            || isEnabled(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+                } finally {
+                    _releaseBuffers();
+                }
+            }
+            return;
+        }
         _flushBuffer();
 
         if (_ioContext.isResourceManaged() || isEnabled(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
@@ -1979,6 +2389,20 @@ public class SmileGenerator
         return bytesLeft;
     }
     
+    /**
+     * Helper method for writing long content that has not been copied in the output
+     * buffer: written directly to the output stream, unless buffered output is used
+     * (in which case it must be queued in order, via output buffer).
+     */
+    private final void _writeBytesDirect(byte[] data, int offset, int len) throws IOException
+    {
+        if (_bufferedOutput == null) {
+            _out.write(data, offset, len);
+        } else {
+            _writeBytesLong(data, offset, len);
+        }
+    }
+
     private final void _writeBytesLong(byte[] data, int offset, int len) throws IOException
     {
         if (_outputTail >= _outputEnd) {
@@ -2052,6 +2476,18 @@ public class SmileGenerator
     protected void _write7BitBinaryWithLength(byte[] data, int offset, int len) throws IOException
     {
         _writePositiveVInt(len);
+        _write7BitBinary(data, offset, len);
+    }
+
+    /**
+     * Helper method for 7-bit encoding given bytes. Content may be encoded in
+     * multiple calls, as long as all but the last one are for multiples of
+     * 7 bytes.
+     *
+     * @since 2.8
+     */
+    protected void _write7BitBinary(byte[] data, int offset, int len) throws IOException
+    {
         // first, let's handle full 7-byte chunks
         while (len >= 7) {
             if ((_outputTail + 8) >= _outputEnd) {
@@ -2284,20 +2720,587 @@ public class SmileGenerator
     {
         if (_outputTail > 0) {
             _bytesWritten += _outputTail;
-            _out.write(_outputBuffer, 0, _outputTail);
+            if (_bufferedOutput != null) {
+                // buffer is handed over as is; continue with a recycled one
+                _outputBuffer = _bufferedOutput.write(_outputBuffer, _outputTail);
+            } else {
+                _out.write(_outputBuffer, 0, _outputTail);
+            }
             _outputTail = 0;
         }
     }
 
+    /*
+    /**********************************************************
+    /* Internal methods, values written in chunks
+    /**********************************************************
+     */
+
+    /**
+     * Helper method for writing (rest of) given value chunk by chunk: if
+     * {@link #_bufferedOutput} becomes full before the whole value has been
+     * written, writing is suspended (unless value is read from a stream),
+     * to be resumed by output once it has been drained.
+     */
+    protected final void _writeChunked(ChunkedValue value) throws IOException
+    {
+        boolean suspended = false;
+        try {
+            while (!value.writeChunk()) {
+                if ((_bufferedOutput != null) && _bufferedOutput.isFull() && value.detach()) {
+                    suspended = true;
+                    _suspendedValue = value;
+                    _bufferedOutput.suspend(value);
+                    return;
+                }
+            }
+        } finally {
+            if (!suspended) {
+                _suspendedValue = null;
+                value.release();
+            }
+        }
+    }
+
+    private final void _writeChunkedBinary(ChunkedBinary value) throws IOException
+    {
+        if (value._7bit) {
+            _writeByte(TOKEN_MISC_BINARY_7BIT);
+        } else {
+            _writeByte(TOKEN_MISC_BINARY_RAW);
+        }
+        _writePositiveVInt(value._length);
+        _writeChunked(value);
+    }
+
+    /**
+     * Base class for values written in chunks, so that writing may be
+     * suspended between chunks (see {@link SmileBufferedOutput#isFull}).
+     * Token type (and length, if any) has been written before the first chunk.
+     *
+     * @since 2.8
+     */
+    protected abstract class ChunkedValue
+        implements SmileBufferedOutput.Resumable
+    {
+        /**
+         * Method for writing the next chunk of content
+         *
+         * @return True if the value has been completely written
+         */
+        protected abstract boolean writeChunk() throws IOException;
+
+        /**
+         * Method called before writing is suspended: since caller may modify or
+         * reuse content it passed once write method returns, the rest of content
+         * not owned by generator (or an immutable String) is copied.
+         *
+         * @return True if writing may be suspended; false if value is read from
+         *    a stream, and has to be written completely
+         */
+        protected abstract boolean detach();
+
+        /**
+         * Method called once value has been completely written (or writing
+         * has failed), to release buffers it uses
+         */
+        protected abstract void release();
+
+        @Override
+        public void resume() throws IOException {
+            if (_suspendedValue == this) {
+                _writeChunked(this);
+            }
+        }
+    }
+
+    /**
+     * Long String value (written as long Unicode text), read either from a
+     * {@link Reader} or a {@link CharSequence}, using an intermediate buffer
+     * allocated from {@link IOContext}. Only values read from a {@link CharSequence}
+     * may be suspended.
+     */
+    protected final class ChunkedText extends ChunkedValue
+    {
+        private char[] _buffer;
+
+        /**
+         * Number of characters in {@link #_buffer}, not yet written
+         */
+        private int _count;
+
+        private final Reader _reader;
+
+        private CharSequence _text;
+
+        /**
+         * Offset of the next character to read from {@link #_text}
+         */
+        private int _textPtr;
+
+        /**
+         * Whether {@link #_text} can not be modified by caller (is a String,
+         * or a copy)
+         */
+        private boolean _owned;
+
+        /**
+         * Number of characters requested; -1 to read until end of input
+         */
+        private final int _length;
+
+        /**
+         * Number of characters not yet read
+         */
+        private int _left;
+
+        private boolean _eof;
+
+        public ChunkedText(char[] buffer, int count, Reader r, int length, int left, boolean eof) {
+            _buffer = buffer;
+            _count = count;
+            _reader = r;
+            _text = null;
+            _length = length;
+            _left = left;
+            _eof = eof;
+        }
+
+        public ChunkedText(char[] buffer, CharSequence text) throws IOException {
+            _buffer = buffer;
+            _reader = null;
+            _text = text;
+            _owned = (text instanceof String);
+            _length = text.length();
+            _left = _length;
+            _read(0);
+        }
+
+        @Override
+        protected boolean writeChunk() throws IOException
+        {
+            final boolean done = _eof || (_left == 0);
+            final char[] buf = _buffer;
+            int end = _count;
+            // can not split surrogate pairs, so may need to leave first part
+            if (!done && end > 0) {
+                char c = buf[end-1];
+                if (c >= SURR1_FIRST && c <= SURR1_LAST) {
+                    --end;
+                }
+            }
+            _mediumUTF8Encode(buf, 0, end);
+            if (done) {
+                if (_length >= 0 && _left > 0) {
+                    _reportError("Too few characters available: missing "+_left+" characters (out of "+_length+")");
+                }
+                _writeByte(BYTE_MARKER_END_OF_STRING);
+                return true;
+            }
+            final int carry = _count - end;
+            if (carry > 0) {
+                buf[0] = buf[end];
+            }
+            _read(carry);
+            return false;
+        }
+
+        private void _read(int carry) throws IOException
+        {
+            final int max = Math.min(_buffer.length - carry, _left);
+            int n;
+            if (_reader != null) {
+                n = _readChars(_reader, _buffer, carry, max);
+                _eof = (n < max);
+            } else {
+                _getChars(_text, _textPtr, _textPtr + max, _buffer, carry);
+                _textPtr += max;
+                n = max;
+            }
+            _left -= n;
+            _count = carry + n;
+        }
+
+        @Override
+        protected boolean detach() {
+            if (_reader != null) {
+                return false;
+            }
+            if (!_owned) {
+                char[] rest = new char[_left];
+                _getChars(_text, _textPtr, _textPtr + _left, rest, 0);
+                _text = CharBuffer.wrap(rest);
+                _textPtr = 0;
+                _owned = true;
+            }
+            return true;
+        }
+
+        @Override
+        protected void release() {
+            char[] buf = _buffer;
+            if (buf != null) {
+                _buffer = null;
+                _ioContext.releaseConcatBuffer(buf);
+            }
+        }
+    }
+
+    /**
+     * Binary value written from a byte array, either as is or 7-bit encoded.
+     */
+    protected final class ChunkedBinary extends ChunkedValue
+    {
+        private final boolean _7bit;
+
+        private byte[] _data;
+
+        private int _offset;
+
+        private final int _length;
+
+        /**
+         * Number of bytes not yet written
+         */
+        private int _left;
+
+        /**
+         * Whether {@link #_data} is a copy that caller can not modify
+         */
+        private boolean _owned;
+
+        public ChunkedBinary(byte[] data, int offset, int length) {
+            _7bit = isEnabled(Feature.ENCODE_BINARY_AS_7BIT);
+            _data = data;
+            _offset = offset;
+            _length = _left = length;
+        }
+
+        @Override
+        protected boolean writeChunk() throws IOException
+        {
+            if (_left == 0) {
+                return true;
+            }
+            // 7-bit encoded chunks must be multiples of 7 bytes (except for the last one)
+            int n = _7bit ? ((_outputEnd / 8) * 7) : _outputEnd;
+            n = Math.min(n, _left);
+            if (_7bit) {
+                _write7BitBinary(_data, _offset, n);
+            } else {
+                _writeBytes(_data, _offset, n);
+            }
+            _offset += n;
+            _left -= n;
+            return (_left == 0);
+        }
+
+        @Override
+        protected boolean detach() {
+            if (!_owned) {
+                _data = Arrays.copyOfRange(_data, _offset, _offset + _left);
+                _offset = 0;
+                _owned = true;
+            }
+            return true;
+        }
+
+        @Override
+        protected void release() { }
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods, splicing raw Smile content
+    /**********************************************************
+     */
+
+    /**
+     * Main loop of {@link #writeRawSmileValue}: copies bytes of a single value as is,
+     * except for tokens that have to be re-encoded (names and short String values when
+     * shared by this generator; back-references; raw binary if 7-bit encoding is used).
+     *
+     * @return Offset after the value
+     */
+    private final int _spliceRawValue(final byte[] buf, int ptr, final int end,
+            final RawSymbols symbols) throws IOException
+    {
+        final boolean reencodeNames = (_seenNameCount >= 0);
+        final boolean reencodeValues = (_seenStringValueCount >= 0);
+        final boolean decodeNames = reencodeNames || (symbols.names != null);
+        final boolean decodeValues = reencodeValues || (symbols.values != null);
+        final boolean raw7Bit = isEnabled(Feature.ENCODE_BINARY_AS_7BIT);
+
+        boolean[] containers = new boolean[16];
+        int depth = 0;
+        boolean keyMode = false;
+        // start of content not yet written; copied in chunks, up to the next re-encoded token
+        int copyStart = ptr;
+
+        do {
+            _needRaw(ptr, 1, end);
+            final int start = ptr;
+            final int ch = buf[ptr++] & 0xFF;
+
+            if (keyMode) {
+                String name = null;
+                boolean reencode = reencodeNames;
+                if (ch < 0x40) {
+                    if (ch == 0x20) { // empty String as name; never shared
+                        keyMode = false;
+                        continue;
+                    }
+                    if (ch >= 0x30 && ch <= 0x33) { // long shared
+                        _needRaw(ptr, 1, end);
+                        name = _rawSharedName(symbols, ((ch & 0x3) << 8) + (buf[ptr++] & 0xFF));
+                        reencode = true;
+                    } else if (ch == 0x34) { // long name
+                        int markerPtr = _findRawEndMarker(buf, ptr, end);
+                        if (decodeNames) {
+                            name = symbols.addName(new String(buf, ptr, markerPtr - ptr, UTF8));
+                        }
+                        ptr = markerPtr+1;
+                    } else {
+                        _reportRawInvalid(ch, "field name");
+                    }
+                } else if (ch < 0x80) { // short shared
+                    name = _rawSharedName(symbols, ch & 0x3F);
+                    reencode = true;
+                } else if (ch <= 0xF7) { // short ASCII, short Unicode
+                    int len = (ch < 0xC0) ? (1 + (ch & 0x3F)) : (2 + (ch - 0xC0));
+                    _needRaw(ptr, len, end);
+                    if (decodeNames) {
+                        name = symbols.addName(new String(buf, ptr, len, UTF8));
+                    }
+                    ptr += len;
+                } else if (ch == 0xFB) { // END_OBJECT
+                    --depth;
+                    keyMode = (depth > 0) && containers[depth-1];
+                    continue;
+                } else {
+                    _reportRawInvalid(ch, "field name");
+                }
+                if (reencode) {
+                    _writeBytes(buf, copyStart, start - copyStart);
+                    _writeFieldName(name);
+                    copyStart = ptr;
+                }
+                keyMode = false;
+                continue;
+            }
+
+            if (ch < 0x20) { // short shared String value reference
+                if (ch == 0) {
+                    _reportRawInvalid(ch, "value");
+                }
+                _writeBytes(buf, copyStart, start - copyStart);
+                _writeString(_rawSharedValue(symbols, ch-1));
+                copyStart = ptr;
+            } else if (ch < 0x40) { // simple literals, numbers
+                switch (ch) {
+                case 0x20: // empty String, null, false, true
+                case 0x21:
+                case 0x22:
+                case 0x23:
+                    break;
+                case 0x24: // VInt, VLong
+                case 0x25:
+                    ptr = _skipRawVInt(buf, ptr, end);
+                    break;
+                case 0x26: // BigInteger
+                    ptr = _skipRaw7Bit(buf, ptr, end);
+                    break;
+                case 0x28:
+                    _needRaw(ptr, 5, end);
+                    ptr += 5;
+                    break;
+                case 0x29:
+                    _needRaw(ptr, 10, end);
+                    ptr += 10;
+                    break;
+                case 0x2A: // BigDecimal: scale, then same as BigInteger
+                    ptr = _skipRaw7Bit(buf, _skipRawVInt(buf, ptr, end), end);
+                    break;
+                default:
+                    _reportRawInvalid(ch, "value");
+                }
+            } else if (ch < 0xC0) { // tiny/short ASCII, tiny/short Unicode
+                int len = (ch < 0x80) ? (1 + (ch & 0x3F)) : (2 + (ch & 0x3F));
+                _needRaw(ptr, len, end);
+                if (decodeValues) {
+                    String text = symbols.addValue(new String(buf, ptr, len, UTF8));
+                    if (reencodeValues) {
+                        _writeBytes(buf, copyStart, start - copyStart);
+                        _writeString(text);
+                        copyStart = ptr + len;
+                    }
+                }
+                ptr += len;
+            } else if (ch >= 0xE0) { // (small integers need no handling, copied as is)
+                switch (ch) {
+                case 0xE0: // long ASCII, long Unicode
+                case 0xE4:
+                    ptr = _findRawEndMarker(buf, ptr, end) + 1;
+                    break;
+                case 0xE8: // binary, 7-bit
+                    ptr = _skipRaw7Bit(buf, ptr, end);
+                    break;
+                case 0xEC: // long shared String value reference
+                case 0xED:
+                case 0xEE:
+                case 0xEF:
+                    _needRaw(ptr, 1, end);
+                    _writeBytes(buf, copyStart, start - copyStart);
+                    _writeString(_rawSharedValue(symbols, ((ch & 0x3) << 8) + (buf[ptr++] & 0xFF)));
+                    copyStart = ptr;
+                    break;
+                case 0xF8: // START_ARRAY
+                case 0xFA: // START_OBJECT
+                    if (depth == containers.length) {
+                        containers = Arrays.copyOf(containers, depth + depth);
+                    }
+                    containers[depth++] = (ch == 0xFA);
+                    keyMode = (ch == 0xFA);
+                    continue;
+                case 0xF9: // END_ARRAY
+                    if ((depth == 0) || containers[depth-1]) {
+                        _reportRawInvalid(ch, "value");
+                    }
+                    --depth;
+                    break;
+                case 0xFD: // binary, raw
+                    {
+                        int dataStart = _skipRawVInt(buf, ptr, end);
+                        int len = _rawLength(buf, ptr, dataStart);
+                        _needRaw(dataStart, len, end);
+                        ptr = dataStart + len;
+                        if (raw7Bit) {
+                            _writeBytes(buf, copyStart, start - copyStart);
+                            _writeByte(TOKEN_MISC_BINARY_7BIT);
+                            _write7BitBinaryWithLength(buf, dataStart, len);
+                            copyStart = ptr;
+                        }
+                    }
+                    break;
+                default:
+                    _reportRawInvalid(ch, "value");
+                }
+            }
+            keyMode = (depth > 0) && containers[depth-1];
+        } while (depth > 0);
+
+        _writeBytes(buf, copyStart, ptr - copyStart);
+        return ptr;
+    }
+
+    private final String _rawSharedName(RawSymbols symbols, int index) throws IOException
+    {
+        if (index >= symbols.nameCount) {
+            _reportError("Invalid raw Smile content: shared name reference "+index+"; only got "
+                    +Math.max(0, symbols.nameCount)+" names");
+        }
+        return symbols.names[index];
+    }
+
+    private final String _rawSharedValue(RawSymbols symbols, int index) throws IOException
+    {
+        if (index >= symbols.valueCount) {
+            _reportError("Invalid raw Smile content: shared String value reference "+index+"; only got "
+                    +Math.max(0, symbols.valueCount)+" values");
+        }
+        return symbols.values[index];
+    }
+
+    /**
+     * @return Offset after VInt starting at given offset
+     */
+    private final int _skipRawVInt(byte[] buf, int ptr, int end) throws IOException
+    {
+        for (int last = ptr + 10; ptr < last; ) {
+            _needRaw(ptr, 1, end);
+            if (buf[ptr++] < 0) { // last byte
+                return ptr;
+            }
+        }
+        _reportError("Invalid raw Smile content: VInt extends beyond 10 data bytes");
+        return ptr;
+    }
+
+    /**
+     * Helper method for decoding unsigned VInt (already verified to end at
+     * <code>end</code>) used as length of binary or numeric value.
+     */
+    private final int _rawLength(byte[] buf, int ptr, int end) throws IOException
+    {
+        long value = 0L;
+        for (--end; ptr < end; ) {
+            value = (value << 7) + buf[ptr++];
+        }
+        value = (value << 6) + (buf[end] & 0x3F);
+        if (value < 0L || value > Integer.MAX_VALUE) {
+            _reportError("Invalid raw Smile content: invalid length ("+value+") for binary or numeric value");
+        }
+        return (int) value;
+    }
+
+    /**
+     * @return Offset after length-prefixed 7-bit encoded content starting at given offset
+     */
+    private final int _skipRaw7Bit(byte[] buf, int ptr, int end) throws IOException
+    {
+        int dataStart = _skipRawVInt(buf, ptr, end);
+        int len = _rawLength(buf, ptr, dataStart);
+        // 8 encoded bytes for each full 7, and n+1 for n leftover bytes
+        long encLen = (len / 7) * 8L;
+        int leftover = len % 7;
+        if (leftover > 0) {
+            encLen += leftover+1;
+        }
+        if (encLen > (end - dataStart)) {
+            _reportRawEOF();
+        }
+        return dataStart + (int) encLen;
+    }
+
+    private final int _findRawEndMarker(byte[] buf, int ptr, int end) throws IOException
+    {
+        for (; ptr < end; ++ptr) {
+            if (buf[ptr] == BYTE_MARKER_END_OF_STRING) {
+                return ptr;
+            }
+        }
+        _reportRawEOF();
+        return ptr;
+    }
+
+    private final void _needRaw(int ptr, int count, int end) throws IOException
+    {
+        if ((end - ptr) < count) {
+            _reportRawEOF();
+        }
+    }
+
+    private final void _reportRawEOF() throws IOException {
+        _reportError("Invalid raw Smile content: unexpected end of content, value incomplete");
+    }
+
+    private final void _reportRawInvalid(int ch, String desc) throws IOException {
+        _reportError("Invalid raw Smile content: unexpected type marker byte 0x"
+                +Integer.toHexString(ch)+" for expected "+desc);
+    }
+
     /*
     /**********************************************************
     /* Internal methods, handling shared string "maps"
     /**********************************************************
      */
 
-    private final int _findSeenName(String name)
+    private final int _findSeenName(String name) {
+        return _findSeenName(name, name.hashCode());
+    }
+
+    private final int _findSeenName(String name, int hash)
     {
-        int hash = name.hashCode();
         SharedStringNode head = _seenNames[hash & (_seenNames.length-1)];
         if (head == null) {
             return -1;
@@ -2332,6 +3335,9 @@ public class SmileGenerator
             if (_seenNameCount == MAX_SHARED_NAMES) { // we are too full, restart from empty
                 Arrays.fill(_seenNames, null);
                 _seenNameCount = 0;
+                if (_nameHandleRefs != null) { // and indexes of names of handles no longer valid
+                    Arrays.fill(_nameHandleRefs, 0);
+                }
             } else { // we always start with modest default size (like 64), so expand to full
                 SharedStringNode[] old = _seenNames;
                 _seenNames = new SharedStringNode[MAX_SHARED_NAMES];
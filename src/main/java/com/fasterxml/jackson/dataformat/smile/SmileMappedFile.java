@@ -0,0 +1,207 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only memory-mapped view of a (potentially multi-gigabyte) file that contains
+ * Smile-encoded content, to be used with
+ * {@link SmileFactory#createParser(SmileMappedFile, long)}.
+ * Since a single mapping is limited to 2 gigabytes, file is mapped in windows of
+ * configurable size, lazily, as content is accessed; streams returned by
+ * {@link #openStream(long)} move across windows transparently.
+ *<p>
+ * Parsers constructed over mapped content copy content in bulk from the mapped
+ * region into their input buffer, which avoids read system calls (and copying
+ * done by the OS for them); seeking to an offset is a constant-time operation.
+ *<p>
+ * Instances are thread-safe, and any number of parsers may be constructed over
+ * the same file. Note that JDK does not allow explicit unmapping of mapped regions:
+ * closing the file closes the underlying channel, but mappings are only released
+ * once they are garbage collected.
+ *
+ * @since 2.8
+ */
+public class SmileMappedFile implements Closeable
+{
+    /**
+     * Default size of mapped windows: 1 gigabyte
+     */
+    public final static int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    protected final RandomAccessFile _file;
+
+    protected final FileChannel _channel;
+
+    protected final long _length;
+
+    protected final int _windowSize;
+
+    /**
+     * Lazily mapped windows of the file
+     */
+    protected final MappedByteBuffer[] _windows;
+
+    public SmileMappedFile(File f) throws IOException {
+        this(f, DEFAULT_WINDOW_SIZE);
+    }
+
+    public SmileMappedFile(File f, int windowSize) throws IOException
+    {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Invalid window size ("+windowSize+"): must be positive");
+        }
+        _file = new RandomAccessFile(f, "r");
+        _channel = _file.getChannel();
+        _length = _channel.size();
+        _windowSize = windowSize;
+        long count = (_length + windowSize - 1) / windowSize;
+        if (count > Integer.MAX_VALUE) {
+            _file.close();
+            throw new IllegalArgumentException("Window size ("+windowSize+") too small for file of "+_length+" bytes");
+        }
+        _windows = new MappedByteBuffer[(int) count];
+    }
+
+    /**
+     * @return Length of the file, in bytes
+     */
+    public long length() {
+        return _length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _file.close();
+    }
+
+    /**
+     * Method for constructing a stream for reading contents of the file starting
+     * at given byte offset.
+     */
+    public InputStream openStream(long offset) throws IOException {
+        return openStream(offset, _length - offset);
+    }
+
+    /**
+     * Method for constructing a stream for reading given number of bytes
+     * of the file, starting at given byte offset.
+     */
+    public InputStream openStream(long offset, long length) throws IOException
+    {
+        if (offset < 0L || offset > _length) {
+            throw new IllegalArgumentException("Invalid offset ("+offset+"): file length "+_length);
+        }
+        if (length < 0L || length > (_length - offset)) {
+            throw new IllegalArgumentException("Invalid length ("+length+") for offset "+offset
+                    +": file length "+_length);
+        }
+        return new WindowStream(offset, length);
+    }
+
+    /**
+     * Method for accessing window with given index: returned buffer is a
+     * duplicate, so that its position may be freely modified.
+     */
+    protected ByteBuffer _window(int index) throws IOException
+    {
+        MappedByteBuffer w;
+        synchronized (_windows) {
+            w = _windows[index];
+            if (w == null) {
+                long start = (long) index * _windowSize;
+                long size = Math.min((long) _windowSize, _length - start);
+                w = _channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                _windows[index] = w;
+            }
+        }
+        return w.duplicate();
+    }
+
+    /**
+     * Stream that reads content from consecutive windows
+     */
+    private final class WindowStream extends InputStream
+    {
+        private int _windowIndex;
+
+        private ByteBuffer _current;
+
+        private long _left;
+
+        WindowStream(long offset, long length) throws IOException
+        {
+            _left = length;
+            _windowIndex = (int) (offset / _windowSize);
+            if (_left > 0L) {
+                _current = _window(_windowIndex);
+                _current.position((int) (offset - ((long) _windowIndex * _windowSize)));
+            }
+        }
+
+        @Override
+        public int available() {
+            return (_current == null) ? 0 : (int) Math.min(_left, (long) _current.remaining());
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (!_ensureAvailable()) {
+                return -1;
+            }
+            --_left;
+            return _current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (len <= 0) {
+                return 0;
+            }
+            if (!_ensureAvailable()) {
+                return -1;
+            }
+            len = (int) Math.min((long) Math.min(len, _current.remaining()), _left);
+            _current.get(b, off, len);
+            _left -= len;
+            return len;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            if (n <= 0L) {
+                return 0L;
+            }
+            long count = 0L;
+            while (count < n && _ensureAvailable()) {
+                int amount = (int) Math.min(Math.min(n - count, _left), (long) _current.remaining());
+                _current.position(_current.position() + amount);
+                _left -= amount;
+                count += amount;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() {
+            _current = null;
+            _left = 0L;
+        }
+
+        private boolean _ensureAvailable() throws IOException
+        {
+            if (_left <= 0L) {
+                return false;
+            }
+            if (!_current.hasRemaining()) {
+                _current = _window(++_windowIndex);
+            }
+            return true;
+        }
+    }
+}
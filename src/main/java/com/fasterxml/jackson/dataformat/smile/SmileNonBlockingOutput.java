@@ -0,0 +1,280 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Non-blocking output target used by generators constructed with
+ * {@link SmileFactory#createNonBlockingGenerator(SmileNonBlockingOutput)}: nothing
+ * is written to an {@link OutputStream}; instead, encoded content is retained
+ * (full output buffers are handed over without copying) until caller drains it
+ * into {@link ByteBuffer}s it provides, using {@link #drainTo(ByteBuffer)}.
+ * If the buffer given fills up before all content has been drained,
+ * "buffer full" is indicated by returning <code>false</code>, and caller is
+ * to continue draining (from exactly where previous call stopped) once it has
+ * written out the buffer. Since content is drained as a plain byte stream, tokens
+ * may be split at any point.
+ *<p>
+ * Amount of pending content is bounded: once the maximum number of full buffers
+ * are pending, output is "full" (see {@link #isFull}), and generator suspends
+ * writing of long values (binary values, and long Strings) at the next buffer
+ * boundary, returning to caller without writing the rest. Writing of the value is
+ * resumed from where it stopped by {@link #drainTo}, once pending content has been
+ * drained; no other content may be written until the value has been completely
+ * written (closing the generator writes the rest of the value, regardless of the limit).
+ * Rest of a value given as a byte or char array (or a mutable {@link CharSequence})
+ * is copied when writing is suspended, so caller may reuse it once write method returns.
+ * Other values, including ones read from a {@link Reader} or an {@link InputStream},
+ * are always written completely: caller is expected to check
+ * {@link #isFull} before writing each value (like an element of a long array),
+ * and to drain output first if it is full.
+ *<p>
+ * Content of a generator is only available for draining once its output buffer
+ * is full, or once it is flushed (or closed): so, typically caller writes some
+ * content, calls {@link SmileGenerator#flush}, and then drains output.
+ *<p>
+ * Instances are not thread-safe, and are only to be used by a single generator,
+ * from the same thread that drains the output (like an event loop thread).
+ *
+ * @since 2.8
+ */
+public class SmileNonBlockingOutput
+    extends SmileBufferedOutput
+{
+    /**
+     * Default size of output buffers: 8 kB
+     */
+    public final static int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Minimum size of output buffers, as required by generator: 770 bytes
+     */
+    public final static int MIN_BUFFER_SIZE = (3 * 256) + 2;
+
+    /**
+     * Default maximum number of full buffers pending before output is full: 4
+     */
+    public final static int DEFAULT_MAX_PENDING_BUFFERS = 4;
+
+    /**
+     * Maximum number of drained buffers retained for reuse
+     */
+    protected final static int MAX_FREE_BUFFERS = 4;
+
+    protected final int _bufferSize;
+
+    protected final int _maxPendingBuffers;
+
+    /**
+     * Buffers handed over by generator, waiting to be drained
+     */
+    protected final ArrayDeque<Chunk> _queue = new ArrayDeque<Chunk>();
+
+    /**
+     * Buffers that have been drained and may be reused
+     */
+    protected final ArrayList<byte[]> _free = new ArrayList<byte[]>();
+
+    /**
+     * Offset within the first queued buffer up to which content has
+     * been drained
+     */
+    protected int _drainOffset;
+
+    /**
+     * Total number of bytes waiting to be drained
+     */
+    protected long _pendingBytes;
+
+    /**
+     * Value whose writing generator has suspended, if any
+     */
+    protected Resumable _suspended;
+
+    protected boolean _closed;
+
+    public SmileNonBlockingOutput() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_PENDING_BUFFERS);
+    }
+
+    /**
+     * @param bufferSize Size of output buffers generator encodes content in;
+     *   at least {@link #MIN_BUFFER_SIZE}
+     */
+    public SmileNonBlockingOutput(int bufferSize) {
+        this(bufferSize, DEFAULT_MAX_PENDING_BUFFERS);
+    }
+
+    /**
+     * @param bufferSize Size of output buffers generator encodes content in;
+     *   at least {@link #MIN_BUFFER_SIZE}
+     * @param maxPendingBuffers Number of full buffers pending at which output
+     *   is considered full
+     */
+    public SmileNonBlockingOutput(int bufferSize, int maxPendingBuffers)
+    {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Invalid buffer size ("+bufferSize+"): must be at least "+MIN_BUFFER_SIZE);
+        }
+        if (maxPendingBuffers < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of pending buffers ("+maxPendingBuffers+"): must be at least 1");
+        }
+        _bufferSize = bufferSize;
+        _maxPendingBuffers = maxPendingBuffers;
+    }
+
+    /*
+    /**********************************************************
+    /* Caller-facing API
+    /**********************************************************
+     */
+
+    /**
+     * Method for copying as much of the pending content as fits into given
+     * buffer, starting at its current position (which is advanced accordingly).
+     * If generator has suspended writing of a value, writing is resumed once
+     * pending content has been drained, and content it produces is drained as well.
+     *
+     * @return True if all pending content was drained (and no value remains
+     *   suspended); false if buffer became full while content remains (in which
+     *   case caller should call method again once buffer has been consumed)
+     */
+    public boolean drainTo(ByteBuffer dst) throws IOException
+    {
+        while (_drainQueued(dst)) {
+            Resumable value = _suspended;
+            if (value == null) {
+                return true;
+            }
+            _suspended = null;
+            value.resume();
+        }
+        return false;
+    }
+
+    /**
+     * Method for checking whether there is content waiting to be drained
+     * (or a suspended value waiting to be written).
+     */
+    public boolean hasPending() {
+        return (_pendingBytes > 0L) || (_suspended != null);
+    }
+
+    /**
+     * Accessor for number of bytes waiting to be drained
+     */
+    public long getPendingBytes() {
+        return _pendingBytes;
+    }
+
+    /**
+     * Method for checking whether output is full, that is, whether caller should
+     * drain output before writing more content: true if the maximum number of full
+     * buffers are pending, or if writing of a value has been suspended.
+     */
+    @Override
+    public boolean isFull() {
+        return (_suspended != null) || (_queue.size() >= _maxPendingBuffers);
+    }
+
+    /**
+     * Method for checking whether generator has been closed, meaning that
+     * once pending content has been drained, document is complete.
+     */
+    public boolean isClosed() {
+        return _closed;
+    }
+
+    /*
+    /**********************************************************
+    /* SmileBufferedOutput implementation
+    /**********************************************************
+     */
+
+    /**
+     * Since there is no underlying stream, returns null.
+     */
+    @Override
+    public OutputStream getOutputStream() {
+        return null;
+    }
+
+    @Override
+    public byte[] allocBuffer() {
+        return new byte[_bufferSize];
+    }
+
+    @Override
+    public byte[] write(byte[] buffer, int len) throws IOException
+    {
+        if (_closed) {
+            throw new IOException("Non-blocking output already closed");
+        }
+        if (len <= 0) { // nothing to retain, can reuse as is
+            return buffer;
+        }
+        _queue.addLast(new Chunk(buffer, len));
+        _pendingBytes += len;
+        if (!_free.isEmpty()) {
+            byte[] result = _free.remove(_free.size()-1);
+            if (result.length == buffer.length) {
+                return result;
+            }
+        }
+        return new byte[buffer.length];
+    }
+
+    @Override
+    public void suspend(Resumable value) {
+        _suspended = value;
+    }
+
+    /**
+     * Nothing to do: all content handed over is available for draining.
+     */
+    @Override
+    public void flush(boolean flushTarget) { }
+
+    /**
+     * Marks output as closed; content written so far may still be drained.
+     */
+    @Override
+    public void close(boolean closeTarget) {
+        _closed = true;
+        _suspended = null;
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    /**
+     * @return True if all queued content was drained
+     */
+    private boolean _drainQueued(ByteBuffer dst)
+    {
+        Chunk chunk;
+        while ((chunk = _queue.peekFirst()) != null) {
+            int avail = chunk.length - _drainOffset;
+            int space = dst.remaining();
+            if (space < avail) {
+                dst.put(chunk.buffer, _drainOffset, space);
+                _drainOffset += space;
+                _pendingBytes -= space;
+                return false;
+            }
+            dst.put(chunk.buffer, _drainOffset, avail);
+            _pendingBytes -= avail;
+            _drainOffset = 0;
+            _queue.pollFirst();
+            if (_free.size() < MAX_FREE_BUFFERS) {
+                _free.add(chunk.buffer);
+            }
+        }
+        return true;
+    }
+}
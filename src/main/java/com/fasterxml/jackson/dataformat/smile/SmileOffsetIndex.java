@@ -0,0 +1,452 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.sym.ByteQuadsCanonicalizer;
+
+/**
+ * Compact structural index of a Smile document: records byte offsets of all
+ * Objects, Arrays, field names and scalar values (array elements, property values),
+ * along with state of shared-name and shared-value tables at those offsets.
+ * Index is built with a single pass over content, during which
+ * String and binary values are skipped (not decoded) unless needed for
+ * shared-value back-references.
+ *<p>
+ * Once built, index can be used to construct parsers positioned at
+ * any indexed node (see {@link SmileFactory#createParser(byte[], SmileOffsetIndex, int)}),
+ * without having to decode content that precedes the node.
+ *<p>
+ * Nodes are numbered in document order, starting with 0 for the root value.
+ *
+ * @since 2.8
+ */
+public class SmileOffsetIndex
+{
+    /**
+     * Marker used as the parent index of root-level values, and as the
+     * return value of lookup methods when no match is found.
+     */
+    public final static int NO_NODE = -1;
+
+    private final static JsonToken[] TOKENS = JsonToken.values();
+
+    private final static int INITIAL_NODE_CAPACITY = 64;
+
+    /*
+    /**********************************************************
+    /* Header-derived settings
+    /**********************************************************
+     */
+
+    protected final boolean _sharedNamesEnabled;
+
+    protected final boolean _sharedValuesEnabled;
+
+    protected final boolean _mayContainRawBinary;
+
+    /*
+    /**********************************************************
+    /* Node data, as parallel arrays
+    /**********************************************************
+     */
+
+    protected int _nodeCount;
+
+    /**
+     * Ordinal of {@link JsonToken} of the node
+     */
+    protected int[] _tokens;
+
+    protected int[] _parents;
+
+    /**
+     * Offset of the first byte of the token of node (type byte)
+     */
+    protected long[] _startOffsets;
+
+    /**
+     * Offset of the first byte following the node: for containers, byte after
+     * end marker; for field names, end of the property value.
+     */
+    protected long[] _endOffsets;
+
+    /**
+     * Total number of shared names seen before start of the node
+     */
+    protected int[] _nameTotals;
+
+    /**
+     * Total number of shared String values seen before start of the node
+     */
+    protected int[] _valueTotals;
+
+    /**
+     * Field names, for {@link JsonToken#FIELD_NAME} nodes; null for others.
+     */
+    protected String[] _fieldNames;
+
+    /*
+    /**********************************************************
+    /* Shared-table contents, in order of addition
+    /**********************************************************
+     */
+
+    protected String[] _sharedNames;
+
+    protected int _sharedNameTotal;
+
+    protected String[] _sharedValues;
+
+    protected int _sharedValueTotal;
+
+    /*
+    /**********************************************************
+    /* Life-cycle
+    /**********************************************************
+     */
+
+    protected SmileOffsetIndex(boolean sharedNames, boolean sharedValues,
+            boolean mayContainRawBinary)
+    {
+        _sharedNamesEnabled = sharedNames;
+        _sharedValuesEnabled = sharedValues;
+        _mayContainRawBinary = mayContainRawBinary;
+        _tokens = new int[INITIAL_NODE_CAPACITY];
+        _parents = new int[INITIAL_NODE_CAPACITY];
+        _startOffsets = new long[INITIAL_NODE_CAPACITY];
+        _endOffsets = new long[INITIAL_NODE_CAPACITY];
+        _nameTotals = new int[INITIAL_NODE_CAPACITY];
+        _valueTotals = new int[INITIAL_NODE_CAPACITY];
+        _fieldNames = new String[INITIAL_NODE_CAPACITY];
+        _sharedNames = new String[sharedNames ? 16 : 0];
+        _sharedValues = new String[sharedValues ? 16 : 0];
+    }
+
+    /**
+     * Factory method that will read all content accessible via given parser,
+     * which must not have been advanced yet (except for possible header
+     * handled during construction), and build index for it.
+     * Parser is not closed by this method.
+     *<p>
+     * Note that offsets are those reported by parser: when parser was constructed
+     * for a byte array, they are offsets within that array.
+     */
+    public static SmileOffsetIndex build(SmileParser p) throws IOException
+    {
+        SmileOffsetIndex index = new SmileOffsetIndex(p._seenNames != null,
+                p._seenStringValueCount >= 0, p.mayContainRawBinary());
+        index._scan(p);
+        return index;
+    }
+
+    protected void _scan(SmileParser p) throws IOException
+    {
+        int parent = NO_NODE;
+        // node whose end offset is determined by the start of the next token
+        int pendingEnd = NO_NODE;
+        // note: counts are -1 if sharing is disabled; will never change then
+        int nameCount = p._seenNameCount;
+        int valueCount = p._seenStringValueCount;
+
+        while (true) {
+            final long offset = p._currentInputOffset();
+            if (pendingEnd != NO_NODE) {
+                _setEnd(pendingEnd, offset);
+                pendingEnd = NO_NODE;
+            }
+            final int node = _nodeCount;
+            JsonToken t = p.nextToken();
+            if (t == null) {
+                break;
+            }
+            switch (t) {
+            case END_OBJECT:
+            case END_ARRAY:
+                pendingEnd = parent;
+                parent = _parents[parent];
+                continue;
+            default:
+            }
+            _appendNode(t, parent, offset);
+            switch (t) {
+            case START_OBJECT:
+            case START_ARRAY:
+                parent = node;
+                break;
+            case FIELD_NAME:
+                _fieldNames[node] = p.getCurrentName();
+                if (p._seenNameCount != nameCount) {
+                    nameCount = p._seenNameCount;
+                    _addSharedName(p._seenNames[nameCount-1]);
+                }
+                break;
+            case VALUE_STRING:
+                if (p._seenStringValueCount != valueCount) {
+                    valueCount = p._seenStringValueCount;
+                    _addSharedValue(p._seenStringValues[valueCount-1]);
+                }
+                pendingEnd = node;
+                break;
+            default:
+                pendingEnd = node;
+            }
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Public API, accessors
+    /**********************************************************
+     */
+
+    /**
+     * @return Number of nodes indexed
+     */
+    public int size() {
+        return _nodeCount;
+    }
+
+    public JsonToken getToken(int node) {
+        return TOKENS[_tokens[_checkNode(node)]];
+    }
+
+    /**
+     * @return Index of the enclosing Object or Array node; {@link #NO_NODE}
+     *    for root-level values
+     */
+    public int getParent(int node) {
+        return _parents[_checkNode(node)];
+    }
+
+    public long getStartOffset(int node) {
+        return _startOffsets[_checkNode(node)];
+    }
+
+    public long getEndOffset(int node) {
+        return _endOffsets[_checkNode(node)];
+    }
+
+    /**
+     * @return Name of the property, if node is a {@link JsonToken#FIELD_NAME};
+     *    null otherwise
+     */
+    public String getFieldName(int node) {
+        return _fieldNames[_checkNode(node)];
+    }
+
+    /**
+     * Method for finding node of a property with given name, within
+     * specified Object node.
+     *
+     * @return Index of {@link JsonToken#FIELD_NAME} node for the property,
+     *    if one found; {@link #NO_NODE} otherwise
+     */
+    public int findField(int objectNode, String name)
+    {
+        if (getToken(objectNode) != JsonToken.START_OBJECT) {
+            return NO_NODE;
+        }
+        final int fieldNameId = JsonToken.FIELD_NAME.ordinal();
+        final long end = _endOffsets[objectNode];
+        for (int i = objectNode+1; i < _nodeCount && _startOffsets[i] < end; ++i) {
+            if (_parents[i] == objectNode && _tokens[i] == fieldNameId
+                    && name.equals(_fieldNames[i])) {
+                return i;
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Method for finding node of an element with given index, within
+     * specified Array node.
+     *
+     * @return Index of element node, if one found; {@link #NO_NODE} otherwise
+     */
+    public int findElement(int arrayNode, int elementIndex)
+    {
+        if (getToken(arrayNode) != JsonToken.START_ARRAY || elementIndex < 0) {
+            return NO_NODE;
+        }
+        final long end = _endOffsets[arrayNode];
+        for (int i = arrayNode+1; i < _nodeCount && _startOffsets[i] < end; ++i) {
+            if (_parents[i] == arrayNode) {
+                if (--elementIndex < 0) {
+                    return i;
+                }
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * @return Node of the value of a property, if node is a {@link JsonToken#FIELD_NAME};
+     *    node itself otherwise.
+     */
+    public int getValueNode(int node)
+    {
+        if (getToken(node) == JsonToken.FIELD_NAME) {
+            return node+1;
+        }
+        return node;
+    }
+
+    /*
+    /**********************************************************
+    /* Parser construction
+    /**********************************************************
+     */
+
+    /**
+     * Method called by {@link SmileFactory} to construct a parser that reads
+     * contents of given node from given input buffer. Parser is positioned so that
+     * the first call to {@link SmileParser#nextToken} returns the first token of
+     * the node value; and if node is a {@link JsonToken#FIELD_NAME}, current token
+     * is set to that name. Parser reports end-of-input after the node value.
+     */
+    protected SmileParser _constructParser(IOContext ctxt, int parserFeatures, int smileFeatures,
+            ObjectCodec codec, ByteQuadsCanonicalizer sym, byte[] data, int node)
+        throws IOException
+    {
+        final int valueNode = getValueNode(node);
+        if (valueNode >= _nodeCount) {
+            throw new IllegalArgumentException("Invalid node "+node+": no value node indexed for it");
+        }
+        final int start = (int) _startOffsets[valueNode];
+        final int end = (int) _endOffsets[valueNode];
+        if (start < 0 || end > data.length) {
+            throw new IllegalArgumentException("Offsets of node "+node+" ("+start+"-"+end
+                    +") outside of input buffer (length "+data.length+")");
+        }
+        SmileParser p = new SmileParser(ctxt, parserFeatures, smileFeatures, codec, sym,
+                null, data, start, end, false);
+        _initParser(p, node, valueNode);
+        return p;
+    }
+
+    /**
+     * Method called by {@link SmileFactory} to construct a parser that reads
+     * contents of given node from a memory-mapped file; otherwise similar to
+     * {@link #_constructParser(IOContext, int, int, ObjectCodec, ByteQuadsCanonicalizer, byte[], int)}.
+     */
+    protected SmileParser _constructParser(IOContext ctxt, int parserFeatures, int smileFeatures,
+            ObjectCodec codec, ByteQuadsCanonicalizer sym, SmileMappedFile file, int node)
+        throws IOException
+    {
+        final int valueNode = getValueNode(node);
+        if (valueNode >= _nodeCount) {
+            throw new IllegalArgumentException("Invalid node "+node+": no value node indexed for it");
+        }
+        final long start = _startOffsets[valueNode];
+        final long end = _endOffsets[valueNode];
+        if (start < 0L || end > file.length()) {
+            throw new IllegalArgumentException("Offsets of node "+node+" ("+start+"-"+end
+                    +") outside of file (length "+file.length()+")");
+        }
+        SmileParser p = new SmileParser(ctxt, parserFeatures, smileFeatures, codec, sym,
+                file.openStream(start, end - start), ctxt.allocReadIOBuffer(), 0, 0, true);
+        _initParser(p, node, valueNode);
+        return p;
+    }
+
+    private void _initParser(SmileParser p, int node, int valueNode) throws IOException
+    {
+        String[] names = null;
+        int nameCount = -1;
+        if (_sharedNamesEnabled) {
+            int total = _nameTotals[valueNode];
+            nameCount = _currentTableSize(total, SmileConstants.MAX_SHARED_NAMES);
+            names = _copyTable(_sharedNames, total, nameCount);
+        }
+        String[] values = null;
+        int valueCount = -1;
+        if (_sharedValuesEnabled) {
+            int total = _valueTotals[valueNode];
+            valueCount = _currentTableSize(total, SmileConstants.MAX_SHARED_STRING_VALUES);
+            values = _copyTable(_sharedValues, total, valueCount);
+        }
+        p._initPositioned((valueNode == node) ? null : _fieldNames[node],
+                _mayContainRawBinary, names, nameCount, values, valueCount);
+    }
+
+    /**
+     * Helper method for calculating number of entries in the shared table,
+     * given total number of entries added: tables are flushed when they
+     * reach maximum size and another entry is to be added.
+     */
+    private final static int _currentTableSize(int total, int maxSize) {
+        return (total == 0) ? 0 : ((total - 1) % maxSize) + 1;
+    }
+
+    private final static String[] _copyTable(String[] all, int total, int count) {
+        // note: empty array is fine; parser will allocate on first addition
+        String[] result = new String[count];
+        System.arraycopy(all, total - count, result, 0, count);
+        return result;
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    private final int _checkNode(int node) {
+        if (node < 0 || node >= _nodeCount) {
+            throw new IllegalArgumentException("Invalid node "+node+": index has "+_nodeCount+" nodes");
+        }
+        return node;
+    }
+
+    private final void _appendNode(JsonToken t, int parent, long offset)
+    {
+        int ix = _nodeCount;
+        if (ix >= _tokens.length) {
+            int newSize = ix + (ix >> 1);
+            _tokens = Arrays.copyOf(_tokens, newSize);
+            _parents = Arrays.copyOf(_parents, newSize);
+            _startOffsets = Arrays.copyOf(_startOffsets, newSize);
+            _endOffsets = Arrays.copyOf(_endOffsets, newSize);
+            _nameTotals = Arrays.copyOf(_nameTotals, newSize);
+            _valueTotals = Arrays.copyOf(_valueTotals, newSize);
+            _fieldNames = Arrays.copyOf(_fieldNames, newSize);
+        }
+        _tokens[ix] = t.ordinal();
+        _parents[ix] = parent;
+        _startOffsets[ix] = offset;
+        _endOffsets[ix] = offset;
+        _nameTotals[ix] = _sharedNameTotal;
+        _valueTotals[ix] = _sharedValueTotal;
+        _nodeCount = ix+1;
+    }
+
+    private final void _setEnd(int node, long offset)
+    {
+        _endOffsets[node] = offset;
+        // property name ends where its value ends
+        int prev = node-1;
+        if (prev >= 0 && _tokens[prev] == JsonToken.FIELD_NAME.ordinal()) {
+            _endOffsets[prev] = offset;
+        }
+    }
+
+    private final void _addSharedName(String name)
+    {
+        if (_sharedNameTotal >= _sharedNames.length) {
+            _sharedNames = Arrays.copyOf(_sharedNames, _sharedNames.length << 1);
+        }
+        _sharedNames[_sharedNameTotal++] = name;
+    }
+
+    private final void _addSharedValue(String value)
+    {
+        if (_sharedValueTotal >= _sharedValues.length) {
+            _sharedValues = Arrays.copyOf(_sharedValues, _sharedValues.length << 1);
+        }
+        _sharedValues[_sharedValueTotal++] = value;
+    }
+}
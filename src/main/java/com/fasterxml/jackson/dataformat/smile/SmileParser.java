@@ -4,6 +4,8 @@ import java.io.*;
 import java.lang.ref.SoftReference;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 
 import com.fasterxml.jackson.core.*;
@@ -124,6 +126,48 @@ public class SmileParser extends ParserBase
      * buffer.
      */
     protected boolean _bufferRecyclable;
+
+    /**
+     * For parsers constructed over a sequence of input fragments, fragments
+     * not yet (fully) handed to the input buffer: position of each fragment
+     * indicates the first byte not yet in input buffer. Null for other parsers.
+     *
+     * @since 2.8
+     */
+    protected ByteBuffer[] _fragments;
+
+    /**
+     * Index of the first fragment in {@link #_fragments} that may still have
+     * content not yet handed to the input buffer
+     *
+     * @since 2.8
+     */
+    protected int _fragmentIndex;
+
+    /**
+     * For parsers constructed over a sequence of input fragments, buffer (owned
+     * by parser) used for content of tokens that straddle fragment
+     * boundaries, as well as for content of fragments without accessible array.
+     *
+     * @since 2.8
+     */
+    protected byte[] _stitchBuffer;
+
+    /**
+     * For parsers constructed with read-ahead input, source of input buffers;
+     * in this mode, {@link #_fragments} is empty, and buffers are handled like
+     * fragments otherwise.
+     *
+     * @since 2.8
+     */
+    protected SmileReadAheadInput _readAhead;
+
+    /**
+     * Buffer last returned by {@link #_readAhead}, if any
+     *
+     * @since 2.8
+     */
+    protected ByteBuffer _readAheadBuffer;
     
     /*
     /**********************************************************
@@ -143,6 +187,23 @@ public class SmileParser extends ParserBase
      */
     protected int _typeAsInt;
 
+    /**
+     * Stream through which contents of the current (binary) token are
+     * being read, if any; non-null only while there is content left to read.
+     *
+     * @since 2.8
+     */
+    private BinaryValueStream _binaryStream;
+
+    /**
+     * Reader through which contents of the current (long String) token are
+     * being read, if any; cleared when parser advances, so that readers of
+     * earlier tokens can not access content of later ones.
+     *
+     * @since 2.8
+     */
+    private LongTextReader _textReader;
+
     /**
      * Specific flag that is set when we encountered a 32-bit
      * floating point value; needed since numeric super classes do
@@ -187,6 +248,21 @@ public class SmileParser extends ParserBase
 
     protected int _seenNameCount = 0;
 
+    /**
+     * Ids of entries of {@link #_seenNames}, as matched by {@link #_seenNameIdMatcher},
+     * offset by 2 (so that 0 means "not yet matched")
+     *
+     * @since 2.8
+     */
+    protected int[] _seenNameIds;
+
+    /**
+     * Matcher used for calculating {@link #_seenNameIds}, if any
+     *
+     * @since 2.8
+     */
+    protected SmileFieldNameMatcher _seenNameIdMatcher;
+
     /**
      * Array of recently seen field names, which may be back referenced
      * by later fields
@@ -351,6 +427,12 @@ public class SmileParser extends ParserBase
     /**********************************************************
      */
 
+    /**
+     * Note: for parsers constructed with read-ahead input (see
+     * {@link SmileFactory#createParser(InputStream, java.util.concurrent.Executor)}),
+     * only content of the buffer currently being decoded is returned: content
+     * already read ahead into the other buffer is not.
+     */
     @Override
     public int releaseBuffered(OutputStream out) throws IOException
     {
@@ -425,6 +507,9 @@ public class SmileParser extends ParserBase
                 throw new IOException("InputStream.read() returned 0 characters when trying to read "+_inputBuffer.length+" bytes");
             }
         }
+        if (_fragments != null) {
+            return _loadNextFragment();
+        }
         return false;
     }
     
@@ -434,6 +519,10 @@ public class SmileParser extends ParserBase
      */
     protected final void _loadToHaveAtLeast(int minAvailable) throws IOException
     {
+        if (_fragments != null) {
+            _stitchFragments(minAvailable);
+            return;
+        }
         // No input stream, no leading (either we are closed, or have non-stream input source)
         if (_inputStream == null) {
             throw _constructError("Needed to read "+minAvailable+" bytes, reached end-of-input");
@@ -464,9 +553,134 @@ public class SmileParser extends ParserBase
         }
     }
     
+    /**
+     * Method called by {@link SmileParserBootstrapper} for parsers constructed
+     * over a sequence of input fragments, after construction with the first
+     * (non-empty) fragment as the input buffer.
+     *
+     * @param fragments Fragments that follow the initial input buffer contents
+     * @param stitchBuffer Buffer owned by parser (allocated from {@link IOContext})
+     *
+     * @since 2.8
+     */
+    protected void _initFragments(ByteBuffer[] fragments, int fragmentIndex, byte[] stitchBuffer)
+    {
+        _fragments = fragments;
+        _fragmentIndex = fragmentIndex;
+        _stitchBuffer = stitchBuffer;
+        // offsets should be relative to start of logical content
+        _currInputProcessed = -_inputPtr;
+    }
+
+    /**
+     * Method called by {@link SmileParserBootstrapper} for parsers constructed
+     * with read-ahead input, after construction with the first buffer as
+     * the input buffer.
+     *
+     * @since 2.8
+     */
+    protected void _initReadAhead(SmileReadAheadInput readAhead, ByteBuffer current, byte[] stitchBuffer)
+    {
+        _initFragments(new ByteBuffer[0], 0, stitchBuffer);
+        _readAhead = readAhead;
+        _readAheadBuffer = current;
+    }
+
+    /**
+     * Helper method for finding the next fragment that has content not yet
+     * handed to the input buffer, if any. Note that for read-ahead input, this will
+     * release the previous buffer, so caller must not refer to it after the call.
+     *
+     * @return Next fragment with content, if any; null if none
+     */
+    private final ByteBuffer _nextFragment() throws IOException
+    {
+        if (_readAhead != null) {
+            ByteBuffer buf = _readAheadBuffer;
+            if (buf == null || !buf.hasRemaining()) {
+                _readAheadBuffer = buf = _readAhead.next();
+            }
+            return buf;
+        }
+        final ByteBuffer[] fragments = _fragments;
+        for (; _fragmentIndex < fragments.length; ++_fragmentIndex) {
+            final ByteBuffer frag = fragments[_fragmentIndex];
+            if (frag.hasRemaining()) {
+                return frag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method called to move to the next non-empty input fragment, once
+     * the input buffer has been fully consumed. Fragments with accessible backing
+     * array are used as input buffer as is; others are copied into
+     * {@link #_stitchBuffer}.
+     */
+    private final boolean _loadNextFragment() throws IOException
+    {
+        final ByteBuffer frag = _nextFragment();
+        if (frag != null) {
+            if (frag.hasArray()) {
+                final int start = frag.arrayOffset() + frag.position();
+                _currInputProcessed += (_inputEnd - start);
+                _inputBuffer = frag.array();
+                _inputPtr = start;
+                _inputEnd = frag.arrayOffset() + frag.limit();
+                frag.position(frag.limit());
+            } else {
+                final int count = Math.min(frag.remaining(), _stitchBuffer.length);
+                _currInputProcessed += _inputEnd;
+                frag.get(_stitchBuffer, 0, count);
+                _inputBuffer = _stitchBuffer;
+                _inputPtr = 0;
+                _inputEnd = count;
+            }
+            return true;
+        }
+        _currInputProcessed += _inputEnd;
+        _inputPtr = _inputEnd = 0;
+        _closeInput();
+        return false;
+    }
+
+    /**
+     * Helper method called when a token straddles a fragment boundary: content
+     * left in the input buffer, and as many bytes from the following fragments as
+     * are needed, are copied into {@link #_stitchBuffer}. Rest of the fragment
+     * content is used directly, once stitched content has been consumed.
+     */
+    private final void _stitchFragments(int minAvailable) throws IOException
+    {
+        final byte[] stitch = _stitchBuffer;
+        final int amount = _inputEnd - _inputPtr;
+        // note: may be copying within stitch buffer itself, which is fine
+        System.arraycopy(_inputBuffer, _inputPtr, stitch, 0, amount);
+        _currInputProcessed += _inputPtr;
+        _inputBuffer = stitch;
+        _inputPtr = 0;
+        _inputEnd = amount;
+        while (_inputEnd < minAvailable) {
+            final ByteBuffer frag = _nextFragment();
+            if (frag == null) {
+                throw _constructError("Needed to read "+minAvailable+" bytes, reached end-of-input");
+            }
+            final int count = Math.min(frag.remaining(), minAvailable - _inputEnd);
+            frag.get(stitch, _inputEnd, count);
+            _inputEnd += count;
+        }
+    }
+
     @Override
     protected void _closeInput() throws IOException
     {
+        if (_readAhead != null) {
+            SmileReadAheadInput readAhead = _readAhead;
+            _readAhead = null;
+            _readAheadBuffer = null;
+            readAhead.close(_ioContext.isResourceManaged() || isEnabled(JsonParser.Feature.AUTO_CLOSE_SOURCE));
+        }
         if (_inputStream != null) {
             if (_ioContext.isResourceManaged() || isEnabled(JsonParser.Feature.AUTO_CLOSE_SOURCE)) {
                 _inputStream.close();
@@ -489,6 +703,7 @@ public class SmileParser extends ParserBase
 
     @Override
     public void close() throws IOException {
+        _textReader = null;
         super.close();
         // Merge found symbols, if any:
         _symbols.release();
@@ -526,6 +741,15 @@ public class SmileParser extends ParserBase
                  _ioContext.releaseReadIOBuffer(buf);
              }
          }
+         if (_stitchBuffer != null) {
+             byte[] buf = _stitchBuffer;
+             _stitchBuffer = null;
+             if (_inputBuffer == buf) {
+                 _inputBuffer = null;
+             }
+             _fragments = null;
+             _ioContext.releaseReadIOBuffer(buf);
+         }
         {
             String[] nameBuf = _seenNames;
             if (nameBuf != null && nameBuf.length > 0) {
@@ -563,7 +787,54 @@ public class SmileParser extends ParserBase
     public boolean mayContainRawBinary() {
         return _mayContainRawBinary;
     }
-    
+
+    /*
+    /**********************************************************
+    /* Internal API for positioned parsing (offset index)
+    /**********************************************************
+     */
+
+    /**
+     * Accessor for absolute byte offset of the next byte to read, after
+     * skipping any incomplete token contents.
+     *
+     * @since 2.8
+     */
+    protected final long _currentInputOffset() throws IOException
+    {
+        if (_tokenIncomplete) {
+            _skipIncomplete();
+        }
+        return _currInputProcessed + _inputPtr;
+    }
+
+    /**
+     * Method called by {@link SmileOffsetIndex} to initialize state of a parser
+     * that starts decoding from the middle of a document: since no header is
+     * read, header-derived settings as well as contents of shared-name and
+     * shared-value tables need to be restored explicitly.
+     *
+     * @param fieldName If non-null, parser is positioned at a value of given property,
+     *    and the current token is set to {@link JsonToken#FIELD_NAME}
+     *
+     * @since 2.8
+     */
+    protected void _initPositioned(String fieldName, boolean mayContainRawBinary,
+            String[] seenNames, int seenNameCount,
+            String[] seenStringValues, int seenStringValueCount)
+        throws IOException
+    {
+        _mayContainRawBinary = mayContainRawBinary;
+        _seenNames = seenNames;
+        _seenNameCount = seenNameCount;
+        _seenStringValues = seenStringValues;
+        _seenStringValueCount = seenStringValueCount;
+        if (fieldName != null) {
+            _parsingContext.setCurrentName(fieldName);
+            _currToken = JsonToken.FIELD_NAME;
+        }
+    }
+
     /*
     /**********************************************************
     /* JsonParser impl
@@ -582,6 +853,7 @@ public class SmileParser extends ParserBase
 //        _tokenInputTotal = _currInputProcessed + _inputPtr;
         // also: clear any data retained so far
         _binaryValue = null;
+        _textReader = null;
         // Two main modes: values, and field names.
         if ((_currToken != JsonToken.FIELD_NAME) && _parsingContext.inObject()) {
             return (_currToken = _handleFieldName());
@@ -763,6 +1035,27 @@ public class SmileParser extends ParserBase
         }
     }
 
+    /**
+     * Overridden to skip contents of Objects and Arrays at byte level,
+     * without constructing tokens or parsing contexts for contents.
+     *
+     * @since 2.8
+     */
+    @Override
+    public JsonParser skipChildren() throws IOException
+    {
+        if (_currToken == JsonToken.START_OBJECT) {
+            _skipStructure(true);
+            _parsingContext = _parsingContext.getParent();
+            _currToken = JsonToken.END_OBJECT;
+        } else if (_currToken == JsonToken.START_ARRAY) {
+            _skipStructure(false);
+            _parsingContext = _parsingContext.getParent();
+            _currToken = JsonToken.END_ARRAY;
+        }
+        return this;
+    }
+
     // base impl is fine:
     //public String getCurrentName() throws IOException
 
@@ -803,6 +1096,7 @@ public class SmileParser extends ParserBase
             }
             _tokenOffsetForTotal = _inputPtr;
             _binaryValue = null;
+            _textReader = null;
 
             byte[] nameBytes = str.asQuotedUTF8();
             final int byteLen = nameBytes.length;
@@ -925,6 +1219,93 @@ public class SmileParser extends ParserBase
         return (nextToken() == JsonToken.FIELD_NAME) && str.getValue().equals(getCurrentName());
     }
 
+    /**
+     * Method similar to {@link #nextFieldName(SerializableString)}, but that matches
+     * the next field name against a set of names. When possible, matching is done by
+     * comparing encoded names against contents of input buffer, without decoding;
+     * otherwise name is decoded normally and compared as String.
+     *
+     * @param names Names to match against
+     * @param nameBytes UTF-8 encoded names, in same order as <code>names</code>
+     *
+     * @return Index of the matching name if next token is a {@link JsonToken#FIELD_NAME}
+     *   that matches one of names; -1 if it does not match, or if next token is
+     *   not a {@link JsonToken#FIELD_NAME}
+     *
+     * @since 2.8
+     */
+    protected int _nextMatchingFieldName(String[] names, byte[][] nameBytes) throws IOException
+    {
+        if (_currToken != JsonToken.FIELD_NAME && _parsingContext.inObject()) {
+            _numTypesValid = NR_UNKNOWN;
+            if (_tokenIncomplete) {
+                _skipIncomplete();
+            }
+            _tokenOffsetForTotal = _inputPtr;
+            _binaryValue = null;
+            _textReader = null;
+            if (_inputPtr >= _inputEnd) {
+                loadMoreGuaranteed();
+            }
+            final int ch = _inputBuffer[_inputPtr] & 0xFF;
+            int len;
+            switch (ch >> 6) {
+            case 2: // short ASCII
+                len = 1 + (ch & 0x3F);
+                break;
+            case 3: // short Unicode, unless END_OBJECT or invalid
+                len = ch & 0x3F;
+                len = (len > 0x37) ? 0 : (len + 2);
+                break;
+            default: // shared names, long names; need to decode
+                len = 0;
+            }
+            if (len > 0) {
+                if ((_inputEnd - _inputPtr) <= len) {
+                    _loadToHaveAtLeast(len+1);
+                }
+                final byte[] inBuf = _inputBuffer;
+                final int ptr = _inputPtr+1;
+
+                main_loop:
+                for (int i = 0, end = nameBytes.length; i < end; ++i) {
+                    final byte[] b = nameBytes[i];
+                    if (b.length != len) {
+                        continue;
+                    }
+                    for (int j = 0; j < len; ++j) {
+                        if (b[j] != inBuf[ptr+j]) {
+                            continue main_loop;
+                        }
+                    }
+                    // yes, does match...
+                    _typeAsInt = ch;
+                    _inputPtr = ptr + len;
+                    final String name = names[i];
+                    if (_seenNames != null) {
+                        if (_seenNameCount >= _seenNames.length) {
+                            _seenNames = _expandSeenNames(_seenNames);
+                        }
+                        _seenNames[_seenNameCount++] = name;
+                    }
+                    _parsingContext.setCurrentName(name);
+                    _currToken = JsonToken.FIELD_NAME;
+                    return i;
+                }
+            }
+        }
+        // otherwise fall back to default handling
+        if (nextToken() == JsonToken.FIELD_NAME) {
+            final String name = _parsingContext.getCurrentName();
+            for (int i = 0, end = names.length; i < end; ++i) {
+                if (name.equals(names[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
     @Override
     public String nextFieldName() throws IOException
     {
@@ -937,6 +1318,7 @@ public class SmileParser extends ParserBase
             }
             _tokenOffsetForTotal = _inputPtr;
             _binaryValue = null;
+            _textReader = null;
 
             if (_inputPtr >= _inputEnd) {
                 loadMoreGuaranteed();
@@ -969,9 +1351,12 @@ public class SmileParser extends ParserBase
                         return name;
                     }
                 case 0x34: // long ASCII/Unicode name
-                    _handleLongFieldName();
-                    _currToken = JsonToken.FIELD_NAME;
-                    return getCurrentName();
+                    {
+                        final String name = _handleLongFieldName();
+                        _parsingContext.setCurrentName(name);
+                        _currToken = JsonToken.FIELD_NAME;
+                        return name;
+                    }
                 }
                 break;
             case 1: // short shared, can fully process
@@ -1049,6 +1434,98 @@ public class SmileParser extends ParserBase
         return (nextToken() == JsonToken.FIELD_NAME) ? getCurrentName() : null;
     }
 
+    /**
+     * Method similar to {@link #nextFieldName()}, but that returns id of the
+     * field name as matched by given matcher, instead of name itself.
+     * Ids of shared names are cached per shared-name table index, so that
+     * back-references to names are resolved without hash lookups; and other names
+     * are matched from canonicalized instances.
+     *
+     * @return Id of the field name (see {@link SmileFieldNameMatcher}) if next
+     *    token is {@link JsonToken#FIELD_NAME}, or {@link SmileFieldNameMatcher#MATCH_UNKNOWN_NAME}
+     *    if name is not included in the name set; {@link SmileFieldNameMatcher#MATCH_END_OBJECT}
+     *    if next token is {@link JsonToken#END_OBJECT}, or
+     *    {@link SmileFieldNameMatcher#MATCH_ODD_TOKEN} for other tokens
+     *
+     * @since 2.8
+     */
+    public int nextFieldNameId(SmileFieldNameMatcher matcher) throws IOException
+    {
+        if (_currToken != JsonToken.FIELD_NAME && _parsingContext.inObject()) {
+            _numTypesValid = NR_UNKNOWN;
+            if (_tokenIncomplete) {
+                _skipIncomplete();
+            }
+            _tokenOffsetForTotal = _inputPtr;
+            _binaryValue = null;
+            _textReader = null;
+
+            if (_inputPtr >= _inputEnd) {
+                loadMoreGuaranteed();
+            }
+            final int ch = _inputBuffer[_inputPtr] & 0xFF;
+            int index = -1;
+            if ((ch >> 6) == 1) { // short shared
+                ++_inputPtr;
+                index = ch & 0x3F;
+            } else if ((ch >> 2) == (0x30 >> 2)) { // long shared
+                if ((_inputPtr + 1) >= _inputEnd) {
+                    _loadToHaveAtLeast(2);
+                }
+                index = ((ch & 0x3) << 8) + (_inputBuffer[_inputPtr+1] & 0xFF);
+                _inputPtr += 2;
+            }
+            if (index >= 0) {
+                _typeAsInt = ch;
+                if (index >= _seenNameCount) {
+                    _reportInvalidSharedName(index);
+                }
+                _parsingContext.setCurrentName(_seenNames[index]);
+                _currToken = JsonToken.FIELD_NAME;
+                return _seenNameId(matcher, index);
+            }
+            // otherwise decode as usual; newly seen names are added as last shared name
+            _currToken = _handleFieldName();
+            if (_currToken == JsonToken.END_OBJECT) {
+                return SmileFieldNameMatcher.MATCH_END_OBJECT;
+            }
+            if (_seenNames != null && ch != 0x20) {
+                return _seenNameId(matcher, _seenNameCount-1);
+            }
+            return matcher.matchName(_parsingContext.getCurrentName());
+        }
+        if (nextToken() == JsonToken.FIELD_NAME) {
+            return matcher.matchName(getCurrentName());
+        }
+        return SmileFieldNameMatcher.MATCH_ODD_TOKEN;
+    }
+
+    /**
+     * Helper method for finding id of the shared name with given index,
+     * matching it if not yet done.
+     */
+    private final int _seenNameId(SmileFieldNameMatcher matcher, int index)
+    {
+        int[] ids = _seenNameIds;
+        if (matcher != _seenNameIdMatcher) {
+            _seenNameIdMatcher = matcher;
+            if (ids != null) {
+                Arrays.fill(ids, 0);
+            }
+        }
+        if (ids == null) {
+            ids = _seenNameIds = new int[_seenNames.length];
+        } else if (index >= ids.length) {
+            ids = _seenNameIds = Arrays.copyOf(ids, _seenNames.length);
+        }
+        int id = ids[index];
+        if (id == 0) {
+            id = matcher.matchName(_seenNames[index]) + 2;
+            ids[index] = id;
+        }
+        return id - 2;
+    }
+
     @Override
     public String nextTextValue() throws IOException
     {
@@ -1072,6 +1549,7 @@ public class SmileParser extends ParserBase
 
             // also: clear any data retained so far
             _binaryValue = null;
+            _textReader = null;
 
             switch (ch >> 5) {
             case 0: // short shared string value reference
@@ -1242,6 +1720,57 @@ public class SmileParser extends ParserBase
         return _currToken.asString();
     }
 
+    /**
+     * Overridden to allow streaming of long (non-shared) String values: contents
+     * are decoded and written in chunks, without buffering the whole value.
+     * Note that in this case contents of the value are consumed, and are not
+     * available via other accessors afterwards.
+     *
+     * @since 2.8
+     */
+    @Override
+    public int getText(Writer writer) throws IOException
+    {
+        if (_tokenIncomplete && _currToken == JsonToken.VALUE_STRING
+                && (_typeAsInt & 0xFB) == 0xE0) { // long ASCII (0xE0), long Unicode (0xE4)
+            final char[] buf = _textBuffer.emptyAndGetCurrentSegment();
+            int total = 0;
+            int count;
+            while ((count = _readLongText(buf, 0, buf.length)) >= 0) {
+                writer.write(buf, 0, count);
+                total += count;
+            }
+            _textBuffer.resetWithEmpty();
+            return total;
+        }
+        return super.getText(writer);
+    }
+
+    /**
+     * Method for accessing textual contents of the current token as a {@link Reader}.
+     * For long (non-shared) String values, contents are decoded incrementally
+     * from the input as the reader is read, and are consumed by reading; for other
+     * tokens, reader is simply constructed over contents returned by {@link #getText()}.
+     *<p>
+     * Reader is only valid until parser is advanced; any content not read at that
+     * point is skipped, and reader returns end-of-input from there on.
+     * Closing the reader has no effect.
+     *
+     * @return Reader for textual contents of the current token, if any; null if none
+     *    (no current token)
+     *
+     * @since 2.8
+     */
+    public Reader getTextReader() throws IOException
+    {
+        if (_tokenIncomplete && _currToken == JsonToken.VALUE_STRING
+                && (_typeAsInt & 0xFB) == 0xE0) {
+            return (_textReader = new LongTextReader());
+        }
+        String text = getText();
+        return (text == null) ? null : new StringReader(text);
+    }
+
     @Override
     public char[] getTextCharacters() throws IOException
     {
@@ -1389,6 +1918,22 @@ public class SmileParser extends ParserBase
             return len;
         }
 
+        // if content is already being read via stream, just copy what is left
+        if (_binaryStream != null) {
+            final BinaryValueStream in = _binaryStream;
+            byte[] buf = _ioContext.allocBase64Buffer();
+            int total = 0;
+            try {
+                int count;
+                while ((count = in.read(buf, 0, buf.length)) > 0) {
+                    out.write(buf, 0, count);
+                    total += count;
+                }
+            } finally {
+                _ioContext.releaseBase64Buffer(buf);
+            }
+            return total;
+        }
         // otherwise, handle, mark as complete
         // first, raw inlined binary data (simple)
         if (_typeAsInt == SmileConstants.INT_MISC_BINARY_RAW) {
@@ -1423,53 +1968,281 @@ public class SmileParser extends ParserBase
         return totalCount;
     }
 
-    private void _readBinaryEncoded(OutputStream out, int length, byte[] buffer) throws IOException
+    /**
+     * Method for accessing contents of the current binary token
+     * ({@link JsonToken#VALUE_EMBEDDED_OBJECT}) as an {@link InputStream}.
+     * If contents have not yet been read, they are decoded from the input
+     * incrementally as the stream is read (for both raw and 7-bit encoded binary data),
+     * and are consumed by reading: this allows handling of large binary values
+     * without buffering the whole value in memory. If contents have already been
+     * read (for example, via {@link #getBinaryValue}), stream is simply constructed
+     * over the buffered value.
+     *<p>
+     * Stream is only valid until parser is advanced: any content not read at that
+     * point (or when the stream is closed) is skipped. Note that once the stream has
+     * been read from, contents are no longer accessible as a whole
+     * via {@link #getBinaryValue}; {@link #readBinaryValue} may still be used to
+     * read whatever content is left.
+     *
+     * @since 2.8
+     */
+    public InputStream getBinaryStream() throws IOException
     {
-        int outPtr = 0;
-        final int lastSafeOut = buffer.length - 7;
-        // first handle all full 7/8 units
-        while (length > 7) {
-            if ((_inputEnd - _inputPtr) < 8) {
-                _loadToHaveAtLeast(8);
-            }
-            int i1 = (_inputBuffer[_inputPtr++] << 25)
-                + (_inputBuffer[_inputPtr++] << 18)
-                + (_inputBuffer[_inputPtr++] << 11)
-                + (_inputBuffer[_inputPtr++] << 4);
-            int x = _inputBuffer[_inputPtr++];
-            i1 += x >> 3;
-            int i2 = ((x & 0x7) << 21)
-                + (_inputBuffer[_inputPtr++] << 14)
-                + (_inputBuffer[_inputPtr++] << 7)
-                + _inputBuffer[_inputPtr++];
-            // Ok: got our 7 bytes, just need to split, copy
-            buffer[outPtr++] = (byte)(i1 >> 24);
-            buffer[outPtr++] = (byte)(i1 >> 16);
-            buffer[outPtr++] = (byte)(i1 >> 8);
-            buffer[outPtr++] = (byte)i1;
-            buffer[outPtr++] = (byte)(i2 >> 16);
-            buffer[outPtr++] = (byte)(i2 >> 8);
-            buffer[outPtr++] = (byte)i2;
-            length -= 7;
-            // ensure there's always room for at least 7 bytes more after looping:
-            if (outPtr > lastSafeOut) {
-                out.write(buffer, 0, outPtr);
-                outPtr = 0;
-            }
+        if (_currToken != JsonToken.VALUE_EMBEDDED_OBJECT ) {
+            _reportError("Current token ("+_currToken+") not VALUE_EMBEDDED_OBJECT, can not access as binary");
         }
-        // and then leftovers: n+1 bytes to decode n bytes
-        if (length > 0) {
-            if ((_inputEnd - _inputPtr) < (length+1)) {
-                _loadToHaveAtLeast(length+1);
-            }
-            int value = _inputBuffer[_inputPtr++];
-            for (int i = 1; i < length; ++i) {
-                value = (value << 7) + _inputBuffer[_inputPtr++];
-                buffer[outPtr++] = (byte) (value >> (7 - i));
-            }
-            // last byte is different, has remaining 1 - 6 bits, right-aligned
-            value <<= length;
-            buffer[outPtr++] = (byte) (value + _inputBuffer[_inputPtr++]);
+        if (_binaryStream != null) { // already streaming; just continue
+            return _binaryStream;
+        }
+        if (!_tokenIncomplete) {
+            if (_binaryValue == null) {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            return new ByteArrayInputStream(_binaryValue);
+        }
+        final boolean raw;
+        if (_typeAsInt == SmileConstants.INT_MISC_BINARY_RAW) {
+            raw = true;
+        } else if (_typeAsInt == SmileConstants.INT_MISC_BINARY_7BIT) {
+            raw = false;
+        } else {
+            _throwInternal();
+            return null;
+        }
+        // contents will be consumed via stream, so nothing to retain
+        _binaryValue = null;
+        BinaryValueStream in = new BinaryValueStream(raw, _readUnsignedVInt());
+        if (in._left == 0) {
+            _tokenIncomplete = false;
+        } else {
+            _binaryStream = in;
+        }
+        return in;
+    }
+
+    /**
+     * Method for reading contents of the current binary token into given
+     * {@link ByteBuffer}, starting at its current position; position is advanced
+     * by number of bytes read. Buffer must have enough room for the whole value.
+     *<p>
+     * For raw (non-encoded) binary content read from an {@link InputStream}, large
+     * payloads are read directly from the stream into the buffer (if it is backed
+     * by an accessible array), bypassing the input buffer of the parser.
+     *
+     * @return Number of bytes read
+     *
+     * @since 2.8
+     */
+    public int readBinaryValue(ByteBuffer buffer) throws IOException
+    {
+        final InputStream in = getBinaryStream();
+        final BinaryValueStream bin = _binaryStream;
+        final int len = (in == bin) ? (bin._left + (bin._bufferEnd - bin._bufferPtr)) : in.available();
+        if (len > buffer.remaining()) {
+            _reportError("Binary value of "+len+" bytes does not fit in ByteBuffer ("+buffer.remaining()+" bytes remaining)");
+        }
+        if ((in == bin) && bin._raw) {
+            _clearBinaryStream(bin);
+            _readRawBinary(buffer, len);
+            return len;
+        }
+        // otherwise 7-bit encoded, or already (partially) read
+        int total = 0;
+        int count;
+        if (buffer.hasArray()) {
+            final byte[] arr = buffer.array();
+            final int offset = buffer.arrayOffset() + buffer.position();
+            while ((count = in.read(arr, offset + total, len - total)) > 0) {
+                total += count;
+            }
+            buffer.position(buffer.position() + total);
+        } else {
+            byte[] buf = _ioContext.allocBase64Buffer();
+            try {
+                while ((count = in.read(buf, 0, buf.length)) > 0) {
+                    buffer.put(buf, 0, count);
+                    total += count;
+                }
+            } finally {
+                _ioContext.releaseBase64Buffer(buf);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Method for writing contents of the current binary token into given
+     * (blocking) {@link WritableByteChannel}.
+     *<p>
+     * For raw (non-encoded) binary content read from an {@link InputStream}, large
+     * payloads are transferred in chunks that are read exactly, so that no content past
+     * the binary value is buffered.
+     *
+     * @return Number of bytes written
+     *
+     * @since 2.8
+     */
+    public int readBinaryValue(WritableByteChannel channel) throws IOException
+    {
+        final InputStream in = getBinaryStream();
+        final BinaryValueStream bin = _binaryStream;
+        if ((in == bin) && bin._raw) {
+            final int len = bin._left;
+            _clearBinaryStream(bin);
+            _readRawBinary(channel, len);
+            return len;
+        }
+        int total = 0;
+        byte[] buf = _ioContext.allocBase64Buffer();
+        try {
+            int count;
+            while ((count = in.read(buf, 0, buf.length)) > 0) {
+                _writeFully(channel, ByteBuffer.wrap(buf, 0, count));
+                total += count;
+            }
+        } finally {
+            _ioContext.releaseBase64Buffer(buf);
+        }
+        return total;
+    }
+
+    private void _readRawBinary(ByteBuffer buffer, int left) throws IOException
+    {
+        if (buffer.hasArray()) {
+            _readRawBinary(buffer.array(), buffer.arrayOffset() + buffer.position(), left);
+            buffer.position(buffer.position() + left);
+            return;
+        }
+        int count = Math.min(left, _inputEnd - _inputPtr);
+        buffer.put(_inputBuffer, _inputPtr, count);
+        _inputPtr += count;
+        left -= count;
+        while (left > 0) {
+            loadMoreGuaranteed();
+            count = Math.min(left, _inputEnd - _inputPtr);
+            buffer.put(_inputBuffer, _inputPtr, count);
+            _inputPtr += count;
+            left -= count;
+        }
+    }
+
+    /**
+     * Helper method for reading given number of bytes of raw binary content into
+     * given array. Content is first copied from the input buffer; remaining content,
+     * if big enough, is then read directly from the input stream, bypassing
+     * the input buffer.
+     */
+    private void _readRawBinary(byte[] result, int offset, int left) throws IOException
+    {
+        int count = Math.min(left, _inputEnd - _inputPtr);
+        System.arraycopy(_inputBuffer, _inputPtr, result, offset, count);
+        _inputPtr += count;
+        offset += count;
+        left -= count;
+        if ((left >= _inputBuffer.length) && (_inputStream != null)) {
+            _currInputProcessed += _inputEnd;
+            _inputPtr = _inputEnd = 0;
+            while (left > 0) {
+                count = _inputStream.read(result, offset, left);
+                if (count <= 0) {
+                    _reportInvalidEOF(" in binary value");
+                }
+                _currInputProcessed += count;
+                offset += count;
+                left -= count;
+            }
+            return;
+        }
+        while (left > 0) {
+            loadMoreGuaranteed();
+            count = Math.min(left, _inputEnd - _inputPtr);
+            System.arraycopy(_inputBuffer, _inputPtr, result, offset, count);
+            _inputPtr += count;
+            offset += count;
+            left -= count;
+        }
+    }
+
+    private void _readRawBinary(WritableByteChannel channel, int left) throws IOException
+    {
+        int count = Math.min(left, _inputEnd - _inputPtr);
+        _writeFully(channel, ByteBuffer.wrap(_inputBuffer, _inputPtr, count));
+        _inputPtr += count;
+        left -= count;
+        final boolean exact = (left >= _inputBuffer.length) && (_inputStream != null);
+        while (left > 0) {
+            if (exact) { // only read content of this value, so nothing gets buffered beyond it
+                _currInputProcessed += _inputEnd;
+                _inputPtr = _inputEnd = 0;
+                count = _inputStream.read(_inputBuffer, 0, Math.min(left, _inputBuffer.length));
+                if (count <= 0) {
+                    _reportInvalidEOF(" in binary value");
+                }
+                _inputEnd = count;
+            } else {
+                loadMoreGuaranteed();
+                count = Math.min(left, _inputEnd - _inputPtr);
+            }
+            _writeFully(channel, ByteBuffer.wrap(_inputBuffer, _inputPtr, count));
+            _inputPtr += count;
+            left -= count;
+        }
+    }
+
+    private static void _writeFully(WritableByteChannel channel, ByteBuffer bb) throws IOException
+    {
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+
+    private void _readBinaryEncoded(OutputStream out, int length, byte[] buffer) throws IOException
+    {
+        int outPtr = 0;
+        final int lastSafeOut = buffer.length - 7;
+        // first handle all full 7/8 units
+        while (length > 7) {
+            if ((_inputEnd - _inputPtr) < 8) {
+                _loadToHaveAtLeast(8);
+            }
+            int i1 = (_inputBuffer[_inputPtr++] << 25)
+                + (_inputBuffer[_inputPtr++] << 18)
+                + (_inputBuffer[_inputPtr++] << 11)
+                + (_inputBuffer[_inputPtr++] << 4);
+            int x = _inputBuffer[_inputPtr++];
+            i1 += x >> 3;
+            int i2 = ((x & 0x7) << 21)
+                + (_inputBuffer[_inputPtr++] << 14)
+                + (_inputBuffer[_inputPtr++] << 7)
+                + _inputBuffer[_inputPtr++];
+            // Ok: got our 7 bytes, just need to split, copy
+            buffer[outPtr++] = (byte)(i1 >> 24);
+            buffer[outPtr++] = (byte)(i1 >> 16);
+            buffer[outPtr++] = (byte)(i1 >> 8);
+            buffer[outPtr++] = (byte)i1;
+            buffer[outPtr++] = (byte)(i2 >> 16);
+            buffer[outPtr++] = (byte)(i2 >> 8);
+            buffer[outPtr++] = (byte)i2;
+            length -= 7;
+            // ensure there's always room for at least 7 bytes more after looping:
+            if (outPtr > lastSafeOut) {
+                out.write(buffer, 0, outPtr);
+                outPtr = 0;
+            }
+        }
+        // and then leftovers: n+1 bytes to decode n bytes
+        if (length > 0) {
+            if ((_inputEnd - _inputPtr) < (length+1)) {
+                _loadToHaveAtLeast(length+1);
+            }
+            int value = _inputBuffer[_inputPtr++];
+            for (int i = 1; i < length; ++i) {
+                value = (value << 7) + _inputBuffer[_inputPtr++];
+                buffer[outPtr++] = (byte) (value >> (7 - i));
+            }
+            // last byte is different, has remaining 1 - 6 bits, right-aligned
+            value <<= length;
+            buffer[outPtr++] = (byte) (value + _inputBuffer[_inputPtr++]);
         }
         if (outPtr > 0) {
             out.write(buffer, 0, outPtr);
@@ -1516,8 +2289,8 @@ public class SmileParser extends ParserBase
                 }
                 return JsonToken.FIELD_NAME;
             case 0x34: // long ASCII/Unicode name
-                _handleLongFieldName();
-                return JsonToken.FIELD_NAME;            	
+                _parsingContext.setCurrentName(_handleLongFieldName());
+                return JsonToken.FIELD_NAME;
             }
             break;
         case 1: // short shared, can fully process
@@ -1603,6 +2376,9 @@ public class SmileParser extends ParserBase
         } else if (len == SmileConstants.MAX_SHARED_NAMES) { // too many? Just flush...
       	   newShared = oldShared;
       	   _seenNameCount = 0; // could also clear, but let's not yet bother
+      	   if (_seenNameIds != null) { // but ids are matched lazily, must clear
+      	       Arrays.fill(_seenNameIds, 0);
+      	   }
         } else {
             int newSize = (len == SmileBufferRecycler.DEFAULT_STRING_VALUE_BUFFER_LENGTH) ? 256 : SmileConstants.MAX_SHARED_NAMES;
             newShared = Arrays.copyOf(oldShared, newSize);
@@ -1816,55 +2592,81 @@ public class SmileParser extends ParserBase
         return _symbols.addName(baseName, quads, quadLen);
     }
 
-    private final void _handleLongFieldName() throws IOException
+    private final String _handleLongFieldName() throws IOException
     {
         // First: gather quads we need, looking for end marker
-        final byte[] inBuf = _inputBuffer;
         int quads = 0;
         int bytes = 0;
         int q = 0;
 
-        while (true) {
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
-            }
-            byte b = inBuf[_inputPtr++];
-            if (BYTE_MARKER_END_OF_STRING == b) {
-                bytes = 0;
-                break;
-            }
-            q = ((int) b) & 0xFF;
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
-            }
-            b = inBuf[_inputPtr++];
-            if (BYTE_MARKER_END_OF_STRING == b) {
-                bytes = 1;
-                break;
-            }
-            q = (q << 8) | (b & 0xFF);
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
-            }
-            b = inBuf[_inputPtr++];
-            if (BYTE_MARKER_END_OF_STRING == b) {
-                bytes = 2;
-                break;
-            }
-            q = (q << 8) | (b & 0xFF);
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
+        // Common case: end marker is within input buffer, so no boundary checks are needed
+        final byte[] inBuf = _inputBuffer;
+        final int inEnd = _inputEnd;
+        int end = _inputPtr;
+        while (end < inEnd && inBuf[end] != BYTE_MARKER_END_OF_STRING) {
+            ++end;
+        }
+        if (end < inEnd) {
+            int ptr = _inputPtr;
+            final int quadEnd = ptr + ((end - ptr) & ~3);
+            while (ptr < quadEnd) {
+                q = ((inBuf[ptr] & 0xFF) << 24) | ((inBuf[ptr+1] & 0xFF) << 16)
+                        | ((inBuf[ptr+2] & 0xFF) << 8) | (inBuf[ptr+3] & 0xFF);
+                ptr += 4;
+                if (quads >= _quadBuffer.length) {
+                    _quadBuffer = _growArrayTo(_quadBuffer, _quadBuffer.length + 256);
+                }
+                _quadBuffer[quads++] = q;
             }
-            b = inBuf[_inputPtr++];
-            if (BYTE_MARKER_END_OF_STRING == b) {
-                bytes = 3;
-                break;
+            bytes = end - ptr;
+            q = 0;
+            while (ptr < end) {
+                q = (q << 8) | (inBuf[ptr++] & 0xFF);
             }
-            q = (q << 8) | (b & 0xFF);
-            if (quads >= _quadBuffer.length) {
-                _quadBuffer = _growArrayTo(_quadBuffer, _quadBuffer.length + 256); // grow by 1k
+            _inputPtr = end+1;
+        } else {
+            while (true) {
+                if (_inputPtr >= _inputEnd) {
+                    loadMoreGuaranteed();
+                }
+                byte b = _inputBuffer[_inputPtr++];
+                if (BYTE_MARKER_END_OF_STRING == b) {
+                    bytes = 0;
+                    break;
+                }
+                q = ((int) b) & 0xFF;
+                if (_inputPtr >= _inputEnd) {
+                    loadMoreGuaranteed();
+                }
+                b = _inputBuffer[_inputPtr++];
+                if (BYTE_MARKER_END_OF_STRING == b) {
+                    bytes = 1;
+                    break;
+                }
+                q = (q << 8) | (b & 0xFF);
+                if (_inputPtr >= _inputEnd) {
+                    loadMoreGuaranteed();
+                }
+                b = _inputBuffer[_inputPtr++];
+                if (BYTE_MARKER_END_OF_STRING == b) {
+                    bytes = 2;
+                    break;
+                }
+                q = (q << 8) | (b & 0xFF);
+                if (_inputPtr >= _inputEnd) {
+                    loadMoreGuaranteed();
+                }
+                b = _inputBuffer[_inputPtr++];
+                if (BYTE_MARKER_END_OF_STRING == b) {
+                    bytes = 3;
+                    break;
+                }
+                q = (q << 8) | (b & 0xFF);
+                if (quads >= _quadBuffer.length) {
+                    _quadBuffer = _growArrayTo(_quadBuffer, _quadBuffer.length + 256); // grow by 1k
+                }
+                _quadBuffer[quads++] = q;
             }
-            _quadBuffer[quads++] = q;
         }
         // and if we have more bytes, append those too
         int byteLen = (quads << 2);
@@ -1887,7 +2689,7 @@ public class SmileParser extends ParserBase
            }
            _seenNames[_seenNameCount++] = name;
         }
-        _parsingContext.setCurrentName(name);
+        return name;
     }
 
     /**
@@ -2090,9 +2892,15 @@ public class SmileParser extends ParserBase
             	_decodeLongUnicode();
             	return;
             case 2: // binary, 7-bit
+                if (_binaryStream != null) {
+                    _reportStreamedBinary();
+                }
                 _binaryValue = _read7BitBinaryWithLength();
                 return;
             case 7: // binary, raw
+                if (_binaryStream != null) {
+                    _reportStreamedBinary();
+                }
                 _finishRawBinary();
                 return;
             }
@@ -2306,6 +3114,19 @@ public class SmileParser extends ParserBase
     private final void _finishFloat() throws IOException
     {
         // just need 5 bytes to get int32 first; all are unsigned
+        int ptr = _inputPtr;
+        if ((ptr + 5) <= _inputEnd) {
+            final byte[] inBuf = _inputBuffer;
+            int i = inBuf[ptr++];
+            i = (i << 7) + inBuf[ptr++];
+            i = (i << 7) + inBuf[ptr++];
+            i = (i << 7) + inBuf[ptr++];
+            i = (i << 7) + inBuf[ptr++];
+            _inputPtr = ptr;
+            _numberDouble = (double) Float.intBitsToFloat(i);
+            _numTypesValid = NR_DOUBLE;
+            return;
+        }
         int i = _fourBytesToInt();
     	    if (_inputPtr >= _inputEnd) {
     	        loadMoreGuaranteed();
@@ -2318,6 +3139,18 @@ public class SmileParser extends ParserBase
 
     private final void _finishDouble() throws IOException
     {
+        int ptr = _inputPtr;
+        if ((ptr + 10) <= _inputEnd) { // all 10 bytes available, no boundary checks needed
+            final byte[] inBuf = _inputBuffer;
+            long value = inBuf[ptr++];
+            for (final int end = ptr + 9; ptr < end; ) {
+                value = (value << 7) + inBuf[ptr++];
+            }
+            _inputPtr = ptr;
+            _numberDouble = Double.longBitsToDouble(value);
+            _numTypesValid = NR_DOUBLE;
+            return;
+        }
         // ok; let's take two sets of 4 bytes (each is int)
         long hi = _fourBytesToInt();
         long value = (hi << 28) + (long) _fourBytesToInt();
@@ -2345,8 +3178,22 @@ public class SmileParser extends ParserBase
     private final int _readUnsignedVInt()
         throws IOException
     {
+        int ptr = _inputPtr;
+        if ((ptr + 5) <= _inputEnd) { // enough for max length of 32-bit VInt; no boundary checks needed
+            final byte[] inBuf = _inputBuffer;
+            int value = 0;
+            for (final int end = ptr + 5; ptr < end; ) {
+                int i = inBuf[ptr++];
+                if (i < 0) { // last byte
+                    _inputPtr = ptr;
+                    return (value << 6) + (i & 0x3F);
+                }
+                value = (value << 7) + i;
+            }
+            _reportError("Corrupt input; 32-bit VInt extends beyond 5 data bytes");
+        }
         int value = 0;
-        while (true) {
+        for (int count = 0; count < 5; ++count) {
             if (_inputPtr >= _inputEnd) {
                 loadMoreGuaranteed();
             }
@@ -2357,6 +3204,8 @@ public class SmileParser extends ParserBase
             }
             value = (value << 7) + i;
         }
+        _reportError("Corrupt input; 32-bit VInt extends beyond 5 data bytes");
+        return value;
     }
 
     private final byte[] _read7BitBinaryWithLength()
@@ -2364,10 +3213,21 @@ public class SmileParser extends ParserBase
     {
         int byteLen = _readUnsignedVInt();
         byte[] result = new byte[byteLen];
-        int ptr = 0;
-        int lastOkPtr = byteLen - 7;
-        
-        // first, read all 7-by-8 byte chunks
+        _decode7BitBinary(result, 0, byteLen);
+        return result;
+    }
+
+    /**
+     * Helper method for decoding given number of bytes of 7-bit encoded binary
+     * content: either a multiple of 7 bytes, or all remaining bytes of the
+     * content (in which case partial last unit is decoded as well).
+     */
+    private final void _decode7BitBinary(byte[] result, int ptr, int byteLen)
+        throws IOException
+    {
+        final int end = ptr + byteLen;
+        final int lastOkPtr = end - 7;
+
         while (ptr <= lastOkPtr) {
             if ((_inputEnd - _inputPtr) < 8) {
                 _loadToHaveAtLeast(8);
@@ -2382,7 +3242,6 @@ public class SmileParser extends ParserBase
                 + (_inputBuffer[_inputPtr++] << 14)
                 + (_inputBuffer[_inputPtr++] << 7)
                 + _inputBuffer[_inputPtr++];
-            // Ok: got our 7 bytes, just need to split, copy
             result[ptr++] = (byte)(i1 >> 24);
             result[ptr++] = (byte)(i1 >> 16);
             result[ptr++] = (byte)(i1 >> 8);
@@ -2392,7 +3251,7 @@ public class SmileParser extends ParserBase
             result[ptr++] = (byte)i2;
         }
         // and then leftovers: n+1 bytes to decode n bytes
-        int toDecode = (result.length - ptr);
+        int toDecode = (end - ptr);
         if (toDecode > 0) {
             if ((_inputEnd - _inputPtr) < (toDecode+1)) {
                 _loadToHaveAtLeast(toDecode+1);
@@ -2406,9 +3265,8 @@ public class SmileParser extends ParserBase
             value <<= toDecode;
             result[ptr] = (byte) (value + _inputBuffer[_inputPtr++]);
         }
-        return result;
     }
-    
+
     /*
     /**********************************************************
     /* Internal methods, secondary String parsing
@@ -2513,7 +3371,6 @@ public class SmileParser extends ParserBase
         char[] outBuf = _textBuffer.emptyAndGetCurrentSegment();
         final int[] codes = SmileConstants.sUtf8UnitLengths;
         int c;
-        final byte[] inputBuffer = _inputBuffer;
 
         main_loop:
         while (true) {
@@ -2525,6 +3382,8 @@ public class SmileParser extends ParserBase
                     loadMoreGuaranteed();
                     ptr = _inputPtr;
                 }
+                // note: buffer may change when loading (for fragmented input)
+                final byte[] inputBuffer = _inputBuffer;
                 if (outPtr >= outBuf.length) {
                     outBuf = _textBuffer.finishCurrentSegment();
                     outPtr = 0;
@@ -2588,25 +3447,99 @@ public class SmileParser extends ParserBase
         _textBuffer.setCurrentLength(outPtr);
     }
 
-    private final void _finishRawBinary() throws IOException
+    /**
+     * Method for incremental decoding of a long String value (one with end marker):
+     * decodes as many characters as will fit in given buffer, up to the end marker.
+     * Only whole characters are decoded; so buffer needs to have room for at least
+     * 2 characters, to fit a surrogate pair.
+     *
+     * @return Number of characters decoded; or -1 if end of value had already been reached
+     *
+     * @since 2.8
+     */
+    protected int _readLongText(char[] buf, int offset, int len) throws IOException
     {
-        int byteLen = _readUnsignedVInt();
-        _binaryValue = new byte[byteLen];
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
+        if (!_tokenIncomplete) {
+            return -1;
         }
-        int ptr = 0;
-        while (true) {
-            int toAdd = Math.min(byteLen, _inputEnd - _inputPtr);
-            System.arraycopy(_inputBuffer, _inputPtr, _binaryValue, ptr, toAdd);
-            _inputPtr += toAdd;
-            ptr += toAdd;
-            byteLen -= toAdd;
-            if (byteLen <= 0) {
-                return;
+        final int[] codes = SmileConstants.sUtf8UnitLengths;
+        final int end = offset + len;
+        int outPtr = offset;
+
+        main_loop:
+        while (outPtr < end) {
+            // First the tight ASCII loop:
+            int c;
+            ascii_loop:
+            while (true) {
+                int ptr = _inputPtr;
+                if (ptr >= _inputEnd) {
+                    loadMoreGuaranteed();
+                    ptr = _inputPtr;
+                }
+                // note: buffer may change when loading (for fragmented input)
+                final byte[] inputBuffer = _inputBuffer;
+                int max = Math.min(_inputEnd, ptr + (end - outPtr));
+                while (ptr < max) {
+                    c = (int) inputBuffer[ptr++] & 0xFF;
+                    if (codes[c] != 0) {
+                        _inputPtr = ptr;
+                        break ascii_loop;
+                    }
+                    buf[outPtr++] = (char) c;
+                }
+                _inputPtr = ptr;
+                if (outPtr >= end) {
+                    break main_loop;
+                }
             }
-            loadMoreGuaranteed();
+            if (c == SmileConstants.INT_MARKER_END_OF_STRING) {
+                _tokenIncomplete = false;
+                break;
+            }
+            switch (codes[c]) {
+            case 1: // 2-byte UTF
+                c = _decodeUtf8_2(c);
+                break;
+            case 2: // 3-byte UTF
+                if ((_inputEnd - _inputPtr) >= 2) {
+                    c = _decodeUtf8_3fast(c);
+                } else {
+                    c = _decodeUtf8_3(c);
+                }
+                break;
+            case 3: // 4-byte UTF, need room for surrogate pair
+                if ((end - outPtr) < 2) {
+                    --_inputPtr; // still in buffer, can just push back
+                    break main_loop;
+                }
+                c = _decodeUtf8_4(c);
+                buf[outPtr++] = (char) (0xD800 | (c >> 10));
+                c = 0xDC00 | (c & 0x3FF);
+                break;
+            default:
+                _reportInvalidChar(c);
+            }
+            buf[outPtr++] = (char) c;
         }
+        int count = outPtr - offset;
+        if (count == 0 && !_tokenIncomplete) {
+            return -1;
+        }
+        return count;
+    }
+
+    protected void _reportStreamedBinary() throws IOException
+    {
+        _reportError("Binary content of current token already partially read as a stream, can not access as byte[]");
+    }
+
+    private final void _finishRawBinary() throws IOException
+    {
+        int byteLen = _readUnsignedVInt();
+        // length known, so allocate exact result once; large content read directly into it
+        _binaryValue = new byte[byteLen];
+        _readRawBinary(_binaryValue, 0, byteLen);
     }
     
     /*
@@ -2622,6 +3555,10 @@ public class SmileParser extends ParserBase
     protected void _skipIncomplete() throws IOException
     {
         _tokenIncomplete = false;
+        if (_binaryStream != null) { // partially read binary content
+            _skipStreamedBinary();
+            return;
+        }
         int tb = _typeAsInt;
         switch (tb >> 5) {
         case 1: // simple literals, numbers
@@ -2710,6 +3647,200 @@ public class SmileParser extends ParserBase
     	_throwInternal();
     }
 
+    /**
+     * Helper method for skipping contents of an Object or Array, up to and
+     * including the matching end marker, without constructing tokens or parsing
+     * contexts. Field names and short String values are only decoded when needed
+     * to keep shared-name and shared-value tables up to date.
+     *
+     * @param inObject Whether structure to skip is an Object (true) or an Array (false)
+     *
+     * @since 2.8
+     */
+    protected void _skipStructure(boolean inObject) throws IOException
+    {
+        // One bit per nesting level, set for Objects; nesting beyond 64 levels
+        // is handled by recursion
+        long kinds = inObject ? 1L : 0L;
+        int depth = 0;
+
+        while (true) {
+            if (inObject) {
+                if (_inputPtr >= _inputEnd) {
+                    loadMoreGuaranteed();
+                }
+                final int ch = _inputBuffer[_inputPtr++] & 0xFF;
+                if (ch == 0xFB) { // END_OBJECT
+                    if (--depth < 0) {
+                        return;
+                    }
+                    inObject = ((kinds >> depth) & 1L) != 0L;
+                    continue;
+                }
+                _skipFieldName(ch);
+            }
+            if (_inputPtr >= _inputEnd) {
+                loadMoreGuaranteed();
+            }
+            final int ch = _inputBuffer[_inputPtr++] & 0xFF;
+            switch (ch) {
+            case 0xF8: // START_ARRAY
+            case 0xFA: // START_OBJECT
+                {
+                    final boolean childObject = (ch == 0xFA);
+                    if (depth == 63) {
+                        _skipStructure(childObject);
+                        continue;
+                    }
+                    ++depth;
+                    if (childObject) {
+                        kinds |= (1L << depth);
+                    } else {
+                        kinds &= ~(1L << depth);
+                    }
+                    inObject = childObject;
+                }
+                continue;
+            case 0xF9: // END_ARRAY
+                if (inObject) { // value expected after field name
+                    break;
+                }
+                if (--depth < 0) {
+                    return;
+                }
+                inObject = ((kinds >> depth) & 1L) != 0L;
+                continue;
+            }
+            _skipScalarValue(ch);
+        }
+    }
+
+    /**
+     * Helper method for skipping a field name (other than END_OBJECT marker),
+     * given its type byte. Name is decoded only if shared names are enabled.
+     */
+    private final void _skipFieldName(int ch) throws IOException
+    {
+        switch (ch >> 6) {
+        case 0: // misc
+            switch (ch) {
+            case 0x20: // empty String as name
+                return;
+            case 0x30: // long shared
+            case 0x31:
+            case 0x32:
+            case 0x33:
+                _skipBytes(1);
+                return;
+            case 0x34: // long ASCII/Unicode name
+                if (_seenNames != null) {
+                    _handleLongFieldName();
+                } else {
+                    while (true) {
+                        if (_inputPtr >= _inputEnd) {
+                            loadMoreGuaranteed();
+                        }
+                        if (_inputBuffer[_inputPtr++] == BYTE_MARKER_END_OF_STRING) {
+                            return;
+                        }
+                    }
+                }
+                return;
+            }
+            break;
+        case 1: // short shared
+            return;
+        case 2: // short ASCII
+            _skipShortName(1 + (ch & 0x3F), true);
+            return;
+        case 3: // short Unicode
+            if ((ch & 0x3F) <= 0x37) {
+                _skipShortName((ch & 0x3F) + 2, false);
+                return;
+            }
+            break;
+        }
+        _reportError("Invalid type marker byte 0x"+Integer.toHexString(ch)+" for expected field name (or END_OBJECT marker)");
+    }
+
+    private final void _skipShortName(int len, boolean ascii) throws IOException
+    {
+        if (_seenNames == null) {
+            _skipBytes(len);
+            return;
+        }
+        String name = _findDecodedFromSymbols(len);
+        if (name != null) {
+            _inputPtr += len;
+        } else {
+            name = ascii ? _decodeShortAsciiName(len) : _decodeShortUnicodeName(len);
+            name = _addDecodedToSymbols(len, name);
+        }
+        if (_seenNameCount >= _seenNames.length) {
+            _seenNames = _expandSeenNames(_seenNames);
+        }
+        _seenNames[_seenNameCount++] = name;
+    }
+
+    /**
+     * Helper method for skipping a scalar value, given its type byte.
+     * Short String values are decoded only if shared String values are enabled.
+     */
+    private final void _skipScalarValue(int ch) throws IOException
+    {
+        switch (ch >> 5) {
+        case 0: // short shared string value reference
+            if (ch != 0) {
+                return;
+            }
+            break;
+        case 1: // simple literals, numbers
+            {
+                final int typeBits = ch & 0x1F;
+                if (typeBits < 4) {
+                    return;
+                }
+                // VInt, VLong, BigInteger; float, double, BigDecimal
+                if (typeBits <= 0x0A && typeBits != 7) {
+                    _typeAsInt = ch;
+                    _skipIncomplete();
+                    return;
+                }
+            }
+            break;
+        case 2: // tiny ASCII
+        case 3: // short ASCII
+        case 4: // tiny Unicode
+        case 5: // short Unicode
+            _typeAsInt = ch;
+            if (_seenStringValueCount >= 0) {
+                _addSeenStringValue();
+            } else {
+                _skipIncomplete();
+            }
+            return;
+        case 6: // small integers
+            return;
+        default: // binary/long-text/long-shared
+            switch (ch & 0x1F) {
+            case 0x00: // long ASCII
+            case 0x04: // long Unicode
+            case 0x08: // binary, 7-bit
+            case 0x1D: // binary, raw
+                _typeAsInt = ch;
+                _skipIncomplete();
+                return;
+            case 0x0C: // long shared string
+            case 0x0D:
+            case 0x0E:
+            case 0x0F:
+                _skipBytes(1);
+                return;
+            }
+        }
+        _reportError("Invalid type marker byte 0x"+Integer.toHexString(ch)+" for expected value token");
+    }
+
     protected void _skipBytes(int len) throws IOException
     {
         while (true) {
@@ -2729,7 +3860,14 @@ public class SmileParser extends ParserBase
      */
     protected void _skip7BitBinary() throws IOException
     {
-        int origBytes = _readUnsignedVInt();
+        _skip7BitBinary(_readUnsignedVInt());
+    }
+
+    /**
+     * @since 2.8
+     */
+    protected void _skip7BitBinary(int origBytes) throws IOException
+    {
         // Ok; 8 encoded bytes for 7 payload bytes first
         int chunks = origBytes / 7;
         int encBytes = chunks * 8;
@@ -2741,6 +3879,34 @@ public class SmileParser extends ParserBase
         _skipBytes(encBytes);
     }
     
+    /**
+     * Helper method called to skip whatever is left of binary content
+     * that was partially read using {@link #getBinaryStream}.
+     */
+    private final void _skipStreamedBinary() throws IOException
+    {
+        final BinaryValueStream in = _binaryStream;
+        final int left = in._left;
+        _clearBinaryStream(in);
+        if (in._raw) {
+            _skipBytes(left);
+        } else {
+            _skip7BitBinary(left);
+        }
+    }
+
+    /**
+     * Helper method for marking content of a partially read binary value as
+     * consumed, without reading or skipping it from input
+     */
+    private final void _clearBinaryStream(BinaryValueStream in)
+    {
+        _binaryStream = null;
+        _tokenIncomplete = false;
+        in._left = 0;
+        in._bufferPtr = in._bufferEnd;
+    }
+
     /*
     /**********************************************************
     /* Internal methods, UTF8 decoding
@@ -2884,6 +4050,203 @@ public class SmileParser extends ParserBase
     /**********************************************************
      */
     
+    /**
+     * {@link Reader} used for incremental access to long String values:
+     * see {@link SmileParser#getTextReader}.
+     */
+    private final class LongTextReader extends Reader
+    {
+        /**
+         * Small buffer used for reads of less than 2 characters, since
+         * surrogate pairs can not be split
+         */
+        private char[] _pending;
+
+        private int _pendingPtr, _pendingEnd;
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException
+        {
+            if (len <= 0) {
+                return 0;
+            }
+            if (_pendingPtr < _pendingEnd) {
+                cbuf[off] = _pending[_pendingPtr++];
+                return 1;
+            }
+            if (_textReader != this) { // parser has moved on
+                return -1;
+            }
+            if (len >= 2) {
+                return _readLongText(cbuf, off, len);
+            }
+            if (_pending == null) {
+                _pending = new char[2];
+            }
+            int count = _readLongText(_pending, 0, 2);
+            if (count < 0) {
+                return count;
+            }
+            _pendingPtr = 1;
+            _pendingEnd = count;
+            cbuf[off] = _pending[0];
+            return 1;
+        }
+
+        @Override
+        public void close() { }
+    }
+
+    /**
+     * {@link InputStream} used for incremental access to binary values:
+     * see {@link SmileParser#getBinaryStream}.
+     */
+    private final class BinaryValueStream extends InputStream
+    {
+        /**
+         * Whether content is raw binary (true) or 7-bit encoded (false)
+         */
+        final boolean _raw;
+
+        /**
+         * Number of content bytes not yet read from input (or, for 7-bit content,
+         * decoded), not including ones in {@link #_buffer}
+         */
+        int _left;
+
+        /**
+         * Buffer for decoded 7-bit content, used when caller reads less than
+         * one 7-byte unit at a time
+         */
+        byte[] _buffer;
+
+        int _bufferPtr, _bufferEnd;
+
+        BinaryValueStream(boolean raw, int length) {
+            _raw = raw;
+            _left = length;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (_bufferPtr < _bufferEnd) {
+                int b = _buffer[_bufferPtr++] & 0xFF;
+                _checkDone();
+                return b;
+            }
+            if (_binaryStream != this) {
+                return -1;
+            }
+            if (_raw) {
+                if (_inputPtr >= _inputEnd) {
+                    loadMoreGuaranteed();
+                }
+                if (--_left == 0) {
+                    _streamDone();
+                }
+                return _inputBuffer[_inputPtr++] & 0xFF;
+            }
+            _fillBuffer();
+            int b = _buffer[_bufferPtr++] & 0xFF;
+            _checkDone();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (len <= 0) {
+                return 0;
+            }
+            if (_bufferPtr < _bufferEnd) {
+                int count = Math.min(len, _bufferEnd - _bufferPtr);
+                System.arraycopy(_buffer, _bufferPtr, b, off, count);
+                _bufferPtr += count;
+                _checkDone();
+                return count;
+            }
+            if (_binaryStream != this) {
+                return -1;
+            }
+            if (_raw) {
+                if (_inputPtr >= _inputEnd) {
+                    loadMoreGuaranteed();
+                }
+                int count = Math.min(len, Math.min(_left, _inputEnd - _inputPtr));
+                System.arraycopy(_inputBuffer, _inputPtr, b, off, count);
+                _inputPtr += count;
+                if ((_left -= count) == 0) {
+                    _streamDone();
+                }
+                return count;
+            }
+            // for 7-bit content, decode full units directly if possible
+            int count = (_left <= len) ? _left : (len - (len % 7));
+            if (count > 0) {
+                _decode7BitBinary(b, off, count);
+                if ((_left -= count) == 0) {
+                    _streamDone();
+                }
+                return count;
+            }
+            _fillBuffer();
+            count = Math.min(len, _bufferEnd);
+            System.arraycopy(_buffer, 0, b, off, count);
+            _bufferPtr = count;
+            _checkDone();
+            return count;
+        }
+
+        @Override
+        public int available() {
+            int count = _bufferEnd - _bufferPtr;
+            if (_raw && (_binaryStream == this)) {
+                count += Math.min(_left, _inputEnd - _inputPtr);
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (_binaryStream == this) {
+                _skipStreamedBinary();
+            }
+            _bufferPtr = _bufferEnd;
+        }
+
+        /**
+         * Helper method for decoding next unit of 7-bit content into {@link #_buffer}
+         */
+        private void _fillBuffer() throws IOException
+        {
+            if (_buffer == null) {
+                _buffer = new byte[7];
+            }
+            int count = Math.min(7, _left);
+            _decode7BitBinary(_buffer, 0, count);
+            _bufferPtr = 0;
+            _bufferEnd = count;
+            _left -= count;
+        }
+
+        /**
+         * Helper method called after reading from {@link #_buffer}: token is only
+         * complete once all decoded content has been read from the buffer as well.
+         */
+        private void _checkDone()
+        {
+            if ((_left == 0) && (_bufferPtr >= _bufferEnd) && (_binaryStream == this)) {
+                _streamDone();
+            }
+        }
+
+        private void _streamDone() {
+            _binaryStream = null;
+            _tokenIncomplete = false;
+        }
+    }
+
     private final JsonToken _eofAsNextToken() throws IOException {
         if (!_parsingContext.inRoot()) {
             _handleEOF();
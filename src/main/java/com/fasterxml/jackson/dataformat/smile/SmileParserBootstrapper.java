@@ -1,6 +1,7 @@
 package com.fasterxml.jackson.dataformat.smile;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.core.format.InputAccessor;
@@ -43,6 +44,36 @@ public class SmileParserBootstrapper
      */
     protected final boolean _bufferRecyclable;
 
+    /**
+     * For parsers over a sequence of input fragments: fragments that
+     * follow the initial input buffer contents
+     *
+     * @since 2.8
+     */
+    protected final ByteBuffer[] _fragments;
+
+    /**
+     * @since 2.8
+     */
+    protected final int _fragmentIndex;
+
+    /**
+     * @since 2.8
+     */
+    protected final byte[] _stitchBuffer;
+
+    /**
+     * For parsers with read-ahead input: source of input buffers
+     *
+     * @since 2.8
+     */
+    protected final SmileReadAheadInput _readAhead;
+
+    /**
+     * @since 2.8
+     */
+    protected final ByteBuffer _readAheadBuffer;
+
     /*
     /**********************************************************
     /* Input location
@@ -72,6 +103,11 @@ public class SmileParserBootstrapper
         _inputEnd = _inputPtr = 0;
         _inputProcessed = 0;
         _bufferRecyclable = true;
+        _fragments = null;
+        _fragmentIndex = 0;
+        _stitchBuffer = null;
+        _readAhead = null;
+        _readAheadBuffer = null;
     }
 
     public SmileParserBootstrapper(IOContext ctxt, byte[] inputBuffer, int inputStart, int inputLen)
@@ -84,6 +120,85 @@ public class SmileParserBootstrapper
         // Need to offset this for correct location info
         _inputProcessed = -inputStart;
         _bufferRecyclable = false;
+        _fragments = null;
+        _fragmentIndex = 0;
+        _stitchBuffer = null;
+        _readAhead = null;
+        _readAheadBuffer = null;
+    }
+
+    /**
+     * Constructor used for parsers over a sequence of input fragments: fragments with
+     * accessible backing array are parsed as is, and others copied in chunks. State
+     * (position) of given buffers is not modified.
+     *
+     * @since 2.8
+     */
+    public SmileParserBootstrapper(IOContext ctxt, ByteBuffer[] fragments)
+    {
+        _context = ctxt;
+        _in = null;
+        _bufferRecyclable = false;
+        _inputProcessed = 0;
+        _stitchBuffer = ctxt.allocReadIOBuffer();
+        _fragments = new ByteBuffer[fragments.length];
+        for (int i = 0; i < fragments.length; ++i) {
+            _fragments[i] = fragments[i].duplicate();
+        }
+        // need contents of the first non-empty fragment to check for header
+        int ix = 0;
+        while (ix < _fragments.length && !_fragments[ix].hasRemaining()) {
+            ++ix;
+        }
+        if (ix == _fragments.length) { // empty document
+            _inputBuffer = _stitchBuffer;
+            _inputPtr = _inputEnd = 0;
+        } else {
+            ByteBuffer frag = _fragments[ix];
+            if (frag.hasArray()) {
+                _inputBuffer = frag.array();
+                _inputPtr = frag.arrayOffset() + frag.position();
+                _inputEnd = frag.arrayOffset() + frag.limit();
+                frag.position(frag.limit());
+                ++ix;
+            } else {
+                _inputBuffer = _stitchBuffer;
+                _inputPtr = 0;
+                _inputEnd = Math.min(frag.remaining(), _stitchBuffer.length);
+                frag.get(_stitchBuffer, 0, _inputEnd);
+            }
+        }
+        _fragmentIndex = ix;
+        _readAhead = null;
+        _readAheadBuffer = null;
+    }
+
+    /**
+     * Constructor used for parsers with read-ahead input: waits until the
+     * first buffer has been read.
+     *
+     * @since 2.8
+     */
+    public SmileParserBootstrapper(IOContext ctxt, SmileReadAheadInput readAhead) throws IOException
+    {
+        _context = ctxt;
+        _in = null;
+        _bufferRecyclable = false;
+        _inputProcessed = 0;
+        _stitchBuffer = ctxt.allocReadIOBuffer();
+        _fragments = null;
+        _fragmentIndex = 0;
+        _readAhead = readAhead;
+        _readAheadBuffer = readAhead.next();
+        if (_readAheadBuffer == null) { // empty document
+            _inputBuffer = _stitchBuffer;
+            _inputPtr = _inputEnd = 0;
+        } else {
+            _inputBuffer = _readAheadBuffer.array();
+            _inputPtr = 0;
+            _inputEnd = _readAheadBuffer.limit();
+            _readAheadBuffer.position(_inputEnd);
+        }
     }
 
     public SmileParser constructParser(int factoryFeatures,
@@ -104,6 +219,11 @@ public class SmileParserBootstrapper
         SmileParser p = new SmileParser(_context, generalParserFeatures, smileFeatures,
                 codec, can, 
                 _in, _inputBuffer, _inputPtr, _inputEnd, _bufferRecyclable);
+        if (_readAhead != null) {
+            p._initReadAhead(_readAhead, _readAheadBuffer, _stitchBuffer);
+        } else if (_fragments != null) {
+            p._initFragments(_fragments, _fragmentIndex, _stitchBuffer);
+        }
         boolean hadSig = false;
         if (_inputPtr < _inputEnd) { // only false for empty doc
             if (_inputBuffer[_inputPtr] == SmileConstants.HEADER_BYTE_1) {
@@ -0,0 +1,630 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+import static com.fasterxml.jackson.dataformat.smile.SmileConstants.*;
+
+/**
+ * Alternative to {@link SmileParser} for decoding Smile documents fully available
+ * in memory: instead of pulling tokens, caller gives a {@link SmileVisitor} that
+ * gets called for each element of the document. Names and Strings are passed
+ * as slices of the input buffer, and numbers as primitives, so that nothing
+ * is allocated for them (only for big numbers, and when buffers need to grow);
+ * and no token or context state is kept beyond what decoding requires.
+ * This is useful for callers that do not need <code>String</code>s (or only need
+ * some of them), or that map names to something else by their bytes.
+ *<p>
+ * Each call to {@link #decode} decodes a single document, starting with its
+ * header (if any) and ending with its end marker (if any), independent of
+ * any earlier calls. Instances may be reused, but are not thread-safe.
+ *
+ * @since 2.8
+ */
+public class SmilePushDecoder
+{
+    /**
+     * Initial size of shared name/value tables; grown as necessary up to
+     * 1024 entries
+     */
+    private final static int INITIAL_SHARED_SIZE = 64;
+
+    protected final boolean _cfgRequireHeader;
+
+    /*
+    /**********************************************************
+    /* Decoding state, reused
+    /**********************************************************
+     */
+
+    /**
+     * Input offsets of names in shared name table
+     */
+    protected int[] _seenNameOffsets = new int[INITIAL_SHARED_SIZE];
+
+    protected int[] _seenNameLengths = new int[INITIAL_SHARED_SIZE];
+
+    /**
+     * Number of entries in shared name table; -1 if name sharing is disabled
+     */
+    protected int _seenNameCount;
+
+    /**
+     * Input offsets of Strings in shared value table; negated
+     * (minus one) for non-ASCII values
+     */
+    protected int[] _seenValueOffsets;
+
+    protected int[] _seenValueLengths;
+
+    /**
+     * Number of entries in shared value table; -1 if value sharing is disabled
+     */
+    protected int _seenValueCount;
+
+    /**
+     * Buffer used for decoding 7-bit encoded binary values
+     */
+    protected byte[] _binaryBuffer;
+
+    /**
+     * Stack of open containers: true for Objects, false for Arrays
+     */
+    protected boolean[] _containers = new boolean[16];
+
+    /**
+     * Offset right after the last variable-length number decoded
+     */
+    protected int _vintEnd;
+
+    public SmilePushDecoder(int smileParserFeatures)
+    {
+        _cfgRequireHeader = (smileParserFeatures & SmileParser.Feature.REQUIRE_HEADER.getMask()) != 0;
+    }
+
+    /*
+    /**********************************************************
+    /* Public API
+    /**********************************************************
+     */
+
+    /**
+     * Method for decoding a single document from given input, calling visitor
+     * for each element.
+     *
+     * @return Offset right after end of document decoded (including end marker,
+     *   if one follows); if less than <code>offset+len</code>, there are more
+     *   documents to decode
+     */
+    public int decode(byte[] buf, int offset, int len, SmileVisitor v) throws IOException
+    {
+        final int end = offset + len;
+        int ptr = offset;
+
+        // Defaults, unless header says otherwise: shared names, but not values
+        _seenNameCount = 0;
+        _seenValueCount = -1;
+        if (((end - ptr) >= 4) && (buf[ptr] == HEADER_BYTE_1) && (buf[ptr+1] == HEADER_BYTE_2)
+                && (buf[ptr+2] == HEADER_BYTE_3)) {
+            ptr = _handleHeader(buf, ptr+3);
+        } else if (_cfgRequireHeader && (ptr < end)) {
+            _reportError("Input does not start with Smile format header (first byte = 0x"
+                    +Integer.toHexString(buf[ptr] & 0xFF)+") and parser has REQUIRE_HEADER enabled: can not parse", ptr);
+        }
+        if (ptr >= end) { // only header, or nothing at all
+            return ptr;
+        }
+        if (buf[ptr] == BYTE_MARKER_END_OF_CONTENT) { // empty document
+            return ptr+1;
+        }
+        ptr = _decodeRoot(buf, ptr, end, v);
+        if ((ptr < end) && (buf[ptr] == BYTE_MARKER_END_OF_CONTENT)) {
+            ++ptr;
+        }
+        return ptr;
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods, main decoding loop
+    /**********************************************************
+     */
+
+    private final int _handleHeader(byte[] buf, int ptr) throws IOException
+    {
+        int ch = buf[ptr++];
+        int versionBits = (ch >> 4) & 0x0F;
+        if (versionBits != HEADER_VERSION_0) {
+            _reportError("Header version number bits (0x"+Integer.toHexString(versionBits)
+                    +") indicate unrecognized version; only 0x0 handled by parser", ptr-1);
+        }
+        if ((ch & HEADER_BIT_HAS_SHARED_NAMES) == 0) {
+            _seenNameCount = -1;
+        }
+        if ((ch & HEADER_BIT_HAS_SHARED_STRING_VALUES) != 0) {
+            _seenValueCount = 0;
+            if (_seenValueOffsets == null) {
+                _seenValueOffsets = new int[INITIAL_SHARED_SIZE];
+                _seenValueLengths = new int[INITIAL_SHARED_SIZE];
+            }
+        }
+        return ptr;
+    }
+
+    private final int _decodeRoot(final byte[] buf, int ptr, final int end, final SmileVisitor v)
+        throws IOException
+    {
+        boolean[] containers = _containers;
+        int depth = 0;
+        boolean keyMode = false;
+
+        do {
+            if (ptr >= end) {
+                _reportEOF(ptr);
+            }
+            final int start = ptr;
+            int ch = buf[ptr++] & 0xFF;
+
+            if (keyMode) {
+                switch (ch >> 6) {
+                case 0: // misc
+                    if (ch == 0x20) { // empty String as name
+                        v.fieldName(buf, ptr, 0, -1);
+                        keyMode = false;
+                        continue;
+                    }
+                    if (ch >= 0x30 && ch <= 0x33) { // long shared
+                        _need(ptr, 1, end);
+                        _sharedName(buf, ((ch & 0x3) << 8) + (buf[ptr++] & 0xFF), start, v);
+                        keyMode = false;
+                        continue;
+                    }
+                    if (ch == 0x34) { // long name
+                        int markerPtr = _findEndMarker(buf, ptr, end);
+                        v.fieldName(buf, ptr, markerPtr - ptr, _addSeenName(ptr, markerPtr - ptr));
+                        ptr = markerPtr+1;
+                        keyMode = false;
+                        continue;
+                    }
+                    break;
+                case 1: // short shared
+                    _sharedName(buf, ch & 0x3F, start, v);
+                    keyMode = false;
+                    continue;
+                case 2: // short ASCII
+                    {
+                        int len = 1 + (ch & 0x3F);
+                        _need(ptr, len, end);
+                        v.fieldName(buf, ptr, len, _addSeenName(ptr, len));
+                        ptr += len;
+                    }
+                    keyMode = false;
+                    continue;
+                case 3: // short Unicode, END_OBJECT
+                    ch &= 0x3F;
+                    if (ch <= 0x37) {
+                        int len = 2 + ch;
+                        _need(ptr, len, end);
+                        v.fieldName(buf, ptr, len, _addSeenName(ptr, len));
+                        ptr += len;
+                        keyMode = false;
+                        continue;
+                    }
+                    if (ch == 0x3B) {
+                        v.endObject();
+                        --depth;
+                        keyMode = (depth > 0) && containers[depth-1];
+                        continue;
+                    }
+                    break;
+                }
+                _reportError("Invalid type marker byte 0x"+Integer.toHexString(buf[start] & 0xFF)
+                        +" for expected field name (or END_OBJECT marker)", start);
+            }
+
+            switch (ch >> 5) {
+            case 0: // short shared string value reference
+                if (ch == 0) {
+                    break;
+                }
+                _sharedValue(buf, ch-1, start, v);
+                keyMode = (depth > 0) && containers[depth-1];
+                continue;
+
+            case 1: // simple literals, numbers
+                switch (ch & 0x1F) {
+                case 0x00:
+                    v.stringValue(buf, ptr, 0, true, -1);
+                    break;
+                case 0x01:
+                    v.nullValue();
+                    break;
+                case 0x02:
+                    v.booleanValue(false);
+                    break;
+                case 0x03:
+                    v.booleanValue(true);
+                    break;
+                case 0x04:
+                    ptr = _decodeVInt(buf, ptr, end, v);
+                    break;
+                case 0x05:
+                    ptr = _decodeVLong(buf, ptr, end, v);
+                    break;
+                case 0x06:
+                    ptr = _decodeBigInteger(buf, ptr, end, v);
+                    break;
+                case 0x08:
+                    {
+                        _need(ptr, 5, end);
+                        int i = buf[ptr++];
+                        i = (i << 7) + buf[ptr++];
+                        i = (i << 7) + buf[ptr++];
+                        i = (i << 7) + buf[ptr++];
+                        i = (i << 7) + buf[ptr++];
+                        v.floatValue(Float.intBitsToFloat(i));
+                    }
+                    break;
+                case 0x09:
+                    {
+                        _need(ptr, 10, end);
+                        long l = buf[ptr++];
+                        for (final int last = ptr + 9; ptr < last; ) {
+                            l = (l << 7) + buf[ptr++];
+                        }
+                        v.doubleValue(Double.longBitsToDouble(l));
+                    }
+                    break;
+                case 0x0A:
+                    ptr = _decodeBigDecimal(buf, ptr, end, v);
+                    break;
+                default:
+                    _reportError("Invalid type marker byte 0x"+Integer.toHexString(ch)
+                            +" for expected value token", start);
+                }
+                keyMode = (depth > 0) && containers[depth-1];
+                continue;
+
+            case 2: // tiny ASCII
+            case 3: // short ASCII
+                {
+                    int len = 1 + (ch & 0x3F);
+                    _need(ptr, len, end);
+                    v.stringValue(buf, ptr, len, true, _addSeenValue(ptr, len, true));
+                    ptr += len;
+                }
+                keyMode = (depth > 0) && containers[depth-1];
+                continue;
+
+            case 4: // tiny Unicode
+            case 5: // short Unicode
+                {
+                    int len = 2 + (ch & 0x3F);
+                    _need(ptr, len, end);
+                    v.stringValue(buf, ptr, len, false, _addSeenValue(ptr, len, false));
+                    ptr += len;
+                }
+                keyMode = (depth > 0) && containers[depth-1];
+                continue;
+
+            case 6: // small integers; zigzag encoded
+                v.intValue(SmileUtil.zigzagDecode(ch & 0x1F));
+                keyMode = (depth > 0) && containers[depth-1];
+                continue;
+
+            case 7: // binary/long-text/long-shared/start-end-markers
+                switch (ch & 0x1F) {
+                case 0x00: // long variable length ASCII
+                case 0x04: // long variable length Unicode
+                    {
+                        int markerPtr = _findEndMarker(buf, ptr, end);
+                        v.stringValue(buf, ptr, markerPtr - ptr, (ch == 0xE0), -1);
+                        ptr = markerPtr+1;
+                    }
+                    keyMode = (depth > 0) && containers[depth-1];
+                    continue;
+                case 0x08: // binary, 7-bit
+                    ptr = _decode7BitBinary(buf, ptr, end, v);
+                    keyMode = (depth > 0) && containers[depth-1];
+                    continue;
+                case 0x0C: // long shared string
+                case 0x0D:
+                case 0x0E:
+                case 0x0F:
+                    _need(ptr, 1, end);
+                    _sharedValue(buf, ((ch & 0x3) << 8) + (buf[ptr++] & 0xFF), start, v);
+                    keyMode = (depth > 0) && containers[depth-1];
+                    continue;
+                case 0x18: // START_ARRAY
+                    if (depth == containers.length) {
+                        _containers = containers = Arrays.copyOf(containers, depth + depth);
+                    }
+                    containers[depth++] = false;
+                    v.startArray();
+                    keyMode = false;
+                    continue;
+                case 0x19: // END_ARRAY
+                    if ((depth == 0) || containers[depth-1]) {
+                        _reportError("Unexpected END_ARRAY marker"
+                                +((depth == 0) ? " outside of Array" : ": expected END_OBJECT"), start);
+                    }
+                    v.endArray();
+                    --depth;
+                    keyMode = (depth > 0) && containers[depth-1];
+                    continue;
+                case 0x1A: // START_OBJECT
+                    if (depth == containers.length) {
+                        _containers = containers = Arrays.copyOf(containers, depth + depth);
+                    }
+                    containers[depth++] = true;
+                    v.startObject();
+                    keyMode = true;
+                    continue;
+                case 0x1D: // binary, raw
+                    {
+                        int len = _decodeLength(buf, ptr, end);
+                        ptr = _vintEnd;
+                        _need(ptr, len, end);
+                        v.binaryValue(buf, ptr, len);
+                        ptr += len;
+                    }
+                    keyMode = (depth > 0) && containers[depth-1];
+                    continue;
+                }
+                break;
+            }
+            _reportError("Invalid type marker byte 0x"+Integer.toHexString(ch)
+                    +" for expected value token", start);
+        } while (depth > 0);
+
+        return ptr;
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods, shared names and values
+    /**********************************************************
+     */
+
+    private final void _sharedName(byte[] buf, int index, int ptr, SmileVisitor v) throws IOException
+    {
+        if (index >= _seenNameCount) {
+            _reportError("Invalid shared name reference "+index+"; only got "+_seenNameCount+" names in buffer (invalid content)", ptr);
+        }
+        v.fieldName(buf, _seenNameOffsets[index], _seenNameLengths[index], index);
+    }
+
+    private final void _sharedValue(byte[] buf, int index, int ptr, SmileVisitor v) throws IOException
+    {
+        if (index >= _seenValueCount) {
+            _reportError("Invalid shared text value reference "+index+"; only got "+_seenValueCount+" values in buffer (invalid content)", ptr);
+        }
+        int offset = _seenValueOffsets[index];
+        if (offset < 0) {
+            v.stringValue(buf, -(offset+1), _seenValueLengths[index], false, index);
+        } else {
+            v.stringValue(buf, offset, _seenValueLengths[index], true, index);
+        }
+    }
+
+    private final int _addSeenName(int offset, int len)
+    {
+        int ix = _seenNameCount;
+        if (ix < 0) {
+            return -1;
+        }
+        if (ix == _seenNameOffsets.length) {
+            if (ix == MAX_SHARED_NAMES) { // full; start from scratch, like generator
+                ix = 0;
+            } else {
+                _seenNameOffsets = Arrays.copyOf(_seenNameOffsets, Math.min(ix << 2, MAX_SHARED_NAMES));
+                _seenNameLengths = Arrays.copyOf(_seenNameLengths, _seenNameOffsets.length);
+            }
+        }
+        _seenNameOffsets[ix] = offset;
+        _seenNameLengths[ix] = len;
+        _seenNameCount = ix+1;
+        return ix;
+    }
+
+    private final int _addSeenValue(int offset, int len, boolean ascii)
+    {
+        int ix = _seenValueCount;
+        if (ix < 0) {
+            return -1;
+        }
+        if (ix == _seenValueOffsets.length) {
+            if (ix == MAX_SHARED_STRING_VALUES) {
+                ix = 0;
+            } else {
+                _seenValueOffsets = Arrays.copyOf(_seenValueOffsets, Math.min(ix << 2, MAX_SHARED_STRING_VALUES));
+                _seenValueLengths = Arrays.copyOf(_seenValueLengths, _seenValueOffsets.length);
+            }
+        }
+        _seenValueOffsets[ix] = ascii ? offset : -(offset+1);
+        _seenValueLengths[ix] = len;
+        _seenValueCount = ix+1;
+        return ix;
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods, number and binary decoding
+    /**********************************************************
+     */
+
+    private final int _decodeVInt(byte[] buf, int ptr, int end, SmileVisitor v) throws IOException
+    {
+        int value = 0;
+        for (int last = Math.min(end, ptr + 5); ptr < last; ) {
+            int i = buf[ptr++];
+            if (i < 0) { // last byte
+                v.intValue(SmileUtil.zigzagDecode((value << 6) + (i & 0x3F)));
+                return ptr;
+            }
+            value = (value << 7) + i;
+        }
+        if (ptr >= end) {
+            _reportEOF(ptr);
+        }
+        _reportError("Corrupt input; 32-bit VInt extends beyond 5 data bytes", ptr);
+        return ptr;
+    }
+
+    private final int _decodeVLong(byte[] buf, int ptr, int end, SmileVisitor v) throws IOException
+    {
+        v.longValue(SmileUtil.zigzagDecode(_decodeVLongRaw(buf, ptr, end)));
+        return _vintEnd;
+    }
+
+    /**
+     * Helper method for decoding an unsigned VInt used as length of binary
+     * or numeric value; sets {@link #_vintEnd}.
+     */
+    private final int _decodeLength(byte[] buf, int ptr, int end) throws IOException
+    {
+        long value = _decodeVLongRaw(buf, ptr, end);
+        if (value < 0L || value > Integer.MAX_VALUE) {
+            _reportError("Invalid length ("+value+") for binary or numeric value", ptr);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Method for decoding a VInt of up to 64 bits (without zigzag decoding);
+     * sets {@link #_vintEnd}.
+     */
+    private final long _decodeVLongRaw(byte[] buf, int ptr, int end) throws IOException
+    {
+        long value = 0L;
+        for (int last = Math.min(end, ptr + 10); ptr < last; ) {
+            int i = buf[ptr++];
+            if (i < 0) { // last byte
+                _vintEnd = ptr;
+                return (value << 6) + (i & 0x3F);
+            }
+            value = (value << 7) + i;
+        }
+        if (ptr >= end) {
+            _reportEOF(ptr);
+        }
+        _reportError("Corrupt input; 64-bit VInt extends beyond 10 data bytes", ptr);
+        return 0L;
+    }
+
+    private final int _decodeBigInteger(byte[] buf, int ptr, int end, SmileVisitor v) throws IOException
+    {
+        final int len = _decodeLength(buf, ptr, end);
+        ptr = _decode7Bit(buf, _vintEnd, end, len);
+        v.bigIntegerValue(new BigInteger(Arrays.copyOf(_binaryBuffer, len)));
+        return ptr;
+    }
+
+    private final int _decodeBigDecimal(byte[] buf, int ptr, int end, SmileVisitor v) throws IOException
+    {
+        final int scale = SmileUtil.zigzagDecode((int) _decodeVLongRaw(buf, ptr, end));
+        final int len = _decodeLength(buf, _vintEnd, end);
+        ptr = _decode7Bit(buf, _vintEnd, end, len);
+        BigInteger unscaled = new BigInteger(Arrays.copyOf(_binaryBuffer, len));
+        v.bigDecimalValue(new BigDecimal(unscaled, scale));
+        return ptr;
+    }
+
+    private final int _decode7BitBinary(byte[] buf, int ptr, int end, SmileVisitor v) throws IOException
+    {
+        final int len = _decodeLength(buf, ptr, end);
+        ptr = _decode7Bit(buf, _vintEnd, end, len);
+        v.binaryValue(_binaryBuffer, 0, len);
+        return ptr;
+    }
+
+    /**
+     * Method for decoding given number of raw bytes from 7-bit encoded input
+     * into {@link #_binaryBuffer}
+     *
+     * @return Offset after encoded content
+     */
+    private final int _decode7Bit(byte[] inBuf, int inPtr, int end, int byteLen) throws IOException
+    {
+        // 8 encoded bytes for each full 7, and n+1 for n leftover bytes
+        int encLen = (byteLen / 7) * 8;
+        int leftover = byteLen % 7;
+        if (leftover > 0) {
+            encLen += leftover+1;
+        }
+        _need(inPtr, encLen, end);
+        byte[] result = _binaryBuffer;
+        if (result == null || result.length < byteLen) {
+            _binaryBuffer = result = new byte[Math.max(byteLen, 256)];
+        }
+        int ptr = 0;
+        final int lastOkPtr = byteLen - 7;
+
+        while (ptr <= lastOkPtr) {
+            int i1 = (inBuf[inPtr++] << 25)
+                + (inBuf[inPtr++] << 18)
+                + (inBuf[inPtr++] << 11)
+                + (inBuf[inPtr++] << 4);
+            int x = inBuf[inPtr++];
+            i1 += x >> 3;
+            int i2 = ((x & 0x7) << 21)
+                + (inBuf[inPtr++] << 14)
+                + (inBuf[inPtr++] << 7)
+                + inBuf[inPtr++];
+            result[ptr++] = (byte)(i1 >> 24);
+            result[ptr++] = (byte)(i1 >> 16);
+            result[ptr++] = (byte)(i1 >> 8);
+            result[ptr++] = (byte)i1;
+            result[ptr++] = (byte)(i2 >> 16);
+            result[ptr++] = (byte)(i2 >> 8);
+            result[ptr++] = (byte)i2;
+        }
+        int toDecode = (byteLen - ptr);
+        if (toDecode > 0) {
+            int value = inBuf[inPtr++];
+            for (int i = 1; i < toDecode; ++i) {
+                value = (value << 7) + inBuf[inPtr++];
+                result[ptr++] = (byte) (value >> (7 - i));
+            }
+            value <<= toDecode;
+            result[ptr] = (byte) (value + inBuf[inPtr++]);
+        }
+        return inPtr;
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods, other
+    /**********************************************************
+     */
+
+    private final int _findEndMarker(byte[] buf, int ptr, int end) throws IOException
+    {
+        for (; ptr < end; ++ptr) {
+            if (buf[ptr] == BYTE_MARKER_END_OF_STRING) {
+                return ptr;
+            }
+        }
+        _reportEOF(ptr);
+        return ptr;
+    }
+
+    private final void _need(int ptr, int len, int end) throws IOException
+    {
+        if ((end - ptr) < len) {
+            _reportEOF(end);
+        }
+    }
+
+    protected void _reportEOF(int ptr) throws IOException {
+        _reportError("Unexpected end-of-input within document", ptr);
+    }
+
+    protected void _reportError(String msg, int ptr) throws IOException {
+        throw new JsonParseException(null, msg+" (at offset "+ptr+")");
+    }
+}
@@ -0,0 +1,217 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+/**
+ * Double-buffered input source used by parsers constructed with
+ * {@link SmileFactory#createParser(InputStream, Executor)}: while parser
+ * decodes content of one buffer, the other one is filled from the underlying
+ * {@link InputStream} by a task run on given {@link Executor}.
+ * Buffers are handed to parser as is (no copying), and returned for refilling
+ * once parser has moved past them. This allows overlapping of I/O with decoding
+ * for large sequential reads from slow streams. Each fill hands over whatever
+ * a single read returns, so that content is decoded as soon as it arrives.
+ *<p>
+ * Note that content read ahead is owned by this object, and not by parser: so
+ * {@link SmileParser#releaseBuffered} only returns content of the buffer
+ * parser is currently decoding, not content already read ahead but not yet
+ * handed to parser.
+ *<p>
+ * Instances are only to be used by a single parser.
+ *
+ * @since 2.8
+ */
+public class SmileReadAheadInput
+{
+    /**
+     * Default size of each of two read buffers: 64 kB
+     */
+    public final static int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    protected final InputStream _in;
+
+    protected final Executor _executor;
+
+    /**
+     * Buffer that is available for the next fill, if any
+     */
+    protected byte[] _spare;
+
+    /**
+     * Buffer most recently returned by {@link #next}, if any: will be refilled
+     * on the following call
+     */
+    protected ByteBuffer _current;
+
+    /*
+    /**********************************************************
+    /* State shared with the fill task; guarded by 'this'
+    /**********************************************************
+     */
+
+    protected boolean _pending;
+
+    protected ByteBuffer _ready;
+
+    protected IOException _failure;
+
+    protected boolean _eof;
+
+    protected volatile boolean _closed;
+
+    public SmileReadAheadInput(InputStream in, Executor executor) {
+        this(in, executor, DEFAULT_BUFFER_SIZE);
+    }
+
+    public SmileReadAheadInput(InputStream in, Executor executor, int bufferSize)
+    {
+        _in = in;
+        _executor = executor;
+        _spare = new byte[bufferSize];
+        _fill(new byte[bufferSize]);
+    }
+
+    /**
+     * Method for accessing the next buffer with content; waits for read-ahead
+     * to complete if necessary. Buffer returned by the previous call is
+     * released to be refilled, so caller must not access it any more.
+     *
+     * @return Buffer with content (position 0, limit at end of content), or null
+     *   if end of input has been reached
+     */
+    public ByteBuffer next() throws IOException
+    {
+        ByteBuffer result;
+        boolean eof;
+        synchronized (this) {
+            while (_pending) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for read-ahead");
+                }
+            }
+            if (_failure != null) {
+                IOException e = _failure;
+                _failure = null;
+                throw e;
+            }
+            result = _ready;
+            _ready = null;
+            eof = _eof;
+        }
+        if (_current != null) {
+            _spare = _current.array();
+        }
+        _current = result;
+        if (result != null && !eof) {
+            byte[] buf = _spare;
+            _spare = null;
+            _fill(buf);
+        }
+        return result;
+    }
+
+    /**
+     * Method to call when no more content is to be read. If underlying stream is
+     * to be closed, it is closed first (to make a pending read, if any, complete);
+     * in either case, pending read-ahead is then waited for, so that underlying
+     * stream is not accessed after this method returns.
+     *
+     * @param closeSource Whether underlying {@link InputStream} is to be closed
+     */
+    public void close(boolean closeSource) throws IOException
+    {
+        synchronized (this) {
+            if (_closed) {
+                return;
+            }
+            _closed = true;
+        }
+        try {
+            if (closeSource) {
+                _in.close();
+            }
+        } finally {
+            synchronized (this) {
+                while (_pending) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                _ready = null;
+                _current = null;
+                _spare = null;
+            }
+        }
+    }
+
+    private void _fill(final byte[] buffer)
+    {
+        synchronized (this) {
+            _pending = true;
+        }
+        try {
+            _executor.execute(_fillTask(buffer));
+        } catch (RuntimeException e) { // most likely rejected by executor
+            synchronized (this) {
+                _pending = false;
+                _failure = new IOException("Failed to schedule read-ahead: "+e, e);
+            }
+        }
+    }
+
+    private Runnable _fillTask(final byte[] buffer)
+    {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer result = null;
+                IOException fail = null;
+                try {
+                    int count = _read(buffer);
+                    if (count > 0) {
+                        result = ByteBuffer.wrap(buffer, 0, count);
+                    }
+                } catch (IOException e) {
+                    fail = e;
+                } catch (RuntimeException e) {
+                    fail = new IOException("Read-ahead failed: "+e, e);
+                }
+                synchronized (SmileReadAheadInput.this) {
+                    _ready = result;
+                    _failure = fail;
+                    _eof = (result == null);
+                    _pending = false;
+                    SmileReadAheadInput.this.notifyAll();
+                }
+            }
+        };
+    }
+
+    /**
+     * Helper method for reading content into given buffer: whatever a single read
+     * returns is handed over as is, so that content is not held back waiting for
+     * more (as would happen with a small message read from a socket).
+     *
+     * @return Number of bytes read; -1 if end of input reached (or closed)
+     */
+    protected int _read(byte[] buffer) throws IOException
+    {
+        if (_closed) {
+            return -1;
+        }
+        int count = _in.read(buffer, 0, buffer.length);
+        if (count == 0) {
+            throw new IOException("InputStream.read() returned 0 bytes when trying to read "
+                    +buffer.length+" bytes");
+        }
+        return count;
+    }
+}
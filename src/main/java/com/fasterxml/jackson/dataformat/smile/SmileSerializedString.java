@@ -0,0 +1,43 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * {@link SerializedString} that, in addition to textual encodings, contains
+ * complete Smile encoding of the String as field name (type byte, UTF-8 encoded
+ * name, and end marker for long names), as well as hash code used for shared
+ * name lookups. When written as field name by {@link SmileGenerator}, encoded
+ * bytes are copied as is, without having to determine token type.
+ *<p>
+ * Instances are constructed using {@link SmileFactory#createFieldName(String)},
+ * and are typically created once and reused, like other {@link SerializedString}s.
+ *
+ * @since 2.8
+ */
+public class SmileSerializedString extends SerializedString
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Name encoded as complete Smile key token
+     */
+    protected final transient byte[] _smileEncoded;
+
+    protected final transient int _nameHash;
+
+    public SmileSerializedString(String v)
+    {
+        super(v);
+        _smileEncoded = SmileFieldNames.encode(v);
+        _nameHash = v.hashCode();
+    }
+
+    /**
+     * Accessor for Smile encoding of the String as field name (type byte,
+     * UTF-8 encoded name, and end marker for long names). Caller must not
+     * modify the array returned.
+     */
+    public byte[] asSmileFieldName() {
+        return _smileEncoded;
+    }
+}
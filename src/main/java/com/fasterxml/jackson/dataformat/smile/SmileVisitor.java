@@ -0,0 +1,75 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Callback interface (as an abstract class with no-op implementations, to be
+ * overridden as necessary) for {@link SmilePushDecoder}. Names and String values
+ * are passed as slices of the input buffer, containing their UTF-8 encoded bytes;
+ * these are only valid during the call.
+ *<p>
+ * Names and String values that may be referenced later in the document are
+ * passed along with their index in the shared name (or value) table, and
+ * back-references with the index of the referenced entry, along with slice of
+ * its earlier occurrence. Since tables are reset once they have 1024 entries, the
+ * same index may later be used for a different value: so visitors that cache
+ * something per index should verify that the offset matches that of the cached
+ * entry (which is cheaper than comparing contents).
+ *
+ * @since 2.8
+ */
+public abstract class SmileVisitor
+{
+    public void startObject() throws IOException { }
+
+    public void endObject() throws IOException { }
+
+    public void startArray() throws IOException { }
+
+    public void endArray() throws IOException { }
+
+    /**
+     * @param sharedIndex Index of name in the shared name table, if name is (or was)
+     *    added to it; -1 if not
+     */
+    public void fieldName(byte[] buf, int offset, int len, int sharedIndex) throws IOException { }
+
+    /**
+     * @param ascii Whether all characters are 7-bit ASCII (if not known, false)
+     * @param sharedIndex Index of value in the shared value table, if value is (or was)
+     *    added to it; -1 if not
+     */
+    public void stringValue(byte[] buf, int offset, int len, boolean ascii, int sharedIndex)
+            throws IOException { }
+
+    public void nullValue() throws IOException { }
+
+    public void booleanValue(boolean value) throws IOException { }
+
+    public void intValue(int value) throws IOException { }
+
+    public void longValue(long value) throws IOException { }
+
+    /**
+     * Note: since there is no primitive representation, value needs to be constructed
+     */
+    public void bigIntegerValue(BigInteger value) throws IOException { }
+
+    public void floatValue(float value) throws IOException { }
+
+    public void doubleValue(double value) throws IOException { }
+
+    /**
+     * Note: since there is no primitive representation, value needs to be constructed
+     */
+    public void bigDecimalValue(BigDecimal value) throws IOException { }
+
+    /**
+     * Method called for binary values; contents are either a slice of the input
+     * buffer (for raw binary), or of a buffer reused by decoder (for 7-bit encoded
+     * binary).
+     */
+    public void binaryValue(byte[] buf, int offset, int len) throws IOException { }
+}
@@ -0,0 +1,286 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Write-behind output target used by generators constructed with
+ * {@link SmileFactory#createWriteBehindGenerator(OutputStream, Executor)}: when the output
+ * buffer of generator is full, it is handed (without copying) to a task run on given
+ * {@link Executor} that writes it to the underlying {@link OutputStream}, and
+ * generator continues encoding into a recycled buffer. Number of full buffers waiting
+ * to be written is bounded; generator blocks if it gets ahead of the writer.
+ *<p>
+ * Failures of the writer are reported on the next call by generator, at latest
+ * on {@link #flush} or {@link #close}; once a write has failed, all subsequent
+ * calls fail with the same exception.
+ *<p>
+ * Instances are only to be used by a single generator.
+ *
+ * @since 2.8
+ */
+public class SmileWriteBehindOutput
+    extends SmileBufferedOutput
+{
+    /**
+     * Default size of output buffers: 64 kB
+     */
+    public final static int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Default maximum number of full buffers waiting to be written (or being
+     * written): 1, meaning that generator encodes into one buffer while the
+     * other is being written.
+     */
+    public final static int DEFAULT_QUEUE_DEPTH = 1;
+
+    protected final OutputStream _out;
+
+    protected final Executor _executor;
+
+    protected final int _bufferSize;
+
+    protected final int _queueDepth;
+
+    /*
+    /**********************************************************
+    /* State shared with the write task; guarded by 'this'
+    /**********************************************************
+     */
+
+    /**
+     * Full buffers (with length of content, as {@link Chunk}s) waiting to be written
+     */
+    protected final ArrayDeque<Chunk> _queue = new ArrayDeque<Chunk>();
+
+    /**
+     * Buffers that have been written and may be reused
+     */
+    protected final ArrayList<byte[]> _free = new ArrayList<byte[]>();
+
+    /**
+     * Number of buffers queued or being written
+     */
+    protected int _pending;
+
+    /**
+     * Whether the write task is scheduled or running
+     */
+    protected boolean _writing;
+
+    protected IOException _failure;
+
+    protected boolean _closed;
+
+    public SmileWriteBehindOutput(OutputStream out, Executor executor) {
+        this(out, executor, DEFAULT_BUFFER_SIZE, DEFAULT_QUEUE_DEPTH);
+    }
+
+    public SmileWriteBehindOutput(OutputStream out, Executor executor,
+            int bufferSize, int queueDepth)
+    {
+        if (queueDepth < 1) {
+            throw new IllegalArgumentException("Invalid queue depth ("+queueDepth+"): must be at least 1");
+        }
+        _out = out;
+        _executor = executor;
+        _bufferSize = bufferSize;
+        _queueDepth = queueDepth;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return _out;
+    }
+
+    @Override
+    public byte[] allocBuffer() {
+        return new byte[_bufferSize];
+    }
+
+    /**
+     * Method for queueing contents of given buffer to be written; buffer must not
+     * be accessed by caller after the call. Waits if more than the maximum number of
+     * buffers are pending (counting the one just queued), so that with queue depth
+     * of N, caller can encode into a buffer while N buffers are pending.
+     *
+     * @return Buffer (of same length as the one given) for caller to continue
+     *   encoding content in
+     */
+    @Override
+    public byte[] write(byte[] buffer, int len) throws IOException
+    {
+        boolean schedule;
+        synchronized (this) {
+            _checkFailure();
+            _queue.addLast(new Chunk(buffer, len));
+            ++_pending;
+            schedule = !_writing;
+            _writing = true;
+        }
+        if (schedule) {
+            _schedule();
+        }
+        synchronized (this) {
+            while (_free.isEmpty() && (_pending > _queueDepth) && (_failure == null)) {
+                _wait();
+            }
+            _checkFailure();
+            if (!_free.isEmpty()) {
+                byte[] result = _free.remove(_free.size()-1);
+                if (result.length == buffer.length) {
+                    return result;
+                }
+            }
+        }
+        return new byte[buffer.length];
+    }
+
+    /**
+     * Method that waits for all pending writes to complete, and then optionally
+     * flushes the underlying stream.
+     */
+    @Override
+    public void flush(boolean flushTarget) throws IOException
+    {
+        synchronized (this) {
+            _waitForWrites();
+            _checkFailure();
+        }
+        if (flushTarget) {
+            _out.flush();
+        }
+    }
+
+    /**
+     * Method to call when no more content is to be written: waits for pending
+     * writes to complete, and then closes or flushes the underlying stream.
+     * Underlying stream is closed (if so requested) even if a write had failed.
+     *
+     * @param closeTarget Whether underlying {@link OutputStream} is to be closed
+     *    (if not, it is flushed)
+     */
+    @Override
+    public void close(boolean closeTarget) throws IOException
+    {
+        IOException fail;
+        synchronized (this) {
+            if (_closed) {
+                return;
+            }
+            _closed = true;
+            _waitForWrites();
+            fail = _failure;
+        }
+        if (closeTarget) {
+            _out.close();
+        } else if (fail == null) {
+            _out.flush();
+        }
+        if (fail != null) {
+            throw fail;
+        }
+    }
+
+    /*
+    /**********************************************************
+    /* Internal methods
+    /**********************************************************
+     */
+
+    private void _checkFailure() throws IOException
+    {
+        if (_failure != null) {
+            throw _failure;
+        }
+        if (_closed) {
+            throw new IOException("Write-behind output already closed");
+        }
+    }
+
+    private void _waitForWrites() throws IOException
+    {
+        while (_writing) {
+            _wait();
+        }
+    }
+
+    private void _wait() throws IOException
+    {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for write-behind");
+        }
+    }
+
+    private void _schedule()
+    {
+        try {
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    _writeQueued();
+                }
+            });
+        } catch (RuntimeException e) { // most likely rejected by executor
+            synchronized (this) {
+                _failure = new IOException("Failed to schedule write-behind: "+e, e);
+                _discardQueued();
+                _writing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Method called by the write task: writes queued buffers in order until
+     * queue is empty. After a failure remaining buffers are just discarded.
+     */
+    protected void _writeQueued()
+    {
+        while (true) {
+            Chunk chunk;
+            boolean failed;
+            synchronized (this) {
+                chunk = _queue.pollFirst();
+                if (chunk == null) {
+                    _writing = false;
+                    notifyAll();
+                    return;
+                }
+                failed = (_failure != null);
+            }
+            IOException fail = null;
+            if (!failed) {
+                try {
+                    _out.write(chunk.buffer, 0, chunk.length);
+                } catch (IOException e) {
+                    fail = e;
+                } catch (RuntimeException e) {
+                    fail = new IOException("Write-behind failed: "+e, e);
+                }
+            }
+            synchronized (this) {
+                --_pending;
+                _free.add(chunk.buffer);
+                if (fail != null) {
+                    _failure = fail;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void _discardQueued()
+    {
+        Chunk chunk;
+        while ((chunk = _queue.pollFirst()) != null) {
+            --_pending;
+            _free.add(chunk.buffer);
+        }
+    }
+}
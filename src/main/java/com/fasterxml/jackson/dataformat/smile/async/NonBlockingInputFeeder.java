@@ -5,10 +5,12 @@ import java.io.IOException;
 /**
  * Interface used by non-blocking {@link com.fasterxml.jackson.core.JsonParser}
  * to get more input to parse.
- * It is accessed by entity that feeds content to parse; at any given point
- * only one chunk of content can be processed so caller has to take care to
- * only feed more content when existing content has been parsed (which occurs
- * when parser's <code>nextToken</code> is called). Once application using
+ * It is accessed by entity that feeds content to parse. Implementations that
+ * copy content into a buffer of their own (like {@link NonBlockingParserImpl})
+ * accept more content at any point; others can only process one chunk of
+ * content at a time, so caller has to take care to only feed more content
+ * when existing content has been parsed (which occurs when parser's
+ * <code>nextToken</code> is called). Once application using
  * non-blocking parser has no more data to feed it should call
  * {@link #endOfInput} to indicate end of logical input stream.
  * 
@@ -25,9 +27,12 @@ public interface NonBlockingInputFeeder
 
     /**
      * Method that can be called to feed more data, if (and only if)
-     * {@link #needMoreInput} returns true.
+     * {@link #needMoreInput} returns true; unless implementation copies
+     * content fed, in which case it may be called at any point before
+     * {@link #endOfInput}.
      * 
-     * @param data Byte array that contains data to feed: caller must ensure data remains
+     * @param data Byte array that contains data to feed: unless implementation copies
+     *    content, caller must ensure data remains
      *    stable until it is fully processed (which is true when {@link #needMoreInput}
      *    returns true)
      * @param offset Offset within array where input data to process starts
@@ -2,8 +2,9 @@ package com.fasterxml.jackson.dataformat.smile.async;
 
 import java.io.*;
 import java.lang.ref.SoftReference;
-//import java.math.BigDecimal;
-//import java.math.BigInteger;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import com.fasterxml.jackson.core.*;
@@ -14,6 +15,14 @@ import com.fasterxml.jackson.dataformat.smile.*;
 
 import static com.fasterxml.jackson.dataformat.smile.SmileConstants.BYTE_MARKER_END_OF_STRING;
 
+/**
+ * Non-blocking Smile parser, fed with content using {@link NonBlockingInputFeeder}
+ * methods. Content fed is appended to an input buffer owned by parser, so that
+ * more input may be fed at any point (not just when all earlier content has been
+ * consumed), and caller is free to reuse its buffers right away.
+ * Tokens are decoded in full once all of their content is available, so that
+ * accessors never need more input.
+ */
 public class NonBlockingParserImpl
     extends ParserBase
     implements NonBlockingParser, NonBlockingInputFeeder
@@ -22,53 +31,25 @@ public class NonBlockingParserImpl
     private final static int[] NO_INTS = new int[0];
     private final static String[] NO_STRINGS = new String[0];
 
-    /*
-    /**********************************************************************
-    /* State constants
-    /**********************************************************************
-     */
-
-    // // // Initial bootstrapping states:
-    
     /**
-     * State right after parser has been constructed: waiting for header
-     * (which may or may not be mandatory).
+     * Maximum number of bytes a VInt may have (for 64-bit values)
      */
-    protected final static int STATE_INITIAL = 0;
-
+    private final static int MAX_VINT_BYTES = 10;
 
     /**
-     * State for recognized header marker, either in-feed or initial.
+     * Smallest chunk size allowed for {@link #setValueChunkSize}: needs to fit
+     * a group of 7-bit encoded binary data, or a UTF-8 character.
+     *
+     * @since 2.8
      */
-    protected final static int STATE_HEADER = 1;
-    
-    /**
-     * State in which we are right after decoding a full token.
-     */
-    protected final static int STATE_TOKEN_COMPLETE = 2;
-    
-    // // // States for decoding numbers:
-    protected final static int STATE_NUMBER_INT = 10;
-    protected final static int STATE_NUMBER_LONG = 11;
-    protected final static int STATE_NUMBER_BIGINT = 12;
-    protected final static int STATE_NUMBER_FLOAT = 13;
-    protected final static int STATE_NUMBER_DOUBLE = 14;
-    protected final static int STATE_NUMBER_BIGDEC = 15;
-
-    protected final static int STATE_SHORT_ASCII = 20;
-    protected final static int STATE_SHORT_UNICODE = 21;
-    protected final static int STATE_LONG_ASCII = 22;
-    protected final static int STATE_LONG_UNICODE = 23;
-    protected final static int STATE_LONG_SHARED = 24;
-    protected final static int STATE_RAW_BINARY = 25;
-    protected final static int STATE_QUOTED_BINARY = 26;
-    
+    public final static int MIN_VALUE_CHUNK_SIZE = 8;
+
     /*
     /**********************************************************************
     /* Configuration
     /**********************************************************************
      */
-    
+
     /**
      * Codec used for data binding when (if) requested.
      */
@@ -85,35 +66,87 @@ public class NonBlockingParserImpl
 
     protected final boolean _cfgRequireHeader;
 
+    /**
+     * Maximum number of bytes (of encoded content) to return long String and
+     * binary values in, as a sequence of partial tokens, if positive; or 0
+     * to only return values as whole.
+     *
+     * @since 2.8
+     */
+    protected int _valueChunkSize;
+
     /**
      * Helper object used for low-level recycling of Smile-generator
      * specific buffers.
      */
     final protected SmileBufferRecycler<String> _smileBufferRecycler;
-    
+
     /*
     /**********************************************************************
     /* Input source config
     /**********************************************************************
      */
-    
+
     /**
-     * This buffer is actually provided via {@link NonBlockingInputFeeder}
+     * Buffer that contains input fed via {@link NonBlockingInputFeeder}; owned
+     * by parser. Undecoded content is moved to the beginning of the buffer when
+     * more room is needed, and buffer is only grown if a single token does not
+     * fit in it.
      */
     protected byte[] _inputBuffer = NO_BYTES;
-    
+
     /**
-     * In addition to current buffer pointer, and end pointer,
-     * we will also need to know number of bytes originally
-     * contained. This is needed to correctly update location
-     * information when the block has been completed.
+     * Flag that indicates whether the input buffer was allocated from
+     * {@link IOContext} (and is to be returned to it when no longer needed)
+     *
+     * @since 2.8
      */
-    protected int _origBufferLen;
+    protected boolean _bufferRecyclable;
 
     // And from ParserBase:
 //    protected int _inputPtr;
 //    protected int _inputEnd;
-    
+
+    /**
+     * Number of bytes of the current (incomplete) token, starting at {@link #_inputPtr},
+     * that have been checked not to contain end-of-String marker: used to avoid
+     * re-scanning long Strings and names for each chunk fed.
+     *
+     * @since 2.8
+     */
+    protected int _markerScanned;
+
+    /**
+     * Flag set when the buffered input ends with an incomplete token, and more
+     * input is needed to proceed.
+     *
+     * @since 2.8
+     */
+    protected boolean _incomplete;
+
+    /**
+     * Type byte of long String or binary value being returned in chunks (see
+     * {@link #setValueChunkSize}), if any; 0 if none.
+     *
+     * @since 2.8
+     */
+    protected int _chunkedType;
+
+    /**
+     * For binary value being returned in chunks, number of (raw) bytes not yet returned
+     *
+     * @since 2.8
+     */
+    protected int _chunkRemaining;
+
+    /**
+     * Flag set when parser has been parked (see {@link #park}), and buffers
+     * need to be restored before decoding more content.
+     *
+     * @since 2.8
+     */
+    protected boolean _parked;
+
     /*
     /**********************************************************************
     /* Additional parsing state
@@ -121,21 +154,19 @@ public class NonBlockingParserImpl
      */
 
     /**
-     * Current main decoding state
+     * Last token returned, not counting {@link JsonToken#NOT_AVAILABLE}: needed
+     * to know whether a field name or value is expected next.
+     *
+     * @since 2.8
      */
-    protected int _state;
+    protected JsonToken _lastToken;
 
     /**
-     * Addition indicator within state; contextually relevant for just that state
-     */
-    protected int _substate;
-    
-    /**
-     * Flag that indicates that the current token has not yet
-     * been fully processed, and needs to be finished for
-     * some access (or skipped to obtain the next token)
+     * Flag set once the first byte of content has been checked for header
+     *
+     * @since 2.8
      */
-    protected boolean _tokenIncomplete;
+    protected boolean _headerChecked;
 
     /**
      * Specific flag that is set when we encountered a 32-bit
@@ -145,22 +176,12 @@ public class NonBlockingParserImpl
      */
     protected boolean _got32BitFloat;
 
-    /**
-     * For 32-bit values, we may use this for combining values
-     */
-    protected int _pendingInt;
-
-    /**
-     * For 64-bit values, we may use this for combining values
-     */
-    protected long _pendingLong;
-    
     /**
      * Flag that is sent when calling application indicates that there will
      * be no more input to parse.
      */
     protected boolean _endOfInput = false;
-    
+
     /*
     /**********************************************************************
     /* Symbol handling, decoding
@@ -171,34 +192,12 @@ public class NonBlockingParserImpl
      * Symbol table that contains field names encountered so far
      */
     final protected ByteQuadsCanonicalizer _symbols;
-    
+
     /**
      * Temporary buffer used for name parsing.
      */
     protected int[] _quadBuffer = NO_INTS;
 
-    /*
-    /**********************************************************************
-    /* Name/entity parsing state
-    /**********************************************************************
-     */
-
-    /**
-     * Number of complete quads parsed for current name (quads
-     * themselves are stored in {@link #_quadBuffer}).
-     */
-    protected int _quadCount;
-
-    /**
-     * Bytes parsed for the current, incomplete, quad
-     */
-    protected int _currQuad;
-
-    /**
-     * Number of bytes pending/buffered, stored in {@link #_currQuad}
-     */
-    protected int _currQuadBytes = 0;
-     
     /**
      * Array of recently seen field names, which may be back referenced
      * by later fields.
@@ -216,13 +215,13 @@ public class NonBlockingParserImpl
     protected String[] _seenStringValues = null;
 
     protected int _seenStringValueCount = -1;
-    
+
     /*
     /**********************************************************************
     /* Thread-local recycling
     /**********************************************************************
      */
-    
+
     /**
      * <code>ThreadLocal</code> contains a {@link java.lang.ref.SoftReference}
      * to a buffer recycler used to provide a low-cost
@@ -230,7 +229,7 @@ public class NonBlockingParserImpl
      */
     final protected static ThreadLocal<SoftReference<SmileBufferRecycler<String>>> _smileRecyclerRef
         = new ThreadLocal<SoftReference<SmileBufferRecycler<String>>>();
-    
+
     /*
     /**********************************************************************
     /* Life-cycle
@@ -240,18 +239,15 @@ public class NonBlockingParserImpl
     public NonBlockingParserImpl(IOContext ctxt, int parserFeatures, int smileFeatures,
             ObjectCodec codec, ByteQuadsCanonicalizer sym)
     {
-        super(ctxt, parserFeatures);        
+        super(ctxt, parserFeatures);
         _objectCodec = codec;
         _symbols = sym;
-        
+
         _tokenInputRow = -1;
         _tokenInputCol = -1;
         _smileBufferRecycler = _smileBufferRecycler();
 
         _currToken = JsonToken.NOT_AVAILABLE;
-        _state = STATE_INITIAL;
-        _tokenIncomplete = true;
-
         _cfgRequireHeader = (smileFeatures & SmileParser.Feature.REQUIRE_HEADER.getMask()) != 0;
     }
 
@@ -265,64 +261,6 @@ public class NonBlockingParserImpl
         _objectCodec = c;
     }
 
-    /**
-     * Helper method called when it looks like input might contain the signature;
-     * and it is necessary to detect and handle signature to get configuration
-     * information it might have.
-     * 
-     * @return True if valid signature was found and handled; false if not
-     */
-    protected boolean handleSignature(boolean consumeFirstByte, boolean throwException)
-        throws IOException, JsonParseException
-    {
-        if (consumeFirstByte) {
-            ++_inputPtr;
-        }
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
-        }
-        if (_inputBuffer[_inputPtr] != SmileConstants.HEADER_BYTE_2) {
-            if (throwException) {
-            	_reportError("Malformed content: signature not valid, starts with 0x3a but followed by 0x"
-            			+Integer.toHexString(_inputBuffer[_inputPtr])+", not 0x29");
-            }
-            return false;
-        }
-        if (++_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();        	
-        }
-        if (_inputBuffer[_inputPtr] != SmileConstants.HEADER_BYTE_3) {
-            if (throwException) {
-            	_reportError("Malformed content: signature not valid, starts with 0x3a, 0x29, but followed by 0x"
-            			+Integer.toHexString(_inputBuffer[_inputPtr])+", not 0xA");
-            }
-            return false;
-        }
-    	// Good enough; just need version info from 4th byte...
-        if (++_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();        	
-        }
-        int ch = _inputBuffer[_inputPtr++];
-        int versionBits = (ch >> 4) & 0x0F;
-        // but failure with version number is fatal, can not ignore
-        if (versionBits != SmileConstants.HEADER_VERSION_0) {
-            _reportError("Header version number bits (0x"+Integer.toHexString(versionBits)+") indicate unrecognized version; only 0x0 handled by parser");
-        }
-
-        // can avoid tracking names, if explicitly disabled
-        if ((ch & SmileConstants.HEADER_BIT_HAS_SHARED_NAMES) == 0) {
-            _seenNames = null;
-            _seenNameCount = -1;
-        }
-        // conversely, shared string values must be explicitly enabled
-        if ((ch & SmileConstants.HEADER_BIT_HAS_SHARED_STRING_VALUES) != 0) {
-            _seenStringValues = NO_STRINGS;
-            _seenStringValueCount = 0;
-        }
-        _mayContainRawBinary = ((ch & SmileConstants.HEADER_BIT_HAS_RAW_BINARY) != 0);
-        return true;
-    }
-
     protected final static SmileBufferRecycler<String> _smileBufferRecycler()
     {
         SoftReference<SmileBufferRecycler<String>> ref = _smileRecyclerRef.get();
@@ -334,10 +272,10 @@ public class NonBlockingParserImpl
         }
         return br;
     }
-    
-    /*                                                                                       
+
+    /*
     /**********************************************************************
-    /* Versioned                                                                             
+    /* Versioned
     /**********************************************************************
      */
 
@@ -345,7 +283,7 @@ public class NonBlockingParserImpl
     public Version version() {
         return PackageVersion.VERSION;
     }
-    
+
     /*
     /**********************************************************************
     /* Former StreamBasedParserBase methods
@@ -359,12 +297,10 @@ public class NonBlockingParserImpl
         if (count < 1) {
             return 0;
         }
-        // let's just advance ptr to end
-        int origPtr = _inputPtr;
-        out.write(_inputBuffer, origPtr, count);
+        out.write(_inputBuffer, _inputPtr, count);
         return count;
     }
-    
+
     @Override
     public Object getInputSource() {
         // since input is "pushed", to traditional source...
@@ -382,7 +318,7 @@ public class NonBlockingParserImpl
         return new JsonLocation(_ioContext.getSourceReference(),
                 _tokenInputTotal, // bytes
                 -1, -1, (int) _tokenInputTotal); // char offset, line, column
-    }   
+    }
 
     /**
      * Overridden since we do not really have character-based locations,
@@ -402,28 +338,32 @@ public class NonBlockingParserImpl
     /* Low-level reading, other
     /**********************************************************************
      */
-    
+
+    /**
+     * Never called: tokens are only decoded once all of their content is
+     * available.
+     */
     @Override
     protected final boolean loadMore() throws IOException {
         _throwInternal();
         return false;
     }
-    
+
     /**
-     * Helper method that will try to load at least specified number bytes in
-     * input buffer, possible moving existing data around if necessary
+     * Never called: tokens are only decoded once all of their content is
+     * available.
      */
     protected final boolean _loadToHaveAtLeast(int minAvailable) throws IOException
     {
         _throwInternal();
         return false;
     }
-    
+
     @Override
     protected void _closeInput() throws IOException {
         // nothing to do here
     }
-    
+
     /*
     /**********************************************************************
     /* Overridden methods
@@ -469,6 +409,11 @@ public class NonBlockingParserImpl
     protected void _releaseBuffers() throws IOException
     {
         super._releaseBuffers();
+        _releaseInputBuffer();
+        if (_parked) { // trimmed copies, not to be recycled
+            _seenNames = null;
+            _seenStringValues = null;
+        }
         {
             String[] nameBuf = _seenNames;
             if (nameBuf != null && nameBuf.length > 0) {
@@ -496,7 +441,7 @@ public class NonBlockingParserImpl
             }
         }
     }
-    
+
     /*
     /**********************************************************************
     /* Extended API
@@ -506,260 +451,452 @@ public class NonBlockingParserImpl
     public boolean mayContainRawBinary() {
         return _mayContainRawBinary;
     }
-    
+
+    /**
+     * Method for enabling returning of long String and binary values in chunks
+     * of at most given number of bytes (of encoded content) each, as content
+     * is fed, instead of buffering whole values: this bounds amount of memory
+     * needed regardless of value length. Each chunk is returned as a separate
+     * {@link JsonToken#VALUE_STRING} or {@link JsonToken#VALUE_EMBEDDED_OBJECT}
+     * token; {@link #isLastValueChunk} indicates whether more chunks of the
+     * same value follow. String chunks never split characters.
+     * Short values (up to 64 bytes) are always returned as whole.
+     *
+     * @param size Maximum size of chunks, at least {@link #MIN_VALUE_CHUNK_SIZE};
+     *   or 0 to disable chunking
+     *
+     * @since 2.8
+     */
+    public void setValueChunkSize(int size)
+    {
+        if (size != 0 && size < MIN_VALUE_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid value chunk size ("+size+"): must be 0 or at least "
+                    +MIN_VALUE_CHUNK_SIZE);
+        }
+        _valueChunkSize = size;
+    }
+
+    /**
+     * @since 2.8
+     */
+    public int getValueChunkSize() {
+        return _valueChunkSize;
+    }
+
+    /**
+     * Method that can be called to check whether the current token is the
+     * last (or only) chunk of a String or binary value; returns false if more
+     * chunks of the same value are to follow (see {@link #setValueChunkSize}).
+     *
+     * @since 2.8
+     */
+    public boolean isLastValueChunk() {
+        return (_chunkedType == 0);
+    }
+
     /*
     /**********************************************************************
     /* JsonParser impl
     /**********************************************************************
      */
 
+    /**
+     * Method for decoding the next token, if all of its content is available;
+     * if not, returns {@link JsonToken#NOT_AVAILABLE} (and also sets it as
+     * the current token), and more input needs to be fed to proceed.
+     * Contents of returned tokens are always fully decoded, so that accessors
+     * need no more input.
+     */
     @Override
-    public JsonToken nextToken() throws IOException, JsonParseException
+    public JsonToken nextToken() throws IOException {
+        return _nextToken();
+    }
+
+    /**
+     * Method for decoding as many tokens as input fed so far allows (and as fit
+     * in given batch) in one call, instead of calling {@link #nextToken} for
+     * each one. Batch is cleared before decoding; decoding stops when it is
+     * full, or when more input is needed (see {@link #needMoreInput}), or at
+     * end of all content. Parser state afterwards is the same as after
+     * calling {@link #nextToken} for each token, so calls may be mixed.
+     *
+     * @return Number of tokens added to batch; 0 if no complete token was available
+     *
+     * @since 2.8
+     */
+    public int nextTokens(SmileTokenBatch batch) throws IOException
     {
-        _numTypesValid = NR_UNKNOWN;
-        // have we already decoded part of event? If so, continue...
-        if (_tokenIncomplete) {
-            // we might be able to optimize by separate skipping, but for now:
-            return _finishToken();
+        batch.clear();
+        if (_closed) {
+            return 0;
+        }
+        while (!batch.isFull()) {
+            JsonToken t = _nextToken();
+            if (t == JsonToken.NOT_AVAILABLE) {
+                break;
+            }
+            if (t == null) {
+                batch.add(JsonTokenId.ID_NO_TOKEN);
+                if (_closed) {
+                    break;
+                }
+                continue;
+            }
+            switch (t.id()) {
+            case JsonTokenId.ID_FIELD_NAME:
+                batch.add(JsonTokenId.ID_FIELD_NAME, _parsingContext.getCurrentName(), 0L);
+                break;
+            case JsonTokenId.ID_STRING:
+                batch.add(JsonTokenId.ID_STRING, _textBuffer.contentsAsString(),
+                        (_chunkedType == 0) ? 1L : 0L);
+                break;
+            case JsonTokenId.ID_EMBEDDED_OBJECT:
+                batch.add(JsonTokenId.ID_EMBEDDED_OBJECT, _binaryValue,
+                        (_chunkedType == 0) ? 1L : 0L);
+                break;
+            case JsonTokenId.ID_NUMBER_INT:
+                if (_numTypesValid == NR_INT) {
+                    batch.addInt(_numberInt);
+                } else if (_numTypesValid == NR_LONG) {
+                    batch.addLong(_numberLong);
+                } else {
+                    batch.addBigInteger(_numberBigInt);
+                }
+                break;
+            case JsonTokenId.ID_NUMBER_FLOAT:
+                if (_numTypesValid == NR_DOUBLE) {
+                    batch.addDouble(_numberDouble, _got32BitFloat);
+                } else {
+                    batch.addBigDecimal(_numberBigDecimal);
+                }
+                break;
+            default: // structural tokens, literals
+                batch.add(t.id());
+            }
         }
-        _tokenInputTotal = _currInputProcessed + _inputPtr;
+        return batch.size();
+    }
+
+    private final JsonToken _nextToken() throws IOException
+    {
+        _numTypesValid = NR_UNKNOWN;
         // also: clear any data retained so far
         _binaryValue = null;
-        // Two main modes: values, and field names.
-        if (_parsingContext.inObject() && _currToken != JsonToken.FIELD_NAME) {
-            return (_currToken = _handleFieldName());
+        if (_closed) {
+            return null;
         }
-        if (_inputPtr >= _inputEnd) {
-            return JsonToken.NOT_AVAILABLE;
+        if (_parked) {
+            unpark();
         }
-        int ch = _inputBuffer[_inputPtr++];
-        switch ((ch >> 5) & 0x7) {
-        case 0: // short shared string value reference
-            if (ch == 0) { // important: this is invalid, don't accept
-                _reportError("Invalid token byte 0x00");
-            }
-            return _handleSharedString(ch-1);
-
-        case 1: // simple literals, numbers
-            {
-                _numTypesValid = 0;
-                switch (ch & 0x1F) {
-                case 0x00:
-                    _textBuffer.resetWithEmpty();
-                    return (_currToken = JsonToken.VALUE_STRING);
-                case 0x01:
-                    return (_currToken = JsonToken.VALUE_NULL);
-                case 0x02: // false
-                    return (_currToken = JsonToken.VALUE_FALSE);
-                case 0x03: // 0x03 == true
-                    return (_currToken = JsonToken.VALUE_TRUE);
-                case 0x04:
-                    _state = STATE_NUMBER_INT;
-                    return _nextInt(0, 0);
-                case 0x05:
-                    _numberLong = 0;
-                    _state = STATE_NUMBER_LONG;
-                    return _nextLong(0, 0L);
-                case 0x06:
-                    _state = STATE_NUMBER_BIGINT;
-                    return _nextBigInt(0);
-                case 0x07: // illegal
-                    break;
-                case 0x08:
-                    _pendingInt = 0;
-                    _state = STATE_NUMBER_FLOAT;
-                    _got32BitFloat = true;
-                    return _nextFloat(0, 0);
-                case 0x09:
-                    _pendingLong = 0L;
-                    _state = STATE_NUMBER_DOUBLE;
-                    _got32BitFloat = false;
-                    return _nextDouble(0, 0L);
-                case 0x0A:
-                    _state = STATE_NUMBER_BIGDEC;
-                    return _nextBigDecimal(0);
-                case 0x0B: // illegal
-                    break;
-                case 0x1A: // == 0x3A == ':' -> possibly header signature for next chunk?
-                    if (!_handleHeader(0)) {
-                        return JsonToken.NOT_AVAILABLE;
-                    }
-                    //if (handleSignature(false, false)) {
-                    /* Ok, now; end-marker and header both imply doc boundary and a
-                     * 'null token'; but if both are seen, they are collapsed.
-                     * We can check this by looking at current token; if it's null,
-                     * need to get non-null token
-                     */
-                    if (_currToken == null) {
-                        return nextToken();
-                    }
-                    return (_currToken = null);
+        if (_chunkedType != 0) {
+            return _nextValueChunk();
+        }
+        while (true) {
+            if (_inputPtr >= _inputEnd) {
+                if (_endOfInput) {
+                    return _eofAsNextToken();
                 }
+                return (_currToken = JsonToken.NOT_AVAILABLE);
             }
-            // and everything else is reserved, for now
-            break;
-        case 2: // tiny ASCII
-            // fall through            
-        case 3: // short ASCII
-            // fall through
-            return _nextShortAscii(0);
-
-        case 4: // tiny Unicode
-            // fall through
-        case 5: // short Unicode
-            // No need to decode, unless we have to keep track of back-references (for shared string values)
-            _currToken = JsonToken.VALUE_STRING;
-            if (_seenStringValueCount >= 0) { // shared text values enabled
-                _addSeenStringValue();
-            } else {
-                _tokenIncomplete = true;
+            if (!_headerChecked) {
+                _checkHeader();
             }
-            return _nextShortUnicode(0);
-
-        case 6: // small integers; zigzag encoded
-            _numberInt = SmileUtil.zigzagDecode(ch & 0x1F);
-            _numTypesValid = NR_INT;
-            return (_currToken = JsonToken.VALUE_NUMBER_INT);
-        case 7: // binary/long-text/long-shared/start-end-markers
-            switch (ch & 0x1F) {
-            case 0x00: // long variable length ASCII
-                return _nextLongAscii(0);
-            case 0x04: // long variable length unicode
-                return _nextLongUnicode(0);
-            case 0x08: // binary, 7-bit
-                return _nextQuotedBinary(0);
-            case 0x0C: // long shared string
-            case 0x0D:
-            case 0x0E:
-            case 0x0F:
-                return _nextLongSharedString(0);
-//                return _handleSharedString(((ch & 0x3) << 8) + (_inputBuffer[_inputPtr++] & 0xFF));
-            case 0x18: // START_ARRAY
-                _parsingContext = _parsingContext.createChildArrayContext(-1, -1);
-                return (_currToken = JsonToken.START_ARRAY);
-            case 0x19: // END_ARRAY
-                if (!_parsingContext.inArray()) {
-                    _reportMismatchedEndMarker(']', '}');
+            _tokenInputTotal = _currInputProcessed + _inputPtr;
+            final boolean keyMode = _inKeyMode();
+            final int len = _tokenLength(_inputBuffer, _inputPtr, _inputEnd, keyMode);
+            if ((_valueChunkSize > 0) && !keyMode && ((len < 0) || (len > _valueChunkSize))
+                    && _startValueChunks()) {
+                return _nextValueChunk();
+            }
+            if (len < 0) {
+                _incomplete = true;
+                if (_endOfInput) {
+                    _reportInvalidEOF(": incomplete token (type byte 0x"
+                            +Integer.toHexString(_inputBuffer[_inputPtr] & 0xFF)+")");
                 }
-                _parsingContext = _parsingContext.getParent();
-                return (_currToken = JsonToken.END_ARRAY);
-            case 0x1A: // START_OBJECT
-                _parsingContext = _parsingContext.createChildObjectContext(-1, -1);
-                return (_currToken = JsonToken.START_OBJECT);
-            case 0x1B: // not used in this mode; would be END_OBJECT
-                _reportError("Invalid type marker byte 0xFB in value mode (would be END_OBJECT in key mode)");
-            case 0x1D: // binary, raw
-                // should we validate this is legal? (as per header)
-                return _nextRawBinary(0);
-            case 0x1F: // 0xFF, end of content
-                return (_currToken = null);
+                return (_currToken = JsonToken.NOT_AVAILABLE);
+            }
+            _markerScanned = 0;
+            JsonToken t = keyMode ? _handleFieldName() : _decodeValue();
+            if (t != JsonToken.NOT_AVAILABLE) {
+                return (_currToken = _lastToken = t);
             }
-            break;
         }
-        // If we get this far, type byte is corrupt
-        _reportError("Invalid type marker byte 0x"+Integer.toHexString(ch & 0xFF)+" for expected value token");
-        return null;
     }
 
-    private final JsonToken _handleSharedString(int index)
-        throws IOException, JsonParseException
+    /**
+     * Tokens are always complete when returned, so nothing to do here.
+     */
+    @Override
+    public void finishToken() throws IOException { }
+
+    @Override
+    public NumberType getNumberType() throws IOException
     {
-        if (index >= _seenStringValueCount) {
-            _reportInvalidSharedStringValue(index);
+        if (_got32BitFloat && _currToken == JsonToken.VALUE_NUMBER_FLOAT) {
+            return NumberType.FLOAT;
         }
-        _textBuffer.resetWithString(_seenStringValues[index]);
-        return (_currToken = JsonToken.VALUE_STRING);
+        return super.getNumberType();
     }
 
-    private final void _addSeenStringValue()
-        throws IOException, JsonParseException
-    {
-        _finishToken();
-        if (_seenStringValueCount < _seenStringValues.length) {
-            // !!! TODO: actually only store char[], first time around?
-            _seenStringValues[_seenStringValueCount++] = _textBuffer.contentsAsString();
-            return;
-        }
-        _expandSeenStringValues();
+    /*
+    /**********************************************************************
+    /* AsyncInputFeeder impl
+    /**********************************************************************
+     */
+
+    /**
+     * Since parser buffers input fed, more input may be fed at any time; but
+     * it is only needed when all of buffered content has been decoded, or what
+     * remains is an incomplete token.
+     */
+    @Override
+    public final boolean needMoreInput() {
+        return !_endOfInput && (_incomplete || (_inputPtr >= _inputEnd));
     }
-    
-    private final void _expandSeenStringValues()
+
+    /**
+     * Method for checking whether no more tokens can be decoded: either parser
+     * is closed, or end of input has been signalled and what remains of input fed
+     * (if anything) is just end-of-content markers, or an incomplete token.
+     * If so, calls to {@link #nextToken} will only indicate end of document(s)
+     * and end of input (or fail, if content was incomplete).
+     *
+     * @since 2.8
+     */
+    public boolean isInputExhausted()
     {
-        String[] oldShared = _seenStringValues;
-        int len = oldShared.length;
-        String[] newShared;
-        if (len == 0) {
-            newShared = _smileBufferRecycler.allocSeenStringValuesBuffer();
-            if (newShared == null) {
-                newShared = new String[SmileBufferRecycler.DEFAULT_STRING_VALUE_BUFFER_LENGTH];
+        if (_closed) {
+            return true;
+        }
+        if (!_endOfInput || (_chunkedType != 0)) {
+            return false;
+        }
+        if (_incomplete) {
+            return true;
+        }
+        final byte[] buf = _inputBuffer;
+        for (int i = _inputPtr, end = _inputEnd; i < end; ++i) {
+            if (buf[i] != SmileConstants.BYTE_MARKER_END_OF_CONTENT) {
+                return false;
             }
-        } else if (len == SmileConstants.MAX_SHARED_STRING_VALUES) { // too many? Just flush...
-           newShared = oldShared;
-           _seenStringValueCount = 0; // could also clear, but let's not yet bother
-        } else {
-            int newSize = (len == SmileBufferRecycler.DEFAULT_NAME_BUFFER_LENGTH) ? 256 : SmileConstants.MAX_SHARED_STRING_VALUES;
-            newShared = new String[newSize];
-            System.arraycopy(oldShared, 0, newShared, 0, oldShared.length);
         }
-        _seenStringValues = newShared;
-        _seenStringValues[_seenStringValueCount++] = _textBuffer.contentsAsString();
+        return true;
     }
 
+    /**
+     * Content is copied into buffer owned by parser, so caller may reuse
+     * given buffer as soon as method returns.
+     */
     @Override
-    public String getCurrentName() throws IOException, JsonParseException
+    public void feedInput(byte[] buf, int start, int len)
+        throws IOException
     {
-        return _parsingContext.getCurrentName();
+        _prepareToFeed(len);
+        System.arraycopy(buf, start, _inputBuffer, _inputEnd, len);
+        _inputEnd += len;
     }
 
-    @Override
-    public NumberType getNumberType()
-        throws IOException, JsonParseException
+    /**
+     * Method for feeding remaining content of given buffer (heap or direct);
+     * content is copied into buffer owned by parser, and buffer position is
+     * advanced to its limit.
+     *
+     * @since 2.8
+     */
+    public void feedInput(ByteBuffer buf) throws IOException
+    {
+        final int len = buf.remaining();
+        _prepareToFeed(len);
+        buf.get(_inputBuffer, _inputEnd, len);
+        _inputEnd += len;
+    }
+
+    /**
+     * Helper method that ensures there is room for given number of bytes after
+     * existing undecoded content in input buffer, compacting or growing it as
+     * necessary.
+     */
+    private final void _prepareToFeed(int len) throws IOException
+    {
+        // shouldn't have been marked as end-of-input
+        if (_endOfInput) {
+            throw new IOException("Already closed, can not feed more input");
+        }
+        if (_parked) {
+            unpark();
+        }
+        _incomplete = false;
+        byte[] buf = _inputBuffer;
+        if ((_inputEnd + len) <= buf.length) {
+            return;
+        }
+        final int remaining = _inputEnd - _inputPtr;
+        final int needed = remaining + len;
+        if (needed <= buf.length) { // enough room if compacted
+            System.arraycopy(buf, _inputPtr, buf, 0, remaining);
+        } else {
+            byte[] newBuf = null;
+            boolean recyclable = false;
+            if (!_bufferRecyclable) { // can use recyclable buffer, if big enough
+                newBuf = _ioContext.allocReadIOBuffer();
+                if (newBuf.length >= needed) {
+                    recyclable = true;
+                } else {
+                    _ioContext.releaseReadIOBuffer(newBuf);
+                    newBuf = null;
+                }
+            }
+            if (newBuf == null) { // need to grow; by at least 50%, to keep it amortized
+                newBuf = new byte[Math.max(needed, buf.length + (buf.length >> 1))];
+            }
+            if (remaining > 0) {
+                System.arraycopy(buf, _inputPtr, newBuf, 0, remaining);
+            }
+            _releaseInputBuffer();
+            _inputBuffer = newBuf;
+            _bufferRecyclable = recyclable;
+        }
+        // bytes before current pointer are gone, need to account for them
+        _currInputProcessed += _inputPtr;
+        _inputPtr = 0;
+        _inputEnd = remaining;
+    }
+
+    /**
+     * Helper method for releasing input buffer; returned to {@link IOContext}
+     * only if it was allocated from there (and not grown since).
+     */
+    private final void _releaseInputBuffer()
     {
-    	if (_got32BitFloat) {
-    	    return NumberType.FLOAT;
-    	}
-    	return super.getNumberType();
+        if (_bufferRecyclable) {
+            _bufferRecyclable = false;
+            _ioContext.releaseReadIOBuffer(_inputBuffer);
+        }
+        _inputBuffer = NO_BYTES;
     }
 
     /*
     /**********************************************************************
-    /* AsyncInputFeeder impl
+    /* Parking of idle parsers
     /**********************************************************************
      */
 
-    @Override
-    public final boolean needMoreInput() {
-        return (_inputPtr >=_inputEnd) && !_endOfInput;
+    /**
+     * Method that can be called when parser is expected to stay idle for a while
+     * (for example, waiting for more input from a mostly idle connection), to
+     * minimize memory retained: recyclable buffers are released, and decoding
+     * state that must be retained (undecoded input, back-referenceable names and
+     * values) is trimmed to its actual size. Names seen are merged into the shared
+     * symbol table of the factory.
+     *<p>
+     * Parser is unparked automatically when more input is fed, or decoding
+     * continues; but contents of the current token (text, numbers, binary data)
+     * are no longer accessible once parked: only token type (and current name)
+     * remains.
+     *
+     * @since 2.8
+     */
+    public void park() throws IOException
+    {
+        if (_parked || _closed) {
+            return;
+        }
+        _parked = true;
+        // undecoded input, if any, needs to be retained
+        final int remaining = _inputEnd - _inputPtr;
+        byte[] input = (remaining == 0) ? NO_BYTES
+                : Arrays.copyOfRange(_inputBuffer, _inputPtr, _inputEnd);
+        _currInputProcessed += _inputPtr;
+        _releaseInputBuffer();
+        _inputBuffer = input;
+        _inputPtr = 0;
+        _inputEnd = remaining;
+
+        _textBuffer.releaseBuffers();
+        _binaryValue = null;
+        _numTypesValid = NR_UNKNOWN;
+        if (_nameCopyBuffer != null) {
+            char[] buf = _nameCopyBuffer;
+            _nameCopyBuffer = null;
+            _nameCopied = false;
+            _ioContext.releaseNameCopyBuffer(buf);
+        }
+        _quadBuffer = NO_INTS;
+        _symbols.release();
+
+        if (_seenNames != null) {
+            String[] buf = _seenNames;
+            _seenNames = Arrays.copyOf(buf, _seenNameCount);
+            if (buf.length > 0) {
+                Arrays.fill(buf, 0, _seenNameCount, null);
+                _smileBufferRecycler.releaseSeenNamesBuffer(buf);
+            }
+        }
+        if (_seenStringValues != null) {
+            String[] buf = _seenStringValues;
+            _seenStringValues = Arrays.copyOf(buf, _seenStringValueCount);
+            if (buf.length > 0) {
+                Arrays.fill(buf, 0, _seenStringValueCount, null);
+                _smileBufferRecycler.releaseSeenStringValuesBuffer(buf);
+            }
+        }
     }
 
-    @Override
-    public void feedInput(byte[] buf, int start, int len)
-        throws IOException
+    /**
+     * Method for restoring state of a parser parked with {@link #park}; called
+     * automatically when needed, but may be called explicitly as well.
+     *
+     * @since 2.8
+     */
+    public void unpark() throws IOException
     {
-        // Must not have remaining input
-        if (_inputPtr < _inputEnd) {
-            throw new IOException("Still have "+(_inputEnd - _inputPtr)+" undecoded bytes, should not call 'feedInput'");
+        if (!_parked) {
+            return;
         }
-        // and shouldn't have been marked as end-of-input
-        if (_endOfInput) {
-            throw new IOException("Already closed, can not feed more input");
+        _parked = false;
+        // input buffer will be allocated when more input is fed
+        if (_seenNameCount > 0) {
+            _seenNames = _unparkShared(_seenNames, _seenNameCount,
+                    _smileBufferRecycler.allocSeenNamesBuffer(),
+                    SmileBufferRecycler.DEFAULT_NAME_BUFFER_LENGTH, SmileConstants.MAX_SHARED_NAMES);
+        }
+        if (_seenStringValueCount > 0) {
+            _seenStringValues = _unparkShared(_seenStringValues, _seenStringValueCount,
+                    _smileBufferRecycler.allocSeenStringValuesBuffer(),
+                    SmileBufferRecycler.DEFAULT_STRING_VALUE_BUFFER_LENGTH, SmileConstants.MAX_SHARED_STRING_VALUES);
         }
-        // Time to update pointers first
-        _currInputProcessed += _origBufferLen;
-        _currInputRowStart -= _origBufferLen;
+    }
+
+    /**
+     * @since 2.8
+     */
+    public boolean isParked() {
+        return _parked;
+    }
 
-        // And then update buffer settings
-        _inputBuffer = buf;
-        _inputPtr = start;
-        _inputEnd = start+len;
-        _origBufferLen = len;
+    /**
+     * Helper method for restoring back-reference array trimmed when parking to
+     * one of the sizes used when expanding it.
+     */
+    private final static String[] _unparkShared(String[] trimmed, int count, String[] recycled,
+            int defaultLen, int maxLen)
+    {
+        String[] result;
+        if (count < defaultLen) {
+            result = (recycled == null) ? new String[defaultLen] : recycled;
+        } else {
+            result = new String[(count < 256) ? 256 : maxLen];
+        }
+        System.arraycopy(trimmed, 0, result, 0, count);
+        return result;
     }
 
     @Override
     public void endOfInput() {
         _endOfInput = true;
     }
-    
+
     /*
     /**********************************************************************
     /* NonBlockParser impl (except for NonBlockingInputFeeder)
@@ -769,283 +906,755 @@ public class NonBlockingParserImpl
     @Override
     public JsonToken peekNextToken() throws IOException, JsonParseException
     {
-        if (!_tokenIncomplete) {
-            return JsonToken.NOT_AVAILABLE;
+        if ((_chunkedType != 0) && (_currToken == JsonToken.NOT_AVAILABLE)) {
+            return ((_chunkedType == 0xE0) || (_chunkedType == 0xE4))
+                    ? JsonToken.VALUE_STRING : JsonToken.VALUE_EMBEDDED_OBJECT;
         }
-        switch (_state) {
-        case STATE_INITIAL: // the case if no input has yet been fed
+        if ((_currToken != JsonToken.NOT_AVAILABLE) || (_inputPtr >= _inputEnd)) {
             return JsonToken.NOT_AVAILABLE;
-        case STATE_HEADER:
-            return JsonToken.NOT_AVAILABLE;
-        case STATE_NUMBER_INT:
-        case STATE_NUMBER_LONG:
-            return JsonToken.VALUE_NUMBER_INT;
-        case STATE_NUMBER_FLOAT:
-        case STATE_NUMBER_DOUBLE:
-        case STATE_NUMBER_BIGDEC:
-            return JsonToken.VALUE_NUMBER_FLOAT;
         }
-        throw new IllegalStateException("Internal error: unknown 'state', "+_state);
+        final int ch = _inputBuffer[_inputPtr] & 0xFF;
+        if (_inKeyMode()) {
+            return JsonToken.FIELD_NAME;
+        }
+        switch (ch >> 5) {
+        case 1:
+            switch (ch & 0x1F) {
+            case 0x04:
+            case 0x05:
+            case 0x06:
+                return JsonToken.VALUE_NUMBER_INT;
+            case 0x08:
+            case 0x09:
+            case 0x0A:
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            }
+            break;
+        case 2:
+        case 3:
+        case 4:
+        case 5:
+            return JsonToken.VALUE_STRING;
+        case 7:
+            switch (ch & 0x1F) {
+            case 0x08:
+            case 0x1D:
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case 0x00:
+            case 0x04:
+            case 0x0C:
+            case 0x0D:
+            case 0x0E:
+            case 0x0F:
+                return JsonToken.VALUE_STRING;
+            }
+            break;
+        }
+        return JsonToken.NOT_AVAILABLE;
     }
-    
+
     /*
     /**********************************************************************
-    /* Internal methods: second-level parsing:
+    /* Internal methods: handling of incomplete tokens
     /**********************************************************************
      */
 
-    private final JsonToken _nextInt(int substate, int value)
-        throws IOException, JsonParseException
+    /**
+     * Whether the next token is to be a field name (or END_OBJECT)
+     */
+    private final boolean _inKeyMode() {
+        return (_chunkedType == 0) && (_lastToken != JsonToken.FIELD_NAME) && _parsingContext.inObject();
+    }
+
+    /**
+     * Helper method for determining length of the token that starts at given
+     * offset, if all of it is included in given content.
+     *
+     * @return Length of the token in bytes, if all of it is available;
+     *    otherwise minimum length (known so far) negated
+     */
+    private final int _tokenLength(byte[] buf, int ptr, int end, boolean keyMode)
+        throws IOException
     {
-        while (_inputPtr < _inputEnd) {
-            int b = _inputBuffer[_inputPtr++];
-            if (b < 0) { // got it all; these are last 6 bits
-                value = (value << 6) | (b & 0x3F);
-                _numberInt = SmileUtil.zigzagDecode(value);
-                _numTypesValid = NR_INT;
-                _tokenIncomplete = false;
-                return (_currToken = JsonToken.VALUE_NUMBER_INT);
+        final int ch = buf[ptr] & 0xFF;
+        int len;
+
+        if (keyMode) {
+            switch (ch >> 6) {
+            case 0: // misc, including long names
+                if (ch == 0x34) {
+                    return _endMarkerLength(buf, ptr, end);
+                }
+                len = ((ch & 0xFC) == 0x30) ? 2 : 1; // long shared needs 1 extra byte
+                break;
+            case 2: // short ASCII
+                len = 2 + (ch & 0x3F);
+                break;
+            case 3: // short Unicode (or END_OBJECT, invalid)
+                len = (ch < 0xF8) ? (3 + (ch & 0x3F)) : 1;
+                break;
+            default: // short shared
+                len = 1;
             }
-            // can't get too big; 5 bytes is max
-            if (++substate >= 5 ) {
-                _reportError("Corrupt input; 32-bit VInt extends beyond 5 data bytes");
+        } else {
+            switch (ch >> 5) {
+            case 1: // simple literals, numbers
+                switch (ch & 0x1F) {
+                case 0x04: // VInt
+                case 0x05: // VLong
+                    return _vintLength(buf, ptr, end, 1);
+                case 0x06: // BigInteger
+                    return _binaryLength(buf, ptr, end, 1, true);
+                case 0x08: // float
+                    len = 6;
+                    break;
+                case 0x09: // double
+                    len = 11;
+                    break;
+                case 0x0A: // BigDecimal: scale, then like BigInteger
+                    len = _vintLength(buf, ptr, end, 1);
+                    return (len < 0) ? len : _binaryLength(buf, ptr, end, len, true);
+                case 0x1A: // header
+                    len = 4;
+                    break;
+                default:
+                    len = 1;
+                }
+                break;
+            case 2: // tiny & short ASCII
+            case 3:
+                len = 2 + (ch & 0x3F);
+                break;
+            case 4: // tiny & short Unicode
+            case 5:
+                len = 3 + (ch & 0x3F);
+                break;
+            case 7:
+                switch (ch & 0x1F) {
+                case 0x00: // long ASCII, Unicode
+                case 0x04:
+                    return _endMarkerLength(buf, ptr, end);
+                case 0x08: // binary, 7-bit
+                    return _binaryLength(buf, ptr, end, 1, true);
+                case 0x0C: // long shared string
+                case 0x0D:
+                case 0x0E:
+                case 0x0F:
+                    len = 2;
+                    break;
+                case 0x1D: // binary, raw
+                    return _binaryLength(buf, ptr, end, 1, false);
+                default:
+                    len = 1;
+                }
+                break;
+            default: // short shared strings, small ints
+                len = 1;
             }
-            value = (value << 7) | b;
         }
-        // did not get it all; mark the state so we know where to return:
-        _tokenIncomplete = true;
-        _substate = substate;
-        _pendingInt = value;
-        _state = STATE_NUMBER_INT;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        return (len <= (end - ptr)) ? len : -len;
     }
 
-    private final JsonToken _nextLong(int substate, long value) throws IOException, JsonParseException
-    {
-        while (_inputPtr < _inputEnd) {
-            int b = _inputBuffer[_inputPtr++];
-            if (b < 0) { // got it all; these are last 6 bits
-                value = (value << 6) | (b & 0x3F);
-                _numberLong = SmileUtil.zigzagDecode(value);
-                _numTypesValid = NR_LONG;
-                _tokenIncomplete = false;
-                return (_currToken = JsonToken.VALUE_NUMBER_INT);
-            }
-            // can't get too big; 10 bytes is max
-            if (++substate >=  10) {
-                _reportError("Corrupt input; 64-bit VInt extends beyond 10 data bytes");
+    /**
+     * @return Length of content up to and including the VInt that starts at
+     *   given offset from token start; negated minimum length if VInt is incomplete
+     */
+    private final static int _vintLength(byte[] buf, int ptr, int end, int offset)
+    {
+        final int start = ptr + offset;
+        // corrupt VInts will be reported when decoding
+        final int max = Math.min(end, start + MAX_VINT_BYTES);
+        for (int i = start; i < max; ++i) {
+            if (buf[i] < 0) {
+                return i + 1 - ptr;
             }
-            value = (value << 7) | b;
         }
-        // did not get it all; mark the state so we know where to return:
-        _tokenIncomplete = true;
-        _substate = substate;
-        _pendingLong = value;
-        _state = STATE_NUMBER_LONG;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        if (max < end || max == start + MAX_VINT_BYTES) {
+            return max - ptr;
+        }
+        return -(end - ptr + 1);
     }
 
-    private final JsonToken _nextBigInt(int substate) throws IOException, JsonParseException
+    /**
+     * @return Length of binary (or BigInteger) token, whose length prefix starts
+     *   at given offset from token start; negated minimum length if not
+     *   all of it is available
+     */
+    private final int _binaryLength(byte[] buf, int ptr, int end, int offset, boolean encoded7Bit)
+        throws IOException
     {
-        // !!! TBI
-        _tokenIncomplete = true;
-        _substate = substate;
-//        _pendingLong = value;
-        _state = STATE_NUMBER_BIGDEC;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        int len = _vintLength(buf, ptr, end, offset);
+        if (len < 0 || (len - offset) > 5) { // incomplete, or corrupt (reported when decoding)
+            return len;
+        }
+        int i = ptr + offset;
+        long value = 0L;
+        for (final int last = ptr + len - 1; i < last; ++i) {
+            value = (value << 7) + buf[i];
+        }
+        value = (value << 6) + (buf[i] & 0x3F);
+        long total = len + (encoded7Bit ? _encoded7BitLength(value) : value);
+        if (value > Integer.MAX_VALUE || total > Integer.MAX_VALUE) {
+            _reportError("Invalid length ("+value+") for binary content");
+        }
+        len = (int) total;
+        return (len <= (end - ptr)) ? len : -len;
     }
 
-    /*
-    private final boolean _finishBigInteger()
-        throws IOException, JsonParseException
+    private final static long _encoded7BitLength(long rawLength)
+    {
+        long units = rawLength / 7;
+        int left = (int) (rawLength - (units * 7));
+        return (units << 3) + ((left == 0) ? 0 : (left + 1));
+    }
+
+    /**
+     * @return Length of token that is terminated by end-of-String marker,
+     *   or negated minimum length if marker not yet found
+     */
+    private final int _endMarkerLength(byte[] buf, int ptr, int end)
     {
-        byte[] raw = _read7BitBinaryWithLength();
-        if (raw == null) {
+        // no need to re-scan content checked when earlier input was fed
+        for (int i = ptr + Math.max(1, _markerScanned); i < end; ++i) {
+            if (buf[i] == BYTE_MARKER_END_OF_STRING) {
+                return i + 1 - ptr;
+            }
+        }
+        _markerScanned = end - ptr;
+        return -(end - ptr + 1);
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods: returning values in chunks
+    /**********************************************************************
+     */
+
+    /**
+     * Method called to check if the value token starting at current input
+     * position is to be returned in chunks; and if so, to consume its prefix
+     * (type byte, length).
+     *
+     * @return True if value is to be returned in chunks; false if not, or if
+     *   more input is needed to start doing so
+     */
+    private final boolean _startValueChunks() throws IOException
+    {
+        final byte[] buf = _inputBuffer;
+        final int ptr = _inputPtr;
+        final int type = buf[ptr] & 0xFF;
+        switch (type) {
+        case 0xE0: // long ASCII, Unicode
+        case 0xE4:
+            _inputPtr = ptr+1;
+            break;
+        case 0xE8: // binary, 7-bit, raw
+        case 0xFD:
+            if (_vintLength(buf, ptr, _inputEnd, 1) < 0) {
+                return false;
+            }
+            _inputPtr = ptr+1;
+            _chunkRemaining = _decodeVInt();
+            if (_chunkRemaining < 0) {
+                _reportError("Invalid length ("+(_chunkRemaining & 0xFFFFFFFFL)+") for binary content");
+            }
+            break;
+        default:
             return false;
         }
-        _numberBigInt = new BigInteger(raw);
-        _numTypesValid = NR_BIGINT;
+        _chunkedType = type;
+        _markerScanned = 0;
         return true;
     }
-*/
-    
-    private final JsonToken _nextFloat(int substate, int value) throws IOException, JsonParseException
-    {
-        while (_inputPtr < _inputEnd) {
-            int b = _inputBuffer[_inputPtr++];
-            value = (value << 7) + b;
-            if (++substate == 5) { // done!
-                _numberDouble = (double) Float.intBitsToFloat(value);
-                _numTypesValid = NR_DOUBLE;
-                _tokenIncomplete = false;
-                return (_currToken = JsonToken.VALUE_NUMBER_FLOAT);
-            }
-        }
-        _tokenIncomplete = true;
-        _substate = substate;
-        _pendingInt = value;
-        _state = STATE_NUMBER_FLOAT;
+
+    /**
+     * Method for returning the next chunk of a long String or binary value,
+     * if any content of it is available.
+     */
+    private final JsonToken _nextValueChunk() throws IOException
+    {
+        final int ptr = _inputPtr;
+        final int avail = _inputEnd - ptr;
+        final int maxLen = Math.min(avail, _valueChunkSize);
+        _tokenInputTotal = _currInputProcessed + ptr;
+        JsonToken t;
+        boolean last;
+
+        switch (_chunkedType) {
+        case 0xE0: // long ASCII
+            if (avail == 0) {
+                return _valueChunkNotAvailable();
+            }
+            last = _decodeLongAscii(ptr + maxLen);
+            t = JsonToken.VALUE_STRING;
+            break;
+        case 0xE4: // long Unicode
+            {
+                int end = _utf8ChunkEnd(ptr, ptr + maxLen);
+                if (end == ptr) {
+                    return _valueChunkNotAvailable();
+                }
+                last = _decodeLongUnicode(end);
+            }
+            t = JsonToken.VALUE_STRING;
+            break;
+        case 0xE8: // binary, 7-bit: whole 7-byte groups, except for the last chunk
+            {
+                final int left = _chunkRemaining;
+                int rawLen;
+                if (left <= 7) {
+                    if (avail < _encoded7BitLength(left)) {
+                        return _valueChunkNotAvailable();
+                    }
+                    rawLen = left;
+                } else {
+                    int groups = Math.min(Math.min(avail, _valueChunkSize) >> 3, left / 7);
+                    if (groups == 0) {
+                        return _valueChunkNotAvailable();
+                    }
+                    rawLen = groups * 7;
+                }
+                _binaryValue = _read7BitBinary(rawLen);
+                _chunkRemaining = left - rawLen;
+            }
+            last = (_chunkRemaining == 0);
+            t = JsonToken.VALUE_EMBEDDED_OBJECT;
+            break;
+        default: // binary, raw
+            {
+                int rawLen = Math.min(maxLen, _chunkRemaining);
+                if (rawLen == 0 && _chunkRemaining > 0) {
+                    return _valueChunkNotAvailable();
+                }
+                _binaryValue = Arrays.copyOfRange(_inputBuffer, ptr, ptr+rawLen);
+                _inputPtr = ptr+rawLen;
+                _chunkRemaining -= rawLen;
+            }
+            last = (_chunkRemaining == 0);
+            t = JsonToken.VALUE_EMBEDDED_OBJECT;
+        }
+        if (last) {
+            _chunkedType = 0;
+        }
+        return (_currToken = _lastToken = t);
+    }
+
+    private final JsonToken _valueChunkNotAvailable() throws IOException
+    {
+        _incomplete = true;
+        if (_endOfInput) {
+            _reportInvalidEOF(": incomplete long String or binary value");
+        }
         return (_currToken = JsonToken.NOT_AVAILABLE);
     }
 
-    private final JsonToken _nextDouble(int substate, long value) throws IOException, JsonParseException
+    /**
+     * Helper method for finding the end offset for a chunk of UTF-8 encoded
+     * content, so that no multi-byte character is split.
+     */
+    private final int _utf8ChunkEnd(int start, int end)
     {
-        while (_inputPtr < _inputEnd) {
-            int b = _inputBuffer[_inputPtr++];
-            value = (value << 7) + b;
-            if (++substate == 10) { // done!
-                _numberDouble = Double.longBitsToDouble(value);
-                _numTypesValid = NR_DOUBLE;
-                _tokenIncomplete = false;
-                return (_currToken = JsonToken.VALUE_NUMBER_FLOAT);
+        final byte[] buf = _inputBuffer;
+        for (int i = end-1, min = Math.max(start, end-3); i >= min; --i) {
+            int c = buf[i] & 0xFF;
+            if (c < 0x80 || c == SmileConstants.INT_MARKER_END_OF_STRING) {
+                break;
+            }
+            if (c >= 0xC0) { // first byte of multi-byte character: is it complete?
+                int needed = ((c & 0xE0) == 0xC0) ? 2 : (((c & 0xF0) == 0xE0) ? 3 : 4);
+                return ((i + needed) <= end) ? end : i;
             }
         }
-        _tokenIncomplete = true;
-        _substate = substate;
-        _pendingLong = value;
-        _state = STATE_NUMBER_DOUBLE;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        return end;
     }
 
-    private final JsonToken _nextBigDecimal(int substate) throws IOException, JsonParseException
+    private final JsonToken _eofAsNextToken() throws IOException
     {
-        // !!! TBI
-        _tokenIncomplete = true;
-        _substate = substate;
-//        _pendingLong = value;
-        _state = STATE_NUMBER_BIGDEC;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        if (!_parsingContext.inRoot()) {
+            _handleEOF();
+        }
+        close();
+        return (_currToken = null);
     }
-/*
-    private final void _finishBigDecimal()
-        throws IOException, JsonParseException
+
+    /*
+    /**********************************************************************
+    /* Internal methods: value decoding
+    /**********************************************************************
+     */
+
+    /**
+     * Method for checking that the first byte of content is header, if required
+     */
+    private final void _checkHeader() throws IOException
+    {
+        _headerChecked = true;
+        byte b = _inputBuffer[_inputPtr];
+        if (_cfgRequireHeader && b != SmileConstants.HEADER_BYTE_1) {
+            String msg;
+            if (b == '{' || b == '[') {
+                msg = "Input does not start with Smile format header (first byte = 0x"
+                    +Integer.toHexString(b & 0xFF)+") -- rather, it starts with '"+((char) b)
+                    +"' (plain JSON input?) -- can not parse";
+            } else {
+                msg = "Input does not start with Smile format header (first byte = 0x"
+                    +Integer.toHexString(b & 0xFF)+") and parser has REQUIRE_HEADER enabled: can not parse";
+            }
+            throw new JsonParseException(this, msg);
+        }
+    }
+
+    /**
+     * Method for decoding a value token, all of which is available in the input buffer.
+     *
+     * @return Token decoded; or {@link JsonToken#NOT_AVAILABLE} for a header that
+     *   does not imply document boundary
+     */
+    private final JsonToken _decodeValue() throws IOException
     {
-        int scale = SmileUtil.zigzagDecode(_readUnsignedVInt());
-        byte[] raw = _read7BitBinaryWithLength();
-        _numberBigDecimal = new BigDecimal(new BigInteger(raw), scale);
-        _numTypesValid = NR_BIGDECIMAL;
+        int ch = _inputBuffer[_inputPtr++] & 0xFF;
+        switch (ch >> 5) {
+        case 0: // short shared string value reference
+            if (ch != 0) { // 0x0 is invalid
+                return _handleSharedString(ch-1);
+            }
+            break;
+
+        case 1: // simple literals, numbers
+            switch (ch & 0x1F) {
+            case 0x00:
+                _textBuffer.resetWithEmpty();
+                return JsonToken.VALUE_STRING;
+            case 0x01:
+                return JsonToken.VALUE_NULL;
+            case 0x02:
+                return JsonToken.VALUE_FALSE;
+            case 0x03:
+                return JsonToken.VALUE_TRUE;
+            case 0x04:
+                _numberInt = SmileUtil.zigzagDecode(_decodeVInt());
+                _numTypesValid = NR_INT;
+                return JsonToken.VALUE_NUMBER_INT;
+            case 0x05:
+                _numberLong = SmileUtil.zigzagDecode(_decodeVLong());
+                _numTypesValid = NR_LONG;
+                return JsonToken.VALUE_NUMBER_INT;
+            case 0x06:
+                _numberBigInt = new BigInteger(_read7BitBinaryWithLength());
+                _numTypesValid = NR_BIGINT;
+                return JsonToken.VALUE_NUMBER_INT;
+            case 0x08:
+                _decodeFloat();
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case 0x09:
+                _decodeDouble();
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case 0x0A:
+                {
+                    int scale = SmileUtil.zigzagDecode(_decodeVInt());
+                    _numberBigDecimal = new BigDecimal(new BigInteger(_read7BitBinaryWithLength()), scale);
+                    _numTypesValid = NR_BIGDECIMAL;
+                    _got32BitFloat = false;
+                }
+                return JsonToken.VALUE_NUMBER_FLOAT;
+            case 0x1A: // == 0x3A == ':' -> header signature for next chunk
+                _handleHeader();
+                /* Ok, now; end-marker and header both imply doc boundary and a
+                 * 'null token'; but if both are seen, they are collapsed.
+                 */
+                return (_lastToken == null) ? JsonToken.NOT_AVAILABLE : null;
+            }
+            // and everything else is reserved, for now
+            break;
+        case 2: // tiny ASCII
+        case 3: // short ASCII
+            _addSeenStringValue(_decodeShortAsciiValue(1 + (ch & 0x3F)));
+            return JsonToken.VALUE_STRING;
+        case 4: // tiny Unicode
+        case 5: // short Unicode
+            _addSeenStringValue(_decodeShortUnicodeValue(2 + (ch & 0x3F)));
+            return JsonToken.VALUE_STRING;
+        case 6: // small integers; zigzag encoded
+            _numberInt = SmileUtil.zigzagDecode(ch & 0x1F);
+            _numTypesValid = NR_INT;
+            return JsonToken.VALUE_NUMBER_INT;
+        case 7: // binary/long-text/long-shared/start-end-markers
+            switch (ch & 0x1F) {
+            case 0x00: // long variable length ASCII
+                _decodeLongAscii(_inputEnd);
+                return JsonToken.VALUE_STRING;
+            case 0x04: // long variable length unicode
+                _decodeLongUnicode(_inputEnd);
+                return JsonToken.VALUE_STRING;
+            case 0x08: // binary, 7-bit
+                _binaryValue = _read7BitBinaryWithLength();
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case 0x0C: // long shared string
+            case 0x0D:
+            case 0x0E:
+            case 0x0F:
+                return _handleSharedString(((ch & 0x3) << 8) + (_inputBuffer[_inputPtr++] & 0xFF));
+            case 0x18: // START_ARRAY
+                _parsingContext = _parsingContext.createChildArrayContext(-1, -1);
+                return JsonToken.START_ARRAY;
+            case 0x19: // END_ARRAY
+                if (!_parsingContext.inArray()) {
+                    _reportMismatchedEndMarker(']', '}');
+                }
+                _parsingContext = _parsingContext.getParent();
+                return JsonToken.END_ARRAY;
+            case 0x1A: // START_OBJECT
+                _parsingContext = _parsingContext.createChildObjectContext(-1, -1);
+                return JsonToken.START_OBJECT;
+            case 0x1B: // not used in this mode; would be END_OBJECT
+                _reportError("Invalid type marker byte 0xFB in value mode (would be END_OBJECT in key mode)");
+            case 0x1D: // binary, raw
+                {
+                    int len = _decodeVInt();
+                    int ptr = _inputPtr;
+                    _binaryValue = Arrays.copyOfRange(_inputBuffer, ptr, ptr+len);
+                    _inputPtr = ptr+len;
+                }
+                return JsonToken.VALUE_EMBEDDED_OBJECT;
+            case 0x1F: // 0xFF, end of content
+                return null;
+            }
+            break;
+        }
+        // If we get this far, type byte is corrupt
+        _reportError("Invalid type marker byte 0x"+Integer.toHexString(ch & 0xFF)+" for expected value token");
+        return null;
+    }
+
+    private final void _handleHeader() throws IOException
+    {
+        byte b = _inputBuffer[_inputPtr++];
+        if (b != SmileConstants.HEADER_BYTE_2) {
+            _reportError("Malformed content: header signature not valid, starts with 0x3a but followed by 0x"
+                    +Integer.toHexString(b & 0xFF)+", not 0x29");
+        }
+        b = _inputBuffer[_inputPtr++];
+        if (b != SmileConstants.HEADER_BYTE_3) {
+            _reportError("Malformed content: signature not valid, starts with 0x3a, 0x29, but followed by 0x"
+                    +Integer.toHexString(b & 0xFF)+", not 0x0A");
+        }
+        b = _inputBuffer[_inputPtr++];
+        int versionBits = (b >> 4) & 0x0F;
+        // but failure with version number is fatal, can not ignore
+        if (versionBits != SmileConstants.HEADER_VERSION_0) {
+            _reportError("Header version number bits (0x"+Integer.toHexString(versionBits)+") indicate unrecognized version; only 0x0 handled by parser");
+        }
+        // can avoid tracking names, if explicitly disabled
+        if ((b & SmileConstants.HEADER_BIT_HAS_SHARED_NAMES) == 0) {
+            _seenNames = null;
+            _seenNameCount = -1;
+        }
+        // conversely, shared string values must be explicitly enabled
+        if ((b & SmileConstants.HEADER_BIT_HAS_SHARED_STRING_VALUES) != 0) {
+            _seenStringValues = NO_STRINGS;
+            _seenStringValueCount = 0;
+        }
+        _mayContainRawBinary = ((b & SmileConstants.HEADER_BIT_HAS_RAW_BINARY) != 0);
+    }
+
+    private final JsonToken _handleSharedString(int index) throws IOException
+    {
+        if (index >= _seenStringValueCount) {
+            _reportInvalidSharedStringValue(index);
+        }
+        _textBuffer.resetWithString(_seenStringValues[index]);
+        return JsonToken.VALUE_STRING;
+    }
+
+    private final void _addSeenStringValue(String v)
+    {
+        if (_seenStringValueCount >= 0) { // shared text values enabled
+            if (_seenStringValueCount < _seenStringValues.length) {
+                _seenStringValues[_seenStringValueCount++] = v;
+            } else {
+                _expandSeenStringValues(v);
+            }
+        }
+    }
+
+    private final void _expandSeenStringValues(String newText)
+    {
+        String[] oldShared = _seenStringValues;
+        int len = oldShared.length;
+        String[] newShared;
+        if (len == 0) {
+            newShared = _smileBufferRecycler.allocSeenStringValuesBuffer();
+            if (newShared == null) {
+                newShared = new String[SmileBufferRecycler.DEFAULT_STRING_VALUE_BUFFER_LENGTH];
+            }
+        } else if (len == SmileConstants.MAX_SHARED_STRING_VALUES) { // too many? Just flush...
+           newShared = oldShared;
+           _seenStringValueCount = 0; // could also clear, but let's not yet bother
+        } else {
+            int newSize = (len == SmileBufferRecycler.DEFAULT_NAME_BUFFER_LENGTH) ? 256 : SmileConstants.MAX_SHARED_STRING_VALUES;
+            newShared = Arrays.copyOf(oldShared, newSize);
+        }
+        _seenStringValues = newShared;
+        _seenStringValues[_seenStringValueCount++] = newText;
     }
-    
- */
 
     /*
-    private final int _readUnsignedVInt()
-        throws IOException, JsonParseException
+    /**********************************************************************
+    /* Internal methods: number decoding (all content available)
+    /**********************************************************************
+     */
+
+    private final int _decodeVInt() throws IOException
     {
+        final byte[] inBuf = _inputBuffer;
+        int ptr = _inputPtr;
         int value = 0;
-        while (true) {
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
-            }
-            int i = _inputBuffer[_inputPtr++];
+        for (final int end = ptr + 5; ptr < end; ) {
+            int i = inBuf[ptr++];
             if (i < 0) { // last byte
-                value = (value << 6) + (i & 0x3F);
-                return value;
+                _inputPtr = ptr;
+                return (value << 6) + (i & 0x3F);
             }
             value = (value << 7) + i;
         }
+        _reportError("Corrupt input; 32-bit VInt extends beyond 5 data bytes");
+        return 0;
     }
-    */
-    
-    private final boolean _handleHeader(int substate) throws IOException, JsonParseException
-    {
-        while (_inputPtr < _inputEnd) {
-            byte b = _inputBuffer[_inputPtr++];
-            switch (substate) {
-            case 0: // after first byte
-                if (b != SmileConstants.HEADER_BYTE_2) {
-                    _reportError("Malformed content: header signature not valid, starts with 0x3a but followed by 0x"
-                            +Integer.toHexString(_inputBuffer[_inputPtr] & 0xFF)+", not 0x29");
-                }
-                break;
-            case 1:
-                if (b != SmileConstants.HEADER_BYTE_3) {
-                    _reportError("Malformed content: signature not valid, starts with 0x3a, 0x29, but followed by 0x"
-                            +Integer.toHexString(_inputBuffer[_inputPtr & 0xFF])+", not 0x0A");
-                }
-                break;
-            case 2: // ok, here be the version, config bits...
-                int versionBits = (b >> 4) & 0x0F;
-                // but failure with version number is fatal, can not ignore
-                if (versionBits != SmileConstants.HEADER_VERSION_0) {
-                    _reportError("Header version number bits (0x"+Integer.toHexString(versionBits)+") indicate unrecognized version; only 0x0 handled by parser");
-                }
 
-                // can avoid tracking names, if explicitly disabled
-                if ((b & SmileConstants.HEADER_BIT_HAS_SHARED_NAMES) == 0) {
-                    _seenNames = null;
-                    _seenNameCount = -1;
-                }
-                // conversely, shared string values must be explicitly enabled
-                if ((b & SmileConstants.HEADER_BIT_HAS_SHARED_STRING_VALUES) != 0) {
-                    _seenStringValues = NO_STRINGS;
-                    _seenStringValueCount = 0;
-                }
-                _mayContainRawBinary = ((b & SmileConstants.HEADER_BIT_HAS_RAW_BINARY) != 0);
-                _tokenIncomplete = false;
-                return true;
+    private final long _decodeVLong() throws IOException
+    {
+        final byte[] inBuf = _inputBuffer;
+        int ptr = _inputPtr;
+        long value = 0L;
+        for (final int end = ptr + MAX_VINT_BYTES; ptr < end; ) {
+            int i = inBuf[ptr++];
+            if (i < 0) { // last byte
+                _inputPtr = ptr;
+                return (value << 6) + (i & 0x3F);
             }
+            value = (value << 7) + i;
         }
-        _tokenIncomplete = true;
-        _state = STATE_HEADER;
-        _substate = substate;
-        return false;
+        _reportError("Corrupt input; 64-bit VInt extends beyond 10 data bytes");
+        return 0L;
     }
 
-    private final JsonToken _nextShortAscii(int substate) throws IOException, JsonParseException
+    private final void _decodeFloat() throws IOException
     {
-        _state = STATE_SHORT_ASCII;
-        _tokenIncomplete = true;
-        _substate = substate;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        final byte[] inBuf = _inputBuffer;
+        int ptr = _inputPtr;
+        int i = inBuf[ptr++];
+        i = (i << 7) + inBuf[ptr++];
+        i = (i << 7) + inBuf[ptr++];
+        i = (i << 7) + inBuf[ptr++];
+        i = (i << 7) + inBuf[ptr++];
+        _inputPtr = ptr;
+        _numberDouble = (double) Float.intBitsToFloat(i);
+        _numTypesValid = NR_DOUBLE;
+        _got32BitFloat = true;
     }
 
-    private final JsonToken _nextShortUnicode(int substate) throws IOException, JsonParseException
+    private final void _decodeDouble() throws IOException
     {
-        _state = STATE_SHORT_UNICODE;
-        _tokenIncomplete = true;
-        _substate = substate;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        final byte[] inBuf = _inputBuffer;
+        int ptr = _inputPtr;
+        long value = inBuf[ptr++];
+        for (final int end = ptr + 9; ptr < end; ) {
+            value = (value << 7) + inBuf[ptr++];
+        }
+        _inputPtr = ptr;
+        _numberDouble = Double.longBitsToDouble(value);
+        _numTypesValid = NR_DOUBLE;
+        _got32BitFloat = false;
     }
-    
-    /*
-    protected final void _decodeShortAsciiValue(int len)
-        throws IOException, JsonParseException
+
+    private final byte[] _read7BitBinaryWithLength() throws IOException
     {
-        if ((_inputEnd - _inputPtr) < len) {
-            _loadToHaveAtLeast(len);
+        return _read7BitBinary(_decodeVInt());
+    }
+
+    /**
+     * @param byteLen Number of raw bytes to decode; either all remaining bytes
+     *   of binary value, or a multiple of 7
+     */
+    private final byte[] _read7BitBinary(int byteLen) throws IOException
+    {
+        final byte[] result = new byte[byteLen];
+        final byte[] inBuf = _inputBuffer;
+        int inPtr = _inputPtr;
+        int ptr = 0;
+        final int lastOkPtr = byteLen - 7;
+
+        // first, read all 7-by-8 byte chunks
+        while (ptr <= lastOkPtr) {
+            int i1 = (inBuf[inPtr++] << 25)
+                + (inBuf[inPtr++] << 18)
+                + (inBuf[inPtr++] << 11)
+                + (inBuf[inPtr++] << 4);
+            int x = inBuf[inPtr++];
+            i1 += x >> 3;
+            int i2 = ((x & 0x7) << 21)
+                + (inBuf[inPtr++] << 14)
+                + (inBuf[inPtr++] << 7)
+                + inBuf[inPtr++];
+            result[ptr++] = (byte)(i1 >> 24);
+            result[ptr++] = (byte)(i1 >> 16);
+            result[ptr++] = (byte)(i1 >> 8);
+            result[ptr++] = (byte)i1;
+            result[ptr++] = (byte)(i2 >> 16);
+            result[ptr++] = (byte)(i2 >> 8);
+            result[ptr++] = (byte)i2;
+        }
+        // and then leftovers: n+1 bytes to decode n bytes
+        int toDecode = (byteLen - ptr);
+        if (toDecode > 0) {
+            int value = inBuf[inPtr++];
+            for (int i = 1; i < toDecode; ++i) {
+                value = (value << 7) + inBuf[inPtr++];
+                result[ptr++] = (byte) (value >> (7 - i));
+            }
+            // last byte is different, has remaining 1 - 6 bits, right-aligned
+            value <<= toDecode;
+            result[ptr] = (byte) (value + inBuf[inPtr++]);
         }
+        _inputPtr = inPtr;
+        return result;
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods: String value decoding (all content available)
+    /**********************************************************************
+     */
+
+    private final String _decodeShortAsciiValue(int len) throws IOException
+    {
         // Note: we count on fact that buffer must have at least 'len' (<= 64) empty char slots
         final char[] outBuf = _textBuffer.emptyAndGetCurrentSegment();
         int outPtr = 0;
         final byte[] inBuf = _inputBuffer;
         int inPtr = _inputPtr;
-
-        // meaning: regular tight loop is no slower, typically faster here:
         for (final int end = inPtr + len; inPtr < end; ++inPtr) {
-            outBuf[outPtr++] = (char) inBuf[inPtr];            
+            outBuf[outPtr++] = (char) inBuf[inPtr];
         }
-        
         _inputPtr = inPtr;
-        _textBuffer.setCurrentLength(len);
+        return _textBuffer.setCurrentAndReturn(len);
     }
 
-    protected final void _decodeShortUnicodeValue(int len)
-        throws IOException, JsonParseException
+    private final String _decodeShortUnicodeValue(int len) throws IOException
     {
-        if ((_inputEnd - _inputPtr) < len) {
-            _loadToHaveAtLeast(len);
-        }
         int outPtr = 0;
         char[] outBuf = _textBuffer.emptyAndGetCurrentSegment();
         int inPtr = _inputPtr;
         _inputPtr += len;
         final int[] codes = SmileConstants.sUtf8UnitLengths;
         final byte[] inputBuf = _inputBuffer;
-        for (int end = inPtr + len; inPtr < end; ) {
+        for (final int end = inPtr + len; inPtr < end; ) {
             int i = inputBuf[inPtr++] & 0xFF;
             int code = codes[i];
             if (code != 0) {
+                if ((inPtr + code) > end) {
+                    _reportError("Truncated UTF-8 character in short Unicode text block");
+                }
                 // trickiest one, need surrogate handling
                 switch (code) {
                 case 1:
@@ -1053,8 +1662,8 @@ public class NonBlockingParserImpl
                     break;
                 case 2:
                     i = ((i & 0x0F) << 12)
-                          | ((inputBuf[inPtr++] & 0x3F) << 6)
-                          | (inputBuf[inPtr++] & 0x3F);
+                        | ((inputBuf[inPtr++] & 0x3F) << 6)
+                        | (inputBuf[inPtr++] & 0x3F);
                     break;
                 case 3:
                     i = ((i & 0x07) << 18)
@@ -1071,249 +1680,144 @@ public class NonBlockingParserImpl
                 }
             }
             outBuf[outPtr++] = (char) i;
-        }        
-        _textBuffer.setCurrentLength(outPtr);
-    }
-     */
-    
-    private final JsonToken _nextLongAscii(int substate) throws IOException, JsonParseException
-    {
-        // did not get it all; mark the state so we know where to return:
-        _state = STATE_LONG_ASCII;
-        _tokenIncomplete = true;
-        _substate = substate;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        }
+        return _textBuffer.setCurrentAndReturn(outPtr);
     }
 
-    /*
-    private final void _decodeLongAscii()
-        throws IOException, JsonParseException
+    /**
+     * @param end Offset at which to stop decoding, if end marker not found
+     *   before it (for full tokens, end of input, since marker is known to be
+     *   included)
+     *
+     * @return True if end marker was found (and consumed)
+     */
+    private final boolean _decodeLongAscii(int end) throws IOException
     {
         int outPtr = 0;
         char[] outBuf = _textBuffer.emptyAndGetCurrentSegment();
-        main_loop:
-        while (true) {
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
+        final byte[] inBuf = _inputBuffer;
+        int inPtr = _inputPtr;
+        boolean gotEnd = false;
+        while (inPtr < end) {
+            byte b = inBuf[inPtr++];
+            if (b == BYTE_MARKER_END_OF_STRING) {
+                gotEnd = true;
+                break;
             }
-            int inPtr = _inputPtr;
-            int left = _inputEnd - inPtr;
             if (outPtr >= outBuf.length) {
                 outBuf = _textBuffer.finishCurrentSegment();
                 outPtr = 0;
             }
-            left = Math.min(left, outBuf.length - outPtr);
-            do {
-                byte b = _inputBuffer[inPtr++];
-                if (b == SmileConstants.BYTE_MARKER_END_OF_STRING) {
-                    _inputPtr = inPtr;
-                    break main_loop;
-                }
-                outBuf[outPtr++] = (char) b;                    
-            } while (--left > 0);
-            _inputPtr = inPtr;
+            outBuf[outPtr++] = (char) b;
         }
+        _inputPtr = inPtr;
         _textBuffer.setCurrentLength(outPtr);
-    }
-    */
-
-    private final JsonToken _nextLongUnicode(int substate) throws IOException, JsonParseException
-    {
-        // did not get it all; mark the state so we know where to return:
-        _state = STATE_LONG_UNICODE;
-        _tokenIncomplete = true;
-        _substate = substate;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        return gotEnd;
     }
 
-    
-/*
-    private final void _decodeLongUnicode()
-        throws IOException, JsonParseException
+    /**
+     * @param end Offset at which to stop decoding, if end marker not found
+     *   before it; must not split a multi-byte character. Since end marker is
+     *   not a valid UTF-8 continuation byte, decoding can not run past it.
+     *
+     * @return True if end marker was found (and consumed)
+     */
+    private final boolean _decodeLongUnicode(int end) throws IOException
     {
         int outPtr = 0;
         char[] outBuf = _textBuffer.emptyAndGetCurrentSegment();
         final int[] codes = SmileConstants.sUtf8UnitLengths;
-        int c;
-        final byte[] inputBuffer = _inputBuffer;
-
-        main_loop:
-        while (true) {
-            // First the tight ASCII loop:
-            ascii_loop:
-            while (true) {
-                int ptr = _inputPtr;
-                if (ptr >= _inputEnd) {
-                    loadMoreGuaranteed();
-                    ptr = _inputPtr;
-                }
-                if (outPtr >= outBuf.length) {
-                    outBuf = _textBuffer.finishCurrentSegment();
-                    outPtr = 0;
-                }
-                int max = _inputEnd;
-                {
-                    int max2 = ptr + (outBuf.length - outPtr);
-                    if (max2 < max) {
-                        max = max2;
-                    }
-                }
-                while (ptr < max) {
-                    c = (int) inputBuffer[ptr++] & 0xFF;
-                    if (codes[c] != 0) {
-                        _inputPtr = ptr;
-                        break ascii_loop;
-                    }
-                    outBuf[outPtr++] = (char) c;
+        final byte[] inBuf = _inputBuffer;
+        int c;
+        boolean gotEnd = false;
+
+        while (_inputPtr < end) {
+            c = inBuf[_inputPtr++] & 0xFF;
+            if (codes[c] != 0) {
+                // Ok: end marker, escape or multi-byte?
+                if (c == SmileConstants.INT_MARKER_END_OF_STRING) {
+                    gotEnd = true;
+                    break;
                 }
-                _inputPtr = ptr;
-            }
-            // Ok: end marker, escape or multi-byte?
-            if (c == SmileConstants.INT_MARKER_END_OF_STRING) {
-                break main_loop;
-            }
-
-            switch (codes[c]) {
-            case 1: // 2-byte UTF
-                c = _decodeUtf8_2(c);
-                break;
-            case 2: // 3-byte UTF
-                if ((_inputEnd - _inputPtr) >= 2) {
-                    c = _decodeUtf8_3fast(c);
-                } else {
+                switch (codes[c]) {
+                case 1: // 2-byte UTF
+                    c = _decodeUtf8_2(c);
+                    break;
+                case 2: // 3-byte UTF
                     c = _decodeUtf8_3(c);
+                    break;
+                case 3: // 4-byte UTF
+                    c = _decodeUtf8_4(c);
+                    // Let's add first part right away:
+                    if (outPtr >= outBuf.length) {
+                        outBuf = _textBuffer.finishCurrentSegment();
+                        outPtr = 0;
+                    }
+                    outBuf[outPtr++] = (char) (0xD800 | (c >> 10));
+                    c = 0xDC00 | (c & 0x3FF);
+                    // And let the other char output down below
+                    break;
+                default:
+                    // Is this good enough error message?
+                    _reportInvalidChar(c);
                 }
-                break;
-            case 3: // 4-byte UTF
-                c = _decodeUtf8_4(c);
-                // Let's add first part right away:
-                outBuf[outPtr++] = (char) (0xD800 | (c >> 10));
-                if (outPtr >= outBuf.length) {
-                    outBuf = _textBuffer.finishCurrentSegment();
-                    outPtr = 0;
-                }
-                c = 0xDC00 | (c & 0x3FF);
-                // And let the other char output down below
-                break;
-            default:
-                // Is this good enough error message?
-                _reportInvalidChar(c);
             }
-            // Need more room?
             if (outPtr >= outBuf.length) {
                 outBuf = _textBuffer.finishCurrentSegment();
                 outPtr = 0;
             }
-            // Ok, let's add char to output:
             outBuf[outPtr++] = (char) c;
         }
         _textBuffer.setCurrentLength(outPtr);
-    }
-     */
-    
-    private final JsonToken _nextLongSharedString(int substate) throws IOException, JsonParseException
-    {
-        // did not get it all; mark the state so we know where to return:
-        _tokenIncomplete = true;
-        _state = STATE_LONG_SHARED;
-        _substate = substate;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        return gotEnd;
     }
 
-    private final JsonToken _nextRawBinary(int substate) throws IOException, JsonParseException
+    private final int _decodeUtf8_2(int c) throws IOException
     {
-        // did not get it all; mark the state so we know where to return:
-        _tokenIncomplete = true;
-        _state = STATE_RAW_BINARY;
-        _substate = substate;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
+        int d = (int) _inputBuffer[_inputPtr++];
+        if ((d & 0xC0) != 0x080) {
+            _reportInvalidOther(d & 0xFF, _inputPtr);
+        }
+        return ((c & 0x1F) << 6) | (d & 0x3F);
     }
 
-/*
-
-    private final void _finishRawBinary()
-        throws IOException, JsonParseException
+    private final int _decodeUtf8_3(int c1) throws IOException
     {
-        int byteLen = _readUnsignedVInt();
-        _binaryValue = new byte[byteLen];
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
+        c1 &= 0x0F;
+        int d = (int) _inputBuffer[_inputPtr++];
+        if ((d & 0xC0) != 0x080) {
+            _reportInvalidOther(d & 0xFF, _inputPtr);
         }
-        int ptr = 0;
-        while (true) {
-            int toAdd = Math.min(byteLen, _inputEnd - _inputPtr);
-            System.arraycopy(_inputBuffer, _inputPtr, _binaryValue, ptr, toAdd);
-            _inputPtr += toAdd;
-            ptr += toAdd;
-            byteLen -= toAdd;
-            if (byteLen <= 0) {
-                return;
-            }
-            loadMoreGuaranteed();
+        int c = (c1 << 6) | (d & 0x3F);
+        d = (int) _inputBuffer[_inputPtr++];
+        if ((d & 0xC0) != 0x080) {
+            _reportInvalidOther(d & 0xFF, _inputPtr);
         }
+        return (c << 6) | (d & 0x3F);
     }
- */
-    
-    private final JsonToken _nextQuotedBinary(int substate) throws IOException, JsonParseException
-    {
-        // did not get it all; mark the state so we know where to return:
-        _tokenIncomplete = true;
-        _state = STATE_QUOTED_BINARY;
-        _substate = substate;
-        return (_currToken = JsonToken.NOT_AVAILABLE);
-    }
-    
-    /*
-    private final byte[] _read7BitBinaryWithLength()
-        throws IOException, JsonParseException
+
+    /**
+     * @return Character value <b>minus 0x10000</c>; this so that caller
+     *    can readily expand it to actual surrogates
+     */
+    private final int _decodeUtf8_4(int c) throws IOException
     {
-        int byteLen = _readUnsignedVInt();
-        byte[] result = new byte[byteLen];
-        int ptr = 0;
-        int lastOkPtr = byteLen - 7;
-        
-        // first, read all 7-by-8 byte chunks
-        while (ptr <= lastOkPtr) {
-            if ((_inputEnd - _inputPtr) < 8) {
-                _loadToHaveAtLeast(8);
-            }
-            int i1 = (_inputBuffer[_inputPtr++] << 25)
-                + (_inputBuffer[_inputPtr++] << 18)
-                + (_inputBuffer[_inputPtr++] << 11)
-                + (_inputBuffer[_inputPtr++] << 4);
-            int x = _inputBuffer[_inputPtr++];
-            i1 += x >> 3;
-            int i2 = ((x & 0x7) << 21)
-                + (_inputBuffer[_inputPtr++] << 14)
-                + (_inputBuffer[_inputPtr++] << 7)
-                + _inputBuffer[_inputPtr++];
-            // Ok: got our 7 bytes, just need to split, copy
-            result[ptr++] = (byte)(i1 >> 24);
-            result[ptr++] = (byte)(i1 >> 16);
-            result[ptr++] = (byte)(i1 >> 8);
-            result[ptr++] = (byte)i1;
-            result[ptr++] = (byte)(i2 >> 16);
-            result[ptr++] = (byte)(i2 >> 8);
-            result[ptr++] = (byte)i2;
+        int d = (int) _inputBuffer[_inputPtr++];
+        if ((d & 0xC0) != 0x080) {
+            _reportInvalidOther(d & 0xFF, _inputPtr);
         }
-        // and then leftovers: n+1 bytes to decode n bytes
-        int toDecode = (result.length - ptr);
-        if (toDecode > 0) {
-            if ((_inputEnd - _inputPtr) < (toDecode+1)) {
-                _loadToHaveAtLeast(toDecode+1);
-            }
-            int value = _inputBuffer[_inputPtr++];
-            for (int i = 1; i < toDecode; ++i) {
-                value = (value << 7) + _inputBuffer[_inputPtr++];
-                result[ptr++] = (byte) (value >> (7 - i));
-            }
-            // last byte is different, has remaining 1 - 6 bits, right-aligned
-            value <<= toDecode;
-            result[ptr] = (byte) (value + _inputBuffer[_inputPtr++]);
+        c = ((c & 0x07) << 6) | (d & 0x3F);
+        d = (int) _inputBuffer[_inputPtr++];
+        if ((d & 0xC0) != 0x080) {
+            _reportInvalidOther(d & 0xFF, _inputPtr);
         }
-        return result;
+        c = (c << 6) | (d & 0x3F);
+        d = (int) _inputBuffer[_inputPtr++];
+        if ((d & 0xC0) != 0x080) {
+            _reportInvalidOther(d & 0xFF, _inputPtr);
+        }
+        return ((c << 6) | (d & 0x3F)) - 0x10000;
     }
-     */
 
     /*
     /**********************************************************************
@@ -1321,17 +1825,106 @@ public class NonBlockingParserImpl
     /**********************************************************************
      */
 
-    /* Implementing these methods efficiently for non-blocking cases would
-     * be complicated; so for now let's just use the default non-optimized
-     * implementation
+    /**
+     * Overridden to match short names directly against content of the input
+     * buffer, without decoding, when the name is fully included in it.
      */
-    
-//    public boolean nextFieldName(SerializableString str) throws IOException, JsonParseException
-//    public String nextTextValue() throws IOException, JsonParseException
-//    public int nextIntValue(int defaultValue) throws IOException, JsonParseException
-//    public long nextLongValue(long defaultValue) throws IOException, JsonParseException
-//    public Boolean nextBooleanValue() throws IOException, JsonParseException
-    
+    @Override
+    public boolean nextFieldName(SerializableString str) throws IOException
+    {
+        if (_parked) {
+            unpark();
+        }
+        if (!_closed && _headerChecked && _inKeyMode()) {
+            final byte[] nameBytes = str.asUnquotedUTF8();
+            final int byteLen = nameBytes.length;
+            int ptr = _inputPtr;
+            if ((byteLen > 0) && (ptr + byteLen) < _inputEnd) {
+                final byte[] inBuf = _inputBuffer;
+                final int ch = inBuf[ptr++] & 0xFF;
+                int len;
+                switch (ch >> 6) {
+                case 2: // short ASCII
+                    len = 1 + (ch & 0x3F);
+                    break;
+                case 3: // short Unicode, unless END_OBJECT or invalid
+                    len = (ch < 0xF8) ? (2 + (ch & 0x3F)) : 0;
+                    break;
+                default: // shared names, long names; need to decode
+                    len = 0;
+                }
+                if (len == byteLen) {
+                    int i = 0;
+                    while ((i < len) && (nameBytes[i] == inBuf[ptr+i])) {
+                        ++i;
+                    }
+                    if (i == len) {
+                        _numTypesValid = NR_UNKNOWN;
+                        _binaryValue = null;
+                        _tokenInputTotal = _currInputProcessed + _inputPtr;
+                        _inputPtr = ptr + len;
+                        final String name = str.getValue();
+                        if (_seenNames != null) {
+                            if (_seenNameCount >= _seenNames.length) {
+                                _seenNames = _expandSeenNames(_seenNames);
+                            }
+                            _seenNames[_seenNameCount++] = name;
+                        }
+                        _parsingContext.setCurrentName(name);
+                        _currToken = _lastToken = JsonToken.FIELD_NAME;
+                        return true;
+                    }
+                }
+            }
+        }
+        return (nextToken() == JsonToken.FIELD_NAME) && str.getValue().equals(getCurrentName());
+    }
+
+    // Since tokens are fully decoded by 'nextToken()', simple variants suffice:
+
+    @Override
+    public String nextFieldName() throws IOException
+    {
+        return (nextToken() == JsonToken.FIELD_NAME) ? _parsingContext.getCurrentName() : null;
+    }
+
+    @Override
+    public String nextTextValue() throws IOException
+    {
+        return (nextToken() == JsonToken.VALUE_STRING) ? _textBuffer.contentsAsString() : null;
+    }
+
+    @Override
+    public int nextIntValue(int defaultValue) throws IOException
+    {
+        if (nextToken() == JsonToken.VALUE_NUMBER_INT) {
+            return ((_numTypesValid & NR_INT) != 0) ? _numberInt : getIntValue();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public long nextLongValue(long defaultValue) throws IOException
+    {
+        if (nextToken() == JsonToken.VALUE_NUMBER_INT) {
+            return getLongValue();
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public Boolean nextBooleanValue() throws IOException
+    {
+        JsonToken t = nextToken();
+        if (t == JsonToken.VALUE_TRUE) {
+            return Boolean.TRUE;
+        }
+        if (t == JsonToken.VALUE_FALSE) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
     /*
     /**********************************************************************
     /* Public API, access to token information, text
@@ -1344,36 +1937,30 @@ public class NonBlockingParserImpl
      * after encountering end-of-input), returns null.
      * Method can be called for any event.
      */
-    @Override    
-    public String getText()
-        throws IOException, JsonParseException
+    @Override
+    public String getText() throws IOException
     {
-        if (_currToken == JsonToken.VALUE_STRING) {
+        JsonToken t = _currToken;
+        if (t == JsonToken.VALUE_STRING) {
             return _textBuffer.contentsAsString();
         }
-        if (_tokenIncomplete) {
-            return null;
-        }
-        JsonToken t = _currToken;
-        if (t == null) { // null only before/after document
+        if (t == null || t == JsonToken.NOT_AVAILABLE) {
             return null;
         }
         if (t == JsonToken.FIELD_NAME) {
             return _parsingContext.getCurrentName();
         }
-        if (t.isNumeric()) {
-            // TODO: optimize?
+        if (t.isNumeric()) { // TODO: optimize?
             return getNumberValue().toString();
         }
-        return _currToken.asString();
+        return t.asString();
     }
 
     @Override
-    public char[] getTextCharacters()
-        throws IOException, JsonParseException
+    public char[] getTextCharacters() throws IOException
     {
         if (_currToken != null) { // null only before/after document
-            switch (_currToken) {                
+            switch (_currToken) {
             case VALUE_STRING:
                 return _textBuffer.getTextBuffer();
             case FIELD_NAME:
@@ -1389,41 +1976,34 @@ public class NonBlockingParserImpl
                     _nameCopied = true;
                 }
                 return _nameCopyBuffer;
-
-                // fall through
             case VALUE_NUMBER_INT:
             case VALUE_NUMBER_FLOAT:
                 // TODO: optimize
                 return getNumberValue().toString().toCharArray();
+            case NOT_AVAILABLE:
+                return null;
             default:
-                if (_tokenIncomplete) {
-                    return null;
-                }
                 return _currToken.asCharArray();
             }
         }
         return null;
     }
 
-    @Override    
-    public int getTextLength()
-        throws IOException, JsonParseException
+    @Override
+    public int getTextLength() throws IOException
     {
         if (_currToken != null) { // null only before/after document
-            if (_tokenIncomplete) {
-                return -1; // or throw exception?
-            }
             switch (_currToken) {
             case VALUE_STRING:
-                return _textBuffer.size();                
+                return _textBuffer.size();
             case FIELD_NAME:
                 return _parsingContext.getCurrentName().length();
-                // fall through
             case VALUE_NUMBER_INT:
             case VALUE_NUMBER_FLOAT:
                 // TODO: optimize
                 return getNumberValue().toString().length();
-                
+            case NOT_AVAILABLE:
+                return 0;
             default:
                 return _currToken.asCharArray().length;
             }
@@ -1432,7 +2012,7 @@ public class NonBlockingParserImpl
     }
 
     @Override
-    public int getTextOffset() throws IOException, JsonParseException
+    public int getTextOffset() throws IOException
     {
         return 0;
     }
@@ -1444,8 +2024,7 @@ public class NonBlockingParserImpl
      */
 
     @Override
-    public byte[] getBinaryValue(Base64Variant b64variant)
-        throws IOException, JsonParseException
+    public byte[] getBinaryValue(Base64Variant b64variant) throws IOException
     {
         if (_currToken != JsonToken.VALUE_EMBEDDED_OBJECT ) {
             // Todo, maybe: support base64 for text?
@@ -1455,8 +2034,7 @@ public class NonBlockingParserImpl
     }
 
     @Override
-    public Object getEmbeddedObject()
-        throws IOException, JsonParseException
+    public Object getEmbeddedObject() throws IOException
     {
         if (_currToken == JsonToken.VALUE_EMBEDDED_OBJECT ) {
             return _binaryValue;
@@ -1464,11 +2042,12 @@ public class NonBlockingParserImpl
         return null;
     }
 
-    // could possibly implement this... or maybe not.
     @Override
-    public int readBinaryValue(Base64Variant b64variant, OutputStream out)
-            throws IOException, JsonParseException {
-        throw new UnsupportedOperationException();
+    public int readBinaryValue(Base64Variant b64variant, OutputStream out) throws IOException
+    {
+        byte[] b = getBinaryValue(b64variant);
+        out.write(b);
+        return b.length;
     }
 
     /*
@@ -1483,9 +2062,6 @@ public class NonBlockingParserImpl
      */
     protected final JsonToken _handleFieldName() throws IOException, JsonParseException
     {    	
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
-        }
         int ch = _inputBuffer[_inputPtr++];
         switch ((ch >> 6) & 3) {
         case 0: // misc, including end marker
@@ -1498,9 +2074,6 @@ public class NonBlockingParserImpl
             case 0x32:
             case 0x33:
                 {
-                    if (_inputPtr >= _inputEnd) {
-                        loadMoreGuaranteed();
-	            }
 	            int index = ((ch & 0x3) << 8) + (_inputBuffer[_inputPtr++] & 0xFF);
                     if (index >= _seenNameCount) {
                         _reportInvalidSharedName(index);
@@ -1670,6 +2243,9 @@ public class NonBlockingParserImpl
             int i = inBuf[inPtr++] & 0xFF;
             int code = codes[i];
             if (code != 0) {
+                if ((inPtr + code) > end) {
+                    _reportError("Truncated UTF-8 character in short Unicode name");
+                }
                 // trickiest one, need surrogate handling
                 switch (code) {
                 case 1:
@@ -1812,36 +2388,24 @@ public class NonBlockingParserImpl
         int q = 0;
 
         while (true) {
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
-            }
             byte b = inBuf[_inputPtr++];
             if (BYTE_MARKER_END_OF_STRING == b) {
                 bytes = 0;
                 break;
             }
             q = ((int) b) & 0xFF;
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
-            }
             b = inBuf[_inputPtr++];
             if (BYTE_MARKER_END_OF_STRING == b) {
                 bytes = 1;
                 break;
             }
             q = (q << 8) | (b & 0xFF);
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
-            }
             b = inBuf[_inputPtr++];
             if (BYTE_MARKER_END_OF_STRING == b) {
                 bytes = 2;
                 break;
             }
             q = (q << 8) | (b & 0xFF);
-            if (_inputPtr >= _inputEnd) {
-                loadMoreGuaranteed();
-            }
             b = inBuf[_inputPtr++];
             if (BYTE_MARKER_END_OF_STRING == b) {
                 bytes = 3;
@@ -1883,9 +2447,6 @@ public class NonBlockingParserImpl
      */
     private final String _findDecodedFromSymbols(int len) throws IOException
     {
-        if ((_inputEnd - _inputPtr) < len) {
-            _loadToHaveAtLeast(len);
-        }
         // First: maybe we already have this name decoded?
         if (len < 5) {
 	    int inPtr = _inputPtr;
@@ -1985,181 +2546,16 @@ public class NonBlockingParserImpl
     /**********************************************************************
      */
 
-    @Override
-    protected void _parseNumericValue(int expType) throws IOException
-    {
-        if (_tokenIncomplete) {
-            _reportError("No current token available, can not call accessors");
-        }
-    }
-    
     /**
-     * Method called to finish parsing of a token, given partial decoded
-     * state.
-     */
-    protected final JsonToken _finishToken()
-    	throws IOException, JsonParseException
-    {
-        if (_inputPtr >= _inputEnd) {
-            return JsonToken.NOT_AVAILABLE;
-        }
-        byte b = _inputBuffer[_inputPtr++];
-
-        // first need to handle possible header, since that is usually not
-        // exposed as an event (expect when it implies document boundary)
-        if (_state == STATE_INITIAL) { // just need to see if we see something like header:
-            if (b == SmileConstants.HEADER_BYTE_1) {
-                if (!_handleHeader(0)) {
-                    return JsonToken.NOT_AVAILABLE;
-                }
-                // if handled, get next byte to code (if available)
-                if (_inputPtr >= _inputEnd) {
-                    return JsonToken.NOT_AVAILABLE;
-                }
-                b = _inputBuffer[_inputPtr++];
-            } else {
-                // nope, not header marker.
-                // header mandatory? not good...
-                if (_cfgRequireHeader) {
-                    String msg;
-                    if (b == '{' || b == '[') {
-                        msg = "Input does not start with Smile format header (first byte = 0x"
-                            +Integer.toHexString(b & 0xFF)+") -- rather, it starts with '"+((char) b)
-                            +"' (plain JSON input?) -- can not parse";
-                    } else {
-                        msg = "Input does not start with Smile format header (first byte = 0x"
-                        +Integer.toHexString(b & 0xFF)+") and parser has REQUIRE_HEADER enabled: can not parse";
-                    }
-                    throw new JsonParseException(this, msg);
-                }
-            }
-            // otherwise, fall through, with byte (_handleHeader has set _state)
-        } else if (_state == STATE_HEADER) { // in-stream header
-            if (!_handleHeader(_substate)) {
-                return JsonToken.NOT_AVAILABLE;
-            }
-            // is it enough to leave '_tokenIncomplete' false here?
-            if (_inputPtr >= _inputEnd) {
-                return JsonToken.NOT_AVAILABLE;
-            }
-            b = _inputBuffer[_inputPtr++];
-            // fall through
-        }
-
-        switch (_state) {
-        case STATE_NUMBER_INT:
-            return _nextInt(_substate, _pendingInt);
-        case STATE_NUMBER_LONG:
-            return _nextLong(_substate, _pendingLong);
-        case STATE_NUMBER_BIGINT:
-            return _nextBigInt(_substate);
-        case STATE_NUMBER_FLOAT:
-            return _nextFloat(_substate, _pendingInt) ;
-        case STATE_NUMBER_DOUBLE:
-            return _nextDouble(_substate, _pendingLong);
-        case STATE_NUMBER_BIGDEC:
-            return _nextBigDecimal(_substate);
-        }
-        _throwInvalidState("Illegal state when trying to complete token: ");
-        return null;
-    }
-
-    /*
-    /**********************************************************************
-    /* Internal methods, UTF8 decoding
-    /**********************************************************************
+     * Numeric values are always decoded by {@link #nextToken}, so this is only
+     * called for non-numeric tokens.
      */
-
-    /*
-    private final int _decodeUtf8_2(int c)
-        throws IOException, JsonParseException
-    {
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
-        }
-        int d = (int) _inputBuffer[_inputPtr++];
-        if ((d & 0xC0) != 0x080) {
-            _reportInvalidOther(d & 0xFF, _inputPtr);
-        }
-        return ((c & 0x1F) << 6) | (d & 0x3F);
-    }
-
-    private final int _decodeUtf8_3(int c1)
-        throws IOException, JsonParseException
-    {
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
-        }
-        c1 &= 0x0F;
-        int d = (int) _inputBuffer[_inputPtr++];
-        if ((d & 0xC0) != 0x080) {
-            _reportInvalidOther(d & 0xFF, _inputPtr);
-        }
-        int c = (c1 << 6) | (d & 0x3F);
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
-        }
-        d = (int) _inputBuffer[_inputPtr++];
-        if ((d & 0xC0) != 0x080) {
-            _reportInvalidOther(d & 0xFF, _inputPtr);
-        }
-        c = (c << 6) | (d & 0x3F);
-        return c;
-    }
-
-    private final int _decodeUtf8_3fast(int c1)
-        throws IOException, JsonParseException
+    @Override
+    protected void _parseNumericValue(int expType) throws IOException
     {
-        c1 &= 0x0F;
-        int d = (int) _inputBuffer[_inputPtr++];
-        if ((d & 0xC0) != 0x080) {
-            _reportInvalidOther(d & 0xFF, _inputPtr);
-        }
-        int c = (c1 << 6) | (d & 0x3F);
-        d = (int) _inputBuffer[_inputPtr++];
-        if ((d & 0xC0) != 0x080) {
-            _reportInvalidOther(d & 0xFF, _inputPtr);
-        }
-        c = (c << 6) | (d & 0x3F);
-        return c;
+        _reportError("Current token ("+_currToken+") not numeric, can not use numeric value accessors");
     }
 
-    // @return Character value <b>minus 0x10000</c>; this so that caller
-    //    can readily expand it to actual surrogates
-    private final int _decodeUtf8_4(int c)
-        throws IOException, JsonParseException
-    {
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
-        }
-        int d = (int) _inputBuffer[_inputPtr++];
-        if ((d & 0xC0) != 0x080) {
-            _reportInvalidOther(d & 0xFF, _inputPtr);
-        }
-        c = ((c & 0x07) << 6) | (d & 0x3F);
-
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
-        }
-        d = (int) _inputBuffer[_inputPtr++];
-        if ((d & 0xC0) != 0x080) {
-            _reportInvalidOther(d & 0xFF, _inputPtr);
-        }
-        c = (c << 6) | (d & 0x3F);
-        if (_inputPtr >= _inputEnd) {
-            loadMoreGuaranteed();
-        }
-        d = (int) _inputBuffer[_inputPtr++];
-        if ((d & 0xC0) != 0x080) {
-            _reportInvalidOther(d & 0xFF, _inputPtr);
-        }
-
-        // note: won't change it to negative here, since caller
-        // already knows it'll need a surrogate
-        return ((c << 6) | (d & 0x3F)) - 0x10000;
-    }
-*/
-    
     /*
     /**********************************************************************
     /* Internal methods, error reporting
@@ -2209,9 +2605,4 @@ public class NonBlockingParserImpl
         _inputPtr = ptr;
         _reportInvalidOther(mask);
     }
-
-    protected void _throwInvalidState(String desc)
-    {
-        throw new IllegalStateException(desc+": state="+_state);
-    }
 }
@@ -0,0 +1,323 @@
+package com.fasterxml.jackson.dataformat.smile.async;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Adapter that decodes a stream of Smile-encoded {@link ByteBuffer} chunks into
+ * a stream of tokens using {@link NonBlockingParserImpl}, honoring demand (back-pressure)
+ * in both directions: a new chunk is only requested from upstream when parser
+ * needs more input <b>and</b> downstream has requested more tokens.
+ *<p>
+ * Methods and their contracts follow those of <code>java.util.concurrent.Flow</code>
+ * (and Reactive Streams): upstream calls {@link #onSubscribe}, {@link #onNext},
+ * {@link #onError} and {@link #onComplete}, and downstream calls {@link #request}
+ * and {@link #cancel}; but since this module does not require Java 9, types
+ * are not referenced directly. Signals may come from different threads (although
+ * serially for each direction); tokens are always delivered serially.
+ *<p>
+ * Streams of multiple documents (such as ones written with
+ * {@link com.fasterxml.jackson.dataformat.smile.SmileGenerator.Feature#WRITE_END_MARKER},
+ * or just with a header for each document) are supported: end of each document
+ * is signalled with {@link TokenSubscriber#onDocumentEnd}, and does not count
+ * against demand. No objects are allocated per token: subscriber gets the
+ * parser itself, to access token contents with.
+ *
+ * @since 2.8
+ */
+public class SmileFlowDecoder
+{
+    /**
+     * Equivalent of <code>Flow.Subscription</code>, used for requesting chunks
+     * of input from upstream.
+     */
+    public interface Subscription
+    {
+        public void request(long n);
+
+        public void cancel();
+    }
+
+    /**
+     * Equivalent of <code>Flow.Subscriber</code> for tokens decoded.
+     */
+    public interface TokenSubscriber
+    {
+        /**
+         * Method called for each token decoded; contents may be accessed
+         * using given parser, but only during the call.
+         */
+        public void onToken(JsonParser parser, JsonToken token) throws IOException;
+
+        /**
+         * Method called when end of a document is encountered, and more
+         * documents may follow.
+         */
+        public void onDocumentEnd();
+
+        public void onError(Throwable t);
+
+        public void onComplete();
+    }
+
+    protected final NonBlockingParserImpl _parser;
+
+    protected final TokenSubscriber _subscriber;
+
+    /**
+     * Chunks received from upstream but not yet fed to parser; accessed
+     * by upstream, and by the drain loop
+     */
+    protected final ConcurrentLinkedQueue<ByteBuffer> _input = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    /**
+     * Number of tokens requested by downstream, not yet delivered
+     */
+    protected final AtomicLong _demand = new AtomicLong();
+
+    /**
+     * Counter used to ensure only one thread runs the drain loop at a time
+     * (and that it re-runs if signals arrive while it runs)
+     */
+    protected final AtomicInteger _wip = new AtomicInteger();
+
+    protected volatile Subscription _upstream;
+
+    protected volatile boolean _upstreamDone;
+
+    protected volatile Throwable _upstreamError;
+
+    protected volatile boolean _cancelled;
+
+    /*
+    /**********************************************************************
+    /* State only accessed by the drain loop
+    /**********************************************************************
+     */
+
+    /**
+     * Whether a chunk has been requested from upstream but not yet received
+     */
+    protected boolean _inputRequested;
+
+    /**
+     * Whether decoding has completed (successfully or not)
+     */
+    protected boolean _done;
+
+    public SmileFlowDecoder(NonBlockingParserImpl parser, TokenSubscriber subscriber)
+    {
+        _parser = parser;
+        _subscriber = subscriber;
+    }
+
+    public NonBlockingParserImpl getParser() {
+        return _parser;
+    }
+
+    /*
+    /**********************************************************************
+    /* Upstream-facing API (Flow.Subscriber<ByteBuffer>)
+    /**********************************************************************
+     */
+
+    public void onSubscribe(Subscription s)
+    {
+        if (_upstream != null) { // as per spec, only one subscription allowed
+            s.cancel();
+            return;
+        }
+        _upstream = s;
+        if (_cancelled) {
+            s.cancel();
+            return;
+        }
+        _drain();
+    }
+
+    /**
+     * Method called by upstream with a chunk of input. Contents are copied by
+     * parser before chunk is requested, so upstream may reuse the buffer once
+     * next chunk is requested.
+     */
+    public void onNext(ByteBuffer chunk)
+    {
+        _input.offer(chunk);
+        _drain();
+    }
+
+    public void onError(Throwable t)
+    {
+        _upstreamError = t;
+        _upstreamDone = true;
+        _drain();
+    }
+
+    public void onComplete()
+    {
+        _upstreamDone = true;
+        _drain();
+    }
+
+    /*
+    /**********************************************************************
+    /* Downstream-facing API (Flow.Subscription)
+    /**********************************************************************
+     */
+
+    /**
+     * Method called to request given number of more tokens to be delivered.
+     */
+    public void request(long n)
+    {
+        if (n <= 0L) {
+            _cancelled = true;
+            _upstreamError = new IllegalArgumentException("Non-positive request ("+n+")");
+            _drain();
+            return;
+        }
+        long current, updated;
+        do {
+            current = _demand.get();
+            updated = current + n;
+            if (updated < 0L) { // overflow; unbounded
+                updated = Long.MAX_VALUE;
+            }
+        } while (!_demand.compareAndSet(current, updated));
+        _drain();
+    }
+
+    public void cancel()
+    {
+        _cancelled = true;
+        _drain();
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    protected void _drain()
+    {
+        if (_wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            _drainLoop();
+            missed = _wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void _drainLoop()
+    {
+        if (_done) {
+            return;
+        }
+        if (_cancelled) {
+            if (_upstreamError != null) { // invalid request
+                _fail(_upstreamError);
+            } else {
+                _finish(true);
+            }
+            return;
+        }
+        try {
+            // must check completion before draining input: otherwise chunk offered
+            // just before completion could be missed (and end of input signalled early)
+            final boolean upstreamDone = _upstreamDone;
+            ByteBuffer chunk;
+            while ((chunk = _input.poll()) != null) {
+                _inputRequested = false;
+                _parser.feedInput(chunk);
+            }
+            if (upstreamDone && _input.isEmpty() && !_parser.isClosed()) {
+                if (_upstreamError != null) {
+                    _fail(_upstreamError);
+                    return;
+                }
+                _parser.endOfInput();
+            }
+            long demand = _demand.get();
+            long emitted = 0L;
+            while (emitted != demand) {
+                JsonToken t = _parser.nextToken();
+                if (t == JsonToken.NOT_AVAILABLE) {
+                    break;
+                }
+                if (t == null) {
+                    if (_parser.isClosed()) { // end of all input
+                        _finish(false);
+                        _subscriber.onComplete();
+                        return;
+                    }
+                    _subscriber.onDocumentEnd();
+                    continue;
+                }
+                _subscriber.onToken(_parser, t);
+                ++emitted;
+                if (_cancelled) {
+                    _finish(true);
+                    return;
+                }
+            }
+            if (emitted != 0L && demand != Long.MAX_VALUE) {
+                demand = _demand.addAndGet(-emitted);
+            }
+            // Terminal signals need no demand: if no more tokens can be decoded,
+            // complete (or fail) without waiting for more requests
+            if (_parser.isInputExhausted()) {
+                while (_parser.nextToken() == null) {
+                    if (_parser.isClosed()) {
+                        _finish(false);
+                        _subscriber.onComplete();
+                        return;
+                    }
+                    _subscriber.onDocumentEnd();
+                }
+            }
+            // Need more input, and have demand for what it would produce?
+            if ((demand > 0L) && !_inputRequested && !_upstreamDone && _parser.needMoreInput()) {
+                Subscription s = _upstream;
+                if (s != null) {
+                    _inputRequested = true;
+                    // note: may call 'onNext' synchronously; if so, will be handled by another round
+                    s.request(1L);
+                }
+            }
+        } catch (Throwable e) {
+            _fail(e);
+        }
+    }
+
+    private void _fail(Throwable e)
+    {
+        _finish(!_upstreamDone);
+        _subscriber.onError(e);
+    }
+
+    private void _finish(boolean cancelUpstream)
+    {
+        _done = true;
+        _input.clear();
+        if (cancelUpstream) {
+            Subscription s = _upstream;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+        try {
+            _parser.close();
+        } catch (IOException e) { // should not occur, since parser has no input source
+            ;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.fasterxml.jackson.dataformat.smile.async;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.fasterxml.jackson.core.JsonParser.NumberType;
+import com.fasterxml.jackson.core.JsonTokenId;
+
+/**
+ * Reusable buffer of decoded tokens, filled by
+ * {@link NonBlockingParserImpl#nextTokens(SmileTokenBatch)} with as many tokens as
+ * input fed so far allows. Each token is stored as an "event": its type (one of
+ * {@link JsonTokenId} constants) in an <code>int[]</code>, primitive numbers in a
+ * <code>long[]</code> slot (doubles as their raw bits), and everything else
+ * (names, Strings, binary, big numbers) as references; so no objects are
+ * allocated per event beyond what decoding itself requires.
+ *<p>
+ * End of a document (or of all content) is stored as
+ * {@link JsonTokenId#ID_NO_TOKEN}, corresponding to <code>null</code> returned
+ * by {@link NonBlockingParserImpl#nextToken}.
+ *<p>
+ * Contents are valid until batch is filled again.
+ *
+ * @since 2.8
+ */
+public final class SmileTokenBatch
+{
+    public final static int DEFAULT_CAPACITY = 256;
+
+    private final int[] _types;
+
+    /**
+     * Primitive values of numeric events ({@link Double#doubleToRawLongBits}
+     * for floating-point values); for String and binary events, 1 if event
+     * contains whole value (or last chunk of it), 0 if not
+     */
+    private final long[] _primitives;
+
+    /**
+     * Names, Strings, binary values and big numbers; for primitive numbers
+     * the {@link NumberType}
+     */
+    private final Object[] _refs;
+
+    private int _count;
+
+    public SmileTokenBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SmileTokenBatch(int capacity)
+    {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity ("+capacity+"): must be at least 1");
+        }
+        _types = new int[capacity];
+        _primitives = new long[capacity];
+        _refs = new Object[capacity];
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    public int capacity() {
+        return _types.length;
+    }
+
+    /**
+     * Number of events in batch
+     */
+    public int size() {
+        return _count;
+    }
+
+    public boolean isFull() {
+        return _count == _types.length;
+    }
+
+    /**
+     * @return Type of event at given index, as one of {@link JsonTokenId} constants
+     */
+    public int getTokenId(int index) {
+        return _types[index];
+    }
+
+    /**
+     * Accessor for name of a {@link JsonTokenId#ID_FIELD_NAME} event, or
+     * text of a {@link JsonTokenId#ID_STRING} event.
+     */
+    public String getText(int index) {
+        return (String) _refs[index];
+    }
+
+    public byte[] getBinaryValue(int index) {
+        return (byte[]) _refs[index];
+    }
+
+    /**
+     * Accessor for checking whether a String or binary event contains whole value,
+     * or last chunk of it (see {@link NonBlockingParserImpl#setValueChunkSize}).
+     */
+    public boolean isLastValueChunk(int index) {
+        return _primitives[index] != 0L;
+    }
+
+    public NumberType getNumberType(int index)
+    {
+        Object ref = _refs[index];
+        if (ref instanceof NumberType) {
+            return (NumberType) ref;
+        }
+        return (ref instanceof BigInteger) ? NumberType.BIG_INTEGER : NumberType.BIG_DECIMAL;
+    }
+
+    /**
+     * Accessor for value of an {@link NumberType#INT} event; or truncated
+     * value of a {@link NumberType#LONG} event.
+     */
+    public int getIntValue(int index) {
+        return (int) _primitives[index];
+    }
+
+    /**
+     * Accessor for value of an {@link NumberType#INT} or {@link NumberType#LONG} event.
+     */
+    public long getLongValue(int index) {
+        return _primitives[index];
+    }
+
+    /**
+     * Accessor for value of a {@link NumberType#FLOAT} or {@link NumberType#DOUBLE} event.
+     */
+    public double getDoubleValue(int index) {
+        return Double.longBitsToDouble(_primitives[index]);
+    }
+
+    /**
+     * Accessor for value of any numeric event, as {@link Number} (which needs to be
+     * constructed for primitive values)
+     */
+    public Number getNumberValue(int index)
+    {
+        Object ref = _refs[index];
+        if (ref == NumberType.INT) {
+            return Integer.valueOf((int) _primitives[index]);
+        }
+        if (ref == NumberType.LONG) {
+            return Long.valueOf(_primitives[index]);
+        }
+        if (ref == NumberType.DOUBLE || ref == NumberType.FLOAT) { // as with parser, Double for both
+            return Double.valueOf(getDoubleValue(index));
+        }
+        return (Number) ref;
+    }
+
+    /*
+    /**********************************************************************
+    /* Mutators, for parser
+    /**********************************************************************
+     */
+
+    void clear()
+    {
+        // release references to allow GC
+        for (int i = 0, end = _count; i < end; ++i) {
+            _refs[i] = null;
+        }
+        _count = 0;
+    }
+
+    void add(int type) {
+        _types[_count++] = type;
+    }
+
+    void add(int type, Object ref, long primitive) {
+        final int ix = _count++;
+        _types[ix] = type;
+        _refs[ix] = ref;
+        _primitives[ix] = primitive;
+    }
+
+    void addInt(int value) {
+        add(JsonTokenId.ID_NUMBER_INT, NumberType.INT, value);
+    }
+
+    void addLong(long value) {
+        add(JsonTokenId.ID_NUMBER_INT, NumberType.LONG, value);
+    }
+
+    void addBigInteger(BigInteger value) {
+        add(JsonTokenId.ID_NUMBER_INT, value, 0L);
+    }
+
+    void addDouble(double value, boolean is32Bit) {
+        add(JsonTokenId.ID_NUMBER_FLOAT, is32Bit ? NumberType.FLOAT : NumberType.DOUBLE,
+                Double.doubleToRawLongBits(value));
+    }
+
+    void addBigDecimal(BigDecimal value) {
+        add(JsonTokenId.ID_NUMBER_FLOAT, value, 0L);
+    }
+}
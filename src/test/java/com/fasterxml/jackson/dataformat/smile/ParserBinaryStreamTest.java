@@ -0,0 +1,204 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+
+public class ParserBinaryStreamTest
+    extends SmileTestBase
+{
+    final static int[] SIZES = new int[] { 0, 1, 6, 7, 8, 13, 14, 15, 100, 4000, 70001 };
+
+    public void testStreamRaw() throws IOException
+    {
+        for (int size : SIZES) {
+            _testStream(size, true);
+        }
+    }
+
+    public void testStream7Bit() throws IOException
+    {
+        for (int size : SIZES) {
+            _testStream(size, false);
+        }
+    }
+
+    public void testPartialRaw() throws IOException
+    {
+        _testPartial(true);
+    }
+
+    public void testPartial7Bit() throws IOException
+    {
+        _testPartial(false);
+    }
+
+    // Decoded 7-bit content left in the buffer of the stream must remain accessible
+    public void testBufferedRemainder7Bit() throws IOException
+    {
+        for (int size : new int[] { 2, 3, 7, 10, 13 }) {
+            final byte[] data = _binaryData(size);
+            final byte[] doc = _binaryValueDoc(data, false);
+            for (int method = 0; method < 2; ++method) {
+                SmileParser p = _smileParser(doc);
+                assertToken(JsonToken.START_ARRAY, p.nextToken());
+                assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+                InputStream in = p.getBinaryStream();
+                int first = _readFirst(in, data);
+                byte[] rest;
+                if (method == 0) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    assertEquals(size - first, p.readBinaryValue(bytes));
+                    rest = bytes.toByteArray();
+                } else {
+                    rest = _readAll(p.getBinaryStream(), 100);
+                }
+                assertEquals(size - first, rest.length);
+                for (int i = 0; i < rest.length; ++i) {
+                    assertEquals(data[first+i], rest[i]);
+                }
+                assertEquals(-1, in.read());
+                _verifyValueDocEnd(p);
+            }
+        }
+    }
+
+    public void testAlreadyRead() throws IOException
+    {
+        byte[] data = _binaryData(300);
+        SmileParser p = _smileParser(_binaryValueDoc(data, false));
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+        _verifyBytes(p.getBinaryValue(), data);
+        _verifyBytes(_readAll(p.getBinaryStream(), 64), data);
+        _verifyValueDocEnd(p);
+    }
+
+    public void testWrongToken() throws IOException
+    {
+        SmileParser p = _smileParser(_binaryValueDoc(_binaryData(3), false));
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        try {
+            p.getBinaryStream();
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "not VALUE_EMBEDDED_OBJECT");
+        }
+        p.close();
+    }
+
+    private void _testStream(int size, boolean raw) throws IOException
+    {
+        final byte[] data = _binaryData(size);
+        final byte[] doc = _binaryValueDoc(data, raw);
+        for (int chunk : new int[] { 1, 3, 7, 100, 8000 }) {
+            SmileParser p = _smileParser(new ParserTextStreamingTest.ThrottledInputStream(doc, 11));
+            assertToken(JsonToken.START_ARRAY, p.nextToken());
+            assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+            _verifyBytes(_readAll(p.getBinaryStream(), chunk), data);
+            _verifyValueDocEnd(p);
+        }
+        // and then single-byte reads
+        SmileParser p = _smileParser(doc);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+        InputStream in = p.getBinaryStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            bytes.write(b);
+        }
+        _verifyBytes(bytes.toByteArray(), data);
+        _verifyValueDocEnd(p);
+    }
+
+    private void _testPartial(boolean raw) throws IOException
+    {
+        final byte[] data = _binaryData(20000);
+        final byte[] doc = _binaryValueDoc(data, raw);
+
+        // advancing parser skips the rest
+        SmileParser p = _smileParser(new ParserTextStreamingTest.ThrottledInputStream(doc, 100));
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+        InputStream in = p.getBinaryStream();
+        assertEquals(data[0] & 0xFF, in.read());
+        byte[] buf = new byte[1000];
+        assertEquals(1000, _readFully(in, buf));
+        _verifyValueDocEnd(p);
+        assertEquals(-1, in.read());
+
+        // as does closing of the stream
+        p = _smileParser(doc);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+        in = p.getBinaryStream();
+        assertEquals(5, in.read(buf, 0, 5));
+        in.close();
+        assertEquals(-1, in.read());
+        _verifyValueDocEnd(p);
+
+        // and remaining content may be read with 'readBinaryValue()'
+        p = _smileParser(doc);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+        in = p.getBinaryStream();
+        assertEquals(3, in.read(buf, 0, 3));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertEquals(data.length - 3, p.readBinaryValue(bytes));
+        byte[] rest = bytes.toByteArray();
+        for (int i = 0; i < rest.length; ++i) {
+            assertEquals(data[i+3], rest[i]);
+        }
+        _verifyValueDocEnd(p);
+
+        // but not as a whole
+        p = _smileParser(doc);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+        assertEquals(data[0] & 0xFF, p.getBinaryStream().read());
+        try {
+            p.getBinaryValue();
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "already partially read");
+        }
+        p.close();
+    }
+
+    // Reads all full 7-byte units but the last one, and then a single byte of the last unit
+    static int _readFirst(InputStream in, byte[] data) throws IOException
+    {
+        int first = 7 * ((data.length - 1) / 7);
+        byte[] buf = new byte[7];
+        for (int i = 0; i < first; i += 7) {
+            assertEquals(7, in.read(buf));
+        }
+        assertEquals(data[first] & 0xFF, in.read());
+        return first+1;
+    }
+
+    private byte[] _readAll(InputStream in, int chunk) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buf = new byte[chunk];
+        int count;
+        while ((count = in.read(buf)) >= 0) {
+            bytes.write(buf, 0, count);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int _readFully(InputStream in, byte[] buf) throws IOException
+    {
+        int total = 0;
+        while (total < buf.length) {
+            int count = in.read(buf, total, buf.length - total);
+            if (count < 0) {
+                break;
+            }
+            total += count;
+        }
+        return total;
+    }
+}
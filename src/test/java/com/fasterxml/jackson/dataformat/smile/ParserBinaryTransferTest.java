@@ -0,0 +1,122 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import com.fasterxml.jackson.core.*;
+
+public class ParserBinaryTransferTest
+    extends SmileTestBase
+{
+    final static int[] SIZES = new int[] { 0, 1, 7, 15, 3000, 8000, 8001, 70001 };
+
+    public void testToHeapBuffer() throws IOException
+    {
+        for (int size : SIZES) {
+            _testToBuffer(size, true, false);
+            _testToBuffer(size, false, false);
+        }
+    }
+
+    public void testToDirectBuffer() throws IOException
+    {
+        for (int size : SIZES) {
+            _testToBuffer(size, true, true);
+            _testToBuffer(size, false, true);
+        }
+    }
+
+    public void testToChannel() throws IOException
+    {
+        for (int size : SIZES) {
+            _testToChannel(size, true);
+            _testToChannel(size, false);
+        }
+    }
+
+    public void testBufferTooSmall() throws IOException
+    {
+        SmileParser p = _smileParser(_binaryValueDoc(_binaryData(100), true));
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+        try {
+            p.readBinaryValue(ByteBuffer.allocate(99));
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "does not fit");
+        }
+        // but should still be able to skip the value
+        _verifyValueDocEnd(p);
+    }
+
+    // Remaining content of partially streamed 7-bit value, some of it already decoded
+    public void testPartiallyStreamed7Bit() throws IOException
+    {
+        for (int size : new int[] { 2, 7, 13 }) {
+            final byte[] data = _binaryData(size);
+            final byte[] doc = _binaryValueDoc(data, false);
+            for (int i = 0; i < 2; ++i) {
+                SmileParser p = _smileParser(doc);
+                assertToken(JsonToken.START_ARRAY, p.nextToken());
+                assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+                int first = ParserBinaryStreamTest._readFirst(p.getBinaryStream(), data);
+                byte[] rest;
+                if (i == 0) {
+                    ByteBuffer bb = ByteBuffer.allocate(size);
+                    assertEquals(size - first, p.readBinaryValue(bb));
+                    rest = new byte[bb.position()];
+                    bb.flip();
+                    bb.get(rest);
+                } else {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    assertEquals(size - first, p.readBinaryValue(Channels.newChannel(bytes)));
+                    rest = bytes.toByteArray();
+                }
+                assertEquals(size - first, rest.length);
+                for (int j = 0; j < rest.length; ++j) {
+                    assertEquals(data[first+j], rest[j]);
+                }
+                _verifyValueDocEnd(p);
+            }
+        }
+    }
+
+    private void _testToBuffer(int size, boolean raw, boolean direct) throws IOException
+    {
+        final byte[] data = _binaryData(size);
+        final byte[] doc = _binaryValueDoc(data, raw);
+        for (int i = 0; i < 2; ++i) {
+            SmileParser p = (i == 0) ? _smileParser(doc) : _smileParser(new ByteArrayInputStream(doc));
+            assertToken(JsonToken.START_ARRAY, p.nextToken());
+            assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+            ByteBuffer bb = direct ? ByteBuffer.allocateDirect(size + 10) : ByteBuffer.allocate(size + 10);
+            bb.position(3);
+            assertEquals(size, p.readBinaryValue(bb));
+            assertEquals(size + 3, bb.position());
+            bb.flip();
+            bb.position(3);
+            byte[] result = new byte[size];
+            bb.get(result);
+            _verifyBytes(result, data);
+            _verifyValueDocEnd(p);
+            assertEquals(doc.length, p.getCurrentLocation().getByteOffset());
+        }
+    }
+
+    private void _testToChannel(int size, boolean raw) throws IOException
+    {
+        final byte[] data = _binaryData(size);
+        final byte[] doc = _binaryValueDoc(data, raw);
+        for (int i = 0; i < 2; ++i) {
+            SmileParser p = (i == 0) ? _smileParser(doc) : _smileParser(new ByteArrayInputStream(doc));
+            assertToken(JsonToken.START_ARRAY, p.nextToken());
+            assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            assertEquals(size, p.readBinaryValue(Channels.newChannel(bytes)));
+            _verifyBytes(bytes.toByteArray(), data);
+            _verifyValueDocEnd(p);
+            assertEquals(doc.length, p.getCurrentLocation().getByteOffset());
+        }
+    }
+}
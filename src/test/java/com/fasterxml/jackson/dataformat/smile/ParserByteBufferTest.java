@@ -0,0 +1,80 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.core.*;
+
+public class ParserByteBufferTest
+    extends SmileTestBase
+{
+    public void testHeapBuffer() throws IOException
+    {
+        byte[] doc = _doc();
+        byte[] padded = new byte[doc.length + 20];
+        System.arraycopy(doc, 0, padded, 7, doc.length);
+        ByteBuffer bb = ByteBuffer.wrap(padded);
+        bb.position(7);
+        bb.limit(7 + doc.length);
+        _verify(bb.slice());
+        _verify(bb);
+    }
+
+    public void testDirectBuffer() throws IOException
+    {
+        byte[] doc = _doc();
+        ByteBuffer bb = ByteBuffer.allocateDirect(doc.length + 3);
+        bb.put((byte) 1);
+        bb.put(doc);
+        bb.flip();
+        bb.position(1);
+        _verify(bb);
+    }
+
+    public void testReadOnlyBuffer() throws IOException
+    {
+        _verify(ByteBuffer.wrap(_doc()).asReadOnlyBuffer());
+    }
+
+    private void _verify(ByteBuffer bb) throws IOException
+    {
+        final int pos = bb.position();
+        final int limit = bb.limit();
+        SmileParser p = new SmileFactory().createParser(bb);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        for (int i = 0; i < 1000; ++i) {
+            assertToken(JsonToken.START_OBJECT, p.nextToken());
+            assertToken(JsonToken.FIELD_NAME, p.nextToken());
+            assertEquals("id", p.getCurrentName());
+            assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+            assertEquals(i, p.getIntValue());
+            assertToken(JsonToken.FIELD_NAME, p.nextToken());
+            assertEquals("name", p.getCurrentName());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertEquals("Name #"+i, p.getText());
+            assertToken(JsonToken.END_OBJECT, p.nextToken());
+        }
+        assertToken(JsonToken.END_ARRAY, p.nextToken());
+        assertNull(p.nextToken());
+        p.close();
+        // buffer itself should not be modified
+        assertEquals(pos, bb.position());
+        assertEquals(limit, bb.limit());
+    }
+
+    private byte[] _doc() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartArray();
+        for (int i = 0; i < 1000; ++i) {
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeStringField("name", "Name #"+i);
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,104 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+
+public class ParserFieldNameIdTest
+    extends SmileTestBase
+{
+    private final SmileFieldNameMatcher MATCHER = new SmileFieldNameMatcher(
+            "Image", "Width", "Height", "Title", "Thumbnail", "Url", "IDs");
+
+    public void testSimple() throws IOException
+    {
+        byte[] data = _smileDoc(SAMPLE_DOC_JSON_SPEC);
+        _testSimple(_smileParser(data));
+        _testSimple(_smileParser(new ByteArrayInputStream(data)));
+    }
+
+    private void _testSimple(SmileParser p) throws IOException
+    {
+        assertEquals(SmileFieldNameMatcher.MATCH_ODD_TOKEN, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.START_OBJECT, p.getCurrentToken());
+        assertEquals(0, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.FIELD_NAME, p.getCurrentToken());
+        assertEquals("Image", p.getCurrentName());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        assertEquals(1, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(2, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(3, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(4, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        assertEquals(5, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        // back-references to earlier names
+        assertEquals(2, p.nextFieldNameId(MATCHER));
+        assertEquals("Height", p.getCurrentName());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(1, p.nextFieldNameId(MATCHER));
+        assertEquals("Width", p.getCurrentName());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(SmileFieldNameMatcher.MATCH_END_OBJECT, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.END_OBJECT, p.getCurrentToken());
+        assertEquals(6, p.nextFieldNameId(MATCHER));
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        p.skipChildren();
+        assertEquals(SmileFieldNameMatcher.MATCH_END_OBJECT, p.nextFieldNameId(MATCHER));
+        assertEquals(SmileFieldNameMatcher.MATCH_END_OBJECT, p.nextFieldNameId(MATCHER));
+        assertEquals(SmileFieldNameMatcher.MATCH_ODD_TOKEN, p.nextFieldNameId(MATCHER));
+        p.close();
+    }
+
+    // Verify ids with long back-references, and after shared-name table flush
+    public void testManyNames() throws IOException
+    {
+        final int COUNT = 1300;
+        String[] names = new String[COUNT];
+        for (int i = 0; i < COUNT; ++i) {
+            names[i] = "f"+i;
+        }
+        // only include every other name
+        String[] matched = new String[COUNT/2];
+        for (int i = 0; i < matched.length; ++i) {
+            matched[i] = names[i*2];
+        }
+        SmileFieldNameMatcher matcher = new SmileFieldNameMatcher(matched);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartObject();
+        for (int round = 0; round < 2; ++round) {
+            for (int i = 0; i < COUNT; ++i) {
+                g.writeNumberField(names[i], i);
+                // and a back-reference to a recent name
+                g.writeNumberField(names[i/2 + COUNT/2], -1);
+            }
+        }
+        g.writeEndObject();
+        g.close();
+
+        SmileParser p = _smileParser(bytes.toByteArray());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        for (int round = 0; round < 2; ++round) {
+            for (int i = 0; i < COUNT; ++i) {
+                _verifyId(p, matcher, i);
+                assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+                _verifyId(p, matcher, i/2 + COUNT/2);
+                assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+            }
+        }
+        assertEquals(SmileFieldNameMatcher.MATCH_END_OBJECT, p.nextFieldNameId(matcher));
+        p.close();
+    }
+
+    private void _verifyId(SmileParser p, SmileFieldNameMatcher matcher, int nameIndex) throws IOException
+    {
+        int exp = ((nameIndex & 1) == 0) ? (nameIndex >> 1) : SmileFieldNameMatcher.MATCH_UNKNOWN_NAME;
+        assertEquals(exp, p.nextFieldNameId(matcher));
+        assertEquals("f"+nameIndex, p.getCurrentName());
+    }
+}
@@ -0,0 +1,139 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.*;
+
+public class ParserFragmentsTest
+    extends SmileTestBase
+{
+    public void testHeapFragments() throws IOException
+    {
+        final byte[] doc = _doc();
+        for (int size : new int[] { 1, 2, 3, 7, 64, 1000, doc.length }) {
+            _verifySame(doc, new SmileFactory().createParser(_split(doc, size)));
+        }
+    }
+
+    public void testDirectAndMixedFragments() throws IOException
+    {
+        final byte[] doc = _doc();
+        for (int size : new int[] { 1, 5, 100, 9000 }) {
+            byte[][] parts = _split(doc, size);
+            ByteBuffer[] direct = new ByteBuffer[parts.length];
+            ByteBuffer[] mixed = new ByteBuffer[parts.length];
+            for (int i = 0; i < parts.length; ++i) {
+                direct[i] = ByteBuffer.allocateDirect(parts[i].length);
+                direct[i].put(parts[i]);
+                direct[i].flip();
+                mixed[i] = ((i & 1) == 0) ? direct[i] : _offsetHeapBuffer(parts[i]);
+            }
+            _verifySame(doc, new SmileFactory().createParser(direct));
+            _verifySame(doc, new SmileFactory().createParser(mixed));
+            // buffers themselves must not have been modified
+            assertEquals(0, direct[0].position());
+        }
+    }
+
+    public void testEmptyFragments() throws IOException
+    {
+        final byte[] doc = _doc();
+        byte[][] parts = _split(doc, 10);
+        byte[][] withEmpty = new byte[parts.length * 2 + 1][];
+        withEmpty[0] = new byte[0];
+        for (int i = 0; i < parts.length; ++i) {
+            withEmpty[i*2 + 1] = parts[i];
+            withEmpty[i*2 + 2] = new byte[0];
+        }
+        _verifySame(doc, new SmileFactory().createParser(withEmpty));
+
+        SmileParser p = new SmileFactory().createParser(new byte[][] { new byte[0] });
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    public void testTruncated() throws IOException
+    {
+        final byte[] doc = _doc();
+        byte[][] parts = _split(Arrays.copyOf(doc, doc.length / 2), 3);
+        SmileParser p = new SmileFactory().createParser(parts);
+        try {
+            while (p.nextToken() != null) {
+                p.getText();
+            }
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "end-of-input", "Unexpected end");
+        }
+        p.close();
+    }
+
+    private void _verifySame(byte[] doc, SmileParser p) throws IOException
+    {
+        SmileParser exp = _smileParser(doc);
+        JsonToken t;
+        while ((t = exp.nextToken()) != null) {
+            assertToken(t, p.nextToken());
+            if (t == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                _verifyBytes(p.getBinaryValue(), exp.getBinaryValue());
+            } else {
+                assertEquals(exp.getText(), p.getText());
+            }
+            assertEquals(exp.getCurrentLocation().getByteOffset(), p.getCurrentLocation().getByteOffset());
+        }
+        assertNull(p.nextToken());
+        p.close();
+        exp.close();
+    }
+
+    private byte[][] _split(byte[] doc, int size)
+    {
+        int count = (doc.length + size - 1) / size;
+        byte[][] result = new byte[count][];
+        for (int i = 0; i < count; ++i) {
+            result[i] = Arrays.copyOfRange(doc, i * size, Math.min(doc.length, (i+1) * size));
+        }
+        return result;
+    }
+
+    // heap buffer with non-zero array offset and position
+    private ByteBuffer _offsetHeapBuffer(byte[] part)
+    {
+        byte[] padded = new byte[part.length + 5];
+        System.arraycopy(part, 0, padded, 3, part.length);
+        ByteBuffer bb = ByteBuffer.wrap(padded, 1, part.length + 2);
+        bb = bb.slice();
+        bb.position(2);
+        return bb;
+    }
+
+    private byte[] _doc() throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(f, bytes, true);
+        g.writeStartArray();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+            if ((i % 7) == 0) {
+                sb.append((char) (0x100 + i)).append((char) 0xD83D).append((char) 0xDE03);
+            }
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeNumberField("long"+(i % 10), i * 1000000000L);
+            g.writeNumberField("double", i / 3.0);
+            g.writeStringField("name"+sb.substring(0, Math.min(sb.length(), 40)), sb.toString());
+            g.writeStringField("shared", "value"+(i % 5));
+            g.writeFieldName("bin");
+            g.writeBinary(sb.toString().getBytes("UTF-8"));
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.close();
+        return bytes.toByteArray();
+    }
+}
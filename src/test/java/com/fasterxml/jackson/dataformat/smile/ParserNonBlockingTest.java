@@ -0,0 +1,549 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.dataformat.smile.async.NonBlockingParserImpl;
+import com.fasterxml.jackson.dataformat.smile.async.SmileTokenBatch;
+
+public class ParserNonBlockingTest
+    extends SmileTestBase
+{
+    public void testChunkedInput() throws IOException
+    {
+        for (boolean raw : new boolean[] { false, true }) {
+            final byte[] doc = _doc(raw);
+            for (int size : new int[] { 1, 2, 3, 7, 100, 4000, doc.length }) {
+                _verifySame(doc, size);
+            }
+        }
+    }
+
+    // Feeding input before earlier content has been decoded
+    public void testFeedAhead() throws IOException
+    {
+        final byte[] doc = _doc(false);
+        for (int size : new int[] { 1, 7, 1000 }) {
+            NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+            byte[] chunk = new byte[size];
+            int offset = 0;
+            // two chunks at a time, reusing the same array
+            for (int i = 0; i < 2 && offset < doc.length; ++i) {
+                int len = Math.min(size, doc.length - offset);
+                System.arraycopy(doc, offset, chunk, 0, len);
+                p.feedInput(chunk, 0, len);
+                offset += len;
+            }
+            _verifySame(doc, p, size, offset);
+        }
+        // or all of it, in chunks, before decoding anything
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        for (int offset = 0; offset < doc.length; offset += 100) {
+            p.feedInput(doc, offset, Math.min(100, doc.length - offset));
+        }
+        assertFalse(p.needMoreInput());
+        _verifySame(doc, p, 1, doc.length);
+    }
+
+    public void testByteBufferInput() throws IOException
+    {
+        final byte[] doc = _doc(true);
+        ByteBuffer direct = ByteBuffer.allocateDirect(doc.length);
+        direct.put(doc);
+        direct.flip();
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        int limit = 0;
+        while (limit < doc.length) {
+            limit = Math.min(doc.length, limit + 333);
+            direct.limit(limit);
+            p.feedInput(direct);
+            assertEquals(limit, direct.position());
+        }
+        _verifySame(doc, p, 1, doc.length);
+    }
+
+    // Tokens longer than the recyclable input buffer, which has to be grown (more than once)
+    public void testInputBufferGrowth() throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        final String text = sb.toString();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartArray();
+        g.writeString(text);
+        g.writeString(text+text);
+        g.writeEndArray();
+        g.close();
+        final byte[] doc = bytes.toByteArray();
+
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        int offset = 0;
+        int strings = 0;
+        JsonToken t;
+        while ((t = p.nextToken()) != null) {
+            if (t == JsonToken.NOT_AVAILABLE) {
+                int len = Math.min(1000, doc.length - offset);
+                if (len == 0) {
+                    p.endOfInput();
+                } else {
+                    p.feedInput(doc, offset, len);
+                    offset += len;
+                }
+            } else if (t == JsonToken.VALUE_STRING) {
+                assertEquals((strings == 0) ? text : (text+text), p.getText());
+                ++strings;
+            }
+        }
+        assertEquals(2, strings);
+        p.close();
+    }
+
+    public void testValueChunks() throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 50000; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        final String ascii = sb.toString();
+        sb = new StringBuilder();
+        for (int i = 0; sb.length() < 50000; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+            if ((i % 3) == 0) {
+                sb.append((char) (0x100 + (i & 0xFF))).append((char) 0xD83D).append((char) 0xDE03)
+                    .append((char) (0x1000 + i));
+            }
+        }
+        final String unicode = sb.toString();
+        final byte[] data = new byte[70001];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) (i * 7);
+        }
+        for (boolean raw : new boolean[] { false, true }) {
+            SmileFactory f = new SmileFactory();
+            f.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !raw);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            SmileGenerator g = smileGenerator(f, bytes, true);
+            g.writeStartObject();
+            g.writeStringField("ascii", ascii);
+            g.writeStringField("unicode", unicode);
+            g.writeFieldName("data");
+            g.writeBinary(data);
+            g.writeStringField("short", "abc");
+            g.writeEndObject();
+            g.close();
+            final byte[] doc = bytes.toByteArray();
+
+            for (int chunkSize : new int[] { 8, 100, 5000 }) {
+                for (int feedSize : new int[] { 1, 13, 4000 }) {
+                    NonBlockingParserImpl p = f.createNonBlockingParser();
+                    p.setValueChunkSize(chunkSize);
+                    int offset = 0;
+                    StringBuilder text = null;
+                    ByteArrayOutputStream bin = null;
+                    StringBuilder tokens = new StringBuilder();
+                    JsonToken t;
+                    while ((t = p.nextToken()) != null) {
+                        if (t == JsonToken.NOT_AVAILABLE) {
+                            int len = Math.min(feedSize, doc.length - offset);
+                            if (len == 0) {
+                                p.endOfInput();
+                            } else {
+                                p.feedInput(doc, offset, len);
+                                offset += len;
+                            }
+                            continue;
+                        }
+                        if (t == JsonToken.VALUE_STRING) {
+                            assertTrue(p.getTextLength() <= chunkSize);
+                            if (text == null) {
+                                text = new StringBuilder();
+                            }
+                            text.append(p.getText());
+                            if (!p.isLastValueChunk()) {
+                                continue;
+                            }
+                            String exp = "short".equals(p.getCurrentName()) ? "abc"
+                                    : ("ascii".equals(p.getCurrentName()) ? ascii : unicode);
+                            assertEquals(exp, text.toString());
+                            tokens.append("text ");
+                            text = null;
+                        } else if (t == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                            byte[] b = p.getBinaryValue();
+                            assertTrue(b.length <= chunkSize);
+                            if (bin == null) {
+                                bin = new ByteArrayOutputStream();
+                            }
+                            bin.write(b);
+                            if (!p.isLastValueChunk()) {
+                                continue;
+                            }
+                            _verifyBytes(bin.toByteArray(), data);
+                            tokens.append("bin ");
+                            bin = null;
+                        } else {
+                            assertTrue(p.isLastValueChunk());
+                            tokens.append(t == JsonToken.FIELD_NAME ? p.getCurrentName() : t.asString()).append(' ');
+                        }
+                    }
+                    assertEquals("{ ascii text unicode text data bin short text } ",
+                            tokens.toString());
+                    p.close();
+                }
+            }
+        }
+    }
+
+    public void testValueChunksTruncated() throws IOException
+    {
+        byte[] doc = _smileDoc("[\""+_generate(1000)+"\"]", true);
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        p.setValueChunkSize(100);
+        p.feedInput(doc, 0, 500);
+        p.endOfInput();
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        for (int i = 0; i < 4; ++i) {
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertFalse(p.isLastValueChunk());
+        }
+        try {
+            while (p.nextToken() != null) { }
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "end-of-input");
+        }
+        p.close();
+    }
+
+    public void testParking() throws IOException
+    {
+        final byte[] doc = _doc(false);
+        for (int size : new int[] { 1, 5, 100, 10000 }) {
+            _verifySame(doc, new SmileFactory().createNonBlockingParser(), size, 0, true);
+        }
+        // and explicit unparking, as well as parking before any input
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        p.park();
+        assertTrue(p.isParked());
+        p.unpark();
+        assertFalse(p.isParked());
+        p.park();
+        _verifySame(doc, p, 1000, 0, true);
+    }
+
+    public void testTokenBatch() throws IOException
+    {
+        final byte[] doc = _doc(false);
+        for (int size : new int[] { 1, 7, 1000, doc.length }) {
+            SmileParser exp = _smileParser(doc);
+            NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+            SmileTokenBatch batch = new SmileTokenBatch(16);
+            int offset = 0;
+            while (true) {
+                int count = p.nextTokens(batch);
+                assertEquals(count, batch.size());
+                for (int i = 0; i < count; ++i) {
+                    JsonToken t = exp.nextToken();
+                    if (t == null) {
+                        assertEquals(JsonTokenId.ID_NO_TOKEN, batch.getTokenId(i));
+                        continue;
+                    }
+                    assertEquals(t.id(), batch.getTokenId(i));
+                    switch (t) {
+                    case VALUE_EMBEDDED_OBJECT:
+                        _verifyBytes(batch.getBinaryValue(i), exp.getBinaryValue());
+                        break;
+                    case VALUE_NUMBER_INT:
+                    case VALUE_NUMBER_FLOAT:
+                        assertEquals(exp.getNumberType(), batch.getNumberType(i));
+                        assertEquals(exp.getNumberValue(), batch.getNumberValue(i));
+                        break;
+                    case FIELD_NAME:
+                        assertEquals(exp.getCurrentName(), batch.getText(i));
+                        break;
+                    case VALUE_STRING:
+                        assertEquals(exp.getText(), batch.getText(i));
+                        assertTrue(batch.isLastValueChunk(i));
+                        break;
+                    default:
+                    }
+                }
+                if (p.isClosed()) {
+                    break;
+                }
+                if (count == 0) {
+                    assertTrue(p.needMoreInput());
+                    int len = Math.min(size, doc.length - offset);
+                    if (len == 0) {
+                        p.endOfInput();
+                    } else {
+                        p.feedInput(doc, offset, len);
+                        offset += len;
+                    }
+                }
+            }
+            assertNull(exp.nextToken());
+            assertEquals(0, p.nextTokens(batch));
+            exp.close();
+        }
+    }
+
+    public void testTokenBatchPrimitives() throws IOException
+    {
+        final byte[] doc = _smileDoc("[1,-12345678901,0.5,\"x\",true,null,{}]", true);
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        p.feedInput(doc, 0, doc.length);
+        SmileTokenBatch batch = new SmileTokenBatch();
+        assertEquals(10, p.nextTokens(batch));
+        assertEquals(JsonTokenId.ID_START_ARRAY, batch.getTokenId(0));
+        assertEquals(JsonParser.NumberType.INT, batch.getNumberType(1));
+        assertEquals(1, batch.getIntValue(1));
+        assertEquals(JsonParser.NumberType.LONG, batch.getNumberType(2));
+        assertEquals(-12345678901L, batch.getLongValue(2));
+        assertEquals(0.5, batch.getDoubleValue(3));
+        assertEquals("x", batch.getText(4));
+        assertEquals(JsonTokenId.ID_TRUE, batch.getTokenId(5));
+        assertEquals(JsonTokenId.ID_NULL, batch.getTokenId(6));
+        assertEquals(JsonTokenId.ID_START_OBJECT, batch.getTokenId(7));
+        assertEquals(JsonTokenId.ID_END_OBJECT, batch.getTokenId(8));
+        assertEquals(JsonTokenId.ID_END_ARRAY, batch.getTokenId(9));
+        assertTrue(p.getParsingContext().inRoot());
+        assertEquals(0, p.nextTokens(batch));
+        p.endOfInput();
+        assertEquals(1, p.nextTokens(batch));
+        assertEquals(JsonTokenId.ID_NO_TOKEN, batch.getTokenId(0));
+        assertTrue(p.isClosed());
+    }
+
+    public void testMultipleDocuments() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(_smileDoc("[1,\"abc\"]", true));
+        bytes.write(_smileDoc("{\"a\":true}", true));
+        final byte[] doc = bytes.toByteArray();
+        for (int size : new int[] { 1, 3, doc.length }) {
+            NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+            int offset = 0;
+            StringBuilder sb = new StringBuilder();
+            while (!p.isClosed()) {
+                JsonToken t = p.nextToken();
+                if (t == JsonToken.NOT_AVAILABLE) {
+                    int len = Math.min(size, doc.length - offset);
+                    if (len == 0) {
+                        p.endOfInput();
+                    } else {
+                        p.feedInput(doc, offset, len);
+                        offset += len;
+                    }
+                } else {
+                    sb.append(t).append(' ');
+                }
+            }
+            assertEquals("START_ARRAY VALUE_NUMBER_INT VALUE_STRING END_ARRAY null "
+                    +"START_OBJECT FIELD_NAME VALUE_TRUE END_OBJECT null ", sb.toString());
+        }
+    }
+
+    public void testNextXxx() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartObject();
+        g.writeStringField("text", "value");
+        g.writeNumberField("int", 42);
+        g.writeNumberField("long", Long.MAX_VALUE);
+        g.writeBooleanField("bool", true);
+        g.writeEndObject();
+        g.close();
+        final byte[] doc = bytes.toByteArray();
+
+        // all at once, for simplicity
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        p.feedInput(doc, 0, doc.length);
+        p.endOfInput();
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        assertTrue(p.nextFieldName(new SerializedString("text")));
+        assertEquals("value", p.nextTextValue());
+        assertFalse(p.nextFieldName(new SerializedString("xyz")));
+        assertEquals("int", p.getCurrentName());
+        assertEquals(42, p.nextIntValue(-1));
+        assertEquals("long", p.nextFieldName());
+        assertEquals(Long.MAX_VALUE, p.nextLongValue(-1L));
+        assertTrue(p.nextFieldName(new SerializedString("bool")));
+        assertEquals(Boolean.TRUE, p.nextBooleanValue());
+        assertNull(p.nextFieldName());
+        assertToken(JsonToken.END_OBJECT, p.getCurrentToken());
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    public void testPeekNextToken() throws IOException
+    {
+        byte[] doc = _smileDoc("[\"abcdefghijklmnopqrstuvwxyz\",12345678]", true);
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        // header, START_ARRAY and start of String
+        p.feedInput(doc, 0, 7);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.NOT_AVAILABLE, p.nextToken());
+        assertToken(JsonToken.VALUE_STRING, p.peekNextToken());
+        assertTrue(p.needMoreInput());
+        p.feedInput(doc, 7, doc.length - 9);
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals("abcdefghijklmnopqrstuvwxyz", p.getText());
+        // VInt is missing its last byte
+        assertToken(JsonToken.NOT_AVAILABLE, p.nextToken());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.peekNextToken());
+        p.feedInput(doc, doc.length - 2, 2);
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(12345678, p.getIntValue());
+        assertToken(JsonToken.END_ARRAY, p.nextToken());
+        assertToken(JsonToken.NOT_AVAILABLE, p.nextToken());
+        p.endOfInput();
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    public void testIncompleteToken() throws IOException
+    {
+        byte[] doc = _smileDoc("[\"abcdefghijklmnopqrstuvwxyz\"]", true);
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        p.feedInput(doc, 0, 10);
+        p.endOfInput();
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        try {
+            p.nextToken();
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "end-of-input");
+        }
+        p.close();
+    }
+
+    public void testRequireHeader() throws IOException
+    {
+        byte[] doc = _smileDoc("[1]", false);
+        NonBlockingParserImpl p = new SmileFactory().createNonBlockingParser();
+        p.feedInput(doc, 0, doc.length);
+        try {
+            p.nextToken();
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "REQUIRE_HEADER");
+        }
+        p.close();
+    }
+
+    private void _verifySame(byte[] doc, int size) throws IOException
+    {
+        _verifySame(doc, new SmileFactory().createNonBlockingParser(), size, 0);
+    }
+
+    private void _verifySame(byte[] doc, NonBlockingParserImpl p, int size, int offset)
+        throws IOException
+    {
+        _verifySame(doc, p, size, offset, false);
+    }
+
+    private void _verifySame(byte[] doc, NonBlockingParserImpl p, int size, int offset,
+            boolean park) throws IOException
+    {
+        SmileParser exp = _smileParser(doc);
+        // reuse the same input buffer, to verify that no references to old chunks remain
+        byte[] chunk = new byte[size + 3];
+        JsonToken t;
+        while ((t = exp.nextToken()) != null) {
+            JsonToken act;
+            while ((act = p.nextToken()) == JsonToken.NOT_AVAILABLE) {
+                assertTrue(p.needMoreInput());
+                int len = Math.min(size, doc.length - offset);
+                assertTrue("Unexpected end of input for "+t, len > 0);
+                if (park) {
+                    p.park();
+                    assertTrue(p.isParked());
+                }
+                Arrays.fill(chunk, (byte) 0);
+                System.arraycopy(doc, offset, chunk, 3, len);
+                p.feedInput(chunk, 3, len);
+                offset += len;
+            }
+            assertToken(t, act);
+            switch (t) {
+            case VALUE_EMBEDDED_OBJECT:
+                _verifyBytes(p.getBinaryValue(), exp.getBinaryValue());
+                break;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                assertEquals(exp.getNumberType(), p.getNumberType());
+                assertEquals(exp.getNumberValue(), p.getNumberValue());
+                break;
+            case FIELD_NAME:
+                assertEquals(exp.getCurrentName(), p.getCurrentName());
+                break;
+            default:
+                assertEquals(exp.getText(), p.getText());
+            }
+            assertEquals(exp.getTokenLocation().getByteOffset(), p.getTokenLocation().getByteOffset());
+        }
+        assertEquals(doc.length, offset);
+        p.endOfInput();
+        assertNull(p.nextToken());
+        p.close();
+        exp.close();
+    }
+
+    private byte[] _doc(boolean rawBinary) throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        f.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !rawBinary);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(f, bytes, true);
+        g.writeStartArray();
+        g.writeString("");
+        g.writeNull();
+        g.writeBoolean(false);
+        g.writeNumber(new BigInteger("123456789012345678901234567890"));
+        g.writeNumber(new BigDecimal("-1234567890.0987654321"));
+        g.writeNumber(0.25f);
+        g.writeNumber(Integer.MIN_VALUE);
+        g.writeNumber(Long.MIN_VALUE);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+            if ((i % 7) == 0) {
+                sb.append((char) (0x100 + i)).append((char) 0xD83D).append((char) 0xDE03);
+            }
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeNumberField("long"+(i % 10), i * 1000000000L);
+            g.writeNumberField("double", i / 3.0);
+            g.writeStringField("name"+sb.substring(0, Math.min(sb.length(), 80)), sb.toString());
+            g.writeStringField("ascii"+(i % 3), "value"+(i % 5));
+            g.writeFieldName("bin");
+            g.writeBinary(Arrays.copyOf(sb.toString().getBytes("UTF-8"), i));
+            g.writeFieldName("");
+            g.writeStartArray();
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.close();
+        return bytes.toByteArray();
+    }
+
+    private String _generate(int len)
+    {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        return sb.toString();
+    }
+}
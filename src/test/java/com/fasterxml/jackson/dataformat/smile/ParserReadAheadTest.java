@@ -0,0 +1,258 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.core.*;
+
+public class ParserReadAheadTest
+    extends SmileTestBase
+{
+    private ExecutorService _executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _executor = Executors.newCachedThreadPool();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        _executor.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testReadAhead() throws IOException
+    {
+        final byte[] doc = _doc(5000);
+        // compare against regular parsing
+        for (int chunk : new int[] { 3, 1000, 100000 }) {
+            SmileParser exp = _smileParser(doc);
+            SmileParser p = new SmileFactory().createParser(
+                    new ParserTextStreamingTest.ThrottledInputStream(doc, chunk), _executor);
+            JsonToken t;
+            while ((t = exp.nextToken()) != null) {
+                assertToken(t, p.nextToken());
+                if (t == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                    _verifyBytes(p.getBinaryValue(), exp.getBinaryValue());
+                } else {
+                    assertEquals(exp.getText(), p.getText());
+                }
+                assertEquals(exp.getCurrentLocation().getByteOffset(), p.getCurrentLocation().getByteOffset());
+            }
+            assertNull(p.nextToken());
+            p.close();
+            exp.close();
+        }
+    }
+
+    public void testEmpty() throws IOException
+    {
+        SmileParser p = new SmileFactory().createParser(new ByteArrayInputStream(new byte[0]), _executor);
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    public void testReadFailure() throws IOException
+    {
+        final byte[] doc = _doc(5000);
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(doc)) {
+            int total = 0;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (total > 100000) {
+                    throw new IOException("Simulated failure");
+                }
+                int count = super.read(b, off, len);
+                total += Math.max(0, count);
+                return count;
+            }
+        };
+        SmileParser p = new SmileFactory().createParser(in, _executor);
+        try {
+            while (p.nextToken() != null) { }
+            fail("Should not pass");
+        } catch (IOException e) {
+            verifyException(e, "Simulated failure");
+        }
+        p.close();
+    }
+
+    public void testCloseEarly() throws IOException
+    {
+        final boolean[] closed = new boolean[1];
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(_doc(5000))) {
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+                super.close();
+            }
+        };
+        SmileParser p = new SmileFactory().createParser(in, _executor);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        p.close();
+        assertTrue(closed[0]);
+    }
+
+    // Content must be handed to parser as soon as it has been read, without
+    // waiting for buffer to be filled
+    public void testPartialRead() throws IOException
+    {
+        final byte[] doc = _doc(3);
+        // all but the trailing END_ARRAY available
+        BlockingInputStream in = new BlockingInputStream(doc, doc.length-1);
+        SmileParser p = new SmileFactory().createParser(in, _executor);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        for (int i = 0; i < 3; ++i) {
+            assertToken(JsonToken.START_OBJECT, p.nextToken());
+            p.skipChildren();
+        }
+        p.close();
+        assertTrue(in.isClosed());
+    }
+
+    // Closing must not wait for a read that blocks, but close the source first
+    public void testCloseWithBlockedRead() throws Exception
+    {
+        final byte[] doc = _doc(3);
+        BlockingInputStream in = new BlockingInputStream(doc, doc.length-1);
+        final SmileParser p = new SmileFactory().createParser(in, _executor);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        // read-ahead is now blocked waiting for more content
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    p.close();
+                } catch (IOException e) { }
+            }
+        };
+        t.start();
+        t.join(5000L);
+        assertFalse("close() blocked", t.isAlive());
+        assertTrue(in.isClosed());
+    }
+
+    // If source is not to be closed, close() must still wait for pending read,
+    // so that source is not accessed once parser has been closed
+    public void testCloseWithoutClosingSource() throws Exception
+    {
+        final byte[] doc = _doc(3);
+        BlockingInputStream in = new BlockingInputStream(doc, doc.length-1);
+        SmileFactory f = new SmileFactory();
+        f.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        final SmileParser p = f.createParser(in, _executor);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        assertTrue(in.waitUntilBlocked(5000L));
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    p.close();
+                } catch (IOException e) { }
+            }
+        };
+        t.start();
+        t.join(200L);
+        assertTrue("close() did not wait for pending read", t.isAlive());
+        in.release();
+        t.join(5000L);
+        assertFalse("close() blocked", t.isAlive());
+        assertFalse(in.isClosed());
+    }
+
+    /**
+     * Stream that behaves like a socket: once available content has been read,
+     * read blocks until stream is closed (or, to keep tests from hanging, fails
+     * after a while).
+     */
+    static class BlockingInputStream extends ByteArrayInputStream
+    {
+        private boolean _closed;
+
+        private boolean _released;
+
+        private boolean _blocked;
+
+        public BlockingInputStream(byte[] data, int len) {
+            super(data, 0, len);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            if (available() > 0) {
+                return super.read(b, off, len);
+            }
+            final long end = System.currentTimeMillis() + 10000L;
+            _blocked = true;
+            notifyAll();
+            while (!_closed && !_released) {
+                long left = end - System.currentTimeMillis();
+                if (left <= 0L) {
+                    throw new IllegalStateException("Blocked read timed out");
+                }
+                try {
+                    wait(left);
+                } catch (InterruptedException e) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public synchronized void close() {
+            _closed = true;
+            notifyAll();
+        }
+
+        /**
+         * Method for making blocked read (if any) return end of input,
+         * without closing the stream
+         */
+        public synchronized void release() {
+            _released = true;
+            notifyAll();
+        }
+
+        public synchronized boolean waitUntilBlocked(long timeoutMsecs) throws InterruptedException {
+            final long end = System.currentTimeMillis() + timeoutMsecs;
+            while (!_blocked) {
+                long left = end - System.currentTimeMillis();
+                if (left <= 0L) {
+                    return false;
+                }
+                wait(left);
+            }
+            return true;
+        }
+
+        public synchronized boolean isClosed() {
+            return _closed;
+        }
+    }
+
+    private byte[] _doc(int count) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartArray();
+        for (int i = 0; i < count; ++i) {
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeStringField("name", "Name #"+i+" \u00E9\u20AC");
+            g.writeNumberField("value", i * 0.25);
+            g.writeFieldName("data");
+            g.writeBinary(new byte[] { (byte) i, 1, 2, 3, 4, 5, 6, 7, 8 });
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.close();
+        return bytes.toByteArray();
+    }
+}
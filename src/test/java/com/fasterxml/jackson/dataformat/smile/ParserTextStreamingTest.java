@@ -0,0 +1,157 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+
+public class ParserTextStreamingTest
+    extends SmileTestBase
+{
+    public void testLongAsciiWithWriter() throws IOException
+    {
+        _testWithWriter(_generate(false, 100000));
+    }
+
+    public void testLongUnicodeWithWriter() throws IOException
+    {
+        _testWithWriter(_generate(true, 100000));
+    }
+
+    public void testLongUnicodeWithReader() throws IOException
+    {
+        final String text = _generate(true, 30000);
+        byte[] doc = _textValueDoc(text);
+        // read one char at a time, then in bigger chunks
+        for (int chunk = 1; chunk < 9000; chunk *= 3) {
+            SmileParser p = _smileParser(new ThrottledInputStream(doc, 7));
+            assertToken(JsonToken.START_ARRAY, p.nextToken());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            Reader r = p.getTextReader();
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[chunk];
+            int count;
+            while ((count = r.read(buf)) >= 0) {
+                sb.append(buf, 0, count);
+            }
+            assertEquals(text, sb.toString());
+            _verifyValueDocEnd(p);
+        }
+    }
+
+    public void testPartialRead() throws IOException
+    {
+        final String text = _generate(true, 10000);
+        SmileParser p = _smileParser(new ThrottledInputStream(_textValueDoc(text), 5));
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        Reader r = p.getTextReader();
+        char[] buf = new char[100];
+        assertEquals(100, r.read(buf));
+        assertEquals(text.substring(0, 100), new String(buf));
+        // rest should be skipped
+        _verifyValueDocEnd(p);
+    }
+
+    // Reader must not access content of tokens after the one it was created for
+    public void testStaleReader() throws IOException
+    {
+        final String text1 = _generate(true, 5000);
+        final String text2 = _generate(false, 6000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartArray();
+        g.writeString(text1);
+        g.writeString(text2);
+        g.writeString(text1);
+        g.writeString("end");
+        g.writeEndArray();
+        g.close();
+
+        SmileParser p = _smileParser(bytes.toByteArray());
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        // partially read, then skipped
+        Reader r = p.getTextReader();
+        char[] buf = new char[100];
+        assertEquals(100, r.read(buf));
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(-1, r.read(buf));
+        assertEquals(-1, r.read());
+        // or fully accessed using other accessors
+        r = p.getTextReader();
+        assertEquals(text2, p.getText());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(-1, r.read(buf));
+        assertEquals(text1, p.getText());
+        _verifyValueDocEnd(p);
+    }
+
+    public void testShortTextReader() throws IOException
+    {
+        SmileParser p = _smileParser(_textValueDoc("abc"));
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        Reader r = p.getTextReader();
+        char[] buf = new char[10];
+        assertEquals(3, r.read(buf));
+        assertEquals("abc", new String(buf, 0, 3));
+        StringWriter w = new StringWriter();
+        assertEquals(3, p.getText(w));
+        assertEquals("abc", w.toString());
+        _verifyValueDocEnd(p);
+    }
+
+    private void _testWithWriter(String text) throws IOException
+    {
+        byte[] doc = _textValueDoc(text);
+        for (int i = 0; i < 2; ++i) {
+            SmileParser p = (i == 0) ? _smileParser(doc)
+                    : _smileParser(new ThrottledInputStream(doc, 3));
+            assertToken(JsonToken.START_ARRAY, p.nextToken());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            StringWriter w = new StringWriter();
+            assertEquals(text.length(), p.getText(w));
+            assertEquals(text, w.toString());
+            _verifyValueDocEnd(p);
+        }
+    }
+
+    private String _generate(boolean unicode, int len)
+    {
+        StringBuilder sb = new StringBuilder(len + 10);
+        int i = 0;
+        while (sb.length() < len) {
+            ++i;
+            sb.append((char) ('a' + (i % 26)));
+            if (unicode) {
+                switch (i % 7) {
+                case 1:
+                    sb.append((char) (0x80 + (i & 0x3FF)));
+                    break;
+                case 3:
+                    sb.append((char) (0x800 + (i & 0x3FFF)));
+                    break;
+                case 5: // surrogate pair
+                    sb.append((char) 0xD83D).append((char) 0xDE03);
+                    break;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    static class ThrottledInputStream extends FilterInputStream
+    {
+        private final int _maxBytes;
+
+        public ThrottledInputStream(byte[] data, int maxBytes) {
+            super(new ByteArrayInputStream(data));
+            _maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            return in.read(buf, off, Math.min(_maxBytes, len));
+        }
+    }
+}
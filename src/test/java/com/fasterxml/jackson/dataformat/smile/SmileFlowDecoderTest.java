@@ -0,0 +1,206 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.dataformat.smile.async.SmileFlowDecoder;
+
+public class SmileFlowDecoderTest
+    extends SmileTestBase
+{
+    public void testUnboundedDemand() throws IOException
+    {
+        final byte[] doc = _smileDoc("{\"a\":[1,2,\"abc\"],\"b\":true}", true);
+        for (int size : new int[] { 1, 3, doc.length }) {
+            Collector tokens = new Collector();
+            SmileFlowDecoder dec = new SmileFlowDecoder(new SmileFactory().createNonBlockingParser(), tokens);
+            Upstream up = new Upstream(dec, doc, size);
+            dec.onSubscribe(up);
+            // nothing requested from upstream without demand
+            assertEquals(0, up.requested);
+            dec.request(Long.MAX_VALUE);
+            assertEquals("{ a [ 1 2 abc ] b true } <complete>", tokens.sb.toString().trim());
+            assertFalse(up.cancelled);
+        }
+    }
+
+    public void testBoundedDemand() throws IOException
+    {
+        final byte[] doc = _smileDoc("[1,2,3,4,5,6,7,8]", true);
+        Collector tokens = new Collector();
+        SmileFlowDecoder dec = new SmileFlowDecoder(new SmileFactory().createNonBlockingParser(), tokens);
+        // whole document in single chunk
+        Upstream up = new Upstream(dec, doc, doc.length);
+        dec.onSubscribe(up);
+        dec.request(3L);
+        assertEquals("[ 1 2", tokens.sb.toString().trim());
+        assertEquals(1, up.requested);
+        dec.request(2L);
+        assertEquals("[ 1 2 3 4", tokens.sb.toString().trim());
+        // all input already available, no need to ask for more
+        assertEquals(1, up.requested);
+        dec.request(100L);
+        assertEquals("[ 1 2 3 4 5 6 7 8 ] <complete>", tokens.sb.toString().trim());
+    }
+
+    public void testDocumentStream() throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.enable(SmileGenerator.Feature.WRITE_END_MARKER);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; ++i) {
+            SmileGenerator g = f.createGenerator(bytes);
+            g.writeStartArray();
+            g.writeNumber(i);
+            g.writeEndArray();
+            g.close();
+        }
+        final byte[] doc = bytes.toByteArray();
+        for (int size : new int[] { 1, 2, doc.length }) {
+            Collector tokens = new Collector();
+            SmileFlowDecoder dec = new SmileFlowDecoder(f.createNonBlockingParser(), tokens);
+            dec.onSubscribe(new Upstream(dec, doc, size));
+            dec.request(Long.MAX_VALUE);
+            assertEquals("[ 0 ] <end> [ 1 ] <end> [ 2 ] <end> <complete>", tokens.sb.toString().trim());
+        }
+    }
+
+    // Completion needs no demand: must be signalled once all tokens have been
+    // delivered, even if downstream requested exactly that many
+    public void testCompleteWithExactDemand() throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        for (boolean endMarker : new boolean[] { false, true }) {
+            f.configure(SmileGenerator.Feature.WRITE_END_MARKER, endMarker);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            JsonGenerator g = smileGenerator(f, bytes, true);
+            g.writeStartObject();
+            g.writeArrayFieldStart("a");
+            g.writeNumber(1);
+            g.writeNumber(2);
+            g.writeString("abc");
+            g.writeEndArray();
+            g.writeBooleanField("b", true);
+            g.writeEndObject();
+            g.close();
+            final byte[] doc = bytes.toByteArray();
+            // upstream completing only after all tokens have been delivered
+            Collector tokens = new Collector();
+            SmileFlowDecoder dec = new SmileFlowDecoder(f.createNonBlockingParser(), tokens);
+            Upstream up = new Upstream(dec, doc, doc.length);
+            dec.onSubscribe(up);
+            dec.request(10L);
+            assertEquals("{ a [ 1 2 abc ] b true }", tokens.sb.toString().trim());
+            dec.onComplete();
+            assertEquals("{ a [ 1 2 abc ] b true } "+(endMarker ? "<end> " : "")+"<complete>",
+                    tokens.sb.toString().trim());
+
+            // and upstream completing while tokens remain
+            tokens = new Collector();
+            dec = new SmileFlowDecoder(f.createNonBlockingParser(), tokens);
+            dec.onSubscribe(new Upstream(dec, doc, 3));
+            dec.onNext(ByteBuffer.wrap(doc));
+            dec.onComplete();
+            for (int i = 0; i < 10; ++i) {
+                dec.request(1L);
+            }
+            assertEquals("{ a [ 1 2 abc ] b true } "+(endMarker ? "<end> " : "")+"<complete>",
+                    tokens.sb.toString().trim());
+            assertNull(tokens.error);
+        }
+    }
+
+    public void testInvalidContent() throws IOException
+    {
+        final byte[] doc = _smileDoc("[\"abcdefghijklmnopqrstuvwxyz\"]", true);
+        Collector tokens = new Collector();
+        SmileFlowDecoder dec = new SmileFlowDecoder(new SmileFactory().createNonBlockingParser(), tokens);
+        Upstream up = new Upstream(dec, java.util.Arrays.copyOf(doc, 12), 5);
+        dec.onSubscribe(up);
+        dec.request(10L);
+        assertEquals("[", tokens.sb.toString().trim());
+        assertNotNull(tokens.error);
+        verifyException(tokens.error, "end-of-input");
+    }
+
+    public void testCancel() throws IOException
+    {
+        final byte[] doc = _smileDoc("[1,2,3]", true);
+        Collector tokens = new Collector();
+        SmileFlowDecoder dec = new SmileFlowDecoder(new SmileFactory().createNonBlockingParser(), tokens);
+        Upstream up = new Upstream(dec, doc, 1);
+        dec.onSubscribe(up);
+        dec.request(2L);
+        dec.cancel();
+        assertTrue(up.cancelled);
+        dec.request(10L);
+        assertEquals("[ 1", tokens.sb.toString().trim());
+        assertTrue(dec.getParser().isClosed());
+    }
+
+    /**
+     * Upstream that delivers chunks of given content synchronously when requested
+     */
+    static class Upstream implements SmileFlowDecoder.Subscription
+    {
+        final SmileFlowDecoder decoder;
+        final byte[] data;
+        final int chunkSize;
+        int offset;
+        int requested;
+        boolean cancelled;
+
+        public Upstream(SmileFlowDecoder dec, byte[] data, int chunkSize) {
+            decoder = dec;
+            this.data = data;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void request(long n) {
+            ++requested;
+            for (; n > 0 && !cancelled; --n) {
+                if (offset >= data.length) {
+                    decoder.onComplete();
+                    return;
+                }
+                int len = Math.min(chunkSize, data.length - offset);
+                ByteBuffer bb = ByteBuffer.wrap(data, offset, len);
+                offset += len;
+                decoder.onNext(bb);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    static class Collector implements SmileFlowDecoder.TokenSubscriber
+    {
+        final StringBuilder sb = new StringBuilder();
+        Throwable error;
+
+        @Override
+        public void onToken(JsonParser p, JsonToken t) throws IOException {
+            sb.append(p.getText()).append(' ');
+        }
+
+        @Override
+        public void onDocumentEnd() {
+            sb.append("<end> ");
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onComplete() {
+            sb.append("<complete>");
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.*;
+
+public class SmilePushDecoderTest
+    extends SmileTestBase
+{
+    public void testSameAsParser() throws IOException
+    {
+        for (boolean shared : new boolean[] { false, true }) {
+            for (boolean raw : new boolean[] { false, true }) {
+                SmileFactory f = new SmileFactory();
+                f.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, shared);
+                f.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, shared);
+                f.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !raw);
+                byte[] doc = _doc(f);
+                Recorder rec = new Recorder();
+                assertEquals(doc.length, f.createPushDecoder().decode(doc, 0, doc.length, rec));
+                assertEquals(_parse(f, doc), rec.sb.toString());
+            }
+        }
+    }
+
+    public void testSharedIndexes() throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = f.createGenerator(bytes);
+        g.writeStartArray();
+        g.writeStartObject();
+        g.writeStringField("abc", "xyz");
+        g.writeStringField("def", "xyz");
+        g.writeEndObject();
+        g.writeStartObject();
+        g.writeStringField("abc", "");
+        g.writeStringField("def", "uvw");
+        g.writeEndObject();
+        g.writeEndArray();
+        g.close();
+        byte[] doc = bytes.toByteArray();
+        final StringBuilder sb = new StringBuilder();
+        SmileVisitor v = new SmileVisitor() {
+            @Override
+            public void fieldName(byte[] buf, int offset, int len, int sharedIndex) {
+                sb.append(new String(buf, offset, len)).append('/').append(sharedIndex).append(' ');
+            }
+
+            @Override
+            public void stringValue(byte[] buf, int offset, int len, boolean ascii, int sharedIndex) {
+                sb.append(new String(buf, offset, len)).append('/').append(sharedIndex).append(' ');
+            }
+        };
+        f.createPushDecoder().decode(doc, 0, doc.length, v);
+        assertEquals("abc/0 xyz/0 def/1 xyz/0 abc/0 /-1 def/1 uvw/1", sb.toString().trim());
+    }
+
+    public void testMultipleDocuments() throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.enable(SmileGenerator.Feature.WRITE_END_MARKER);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; ++i) {
+            SmileGenerator g = f.createGenerator(bytes);
+            g.writeStartObject();
+            g.writeNumberField("value", i);
+            g.writeEndObject();
+            g.close();
+        }
+        byte[] doc = bytes.toByteArray();
+        SmilePushDecoder dec = f.createPushDecoder();
+        Recorder rec = new Recorder();
+        int offset = 0;
+        while (offset < doc.length) {
+            offset = dec.decode(doc, offset, doc.length - offset, rec);
+            rec.sb.append("| ");
+        }
+        assertEquals("{ value INT:0 } | { value INT:1 } | { value INT:2 } | ", rec.sb.toString());
+    }
+
+    public void testTruncated() throws IOException
+    {
+        byte[] doc = _smileDoc("{\"abc\":[1,2,\"long string value that goes on\"]}", true);
+        SmilePushDecoder dec = new SmileFactory().createPushDecoder();
+        for (int len = 5; len < doc.length; ++len) {
+            try {
+                dec.decode(doc, 0, len, new Recorder());
+                fail("Should not pass with "+len+" bytes");
+            } catch (JsonParseException e) {
+                verifyException(e, "end-of-input");
+            }
+        }
+    }
+
+    public void testInvalid() throws IOException
+    {
+        byte[] doc = _smileDoc("[1]", false);
+        try {
+            new SmileFactory().createPushDecoder().decode(doc, 0, doc.length, new Recorder());
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "REQUIRE_HEADER");
+        }
+        doc = _smileDoc("[1]", true);
+        doc[doc.length-1] = (byte) 0xFB; // END_OBJECT within Array
+        try {
+            new SmileFactory().createPushDecoder().decode(doc, 0, doc.length, new Recorder());
+            fail("Should not pass");
+        } catch (JsonParseException e) {
+            verifyException(e, "Invalid type marker byte 0xfb");
+        }
+    }
+
+    private byte[] _doc(SmileFactory f) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = f.createGenerator(bytes);
+        g.writeStartArray();
+        g.writeString("");
+        g.writeNull();
+        g.writeBoolean(true);
+        g.writeNumber(new BigInteger("-123456789012345678901234567890"));
+        g.writeNumber(new BigDecimal("1234567890.0987654321"));
+        g.writeNumber(-0.125f);
+        g.writeNumber(Math.PI);
+        g.writeNumber(Integer.MIN_VALUE);
+        g.writeNumber(Long.MAX_VALUE);
+        StringBuilder sb = new StringBuilder();
+        // enough distinct names and values for shared tables to be reset
+        for (int i = 0; i < 1500; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+            if ((i % 7) == 0) {
+                sb.append((char) (0x100 + i));
+            }
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeNumberField("n"+i, i * 1000000000L);
+            g.writeStringField("name"+sb.substring(0, Math.min(sb.length(), 80)), sb.toString());
+            g.writeStringField("v"+(i % 3), "value"+i);
+            g.writeStringField("\u00E4"+(i % 5), "\u00E4"+(i % 7));
+            g.writeFieldName("bin");
+            g.writeBinary(Arrays.copyOf(sb.toString().getBytes("UTF-8"), i % 100));
+            g.writeFieldName("");
+            g.writeStartArray();
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.close();
+        return bytes.toByteArray();
+    }
+
+    private String _parse(SmileFactory f, byte[] doc) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        JsonParser p = f.createParser(doc);
+        JsonToken t;
+        while ((t = p.nextToken()) != null) {
+            switch (t) {
+            case START_OBJECT:
+                sb.append("{ ");
+                break;
+            case END_OBJECT:
+                sb.append("} ");
+                break;
+            case START_ARRAY:
+                sb.append("[ ");
+                break;
+            case END_ARRAY:
+                sb.append("] ");
+                break;
+            case FIELD_NAME:
+            case VALUE_STRING:
+                sb.append(p.getText()).append(' ');
+                break;
+            case VALUE_EMBEDDED_OBJECT:
+                sb.append(Arrays.toString(p.getBinaryValue())).append(' ');
+                break;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                sb.append(p.getNumberType()).append(':').append(p.getNumberValue()).append(' ');
+                break;
+            default:
+                sb.append(t.asString()).append(' ');
+            }
+        }
+        p.close();
+        return sb.toString();
+    }
+
+    static class Recorder extends SmileVisitor
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        @Override
+        public void startObject() { sb.append("{ "); }
+
+        @Override
+        public void endObject() { sb.append("} "); }
+
+        @Override
+        public void startArray() { sb.append("[ "); }
+
+        @Override
+        public void endArray() { sb.append("] "); }
+
+        @Override
+        public void fieldName(byte[] buf, int offset, int len, int sharedIndex) throws IOException {
+            sb.append(new String(buf, offset, len, "UTF-8")).append(' ');
+        }
+
+        @Override
+        public void stringValue(byte[] buf, int offset, int len, boolean ascii, int sharedIndex)
+                throws IOException {
+            String str = new String(buf, offset, len, "UTF-8");
+            if (ascii) {
+                for (int i = 0; i < len; ++i) {
+                    assertTrue(buf[offset+i] >= 0);
+                }
+            }
+            sb.append(str).append(' ');
+        }
+
+        @Override
+        public void nullValue() { sb.append("null "); }
+
+        @Override
+        public void booleanValue(boolean value) { sb.append(value).append(' '); }
+
+        @Override
+        public void intValue(int value) { sb.append("INT:").append(value).append(' '); }
+
+        @Override
+        public void longValue(long value) { sb.append("LONG:").append(value).append(' '); }
+
+        @Override
+        public void bigIntegerValue(BigInteger value) { sb.append("BIG_INTEGER:").append(value).append(' '); }
+
+        @Override
+        public void floatValue(float value) { sb.append("FLOAT:").append((double) value).append(' '); }
+
+        @Override
+        public void doubleValue(double value) { sb.append("DOUBLE:").append(value).append(' '); }
+
+        @Override
+        public void bigDecimalValue(BigDecimal value) { sb.append("BIG_DECIMAL:").append(value).append(' '); }
+
+        @Override
+        public void binaryValue(byte[] buf, int offset, int len) {
+            sb.append(Arrays.toString(Arrays.copyOfRange(buf, offset, offset+len))).append(' ');
+        }
+    }
+}
@@ -128,6 +128,49 @@ public abstract class SmileTestBase
         return out.toByteArray();
     }
 
+    /**
+     * Helper method for constructing a document with given binary value as the first
+     * element of an array, followed by String "end" (see {@link #_verifyValueDocEnd})
+     */
+    protected byte[] _binaryValueDoc(byte[] data, boolean raw) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileFactory f = new SmileFactory();
+        f.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !raw);
+        SmileGenerator g = smileGenerator(f, bytes, true);
+        g.writeStartArray();
+        g.writeBinary(data);
+        g.writeString("end");
+        g.writeEndArray();
+        g.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Helper method for constructing a document with given String value as the first
+     * element of an array, followed by String "end" (see {@link #_verifyValueDocEnd})
+     */
+    protected byte[] _textValueDoc(String text) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartArray();
+        g.writeString(text);
+        g.writeString("end");
+        g.writeEndArray();
+        g.close();
+        return bytes.toByteArray();
+    }
+
+    protected byte[] _binaryData(int size)
+    {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; ++i) {
+            data[i] = (byte) (i * 7 + (i >> 8));
+        }
+        return data;
+    }
+
     protected SmileGenerator smileGenerator(OutputStream result, boolean addHeader)
         throws IOException
     {
@@ -184,6 +227,19 @@ public abstract class SmileTestBase
         fail("Expected an exception with one of substrings ("+Arrays.asList(matches)+"): got one with message \""+msg+"\"");
     }
     
+    /**
+     * Verifies that the rest of a document constructed with {@link #_binaryValueDoc}
+     * or {@link #_textValueDoc} (after the first value) is as expected, and closes parser
+     */
+    protected void _verifyValueDocEnd(SmileParser p) throws IOException
+    {
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals("end", p.getText());
+        assertToken(JsonToken.END_ARRAY, p.nextToken());
+        assertNull(p.nextToken());
+        p.close();
+    }
+
     protected void _verifyBytes(byte[] actBytes, byte... expBytes)
     {
         Assert.assertArrayEquals(expBytes, actBytes);
@@ -0,0 +1,126 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+
+public class TestFilteringParser
+    extends SmileTestBase
+{
+    public void testSkipChildren() throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        final String LONG = "a long text value that is longer than 64 bytes, to verify long text skipping";
+        byte[] data = _smileDocWith(f, "{\"skip\":{\"a\":[1,2.5,\"abc\",{\"b\":null,\"x\":\""+LONG+"\"},[],[[]]],"
+                +"\"c\":\"def\",\"d\":12345678901,\"e\":true},"
+                +"\"a\":\"abc\",\"b\":\"def\",\"c\":{},\"x\":[]}");
+        f.configure(SmileParser.Feature.REQUIRE_HEADER, true);
+        SmileParser p = f.createParser(data);
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        p.skipChildren();
+        assertToken(JsonToken.END_OBJECT, p.getCurrentToken());
+        // names after skipped section use back-references to names within it
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("a", p.getCurrentName());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals("abc", p.getText());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("b", p.getCurrentName());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals("def", p.getText());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("c", p.getCurrentName());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        p.skipChildren();
+        assertToken(JsonToken.END_OBJECT, p.getCurrentToken());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("x", p.getCurrentName());
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        p.skipChildren();
+        assertToken(JsonToken.END_ARRAY, p.getCurrentToken());
+        assertToken(JsonToken.END_OBJECT, p.nextToken());
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    public void testFieldPaths() throws IOException
+    {
+        byte[] data = _smileDoc(SAMPLE_DOC_JSON_SPEC, true);
+        SmileParser sp = new SmileFactory().createParser(data);
+        SmileFilteringParser p = new SmileFilteringParser(sp,
+                new String[] { "Image", "Thumbnail", "Width" },
+                new String[] { "Image", "Height" },
+                new String[] { "Image", "IDs" });
+
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(1, p.getMatchIndex());
+        assertEquals("Height", p.getCurrentName());
+        assertEquals(SAMPLE_SPEC_VALUE_HEIGHT, p.getIntValue());
+
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(0, p.getMatchIndex());
+        assertEquals("Width", p.getCurrentName());
+        assertEquals(SAMPLE_SPEC_VALUE_TN_WIDTH, p.getText());
+
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertEquals(2, p.getMatchIndex());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(SAMPLE_SPEC_VALUE_TN_ID1, p.getIntValue());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertToken(JsonToken.END_ARRAY, p.nextToken());
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    public void testPointers() throws IOException
+    {
+        byte[] data = _smileDoc("{\"a\":[{\"x\":1},{\"x\":2,\"y\":[3,4]},{\"x\":5}],\"1\":{\"x\":6},\"b\":7}", true);
+        SmileParser sp = new SmileFactory().createParser(new ByteArrayInputStream(data));
+        SmileFilteringParser p = new SmileFilteringParser(sp,
+                JsonPointer.compile("/a/1/y"),
+                JsonPointer.compile("/1/x"),
+                JsonPointer.compile("/a/2"),
+                JsonPointer.compile("/b"));
+
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertEquals(0, p.getMatchIndex());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(3, p.getIntValue());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(4, p.getIntValue());
+        assertToken(JsonToken.END_ARRAY, p.nextToken());
+
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        assertEquals(2, p.getMatchIndex());
+        p.skipChildren();
+        assertToken(JsonToken.END_OBJECT, p.getCurrentToken());
+
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(1, p.getMatchIndex());
+        assertEquals(6, p.getIntValue());
+
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(3, p.getMatchIndex());
+        assertEquals(7, p.getIntValue());
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    private byte[] _smileDocWith(SmileFactory f, String json) throws IOException
+    {
+        JsonParser jp = new JsonFactory().createParser(json);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator jg = f.createGenerator(out);
+        while (jp.nextToken() != null) {
+            jg.copyCurrentEvent(jp);
+        }
+        jp.close();
+        jg.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,125 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+
+public class TestGeneratorFieldNameHandles
+    extends SmileTestBase
+{
+    private final static String[] NAMES = new String[] {
+        "id", "", "name", "\u00FCnicode", "a-long-name-that-does-not-fit-in-short-ascii-name-token-but-is-longer-than-64",
+        "\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4\u00E4", "x"
+    };
+
+    public void testSameAsStrings() throws IOException
+    {
+        for (boolean shared : new boolean[] { false, true }) {
+            SmileFactory f = new SmileFactory();
+            f.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, shared);
+            SmileFieldNames names = new SmileFieldNames();
+            SmileFieldNames.Handle[] handles = new SmileFieldNames.Handle[NAMES.length];
+            for (int i = 0; i < NAMES.length; ++i) {
+                handles[i] = names.register(NAMES[i]);
+            }
+            assertSame(handles[0], names.register("id"));
+            assertEquals(NAMES.length, names.size());
+
+            ByteArrayOutputStream exp = new ByteArrayOutputStream();
+            _write(f.createGenerator(exp), null);
+            ByteArrayOutputStream act = new ByteArrayOutputStream();
+            _write(f.createGenerator(act), handles);
+            _verifyBytes(act.toByteArray(), exp.toByteArray());
+
+            // and should decode ok as well
+            JsonParser p = _smileParser(act.toByteArray());
+            assertToken(JsonToken.START_ARRAY, p.nextToken());
+            for (int i = 0; i < 2000; ++i) {
+                assertToken(JsonToken.START_OBJECT, p.nextToken());
+                for (int j = 0; j < NAMES.length; ++j) {
+                    assertToken(JsonToken.FIELD_NAME, p.nextToken());
+                    assertEquals(NAMES[j], p.getCurrentName());
+                    assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+                    assertToken(JsonToken.FIELD_NAME, p.nextToken());
+                    assertEquals("f"+i, p.getCurrentName());
+                    assertToken(JsonToken.VALUE_TRUE, p.nextToken());
+                }
+                assertToken(JsonToken.END_OBJECT, p.nextToken());
+            }
+            assertToken(JsonToken.END_ARRAY, p.nextToken());
+            p.close();
+        }
+    }
+
+    public void testMultipleRegistries() throws IOException
+    {
+        SmileFieldNames names1 = new SmileFieldNames();
+        SmileFieldNames names2 = new SmileFieldNames();
+        SmileFieldNames.Handle a1 = names1.register("a");
+        SmileFieldNames.Handle b2 = names2.register("b");
+
+        ByteArrayOutputStream exp = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(exp, true);
+        g.writeStartObject();
+        for (int i = 0; i < 3; ++i) {
+            g.writeFieldName("a");
+            g.writeNumber(i);
+            g.writeFieldName("b");
+            g.writeNumber(i);
+        }
+        g.writeEndObject();
+        g.close();
+
+        ByteArrayOutputStream act = new ByteArrayOutputStream();
+        g = smileGenerator(act, true);
+        g.writeStartObject();
+        for (int i = 0; i < 3; ++i) {
+            g.writeFieldName(a1);
+            g.writeNumber(i);
+            g.writeFieldName(b2);
+            g.writeNumber(i);
+            // registered after use
+            if (i == 0) {
+                names1.register("c");
+            }
+        }
+        g.writeEndObject();
+        g.close();
+        _verifyBytes(act.toByteArray(), exp.toByteArray());
+    }
+
+    public void testInvalidContext() throws IOException
+    {
+        SmileGenerator g = smileGenerator(new ByteArrayOutputStream(), true);
+        g.writeStartArray();
+        try {
+            g.writeFieldName(new SmileFieldNames().register("a"));
+            fail("Should not pass");
+        } catch (JsonGenerationException e) {
+            verifyException(e, "Can not write a field name");
+        }
+        g.close();
+    }
+
+    // Mix of handle and String names, with enough distinct names for shared table to be reset
+    private void _write(SmileGenerator g, SmileFieldNames.Handle[] handles) throws IOException
+    {
+        g.writeStartArray();
+        for (int i = 0; i < 2000; ++i) {
+            g.writeStartObject();
+            for (int j = 0; j < NAMES.length; ++j) {
+                if (handles == null) {
+                    g.writeFieldName(NAMES[j]);
+                } else {
+                    g.writeFieldName(handles[j]);
+                }
+                g.writeNumber(j);
+                g.writeFieldName("f"+i);
+                g.writeBoolean(true);
+            }
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.close();
+    }
+}
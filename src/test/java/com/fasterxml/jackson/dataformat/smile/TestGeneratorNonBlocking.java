@@ -0,0 +1,334 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.*;
+
+public class TestGeneratorNonBlocking
+    extends SmileTestBase
+{
+    public void testDrainInSmallBuffers() throws IOException
+    {
+        final SmileFactory f = new SmileFactory();
+        ByteArrayOutputStream exp = new ByteArrayOutputStream();
+        SmileGenerator g = f.createGenerator(exp);
+        g.writeStartArray();
+        _write(g, 0, 200);
+        g.writeEndArray();
+        g.close();
+
+        for (int size : new int[] { 1, 7, 1000, 100000 }) {
+            SmileNonBlockingOutput out = new SmileNonBlockingOutput();
+            g = f.createNonBlockingGenerator(out);
+            ByteArrayOutputStream act = new ByteArrayOutputStream();
+            ByteBuffer bb = ByteBuffer.allocate(size);
+            g.writeStartArray();
+            // write in batches, draining in between
+            for (int i = 0; i < 200; i += 20) {
+                _write(g, i, i+20);
+                g.flush();
+                _drain(out, bb, act);
+                assertFalse(out.hasPending());
+            }
+            g.writeEndArray();
+            g.close();
+            assertTrue(out.isClosed());
+            _drain(out, bb, act);
+            _verifyBytes(act.toByteArray(), exp.toByteArray());
+        }
+    }
+
+    public void testBufferFull() throws IOException
+    {
+        SmileNonBlockingOutput out = new SmileNonBlockingOutput();
+        SmileGenerator g = new SmileFactory().createNonBlockingGenerator(out);
+        _write(g, 0, 10);
+        g.flush();
+        final long pending = out.getPendingBytes();
+        assertTrue(pending > 1000L);
+
+        ByteBuffer bb = ByteBuffer.allocate(100);
+        assertFalse(out.drainTo(bb));
+        assertFalse(bb.hasRemaining());
+        assertEquals(pending - 100L, out.getPendingBytes());
+        // full buffer: nothing more can be drained
+        assertFalse(out.drainTo(bb));
+        assertEquals(pending - 100L, out.getPendingBytes());
+        g.close();
+    }
+
+    public void testParseDrained() throws IOException
+    {
+        final SmileFactory f = new SmileFactory();
+        SmileNonBlockingOutput out = new SmileNonBlockingOutput();
+        SmileGenerator g = f.createNonBlockingGenerator(out);
+        g.writeStartArray();
+        _write(g, 0, 50);
+        g.writeEndArray();
+        g.close();
+        ByteArrayOutputStream act = new ByteArrayOutputStream();
+        _drain(out, ByteBuffer.allocate(333), act);
+
+        JsonParser p = _smileParser(act.toByteArray());
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        for (int i = 0; i < 50; ++i) {
+            assertToken(JsonToken.START_OBJECT, p.nextToken());
+            assertToken(JsonToken.FIELD_NAME, p.nextToken());
+            assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+            assertEquals(i, p.getIntValue());
+            assertToken(JsonToken.FIELD_NAME, p.nextToken());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertEquals(2000 + String.valueOf(i).length(), p.getText().length());
+            assertToken(JsonToken.FIELD_NAME, p.nextToken());
+            assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+            assertEquals(1500, p.getBinaryValue().length);
+            assertToken(JsonToken.END_OBJECT, p.nextToken());
+        }
+        assertToken(JsonToken.END_ARRAY, p.nextToken());
+        p.close();
+    }
+
+    public void testInvalidBufferSize() throws IOException
+    {
+        try {
+            new SmileNonBlockingOutput(SmileNonBlockingOutput.MIN_BUFFER_SIZE - 1);
+            fail("Should not pass");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "must be at least 770");
+        }
+        SmileGenerator g = new SmileFactory().createNonBlockingGenerator(
+                new SmileNonBlockingOutput(SmileNonBlockingOutput.MIN_BUFFER_SIZE));
+        g.writeString("abc");
+        g.close();
+    }
+
+    // Long values must be suspended once output is full, and resumed when drained
+    public void testSuspendLongValues() throws IOException
+    {
+        for (boolean raw : new boolean[] { false, true }) {
+            final SmileFactory f = new SmileFactory();
+            f.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !raw);
+            ByteArrayOutputStream exp = new ByteArrayOutputStream();
+            SmileGenerator g = f.createGenerator(exp);
+            _writeLong(g, null, null);
+            g.close();
+
+            SmileNonBlockingOutput out = new SmileNonBlockingOutput(1000, 2);
+            g = f.createNonBlockingGenerator(out);
+            ByteArrayOutputStream act = new ByteArrayOutputStream();
+            _writeLong(g, out, act);
+            g.close();
+            _drain(out, ByteBuffer.allocate(777), act);
+            _verifyBytes(act.toByteArray(), exp.toByteArray());
+        }
+    }
+
+    public void testWriteWhileSuspended() throws IOException
+    {
+        SmileNonBlockingOutput out = new SmileNonBlockingOutput(1000, 1);
+        SmileGenerator g = new SmileFactory().createNonBlockingGenerator(out);
+        g.writeStartArray();
+        g.writeBinary(new byte[50000]);
+        assertTrue(out.isFull());
+        assertTrue(out.getPendingBytes() < 3000L);
+        try {
+            g.writeNumber(1);
+            fail("Should not pass");
+        } catch (JsonGenerationException e) {
+            verifyException(e, "previous value only partially written");
+        }
+        // closing completes the value
+        g.close();
+        assertTrue(out.getPendingBytes() > 50000L);
+        ByteArrayOutputStream act = new ByteArrayOutputStream();
+        _drain(out, ByteBuffer.allocate(1000), act);
+        JsonParser p = _smileParser(act.toByteArray());
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+        assertEquals(50000, p.getBinaryValue().length);
+        assertToken(JsonToken.END_ARRAY, p.nextToken());
+        p.close();
+
+        // also for values that would need intermediate buffer, like one suspended is using
+        out = new SmileNonBlockingOutput(1000, 1);
+        g = new SmileFactory().createNonBlockingGenerator(out);
+        g.writeStartArray();
+        g.writeString(new String(new char[20000]).replace('\0', 'a'));
+        assertTrue(out.isFull());
+        try {
+            g.writeString(new StringReader("abc"), -1);
+            fail("Should not pass");
+        } catch (JsonGenerationException e) {
+            verifyException(e, "previous value only partially written");
+        }
+        try {
+            g.writeString(new StringBuilder("abc"));
+            fail("Should not pass");
+        } catch (JsonGenerationException e) {
+            verifyException(e, "previous value only partially written");
+        }
+        g.close();
+    }
+
+    // Caller may modify or reuse arrays (and builders) once write method returns,
+    // even if writing of the value was suspended
+    public void testReuseSourceWhenSuspended() throws IOException
+    {
+        for (boolean raw : new boolean[] { false, true }) {
+            final SmileFactory f = new SmileFactory();
+            f.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !raw);
+            byte[] data = new byte[30000];
+            for (int i = 0; i < data.length; ++i) {
+                data[i] = (byte) i;
+            }
+            final byte[] expData = data.clone();
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 10000; ++i) {
+                sb.append((char) ('a' + (i % 26)));
+            }
+            final String expText = sb.toString();
+            char[] text = expText.toCharArray();
+
+            SmileNonBlockingOutput out = new SmileNonBlockingOutput(1000, 1);
+            SmileGenerator g = f.createNonBlockingGenerator(out);
+            ByteArrayOutputStream act = new ByteArrayOutputStream();
+            g.writeStartArray();
+            g.writeBinary(data);
+            assertTrue(out.isFull());
+            Arrays.fill(data, (byte) 0);
+            _drain(out, ByteBuffer.allocate(500), act);
+            g.writeString(text, 0, text.length);
+            assertTrue(out.isFull());
+            Arrays.fill(text, 'x');
+            _drain(out, ByteBuffer.allocate(500), act);
+            g.writeString(sb);
+            assertTrue(out.isFull());
+            sb.setLength(0);
+            _drain(out, ByteBuffer.allocate(500), act);
+            g.writeEndArray();
+            g.close();
+            _drain(out, ByteBuffer.allocate(500), act);
+
+            JsonParser p = _smileParser(act.toByteArray());
+            assertToken(JsonToken.START_ARRAY, p.nextToken());
+            assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+            _verifyBytes(p.getBinaryValue(), expData);
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertEquals(expText, p.getText());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertEquals(expText, p.getText());
+            assertToken(JsonToken.END_ARRAY, p.nextToken());
+            p.close();
+        }
+    }
+
+    public void testWriteAfterClose() throws IOException
+    {
+        SmileNonBlockingOutput out = new SmileNonBlockingOutput();
+        out.close(false);
+        try {
+            out.write(out.allocBuffer(), 10);
+            fail("Should not pass");
+        } catch (IOException e) {
+            verifyException(e, "already closed");
+        }
+    }
+
+    private void _drain(SmileNonBlockingOutput out, ByteBuffer bb, ByteArrayOutputStream result)
+        throws IOException
+    {
+        boolean done;
+        do {
+            done = out.drainTo(bb);
+            bb.flip();
+            result.write(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+            bb.clear();
+        } while (!done);
+    }
+
+    // Writes long values; if output given, drains it whenever it is full, verifying
+    // that amount of pending content stays bounded
+    private void _writeLong(SmileGenerator g, SmileNonBlockingOutput out, ByteArrayOutputStream result)
+        throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+            if ((i % 333) == 0) {
+                sb.append("\u00E9\uD83D\uDE00");
+            }
+        }
+        final String text = sb.toString();
+        byte[] data = new byte[40000];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        ByteBuffer bb = ByteBuffer.allocate(500);
+        g.writeStartArray();
+        for (int i = 0; i < 6; ++i) {
+            if (out != null) {
+                if (out.isFull()) {
+                    _drain(out, bb, result);
+                }
+                assertFalse(out.isFull());
+            }
+            switch (i) {
+            case 0:
+                g.writeBinary(data);
+                break;
+            case 1:
+                g.writeBinary(new ByteArrayInputStream(data, 3, 30001), 30001);
+                break;
+            case 2:
+                g.writeString(text);
+                break;
+            case 3:
+                g.writeString(text.toCharArray(), 1, text.length()-1);
+                break;
+            case 4:
+                g.writeString(new StringReader(text), -1);
+                break;
+            default:
+                g.writeString(new StringBuilder(text));
+            }
+            // values read from streams are not suspended, but written completely
+            if ((out != null) && (i != 1) && (i != 4)) {
+                // suspended, with bounded amount of content pending
+                assertTrue(out.isFull());
+                assertTrue(out.getPendingBytes() < 5000L);
+                // drain in steps; generator resumes writing as needed
+                while (out.isFull()) {
+                    out.drainTo(bb);
+                    assertTrue(out.getPendingBytes() < 5000L);
+                    bb.flip();
+                    result.write(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+                    bb.clear();
+                }
+            }
+        }
+        g.writeEndArray();
+    }
+
+    private void _write(SmileGenerator g, int from, int to) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        final String text = sb.toString();
+        byte[] data = new byte[1500];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        for (int i = from; i < to; ++i) {
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeStringField("text", text + i);
+            g.writeFieldName("data");
+            g.writeBinary(data);
+            g.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.*;
+
+public class TestGeneratorRawSmileValue
+    extends SmileTestBase
+{
+    private final static byte[] BINARY = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, -1, -128 };
+
+    public void testSameAsCopied() throws IOException
+    {
+        for (int fragFlags = 0; fragFlags < 4; ++fragFlags) {
+            for (int targetFlags = 0; targetFlags < 4; ++targetFlags) {
+                for (boolean raw : new boolean[] { false, true }) {
+                    SmileFactory fragF = _factory(fragFlags, raw);
+                    SmileFactory targetF = _factory(targetFlags, raw);
+                    byte[] frag = _fragment(fragF);
+
+                    ByteArrayOutputStream exp = new ByteArrayOutputStream();
+                    _write(targetF, exp, fragF, frag, false);
+                    ByteArrayOutputStream act = new ByteArrayOutputStream();
+                    _write(targetF, act, fragF, frag, true);
+                    _verifyBytes(act.toByteArray(), exp.toByteArray());
+                }
+            }
+        }
+    }
+
+    public void testBinaryConversion() throws IOException
+    {
+        for (boolean raw : new boolean[] { false, true }) {
+            byte[] frag = _fragment(_factory(1, raw));
+            SmileFactory targetF = _factory(1, !raw);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            SmileGenerator g = targetF.createGenerator(bytes);
+            g.writeRawSmileValue(frag, 0, frag.length);
+            g.close();
+
+            JsonParser p = targetF.createParser(bytes.toByteArray());
+            JsonToken t;
+            int count = 0;
+            while ((t = p.nextToken()) != null) {
+                if (t == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                    assertTrue(Arrays.equals(BINARY, p.getBinaryValue()));
+                    ++count;
+                }
+            }
+            p.close();
+            assertEquals(1, count);
+        }
+    }
+
+    public void testScalarAndEndMarker() throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.enable(SmileGenerator.Feature.WRITE_END_MARKER);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = f.createGenerator(bytes);
+        g.writeString("scalar");
+        g.close();
+        byte[] frag = bytes.toByteArray();
+
+        bytes = new ByteArrayOutputStream();
+        g = smileGenerator(bytes, false);
+        g.writeStartObject();
+        g.writeFieldName("a");
+        g.writeRawSmileValue(frag, 0, frag.length);
+        g.writeFieldName("b");
+        g.writeRawSmileValue(frag, 0, frag.length);
+        g.writeEndObject();
+        g.close();
+
+        JsonParser p = _smileParser(bytes.toByteArray());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        for (String name : new String[] { "a", "b" }) {
+            assertToken(JsonToken.FIELD_NAME, p.nextToken());
+            assertEquals(name, p.getCurrentName());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertEquals("scalar", p.getText());
+        }
+        assertToken(JsonToken.END_OBJECT, p.nextToken());
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    public void testInvalid() throws IOException
+    {
+        byte[] frag = _fragment(_factory(3, false));
+        // truncated content
+        for (int len = 5; len < frag.length; len += 7) {
+            try {
+                _splice(frag, len);
+                fail("Should not pass with "+len+" bytes");
+            } catch (JsonGenerationException e) {
+                verifyException(e, "Invalid raw Smile content");
+            }
+        }
+        // trailing content
+        byte[] doc = Arrays.copyOf(frag, frag.length+1);
+        doc[frag.length] = (byte) 0xC0;
+        try {
+            _splice(doc, doc.length);
+            fail("Should not pass");
+        } catch (JsonGenerationException e) {
+            verifyException(e, "trailing bytes");
+        }
+        // back-reference to String values, without header to enable them
+        try {
+            _splice(new byte[] { (byte) 0xF8, 0x40, 0x61, 0x01, (byte) 0xF9 }, 5);
+            fail("Should not pass");
+        } catch (JsonGenerationException e) {
+            verifyException(e, "shared String value reference 0");
+        }
+        // value where field name expected
+        SmileGenerator g = smileGenerator(new ByteArrayOutputStream(), true);
+        g.writeStartObject();
+        try {
+            g.writeRawSmileValue(frag, 0, frag.length);
+            fail("Should not pass");
+        } catch (JsonGenerationException e) {
+            verifyException(e, "expecting field name");
+        }
+        g.close();
+    }
+
+    private void _splice(byte[] data, int len) throws IOException
+    {
+        SmileGenerator g = smileGenerator(new ByteArrayOutputStream(), true);
+        g.writeRawSmileValue(data, 0, len);
+        g.close();
+    }
+
+    private SmileFactory _factory(int sharedFlags, boolean rawBinary)
+    {
+        SmileFactory f = new SmileFactory();
+        f.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, (sharedFlags & 1) != 0);
+        f.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, (sharedFlags & 2) != 0);
+        f.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !rawBinary);
+        return f;
+    }
+
+    // Fragment with back-references, and enough distinct names for shared table to be reset
+    private byte[] _fragment(SmileFactory f) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = f.createGenerator(bytes);
+        g.writeStartObject();
+        g.writeStringField("id", "abc");
+        g.writeStringField("\u00E4\u00E4", "\u00FCber");
+        g.writeStringField("long", "long String value that is longer than the 64 bytes allowed for short ones");
+        g.writeFieldName("a name that is longer than 64 bytes, so it will be written using long name token");
+        g.writeStartArray();
+        g.writeNull();
+        g.writeBoolean(false);
+        g.writeString("");
+        g.writeNumber(3);
+        g.writeNumber(-123456);
+        g.writeNumber(Long.MIN_VALUE);
+        g.writeNumber(new BigInteger("123456789012345678901234567890"));
+        g.writeNumber(0.25f);
+        g.writeNumber(-1.5e100);
+        g.writeNumber(new BigDecimal("-9876543210.0123456789"));
+        g.writeBinary(BINARY);
+        g.writeEndArray();
+        g.writeFieldName("items");
+        g.writeStartArray();
+        for (int i = 0; i < 1100; ++i) {
+            g.writeStartObject();
+            g.writeStringField("id", "abc");
+            g.writeStringField("n"+i, "v"+(i % 40));
+            g.writeStringField("\u00E4\u00E4", "\u00FCber");
+            g.writeFieldName("");
+            g.writeStartObject();
+            g.writeEndObject();
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.writeEndObject();
+        g.close();
+        return bytes.toByteArray();
+    }
+
+    private void _write(SmileFactory targetF, OutputStream out, SmileFactory fragF, byte[] frag,
+            boolean splice) throws IOException
+    {
+        SmileGenerator g = targetF.createGenerator(out);
+        g.writeStartArray();
+        // names and values already in shared tables of generator
+        g.writeStartObject();
+        g.writeStringField("n5", "v5");
+        g.writeStringField("id", "xyz");
+        g.writeFieldName("fragment");
+        _writeFragment(g, fragF, frag, splice);
+        g.writeEndObject();
+        _writeFragment(g, fragF, frag, splice);
+        g.writeString("abc");
+        g.writeEndArray();
+        g.close();
+    }
+
+    private void _writeFragment(SmileGenerator g, SmileFactory fragF, byte[] frag, boolean splice)
+        throws IOException
+    {
+        if (splice) {
+            g.writeRawSmileValue(frag, 0, frag.length);
+        } else {
+            JsonParser p = fragF.createParser(frag);
+            p.nextToken();
+            g.copyCurrentStructure(p);
+            p.close();
+        }
+    }
+}
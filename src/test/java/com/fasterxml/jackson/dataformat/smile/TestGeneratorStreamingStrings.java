@@ -0,0 +1,113 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+
+public class TestGeneratorStreamingStrings
+    extends SmileTestBase
+{
+    public void testStringsFromReader() throws IOException
+    {
+        for (int len : new int[] { 0, 3, 64, 65, 1000, 1999, 2000, 2001, 4001, 70000 }) {
+            _testReader(_generate(len, false));
+            _testReader(_generate(len, true));
+        }
+    }
+
+    public void testStringsFromCharSequence() throws IOException
+    {
+        for (int len : new int[] { 0, 3, 64, 2000, 2001, 4001, 70000 }) {
+            for (int i = 0; i < 2; ++i) {
+                String text = _generate(len, i > 0);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                SmileGenerator g = smileGenerator(bytes, true);
+                g.writeStartArray();
+                g.writeString(new StringBuilder(text));
+                g.writeString((CharSequence) java.nio.CharBuffer.wrap(text));
+                g.writeEndArray();
+                g.close();
+                _verify(bytes.toByteArray(), text, text);
+            }
+        }
+    }
+
+    public void testReaderWithLength() throws IOException
+    {
+        String text = _generate(10000, false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartArray();
+        g.writeString(new StringReader(text), 10);
+        g.writeString(new StringReader(text), 5000);
+        g.writeEndArray();
+        g.close();
+        _verify(bytes.toByteArray(), text.substring(0, 10), text.substring(0, 5000));
+
+        g = smileGenerator(new ByteArrayOutputStream(), true);
+        g.writeStartArray();
+        try {
+            g.writeString(new StringReader(text), 10001);
+            fail("Should not pass");
+        } catch (JsonGenerationException e) {
+            verifyException(e, "Too few characters available");
+        }
+    }
+
+    private void _testReader(String text) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = smileGenerator(bytes, true);
+        g.writeStartArray();
+        g.writeString(new ThrottledReader(text, 777), -1);
+        g.writeString(new StringReader(text), text.length());
+        g.writeEndArray();
+        g.close();
+        _verify(bytes.toByteArray(), text, text);
+    }
+
+    private void _verify(byte[] doc, String exp1, String exp2) throws IOException
+    {
+        SmileParser p = _smileParser(doc);
+        assertToken(JsonToken.START_ARRAY, p.nextToken());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(exp1, p.getText());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(exp2, p.getText());
+        assertToken(JsonToken.END_ARRAY, p.nextToken());
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    private String _generate(int len, boolean unicode)
+    {
+        StringBuilder sb = new StringBuilder(len + 2);
+        int i = 0;
+        while (sb.length() < len) {
+            ++i;
+            if (unicode && (i % 3) == 0 && (sb.length() + 2) <= len) {
+                sb.append((char) 0xD83D).append((char) 0xDE03);
+            } else if (unicode && (i % 5) == 0) {
+                sb.append((char) (0xE0 + (i & 0x1F)));
+            } else {
+                sb.append((char) ('a' + (i % 26)));
+            }
+        }
+        return sb.toString();
+    }
+
+    static class ThrottledReader extends FilterReader
+    {
+        private final int _maxChars;
+
+        public ThrottledReader(String text, int maxChars) {
+            super(new StringReader(text));
+            _maxChars = maxChars;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            return in.read(buf, off, Math.min(_maxChars, len));
+        }
+    }
+}
@@ -26,6 +26,72 @@ public class TestGeneratorWithSerializedString extends SmileTestBase
         _verifySimple(sf.createParser(smileB));
     }
 
+    public void testSmileSerializedString() throws Exception
+    {
+        final String[] names = new String[] { NAME_WITH_QUOTES, NAME_WITH_LATIN1, "",
+                "a-long-name-that-does-not-fit-in-short-ascii-name-token-but-is-longer-than-64",
+                "P\u00f6ll\u00f6-P\u00f6ll\u00f6-P\u00f6ll\u00f6-P\u00f6ll\u00f6-P\u00f6ll\u00f6-P\u00f6ll\u00f6" };
+        for (boolean shared : new boolean[] { false, true }) {
+            SmileFactory sf = new SmileFactory();
+            sf.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, shared);
+            ByteArrayOutputStream exp = new ByteArrayOutputStream();
+            JsonGenerator g = sf.createGenerator(exp);
+            g.writeStartArray();
+            for (int i = 0; i < 2; ++i) {
+                g.writeStartObject();
+                for (String name : names) {
+                    g.writeFieldName(new SerializedString(name));
+                    g.writeNumber(i);
+                }
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+            g.close();
+
+            ByteArrayOutputStream act = new ByteArrayOutputStream();
+            g = sf.createGenerator(act);
+            g.writeStartArray();
+            for (int i = 0; i < 2; ++i) {
+                g.writeStartObject();
+                for (String name : names) {
+                    g.writeFieldName(sf.createFieldName(name));
+                    g.writeNumber(i);
+                }
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+            g.close();
+            _verifyBytes(act.toByteArray(), exp.toByteArray());
+        }
+
+        // and should work with other generators as well
+        SmileFactory sf = new SmileFactory();
+        JsonGenerator g = new JsonFactory().createGenerator(new ByteArrayOutputStream());
+        g.writeStartObject();
+        g.writeFieldName(sf.createFieldName(NAME_WITH_QUOTES));
+        g.writeEndObject();
+        g.close();
+        // and mixed with regular names
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        g = sf.createGenerator(out);
+        g.writeStartArray();
+        g.writeStartObject();
+        g.writeFieldName(sf.createFieldName(NAME_WITH_QUOTES));
+        g.writeString("a");
+        g.writeFieldName(NAME_WITH_LATIN1);
+        g.writeString("b");
+        g.writeEndObject();
+        g.writeStartObject();
+        g.writeFieldName(sf.createFieldName(NAME_WITH_LATIN1));
+        g.writeString("c");
+        g.writeFieldName(NAME_WITH_QUOTES);
+        g.writeString("d");
+        g.writeEndObject();
+        g.writeEndArray();
+        g.close();
+        _verifySimple(sf.createParser(out.toByteArray()));
+    }
+
     /*
     /**********************************************************
     /* Helper methods
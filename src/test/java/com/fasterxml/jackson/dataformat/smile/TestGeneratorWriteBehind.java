@@ -0,0 +1,215 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.core.*;
+
+public class TestGeneratorWriteBehind
+    extends SmileTestBase
+{
+    private ExecutorService _executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _executor = Executors.newCachedThreadPool();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        _executor.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testWriteBehind() throws IOException
+    {
+        final SmileFactory f = new SmileFactory();
+        ByteArrayOutputStream exp = new ByteArrayOutputStream();
+        SmileGenerator g = f.createGenerator(exp);
+        _write(g, 3000);
+        g.close();
+
+        for (int depth : new int[] { 1, 3 }) {
+            SlowOutputStream out = new SlowOutputStream();
+            g = f.createWriteBehindGenerator(out, _executor, depth);
+            _write(g, 3000);
+            g.close();
+            assertTrue(out.closed);
+            _verifyBytes(out.toByteArray(), exp.toByteArray());
+        }
+    }
+
+    public void testFlush() throws IOException
+    {
+        SlowOutputStream out = new SlowOutputStream();
+        SmileGenerator g = new SmileFactory().createWriteBehindGenerator(out, _executor);
+        _write(g, 500);
+        g.flush();
+        // all content written, nothing pending
+        final int size = out.size();
+        assertTrue(size > SmileWriteBehindOutput.DEFAULT_BUFFER_SIZE);
+        assertEquals(1, out.flushes);
+        g.close();
+        assertTrue(out.size() >= size);
+    }
+
+    public void testWriteFailure() throws IOException
+    {
+        SlowOutputStream out = new SlowOutputStream();
+        out.failAfter = 100000;
+        SmileGenerator g = new SmileFactory().createWriteBehindGenerator(out, _executor);
+        try {
+            _write(g, 3000);
+            g.flush();
+            fail("Should not pass");
+        } catch (IOException e) {
+            verifyException(e, "Simulated failure");
+        }
+        try {
+            g.close();
+            fail("Should not pass");
+        } catch (IOException e) {
+            verifyException(e, "Simulated failure");
+        }
+        // target must still be closed
+        assertTrue(out.closed);
+    }
+
+    public void testRejectedExecution() throws IOException
+    {
+        _executor.shutdown();
+        SmileGenerator g = new SmileFactory().createWriteBehindGenerator(new ByteArrayOutputStream(), _executor);
+        try {
+            _write(g, 3000);
+            g.close();
+            fail("Should not pass");
+        } catch (IOException e) {
+            verifyException(e, "Failed to schedule write-behind");
+        }
+    }
+
+    // Verify that producer continues encoding while up to queue depth buffers
+    // are pending (including the default depth, which must allow overlap), and
+    // blocks once more would be
+    public void testBoundedQueue() throws Exception
+    {
+        _testBoundedQueue(SmileWriteBehindOutput.DEFAULT_QUEUE_DEPTH);
+        _testBoundedQueue(2);
+    }
+
+    private void _testBoundedQueue(final int depth) throws Exception
+    {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Executor manual = new Executor() {
+            @Override
+            public synchronized void execute(Runnable r) {
+                tasks.add(r);
+            }
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final SmileWriteBehindOutput wb = new SmileWriteBehindOutput(out, manual, 10, depth);
+        final int[] written = new int[1];
+        final IOException[] fail = new IOException[1];
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    byte[] buf = wb.allocBuffer();
+                    for (int i = 1; i <= depth+1; ++i) {
+                        buf[0] = (byte) i;
+                        byte[] next = wb.write(buf, 1);
+                        synchronized (written) {
+                            written[0] = i;
+                        }
+                        buf = next;
+                    }
+                } catch (IOException e) {
+                    fail[0] = e;
+                }
+            }
+        };
+        producer.setDaemon(true);
+        producer.start();
+        producer.join(200L);
+        // nothing written yet: must only block once more than 'depth' buffers are pending
+        assertTrue(producer.isAlive());
+        synchronized (written) {
+            assertEquals(depth, written[0]);
+        }
+        assertEquals(0, out.size());
+
+        Runnable task;
+        synchronized (manual) {
+            assertEquals(1, tasks.size());
+            task = tasks.get(0);
+        }
+        task.run();
+        producer.join(5000L);
+        assertFalse(producer.isAlive());
+        assertNull(fail[0]);
+        byte[] exp = new byte[depth+1];
+        for (int i = 0; i < exp.length; ++i) {
+            exp[i] = (byte) (i+1);
+        }
+        _verifyBytes(out.toByteArray(), exp);
+        wb.close(false);
+    }
+
+    private void _write(SmileGenerator g, int count) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            sb.append((char) ('a' + (i % 26)));
+        }
+        final String text = sb.toString();
+        byte[] data = new byte[700];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        g.writeStartArray();
+        for (int i = 0; i < count; ++i) {
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeStringField("text", text + i);
+            g.writeFieldName(text); // long name
+            g.writeBinary(data);
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+    }
+
+    static class SlowOutputStream extends ByteArrayOutputStream
+    {
+        public int failAfter = -1;
+
+        public boolean closed;
+
+        public int flushes;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (failAfter >= 0 && (count + len) > failAfter) {
+                throw new IllegalStateException("Simulated failure");
+            }
+            try {
+                Thread.sleep(1L);
+            } catch (InterruptedException e) { }
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            ++flushes;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
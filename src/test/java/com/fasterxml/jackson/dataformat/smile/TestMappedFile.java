@@ -0,0 +1,127 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+
+public class TestMappedFile
+    extends SmileTestBase
+{
+    private final static int RECORDS = 50;
+
+    public void testRecordOffsets() throws IOException
+    {
+        File f = File.createTempFile("smile", ".sml");
+        try {
+            long[] offsets = _writeRecords(f);
+            SmileFactory sf = new SmileFactory();
+            // small windows, to verify crossing of window boundaries
+            for (int windowSize : new int[] { 16, 100, SmileMappedFile.DEFAULT_WINDOW_SIZE }) {
+                SmileMappedFile mf = new SmileMappedFile(f, windowSize);
+                assertEquals(f.length(), mf.length());
+                // seek to records in reverse order
+                for (int i = RECORDS; --i >= 0; ) {
+                    SmileParser p = sf.createParser(mf, offsets[i]);
+                    _verifyRecord(p, i);
+                    p.close();
+                }
+                mf.close();
+            }
+        } finally {
+            f.delete();
+        }
+    }
+
+    public void testWithOffsetIndex() throws IOException
+    {
+        File f = File.createTempFile("smile", ".sml");
+        try {
+            FileOutputStream out = new FileOutputStream(f);
+            out.write(_smileDoc(SAMPLE_DOC_JSON_SPEC, true));
+            out.close();
+
+            SmileFactory sf = new SmileFactory();
+            SmileMappedFile mf = new SmileMappedFile(f, 32);
+            SmileParser p = sf.createParser(mf, 0L);
+            SmileOffsetIndex index = SmileOffsetIndex.build(p);
+            p.close();
+
+            int image = index.getValueNode(index.findField(0, "Image"));
+            int ids = index.getValueNode(index.findField(image, "IDs"));
+            p = sf.createParser(mf, index, index.findElement(ids, 2));
+            assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+            assertEquals(SAMPLE_SPEC_VALUE_TN_ID3, p.getIntValue());
+            assertNull(p.nextToken());
+            p.close();
+
+            p = sf.createParser(mf, index, index.findField(image, "Title"));
+            assertToken(JsonToken.FIELD_NAME, p.getCurrentToken());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertEquals(SAMPLE_SPEC_VALUE_TITLE, p.getText());
+            assertNull(p.nextToken());
+            p.close();
+            mf.close();
+        } finally {
+            f.delete();
+        }
+    }
+
+    public void testInvalidOffset() throws IOException
+    {
+        File f = File.createTempFile("smile", ".sml");
+        try {
+            _writeRecords(f);
+            SmileMappedFile mf = new SmileMappedFile(f);
+            try {
+                mf.openStream(f.length() + 1);
+                fail("Should not pass");
+            } catch (IllegalArgumentException e) {
+                verifyException(e, "Invalid offset");
+            }
+            mf.close();
+        } finally {
+            f.delete();
+        }
+    }
+
+    private void _verifyRecord(SmileParser p, int i) throws IOException
+    {
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("id", p.getCurrentName());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(i, p.getIntValue());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("desc", p.getCurrentName());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(_desc(i), p.getText());
+        assertToken(JsonToken.END_OBJECT, p.nextToken());
+    }
+
+    private long[] _writeRecords(File f) throws IOException
+    {
+        long[] offsets = new long[RECORDS];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 0; i < RECORDS; ++i) {
+            offsets[i] = bytes.size();
+            SmileGenerator g = smileGenerator(bytes, true);
+            g.writeStartObject();
+            g.writeNumberField("id", i);
+            g.writeStringField("desc", _desc(i));
+            g.writeEndObject();
+            g.close();
+        }
+        FileOutputStream out = new FileOutputStream(f);
+        out.write(bytes.toByteArray());
+        out.close();
+        return offsets;
+    }
+
+    private String _desc(int i) {
+        StringBuilder sb = new StringBuilder();
+        for (int j = 0; j <= i; ++j) {
+            sb.append("record ").append(j).append(' ');
+        }
+        return sb.toString();
+    }
+}
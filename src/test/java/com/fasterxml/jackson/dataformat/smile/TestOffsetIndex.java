@@ -0,0 +1,130 @@
+package com.fasterxml.jackson.dataformat.smile;
+
+import java.io.*;
+
+import com.fasterxml.jackson.core.*;
+
+public class TestOffsetIndex
+    extends SmileTestBase
+{
+    public void testSimpleIndex() throws IOException
+    {
+        byte[] data = _smileDoc(SAMPLE_DOC_JSON_SPEC, true);
+        SmileFactory f = new SmileFactory();
+        SmileParser p = f.createParser(data);
+        SmileOffsetIndex index = SmileOffsetIndex.build(p);
+        p.close();
+
+        assertToken(JsonToken.START_OBJECT, index.getToken(0));
+        assertEquals(SmileOffsetIndex.NO_NODE, index.getParent(0));
+        assertEquals(4L, index.getStartOffset(0));
+        assertEquals((long) data.length, index.getEndOffset(0));
+
+        int image = index.findField(0, "Image");
+        assertEquals(1, image);
+        assertEquals(SmileOffsetIndex.NO_NODE, index.findField(0, "Foo"));
+        int imageValue = index.getValueNode(image);
+        assertToken(JsonToken.START_OBJECT, index.getToken(imageValue));
+
+        int thumb = index.findField(imageValue, "Thumbnail");
+        int url = index.findField(index.getValueNode(thumb), "Url");
+        p = f.createParser(data, index, url);
+        assertToken(JsonToken.FIELD_NAME, p.getCurrentToken());
+        assertEquals("Url", p.getCurrentName());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(SAMPLE_SPEC_VALUE_TN_URL, p.getText());
+        assertNull(p.nextToken());
+        p.close();
+
+        int ids = index.getValueNode(index.findField(imageValue, "IDs"));
+        assertToken(JsonToken.START_ARRAY, index.getToken(ids));
+        p = f.createParser(data, index, index.findElement(ids, 3));
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(SAMPLE_SPEC_VALUE_TN_ID4, p.getIntValue());
+        assertNull(p.nextToken());
+        p.close();
+        assertEquals(SmileOffsetIndex.NO_NODE, index.findElement(ids, 4));
+
+        // and then whole sub-tree
+        p = f.createParser(data, index, thumb);
+        assertToken(JsonToken.FIELD_NAME, p.getCurrentToken());
+        assertToken(JsonToken.START_OBJECT, p.nextToken());
+        assertEquals("Thumbnail", p.getCurrentName());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("Url", p.getCurrentName());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("Height", p.getCurrentName());
+        assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+        assertEquals(SAMPLE_SPEC_VALUE_TN_HEIGHT, p.getIntValue());
+        assertToken(JsonToken.FIELD_NAME, p.nextToken());
+        assertEquals("Width", p.getCurrentName());
+        assertToken(JsonToken.VALUE_STRING, p.nextToken());
+        assertEquals(SAMPLE_SPEC_VALUE_TN_WIDTH, p.getText());
+        assertToken(JsonToken.END_OBJECT, p.nextToken());
+        assertNull(p.nextToken());
+        p.close();
+    }
+
+    // Verify that back-references get resolved, including ones after table flush
+    public void testSharedReferences() throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SmileGenerator g = f.createGenerator(bytes);
+        final int COUNT = 1500;
+        g.writeStartArray();
+        for (int i = 0; i < COUNT; ++i) {
+            g.writeStartObject();
+            g.writeStringField("name"+i, "value"+i);
+            g.writeStringField("name"+(i/2), "value"+(i/2));
+            g.writeEndObject();
+        }
+        g.writeEndArray();
+        g.close();
+        byte[] data = bytes.toByteArray();
+
+        SmileParser p = f.createParser(data);
+        SmileOffsetIndex index = SmileOffsetIndex.build(p);
+        p.close();
+        assertEquals(1 + COUNT * 5, index.size());
+
+        for (int i = 0; i < COUNT; i += 7) {
+            int ob = index.findElement(0, i);
+            assertEquals(0, index.getParent(ob));
+            p = f.createParser(data, index, ob);
+            assertToken(JsonToken.START_OBJECT, p.nextToken());
+            assertToken(JsonToken.FIELD_NAME, p.nextToken());
+            assertEquals("name"+i, p.getCurrentName());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertEquals("value"+i, p.getText());
+            assertToken(JsonToken.FIELD_NAME, p.nextToken());
+            assertEquals("name"+(i/2), p.getCurrentName());
+            assertToken(JsonToken.VALUE_STRING, p.nextToken());
+            assertEquals("value"+(i/2), p.getText());
+            assertToken(JsonToken.END_OBJECT, p.nextToken());
+            assertNull(p.nextToken());
+            p.close();
+        }
+    }
+
+    public void testIndexFromStream() throws IOException
+    {
+        byte[] data = _smileDoc("[ \"abc\", { \"x\" : [ 1, 2 ] }, 3.25 ]", true);
+        SmileFactory f = new SmileFactory();
+        SmileParser p = f.createParser(new ByteArrayInputStream(data));
+        SmileOffsetIndex index = SmileOffsetIndex.build(p);
+        p.close();
+
+        assertEquals(8, index.size());
+        int last = index.findElement(0, 2);
+        assertToken(JsonToken.VALUE_NUMBER_FLOAT, index.getToken(last));
+        assertEquals(data.length - 1, index.getEndOffset(last));
+        p = f.createParser(data, index, last);
+        assertToken(JsonToken.VALUE_NUMBER_FLOAT, p.nextToken());
+        assertEquals(3.25, p.getDoubleValue());
+        assertNull(p.nextToken());
+        p.close();
+    }
+}
@@ -336,6 +336,30 @@ public class TestParser extends SmileTestBase
         p.close();
     }
 
+    // VInts longer than 5 bytes must fail regardless of where input buffer boundaries are
+    public void testOverlongVInt() throws IOException
+    {
+        byte[] data = new byte[] { SmileConstants.TOKEN_LITERAL_START_ARRAY,
+                SmileConstants.TOKEN_MISC_BINARY_7BIT,
+                0, 0, 0, 0, 0, (byte) 0x81,
+                0, 0, 0, 0, 0, 0, 0, 0,
+                (byte) SmileConstants.TOKEN_LITERAL_END_ARRAY
+        };
+        for (int i = 0; i < 2; ++i) {
+            SmileParser p = (i == 0) ? _smileParser(data)
+                    : _smileParser(new ParserTextStreamingTest.ThrottledInputStream(data, 1));
+            assertToken(JsonToken.START_ARRAY, p.nextToken());
+            assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+            try {
+                p.getBinaryValue();
+                fail("Expected parse error");
+            } catch (IOException e) {
+                verifyException(e, "32-bit VInt extends beyond 5 data bytes");
+            }
+            p.close();
+        }
+    }
+
     // [JACKSON-629]
     public void testNameBoundary() throws IOException
     {
@@ -59,6 +59,15 @@ public class TestParserBinary extends SmileTestBase
         _testStreaming(false);
     }
 
+    // large raw content is read directly from InputStream into result array
+    public void testRawFromInputStream() throws IOException {
+        _testBinaryFromInputStream(true);
+    }
+
+    public void test7BitFromInputStream() throws IOException {
+        _testBinaryFromInputStream(false);
+    }
+
     /*
     /**********************************************************
     /* Helper methods
@@ -202,6 +211,38 @@ public class TestParserBinary extends SmileTestBase
         }
     }
 
+    private void _testBinaryFromInputStream(boolean raw) throws IOException
+    {
+        SmileFactory f = new SmileFactory();
+        f.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, !raw);
+        for (int size : SIZES) {
+            byte[] data = _generateData(size);
+            ByteArrayOutputStream bo = new ByteArrayOutputStream(size+10);
+            SmileGenerator g = f.createGenerator(bo);
+            g.writeStartArray();
+            g.writeBinary(data);
+            g.writeNumber(1);
+            g.writeEndArray();
+            g.close();
+            byte[] smile = bo.toByteArray();
+
+            for (int i = 0; i < 2; ++i) {
+                InputStream in = (i == 0) ? new ByteArrayInputStream(smile)
+                        : new ParserTextStreamingTest.ThrottledInputStream(smile, 1000);
+                SmileParser p = f.createParser(in);
+                assertToken(JsonToken.START_ARRAY, p.nextToken());
+                assertToken(JsonToken.VALUE_EMBEDDED_OBJECT, p.nextToken());
+                assertArrayEquals(data, p.getBinaryValue());
+                assertToken(JsonToken.VALUE_NUMBER_INT, p.nextToken());
+                assertEquals(1, p.getIntValue());
+                assertToken(JsonToken.END_ARRAY, p.nextToken());
+                assertEquals(smile.length, p.getCurrentLocation().getByteOffset());
+                assertNull(p.nextToken());
+                p.close();
+            }
+        }
+    }
+
     private byte[] _generateData(int size)
     {
         byte[] result = new byte[size];